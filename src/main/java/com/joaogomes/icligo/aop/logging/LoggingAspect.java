@@ -1,30 +1,67 @@
 package com.joaogomes.icligo.aop.logging;
 
-import java.util.Arrays;
+import com.joaogomes.icligo.config.ApplicationProperties;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import java.lang.reflect.Array;
+import java.lang.reflect.Method;
+import java.util.Collection;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
 import org.aspectj.lang.JoinPoint;
 import org.aspectj.lang.ProceedingJoinPoint;
 import org.aspectj.lang.annotation.AfterThrowing;
 import org.aspectj.lang.annotation.Around;
 import org.aspectj.lang.annotation.Aspect;
 import org.aspectj.lang.annotation.Pointcut;
+import org.aspectj.lang.reflect.MethodSignature;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.aop.framework.AopProxyUtils;
+import org.springframework.aop.support.AopUtils;
 import org.springframework.core.env.Environment;
 import org.springframework.core.env.Profiles;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.repository.Repository;
+import org.springframework.util.ClassUtils;
 import tech.jhipster.config.JHipsterConstants;
 
 /**
- * Aspect for logging execution of service and repository Spring components.
- *
- * By default, it only runs with the "dev" profile.
+ * Aspect for timing and logging execution of service and repository Spring components.
+ * <p>
+ * Every call is recorded into the {@value #TIMER_NAME} timer, tagged with its class, method and exception, as long as
+ * the {@code timing.<class name>} logger is at INFO level or below. The class of a Spring Data repository is its
+ * repository interface, including for the methods it inherits from {@code JpaRepository}: the timing of a package can be switched off at
+ * runtime by raising for instance {@code timing.com.joaogomes.icligo.repository} to WARN through the {@code loggers}
+ * actuator endpoint.
+ * <p>
+ * When the logger of the class is at DEBUG level, the arguments and result of a sample of the calls are logged,
+ * truncated, and collections and pages are only logged with their size.
  */
 @Aspect
 public class LoggingAspect {
 
+    public static final String TIMER_NAME = "method.timed";
+
+    static final String TIMING_LOGGER_PREFIX = "timing.";
+
     private final Environment env;
 
-    public LoggingAspect(Environment env) {
+    private final MeterRegistry meterRegistry;
+
+    private final double logSampleRate;
+
+    private final int maxArgumentLength;
+
+    private final Map<JoinPointKey, JoinPointMeters> joinPointMeters = new ConcurrentHashMap<>();
+
+    public LoggingAspect(Environment env, MeterRegistry meterRegistry, ApplicationProperties applicationProperties) {
         this.env = env;
+        this.meterRegistry = meterRegistry;
+        this.logSampleRate = applicationProperties.getAop().getLogSampleRate();
+        this.maxArgumentLength = applicationProperties.getAop().getMaxArgumentLength();
     }
 
     /**
@@ -52,25 +89,66 @@ public class LoggingAspect {
     }
 
     /**
-     * Retrieves the {@link Logger} associated to the given {@link JoinPoint}.
+     * Pointcut that matches all Spring Data repositories, whose beans are proxies outside of the application's packages.
+     */
+    @Pointcut("this(org.springframework.data.repository.Repository)")
+    public void springDataRepositoryPointcut() {
+        // Method is empty as this is just a Pointcut, the implementations are in the advices.
+    }
+
+    /**
+     * Retrieves the loggers and timer associated to the given {@link JoinPoint}, creating them on its first call.
      *
-     * @param joinPoint join point we want the logger for.
-     * @return {@link Logger} associated to the given {@link JoinPoint}.
+     * @param joinPoint join point we want the meters for.
+     * @return {@link JoinPointMeters} associated to the given {@link JoinPoint}.
+     */
+    private JoinPointMeters meters(JoinPoint joinPoint) {
+        // The inherited methods, such as JpaRepository#findById, are shared by several beans
+        JoinPointKey joinPointKey = new JoinPointKey(joinPoint.getTarget().getClass(), ((MethodSignature) joinPoint.getSignature()).getMethod());
+        JoinPointMeters meters = joinPointMeters.get(joinPointKey);
+        if (meters == null) {
+            String className = beanClass(joinPoint.getTarget()).getName();
+            meters = joinPointMeters.computeIfAbsent(joinPointKey, key ->
+                new JoinPointMeters(
+                    LoggerFactory.getLogger(className),
+                    LoggerFactory.getLogger(TIMING_LOGGER_PREFIX + className),
+                    Timer.builder(TIMER_NAME)
+                        .tag("class", className)
+                        .tag("method", key.method().getName())
+                        .tag("exception", "none")
+                        .register(meterRegistry),
+                    new ConcurrentHashMap<>()
+                )
+            );
+        }
+        return meters;
+    }
+
+    /**
+     * @return the class of the bean, or its repository interface for a Spring Data repository.
      */
-    private Logger logger(JoinPoint joinPoint) {
-        return LoggerFactory.getLogger(joinPoint.getSignature().getDeclaringTypeName());
+    private static Class<?> beanClass(Object target) {
+        if (target instanceof Repository<?, ?>) {
+            for (Class<?> proxiedInterface : AopProxyUtils.proxiedUserInterfaces(target)) {
+                if (Repository.class.isAssignableFrom(proxiedInterface)) {
+                    return proxiedInterface;
+                }
+            }
+        }
+        return ClassUtils.getUserClass(AopUtils.getTargetClass(target));
     }
 
     /**
-     * Advice that logs methods throwing exceptions.
+     * Advice that logs methods throwing exceptions, at ERROR level with the "dev" profile and DEBUG level otherwise.
      *
      * @param joinPoint join point for advice.
      * @param e exception.
      */
-    @AfterThrowing(pointcut = "applicationPackagePointcut() && springBeanPointcut()", throwing = "e")
+    @AfterThrowing(pointcut = "(applicationPackagePointcut() && springBeanPointcut()) || springDataRepositoryPointcut()", throwing = "e")
     public void logAfterThrowing(JoinPoint joinPoint, Throwable e) {
+        Logger log = meters(joinPoint).log();
         if (env.acceptsProfiles(Profiles.of(JHipsterConstants.SPRING_PROFILE_DEVELOPMENT))) {
-            logger(joinPoint).error(
+            log.error(
                 "Exception in {}() with cause = '{}' and exception = '{}'",
                 joinPoint.getSignature().getName(),
                 e.getCause() != null ? e.getCause() : "NULL",
@@ -78,7 +156,8 @@ public class LoggingAspect {
                 e
             );
         } else {
-            logger(joinPoint).error(
+            // The exception is handled by the caller or the ExceptionTranslator, the timer already counts it
+            log.debug(
                 "Exception in {}() with cause = {}",
                 joinPoint.getSignature().getName(),
                 e.getCause() != null ? String.valueOf(e.getCause()) : "NULL"
@@ -87,27 +166,94 @@ public class LoggingAspect {
     }
 
     /**
-     * Advice that logs when a method is entered and exited.
+     * Advice that times a method, and logs a sample of its entries and exits.
      *
      * @param joinPoint join point for advice.
      * @return result.
      * @throws Throwable throws {@link IllegalArgumentException}.
      */
-    @Around("applicationPackagePointcut() && springBeanPointcut()")
+    @Around("(applicationPackagePointcut() && springBeanPointcut()) || springDataRepositoryPointcut()")
     public Object logAround(ProceedingJoinPoint joinPoint) throws Throwable {
-        Logger log = logger(joinPoint);
-        if (log.isDebugEnabled()) {
-            log.debug("Enter: {}() with argument[s] = {}", joinPoint.getSignature().getName(), Arrays.toString(joinPoint.getArgs()));
+        JoinPointMeters meters = meters(joinPoint);
+        Logger log = meters.log();
+        boolean logged = log.isDebugEnabled() && ThreadLocalRandom.current().nextDouble() < logSampleRate;
+        if (logged) {
+            log.debug("Enter: {}() with argument[s] = {}", joinPoint.getSignature().getName(), abbreviateArguments(joinPoint.getArgs()));
         }
+        boolean timed = meters.timingLog().isInfoEnabled();
+        long start = timed ? System.nanoTime() : 0;
         try {
             Object result = joinPoint.proceed();
-            if (log.isDebugEnabled()) {
-                log.debug("Exit: {}() with result = {}", joinPoint.getSignature().getName(), result);
+            if (timed) {
+                meters.timer().record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+            }
+            if (logged) {
+                log.debug("Exit: {}() with result = {}", joinPoint.getSignature().getName(), abbreviate(result));
             }
             return result;
-        } catch (IllegalArgumentException e) {
-            log.error("Illegal argument: {} in {}()", Arrays.toString(joinPoint.getArgs()), joinPoint.getSignature().getName());
+        } catch (Throwable e) {
+            if (timed) {
+                meters.timer(meterRegistry, e).record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+            }
+            if (e instanceof IllegalArgumentException) {
+                log.error("Illegal argument: {} in {}()", abbreviateArguments(joinPoint.getArgs()), joinPoint.getSignature().getName());
+            }
             throw e;
         }
     }
+
+    private String abbreviateArguments(Object[] args) {
+        StringBuilder builder = new StringBuilder("[");
+        for (int i = 0; i < args.length; i++) {
+            if (i > 0) {
+                builder.append(", ");
+            }
+            builder.append(abbreviate(args[i]));
+        }
+        return builder.append(']').toString();
+    }
+
+    /**
+     * Renders a value for the logs, without rendering the elements of pages, collections and arrays.
+     *
+     * @param value value to render.
+     * @return the rendered value, at most {@code maxArgumentLength} characters long.
+     */
+    String abbreviate(Object value) {
+        String rendered;
+        if (value instanceof Slice<?> slice) {
+            rendered = value.getClass().getSimpleName() + "[number=" + slice.getNumber() + ", elements=" + slice.getNumberOfElements() + "]";
+        } else if (value instanceof Collection<?> collection) {
+            rendered = value.getClass().getSimpleName() + "[size=" + collection.size() + "]";
+        } else if (value instanceof Map<?, ?> map) {
+            rendered = value.getClass().getSimpleName() + "[size=" + map.size() + "]";
+        } else if (value != null && value.getClass().isArray()) {
+            rendered = value.getClass().getComponentType().getSimpleName() + "[" + Array.getLength(value) + "]";
+        } else {
+            rendered = String.valueOf(value);
+        }
+        return rendered.length() > maxArgumentLength ? rendered.substring(0, maxArgumentLength) + "..." : rendered;
+    }
+
+    /**
+     * Loggers and timers of a method, looked up once as {@link LoggerFactory#getLogger} and meter registration are too
+     * costly for every call. The timers of the failed calls are registered per exception class the first time it is
+     * thrown.
+     */
+    private record JoinPointKey(Class<?> targetClass, Method method) {}
+
+    private record JoinPointMeters(Logger log, Logger timingLog, Timer timer, Map<Class<?>, Timer> exceptionTimers) {
+        Timer timer(MeterRegistry meterRegistry, Throwable e) {
+            Timer exceptionTimer = exceptionTimers.get(e.getClass());
+            if (exceptionTimer == null) {
+                exceptionTimer = exceptionTimers.computeIfAbsent(e.getClass(), exceptionClass ->
+                    Timer.builder(TIMER_NAME)
+                        .tags(timer.getId().getTagsAsIterable())
+                        .tag("exception", exceptionClass.getSimpleName())
+                        .register(meterRegistry)
+                );
+            }
+            return exceptionTimer;
+        }
+    }
 }
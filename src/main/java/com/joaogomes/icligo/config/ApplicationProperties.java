@@ -1,5 +1,9 @@
 package com.joaogomes.icligo.config;
 
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
 import org.springframework.boot.context.properties.ConfigurationProperties;
 
 /**
@@ -13,12 +17,90 @@ public class ApplicationProperties {
 
     private final Liquibase liquibase = new Liquibase();
 
+    private final Cache cache = new Cache();
+
+    private final RememberMe rememberMe = new RememberMe();
+
+    private final Aop aop = new Aop();
+
+    private final MailOutbox mailOutbox = new MailOutbox();
+
+    private final MailTemplates mailTemplates = new MailTemplates();
+
+    private final Cleanup cleanup = new Cleanup();
+
+    private final ReadReplica readReplica = new ReadReplica();
+
+    private final SqlStatistics sqlStatistics = new SqlStatistics();
+
+    private final CarAvailabilityIndex carAvailabilityIndex = new CarAvailabilityIndex();
+
+    private final AsyncLogging asyncLogging = new AsyncLogging();
+
+    private final ConcurrencyLimit concurrencyLimit = new ConcurrencyLimit();
+
+    private final PasswordHashing passwordHashing = new PasswordHashing();
+
+    private final LoginThrottling loginThrottling = new LoginThrottling();
+
     // jhipster-needle-application-properties-property
 
     public Liquibase getLiquibase() {
         return liquibase;
     }
 
+    public Cache getCache() {
+        return cache;
+    }
+
+    public RememberMe getRememberMe() {
+        return rememberMe;
+    }
+
+    public Aop getAop() {
+        return aop;
+    }
+
+    public MailOutbox getMailOutbox() {
+        return mailOutbox;
+    }
+
+    public MailTemplates getMailTemplates() {
+        return mailTemplates;
+    }
+
+    public Cleanup getCleanup() {
+        return cleanup;
+    }
+
+    public ReadReplica getReadReplica() {
+        return readReplica;
+    }
+
+    public SqlStatistics getSqlStatistics() {
+        return sqlStatistics;
+    }
+
+    public CarAvailabilityIndex getCarAvailabilityIndex() {
+        return carAvailabilityIndex;
+    }
+
+    public AsyncLogging getAsyncLogging() {
+        return asyncLogging;
+    }
+
+    public ConcurrencyLimit getConcurrencyLimit() {
+        return concurrencyLimit;
+    }
+
+    public PasswordHashing getPasswordHashing() {
+        return passwordHashing;
+    }
+
+    public LoginThrottling getLoginThrottling() {
+        return loginThrottling;
+    }
+
     // jhipster-needle-application-properties-property-getter
 
     public static class Liquibase {
@@ -33,5 +115,759 @@ public class ApplicationProperties {
             this.asyncStart = asyncStart;
         }
     }
+
+    public static class Cache {
+
+        /**
+         * Fully qualified name of the JCache {@code CachingProvider} backing the Spring and Hibernate caches.
+         */
+        private String provider = "com.github.benmanes.caffeine.jcache.spi.CaffeineCachingProvider";
+
+        private final Shared shared = new Shared();
+
+        private long timeToLiveSeconds = 3600;
+
+        private long maxEntries = 100;
+
+        /**
+         * Per-region overrides, keyed by cache name (use the {@code "[com.example.Entity]"} notation for names containing dots).
+         */
+        private Map<String, Region> regions = new HashMap<>();
+
+        public String getProvider() {
+            return provider;
+        }
+
+        public void setProvider(String provider) {
+            this.provider = provider;
+        }
+
+        public long getTimeToLiveSeconds() {
+            return timeToLiveSeconds;
+        }
+
+        public void setTimeToLiveSeconds(long timeToLiveSeconds) {
+            this.timeToLiveSeconds = timeToLiveSeconds;
+        }
+
+        public long getMaxEntries() {
+            return maxEntries;
+        }
+
+        public void setMaxEntries(long maxEntries) {
+            this.maxEntries = maxEntries;
+        }
+
+        public Shared getShared() {
+            return shared;
+        }
+
+        public Map<String, Region> getRegions() {
+            return regions;
+        }
+
+        public void setRegions(Map<String, Region> regions) {
+            this.regions = regions;
+        }
+
+        public long getTimeToLiveSeconds(String cacheName) {
+            Region region = regions.get(cacheName);
+            return region != null && region.getTimeToLiveSeconds() != null ? region.getTimeToLiveSeconds() : timeToLiveSeconds;
+        }
+
+        public long getMaxEntries(String cacheName) {
+            Region region = regions.get(cacheName);
+            return region != null && region.getMaxEntries() != null ? region.getMaxEntries() : maxEntries;
+        }
+
+        public static class Region {
+
+            private Long timeToLiveSeconds;
+
+            private Long maxEntries;
+
+            public Long getTimeToLiveSeconds() {
+                return timeToLiveSeconds;
+            }
+
+            public void setTimeToLiveSeconds(Long timeToLiveSeconds) {
+                this.timeToLiveSeconds = timeToLiveSeconds;
+            }
+
+            public Long getMaxEntries() {
+                return maxEntries;
+            }
+
+            public void setMaxEntries(Long maxEntries) {
+                this.maxEntries = maxEntries;
+            }
+        }
+
+        /**
+         * Caches shared between the nodes of a cluster, only the remember-me tokens upgraded in the last seconds. The
+         * other caches, which hold the users and their password hashes, stay in each node.
+         */
+        public static class Shared {
+
+            /**
+             * Fully qualified name of the JCache {@code CachingProvider} of the shared caches, the one of the other caches
+             * when not set.
+             */
+            private String provider;
+
+            /**
+             * Properties given to the shared caching provider, such as the location of its configuration.
+             */
+            private Map<String, String> properties = new HashMap<>();
+
+            public String getProvider() {
+                return provider;
+            }
+
+            public void setProvider(String provider) {
+                this.provider = provider;
+            }
+
+            public Map<String, String> getProperties() {
+                return properties;
+            }
+
+            public void setProperties(Map<String, String> properties) {
+                this.properties = properties;
+            }
+        }
+    }
+
+    public static class RememberMe {
+
+        /**
+         * Delay between two writes of the remember-me token activity (last use date, IP address and user agent).
+         */
+        private Duration activityFlushInterval = Duration.ofSeconds(1);
+
+        /**
+         * Maximum number of token activity updates sent in one JDBC batch.
+         */
+        private int activityBatchSize = 500;
+
+        public Duration getActivityFlushInterval() {
+            return activityFlushInterval;
+        }
+
+        public void setActivityFlushInterval(Duration activityFlushInterval) {
+            this.activityFlushInterval = activityFlushInterval;
+        }
+
+        public int getActivityBatchSize() {
+            return activityBatchSize;
+        }
+
+        public void setActivityBatchSize(int activityBatchSize) {
+            this.activityBatchSize = activityBatchSize;
+        }
+    }
+
+    public static class Aop {
+
+        /**
+         * Share of the calls whose arguments and result are logged, when their logger is at DEBUG level.
+         */
+        private double logSampleRate = 0.01;
+
+        /**
+         * Length above which a logged argument or result is truncated.
+         */
+        private int maxArgumentLength = 256;
+
+        public double getLogSampleRate() {
+            return logSampleRate;
+        }
+
+        public void setLogSampleRate(double logSampleRate) {
+            this.logSampleRate = logSampleRate;
+        }
+
+        public int getMaxArgumentLength() {
+            return maxArgumentLength;
+        }
+
+        public void setMaxArgumentLength(int maxArgumentLength) {
+            this.maxArgumentLength = maxArgumentLength;
+        }
+    }
+
+    public static class MailOutbox {
+
+        /**
+         * Delay between two polls of the outbox for emails due for sending.
+         */
+        private Duration pollInterval = Duration.ofSeconds(2);
+
+        /**
+         * Maximum number of emails sent over one SMTP connection.
+         */
+        private int batchSize = 50;
+
+        /**
+         * Maximum number of emails rendered then inserted in one JDBC batch, when emails are queued for many users.
+         */
+        private int insertBatchSize = 500;
+
+        /**
+         * Number of failed attempts after which an email is no longer retried.
+         */
+        private int maxAttempts = 5;
+
+        /**
+         * Delay before the first retry of an email, doubled on every further failure.
+         */
+        private Duration initialBackoff = Duration.ofSeconds(30);
+
+        private Duration maxBackoff = Duration.ofHours(1);
+
+        /**
+         * Delay after which emails claimed by a sender which stopped before sending them are claimed again.
+         */
+        private Duration claimTimeout = Duration.ofMinutes(5);
+
+        public Duration getPollInterval() {
+            return pollInterval;
+        }
+
+        public void setPollInterval(Duration pollInterval) {
+            this.pollInterval = pollInterval;
+        }
+
+        public int getBatchSize() {
+            return batchSize;
+        }
+
+        public int getInsertBatchSize() {
+            return insertBatchSize;
+        }
+
+        public void setInsertBatchSize(int insertBatchSize) {
+            this.insertBatchSize = insertBatchSize;
+        }
+
+        public void setBatchSize(int batchSize) {
+            this.batchSize = batchSize;
+        }
+
+        public int getMaxAttempts() {
+            return maxAttempts;
+        }
+
+        public void setMaxAttempts(int maxAttempts) {
+            this.maxAttempts = maxAttempts;
+        }
+
+        public Duration getInitialBackoff() {
+            return initialBackoff;
+        }
+
+        public void setInitialBackoff(Duration initialBackoff) {
+            this.initialBackoff = initialBackoff;
+        }
+
+        public Duration getMaxBackoff() {
+            return maxBackoff;
+        }
+
+        public void setMaxBackoff(Duration maxBackoff) {
+            this.maxBackoff = maxBackoff;
+        }
+
+        public Duration getClaimTimeout() {
+            return claimTimeout;
+        }
+
+        public void setClaimTimeout(Duration claimTimeout) {
+            this.claimTimeout = claimTimeout;
+        }
+    }
+
+    public static class MailTemplates {
+
+        /**
+         * Languages the mail templates are compiled for when the application starts, the other ones are compiled on
+         * their first use.
+         */
+        private List<String> languages = List.of("en", "pt-pt");
+
+        public List<String> getLanguages() {
+            return languages;
+        }
+
+        public void setLanguages(List<String> languages) {
+            this.languages = languages;
+        }
+    }
+
+    public static class Cleanup {
+
+        /**
+         * Maximum number of rows deleted in one transaction by the nightly cleanup of old persistent tokens and not
+         * activated users.
+         */
+        private int chunkSize = 500;
+
+        public int getChunkSize() {
+            return chunkSize;
+        }
+
+        public void setChunkSize(int chunkSize) {
+            this.chunkSize = chunkSize;
+        }
+    }
+
+    public static class ReadReplica {
+
+        /**
+         * Replication lag above which read-only transactions go back to the primary database.
+         */
+        private Duration maxLag = Duration.ofSeconds(10);
+
+        private Duration lagCheckInterval = Duration.ofSeconds(5);
+
+        /**
+         * Query run on the replica to measure its replication lag.
+         */
+        private String lagQuery = "SHOW REPLICA STATUS";
+
+        /**
+         * Column of the first row returned by the lag query holding the replication lag, in seconds. The replica is
+         * considered out of date when there is no such row or the column is null, for instance when replication is
+         * stopped.
+         */
+        private String lagColumn = "Seconds_Behind_Source";
+
+        public Duration getMaxLag() {
+            return maxLag;
+        }
+
+        public void setMaxLag(Duration maxLag) {
+            this.maxLag = maxLag;
+        }
+
+        public Duration getLagCheckInterval() {
+            return lagCheckInterval;
+        }
+
+        public void setLagCheckInterval(Duration lagCheckInterval) {
+            this.lagCheckInterval = lagCheckInterval;
+        }
+
+        public String getLagQuery() {
+            return lagQuery;
+        }
+
+        public void setLagQuery(String lagQuery) {
+            this.lagQuery = lagQuery;
+        }
+
+        public String getLagColumn() {
+            return lagColumn;
+        }
+
+        public void setLagColumn(String lagColumn) {
+            this.lagColumn = lagColumn;
+        }
+    }
+
+    public static class SqlStatistics {
+
+        /**
+         * Whether the SQL statements run by each HTTP request are counted. Every statement and result set is then proxied.
+         */
+        private boolean enabled = false;
+
+        /**
+         * Number of statements above which a request is logged.
+         */
+        private int maxStatements = 30;
+
+        /**
+         * Time spent running statements above which a request is logged.
+         */
+        private Duration maxTime = Duration.ofMillis(500);
+
+        /**
+         * Number of times a request may run the same statement before it is logged as a possible N+1 select.
+         */
+        private int maxRepeatedStatements = 10;
+
+        public boolean isEnabled() {
+            return enabled;
+        }
+
+        public void setEnabled(boolean enabled) {
+            this.enabled = enabled;
+        }
+
+        public int getMaxStatements() {
+            return maxStatements;
+        }
+
+        public void setMaxStatements(int maxStatements) {
+            this.maxStatements = maxStatements;
+        }
+
+        public Duration getMaxTime() {
+            return maxTime;
+        }
+
+        public void setMaxTime(Duration maxTime) {
+            this.maxTime = maxTime;
+        }
+
+        public int getMaxRepeatedStatements() {
+            return maxRepeatedStatements;
+        }
+
+        public void setMaxRepeatedStatements(int maxRepeatedStatements) {
+            this.maxRepeatedStatements = maxRepeatedStatements;
+        }
+    }
+
+    public static class CarAvailabilityIndex {
+
+        /**
+         * Whether the available cars are indexed in memory, to answer the queries on available cars without the database.
+         * The index is only kept up to date by the writes of its own instance, so it is for single-node deployments
+         * only: keep it disabled when several instances share the database.
+         */
+        private boolean enabled = false;
+
+        public boolean isEnabled() {
+            return enabled;
+        }
+
+        public void setEnabled(boolean enabled) {
+            this.enabled = enabled;
+        }
+    }
+
+    public static class AsyncLogging {
+
+        /**
+         * Whether the root logger writes to its appenders from a worker thread, see MeteredAsyncAppender.
+         */
+        private boolean enabled = false;
+
+        /**
+         * Number of log events buffered for the worker thread.
+         */
+        private int queueSize = 1024;
+
+        /**
+         * What to do with the log events once the buffer is full.
+         */
+        private MeteredAsyncAppender.OverflowPolicy overflowPolicy = MeteredAsyncAppender.OverflowPolicy.DROP;
+
+        /**
+         * Time given to the worker thread to write the buffered events on shutdown.
+         */
+        private Duration maxFlushTime = Duration.ofSeconds(1);
+
+        public boolean isEnabled() {
+            return enabled;
+        }
+
+        public void setEnabled(boolean enabled) {
+            this.enabled = enabled;
+        }
+
+        public int getQueueSize() {
+            return queueSize;
+        }
+
+        public void setQueueSize(int queueSize) {
+            this.queueSize = queueSize;
+        }
+
+        public MeteredAsyncAppender.OverflowPolicy getOverflowPolicy() {
+            return overflowPolicy;
+        }
+
+        public void setOverflowPolicy(MeteredAsyncAppender.OverflowPolicy overflowPolicy) {
+            this.overflowPolicy = overflowPolicy;
+        }
+
+        public Duration getMaxFlushTime() {
+            return maxFlushTime;
+        }
+
+        public void setMaxFlushTime(Duration maxFlushTime) {
+            this.maxFlushTime = maxFlushTime;
+        }
+    }
+    public static class ConcurrencyLimit {
+
+        /**
+         * Whether the API requests in progress at the same time are limited, see ConcurrencyLimitFilter.
+         */
+        private boolean enabled = true;
+
+        /**
+         * Delay sent in the Retry-After header of the rejected requests.
+         */
+        private Duration retryAfter = Duration.ofSeconds(1);
+
+        /**
+         * Ant patterns of the paths whose latency does not adapt the limit of their group, as it depends on the size of
+         * the request. The streamed responses are never sampled either.
+         */
+        private List<String> unsampledPaths = List.of("/api/cars/bulk");
+
+        private final Group cars = new Group(20, 2, 200, "/api/cars/**");
+
+        private final Group adminUsers = new Group(5, 1, 20, "/api/admin/users/**");
+
+        private final Group account = new Group(
+            10,
+            2,
+            100,
+            "/api/account/**",
+            "/api/authenticate",
+            "/api/authentication",
+            "/api/register",
+            "/api/activate",
+            "/api/logout"
+        );
+
+        /**
+         * The API requests of none of the other groups.
+         */
+        private final Group api = new Group(20, 2, 200, "/api/**");
+
+        public boolean isEnabled() {
+            return enabled;
+        }
+
+        public void setEnabled(boolean enabled) {
+            this.enabled = enabled;
+        }
+
+        public Duration getRetryAfter() {
+            return retryAfter;
+        }
+
+        public void setRetryAfter(Duration retryAfter) {
+            this.retryAfter = retryAfter;
+        }
+
+        public List<String> getUnsampledPaths() {
+            return unsampledPaths;
+        }
+
+        public void setUnsampledPaths(List<String> unsampledPaths) {
+            this.unsampledPaths = unsampledPaths;
+        }
+
+        public Group getCars() {
+            return cars;
+        }
+
+        public Group getAdminUsers() {
+            return adminUsers;
+        }
+
+        public Group getAccount() {
+            return account;
+        }
+
+        public Group getApi() {
+            return api;
+        }
+
+        public static class Group {
+
+            /**
+             * Ant patterns of the paths of the group.
+             */
+            private List<String> paths;
+
+            /**
+             * Requests in progress allowed before any latency was measured.
+             */
+            private int initialLimit;
+
+            private int minLimit;
+
+            private int maxLimit;
+
+            public Group(int initialLimit, int minLimit, int maxLimit, String... paths) {
+                this.initialLimit = initialLimit;
+                this.minLimit = minLimit;
+                this.maxLimit = maxLimit;
+                this.paths = List.of(paths);
+            }
+
+            public List<String> getPaths() {
+                return paths;
+            }
+
+            public void setPaths(List<String> paths) {
+                this.paths = paths;
+            }
+
+            public int getInitialLimit() {
+                return initialLimit;
+            }
+
+            public void setInitialLimit(int initialLimit) {
+                this.initialLimit = initialLimit;
+            }
+
+            public int getMinLimit() {
+                return minLimit;
+            }
+
+            public void setMinLimit(int minLimit) {
+                this.minLimit = minLimit;
+            }
+
+            public int getMaxLimit() {
+                return maxLimit;
+            }
+
+            public void setMaxLimit(int maxLimit) {
+                this.maxLimit = maxLimit;
+            }
+        }
+    }
+
+    public static class PasswordHashing {
+
+        /**
+         * BCrypt cost of the password hashes, the hashes of another cost are rehashed when their user logs in.
+         */
+        private int bcryptCost = 10;
+
+        /**
+         * Threads hashing and verifying the passwords.
+         */
+        private int threads = Math.max(1, Runtime.getRuntime().availableProcessors() / 2);
+
+        /**
+         * Passwords waiting for a thread, above which hashing is refused.
+         */
+        private int queueSize = 100;
+
+        public int getBcryptCost() {
+            return bcryptCost;
+        }
+
+        public void setBcryptCost(int bcryptCost) {
+            this.bcryptCost = bcryptCost;
+        }
+
+        public int getThreads() {
+            return threads;
+        }
+
+        public void setThreads(int threads) {
+            this.threads = threads;
+        }
+
+        public int getQueueSize() {
+            return queueSize;
+        }
+
+        public void setQueueSize(int queueSize) {
+            this.queueSize = queueSize;
+        }
+    }
+
+    public static class LoginThrottling {
+
+        /**
+         * Whether the login attempts are throttled per login and per client IP, see LoginThrottlingFilter.
+         */
+        private boolean enabled = true;
+
+        private final Bucket perLogin = new Bucket(10, Duration.ofMinutes(5));
+
+        private final Bucket perIp = new Bucket(100, Duration.ofMinutes(1));
+
+        /**
+         * Logins and IPs whose attempts are tracked, the least used buckets are forgotten above it.
+         */
+        private int maxTrackedKeys = 100_000;
+
+        /**
+         * Addresses or CIDR ranges of the proxies whose X-Forwarded-For header gives the client IP. The header of other
+         * peers is ignored, as any client can set it.
+         */
+        private List<String> trustedProxies = List.of();
+
+        public boolean isEnabled() {
+            return enabled;
+        }
+
+        public void setEnabled(boolean enabled) {
+            this.enabled = enabled;
+        }
+
+        public Bucket getPerLogin() {
+            return perLogin;
+        }
+
+        public Bucket getPerIp() {
+            return perIp;
+        }
+
+        public int getMaxTrackedKeys() {
+            return maxTrackedKeys;
+        }
+
+        public void setMaxTrackedKeys(int maxTrackedKeys) {
+            this.maxTrackedKeys = maxTrackedKeys;
+        }
+
+        public List<String> getTrustedProxies() {
+            return trustedProxies;
+        }
+
+        public void setTrustedProxies(List<String> trustedProxies) {
+            this.trustedProxies = trustedProxies;
+        }
+
+        public static class Bucket {
+
+            /**
+             * Attempts allowed in a burst.
+             */
+            private int capacity;
+
+            /**
+             * Time to get back all the attempts of a burst.
+             */
+            private Duration refillPeriod;
+
+            public Bucket(int capacity, Duration refillPeriod) {
+                this.capacity = capacity;
+                this.refillPeriod = refillPeriod;
+            }
+
+            public int getCapacity() {
+                return capacity;
+            }
+
+            public void setCapacity(int capacity) {
+                this.capacity = capacity;
+            }
+
+            public Duration getRefillPeriod() {
+                return refillPeriod;
+            }
+
+            public void setRefillPeriod(Duration refillPeriod) {
+                this.refillPeriod = refillPeriod;
+            }
+        }
+    }
+
     // jhipster-needle-application-properties-property-class
 }
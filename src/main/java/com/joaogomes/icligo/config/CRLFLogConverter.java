@@ -6,6 +6,7 @@ import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 import org.slf4j.Marker;
 import org.slf4j.MarkerFactory;
 import org.springframework.boot.ansi.AnsiColor;
@@ -15,7 +16,8 @@ import org.springframework.boot.ansi.AnsiStyle;
 
 /**
  * Log filter to prevent attackers from forging log entries by submitting input containing CRLF characters.
- * CRLF characters are replaced with a red colored _ character.
+ * CRLF characters are replaced with a red colored _ character. The messages are scanned once, and returned as is when
+ * they contain none.
  *
  * @see <a href="https://owasp.org/www-community/attacks/Log_Injection">Log Forging Description</a>
  * @see <a href="https://github.com/jhipster/generator-jhipster/issues/14949">JHipster issue</a>
@@ -29,6 +31,11 @@ public class CRLFLogConverter extends CompositeConverter<ILoggingEvent> {
         "org.springframework.boot.autoconfigure",
         "org.springframework.boot.diagnostics",
     };
+    /**
+     * Whether each logger is safe, the logger names being a bounded set.
+     */
+    private static final Map<String, Boolean> SAFE_LOGGERS = new ConcurrentHashMap<>();
+
     private static final Map<String, AnsiElement> ELEMENTS;
 
     static {
@@ -45,18 +52,45 @@ public class CRLFLogConverter extends CompositeConverter<ILoggingEvent> {
 
     @Override
     protected String transform(ILoggingEvent event, String in) {
-        AnsiElement element = ELEMENTS.get(getFirstOption());
+        int first = indexOfControlCharacter(in, 0);
+        if (first < 0) {
+            return in;
+        }
         List<Marker> markers = event.getMarkerList();
         if ((markers != null && !markers.isEmpty() && markers.get(0).contains(CRLF_SAFE_MARKER)) || isLoggerSafe(event)) {
             return in;
         }
+        AnsiElement element = ELEMENTS.get(getFirstOption());
         String replacement = element == null ? "_" : toAnsiString("_", element);
-        return in.replaceAll("[\n\r\t]", replacement);
+        StringBuilder out = new StringBuilder(in.length() + replacement.length() * 2);
+        int start = 0;
+        for (int i = first; i >= 0; i = indexOfControlCharacter(in, start)) {
+            out.append(in, start, i).append(replacement);
+            start = i + 1;
+        }
+        return out.append(in, start, in.length()).toString();
+    }
+
+    /**
+     * @return the index of the first CR, LF or tab character from the given index, or {@code -1} if there is none.
+     */
+    private static int indexOfControlCharacter(String in, int from) {
+        for (int i = from; i < in.length(); i++) {
+            char c = in.charAt(i);
+            if (c == '\n' || c == '\r' || c == '\t') {
+                return i;
+            }
+        }
+        return -1;
     }
 
     protected boolean isLoggerSafe(ILoggingEvent event) {
+        return SAFE_LOGGERS.computeIfAbsent(event.getLoggerName(), CRLFLogConverter::isSafeLogger);
+    }
+
+    private static boolean isSafeLogger(String loggerName) {
         for (String safeLogger : SAFE_LOGS) {
-            if (event.getLoggerName().startsWith(safeLogger)) {
+            if (loggerName.startsWith(safeLogger)) {
                 return true;
             }
         }
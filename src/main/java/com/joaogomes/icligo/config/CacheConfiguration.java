@@ -0,0 +1,129 @@
+package com.joaogomes.icligo.config;
+
+import com.github.benmanes.caffeine.jcache.configuration.CaffeineConfiguration;
+import java.util.OptionalLong;
+import java.util.Properties;
+import java.util.concurrent.TimeUnit;
+import javax.cache.Caching;
+import javax.cache.configuration.MutableConfiguration;
+import javax.cache.expiry.CreatedExpiryPolicy;
+import javax.cache.expiry.Duration;
+import javax.cache.spi.CachingProvider;
+import org.hibernate.cache.jcache.ConfigSettings;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.orm.jpa.HibernatePropertiesCustomizer;
+import org.springframework.boot.info.BuildProperties;
+import org.springframework.boot.info.GitProperties;
+import org.springframework.cache.annotation.EnableCaching;
+import org.springframework.cache.interceptor.KeyGenerator;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+import tech.jhipster.config.cache.PrefixedKeyGenerator;
+
+/**
+ * JCache configuration shared by the Spring cache abstraction and the Hibernate second-level cache.
+ * <p>
+ * The caching provider and the per-region limits are read from {@link ApplicationProperties.Cache}.
+ * <p>
+ * The caches shared between the nodes of a cluster, only the remember-me tokens upgraded in the last seconds, have a
+ * cache manager of their own, see {@link ApplicationProperties.Cache.Shared}. The other caches hold users with their
+ * password hash, reset and activation keys, and never leave the node.
+ */
+@Configuration
+@EnableCaching
+public class CacheConfiguration {
+
+    private static final Logger LOG = LoggerFactory.getLogger(CacheConfiguration.class);
+
+    private GitProperties gitProperties;
+    private BuildProperties buildProperties;
+
+    private final ApplicationProperties.Cache cacheProperties;
+
+    public CacheConfiguration(ApplicationProperties applicationProperties) {
+        this.cacheProperties = applicationProperties.getCache();
+    }
+
+    @Bean(destroyMethod = "close")
+    @Primary
+    public javax.cache.CacheManager jCacheCacheManager() {
+        LOG.debug("Creating JCache cache manager with provider {}", cacheProperties.getProvider());
+        CachingProvider cachingProvider = Caching.getCachingProvider(cacheProperties.getProvider());
+        javax.cache.CacheManager cm = cachingProvider.getCacheManager(cachingProvider.getDefaultURI(), getClass().getClassLoader());
+        createCache(cm, com.joaogomes.icligo.repository.UserRepository.USERS_BY_LOGIN_CACHE);
+        createCache(cm, com.joaogomes.icligo.repository.UserRepository.USERS_BY_EMAIL_CACHE);
+        createCache(cm, com.joaogomes.icligo.security.DomainUserDetailsService.USER_DETAILS_BY_LOGIN_CACHE);
+        createCache(cm, com.joaogomes.icligo.security.DomainUserDetailsService.USER_DETAILS_BY_EMAIL_CACHE);
+        createCache(cm, com.joaogomes.icligo.domain.User.class.getName());
+        createCache(cm, com.joaogomes.icligo.domain.Authority.class.getName());
+        createCache(cm, com.joaogomes.icligo.domain.User.class.getName() + ".authorities");
+        createCache(cm, com.joaogomes.icligo.domain.Car.class.getName());
+        // jhipster-needle-caffeine-add-entry
+        return cm;
+    }
+
+    /**
+     * Cache manager of the caches shared between the nodes. Without a shared provider, it is the same manager as the
+     * {@link #jCacheCacheManager()} one.
+     */
+    @Bean(destroyMethod = "close")
+    public javax.cache.CacheManager sharedJCacheCacheManager() {
+        ApplicationProperties.Cache.Shared shared = cacheProperties.getShared();
+        String provider = shared.getProvider() != null ? shared.getProvider() : cacheProperties.getProvider();
+        LOG.debug("Creating shared JCache cache manager with provider {}", provider);
+        CachingProvider cachingProvider = Caching.getCachingProvider(provider);
+        Properties properties = new Properties();
+        properties.putAll(shared.getProperties());
+        javax.cache.CacheManager cm = cachingProvider.getCacheManager(cachingProvider.getDefaultURI(), getClass().getClassLoader(), properties);
+        createCache(cm, com.joaogomes.icligo.security.PersistentTokenRememberMeServices.UPGRADED_TOKENS_CACHE);
+        return cm;
+    }
+
+    @Bean
+    public HibernatePropertiesCustomizer hibernatePropertiesCustomizer(javax.cache.CacheManager cacheManager) {
+        return hibernateProperties -> hibernateProperties.put(ConfigSettings.CACHE_MANAGER, cacheManager);
+    }
+
+    private void createCache(javax.cache.CacheManager cm, String cacheName) {
+        javax.cache.Cache<Object, Object> cache = cm.getCache(cacheName);
+        if (cache != null) {
+            cache.clear();
+        } else {
+            cm.createCache(cacheName, jcacheConfiguration(cm, cacheName));
+        }
+    }
+
+    private javax.cache.configuration.Configuration<Object, Object> jcacheConfiguration(javax.cache.CacheManager cm, String cacheName) {
+        long timeToLiveSeconds = cacheProperties.getTimeToLiveSeconds(cacheName);
+        if (cm.getCachingProvider() instanceof com.github.benmanes.caffeine.jcache.spi.CaffeineCachingProvider) {
+            CaffeineConfiguration<Object, Object> caffeineConfiguration = new CaffeineConfiguration<>();
+            caffeineConfiguration.setMaximumSize(OptionalLong.of(cacheProperties.getMaxEntries(cacheName)));
+            caffeineConfiguration.setExpireAfterWrite(OptionalLong.of(TimeUnit.SECONDS.toNanos(timeToLiveSeconds)));
+            caffeineConfiguration.setStatisticsEnabled(true);
+            return caffeineConfiguration;
+        }
+        // Other providers only get the standard JCache settings, their size limits come from their own configuration
+        MutableConfiguration<Object, Object> configuration = new MutableConfiguration<>();
+        configuration.setExpiryPolicyFactory(CreatedExpiryPolicy.factoryOf(new Duration(TimeUnit.SECONDS, timeToLiveSeconds)));
+        configuration.setStatisticsEnabled(true);
+        return configuration;
+    }
+
+    @Autowired(required = false)
+    public void setGitProperties(GitProperties gitProperties) {
+        this.gitProperties = gitProperties;
+    }
+
+    @Autowired(required = false)
+    public void setBuildProperties(BuildProperties buildProperties) {
+        this.buildProperties = buildProperties;
+    }
+
+    @Bean
+    public KeyGenerator keyGenerator() {
+        return new PrefixedKeyGenerator(this.gitProperties, this.buildProperties);
+    }
+}
@@ -1,10 +1,20 @@
 package com.joaogomes.icligo.config;
 
 import java.sql.SQLException;
+import java.util.List;
+import org.hibernate.boot.Metadata;
+import org.hibernate.boot.spi.BootstrapContext;
+import org.hibernate.engine.spi.SessionFactoryImplementor;
+import org.hibernate.event.service.spi.EventListenerRegistry;
+import org.hibernate.event.spi.EventType;
+import org.hibernate.integrator.spi.Integrator;
+import org.hibernate.jpa.boot.spi.IntegratorProvider;
+import org.hibernate.service.spi.SessionFactoryServiceRegistry;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import org.springframework.boot.autoconfigure.h2.H2ConsoleProperties;
+import org.springframework.boot.autoconfigure.orm.jpa.HibernatePropertiesCustomizer;
 import org.springframework.boot.context.properties.EnableConfigurationProperties;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
@@ -25,6 +35,8 @@ public class DatabaseConfiguration {
 
     private static final Logger LOG = LoggerFactory.getLogger(DatabaseConfiguration.class);
 
+    private static final String INTEGRATOR_PROVIDER = "hibernate.integrator_provider";
+
     private final Environment env;
 
     public DatabaseConfiguration(Environment env) {
@@ -46,6 +58,34 @@ public class DatabaseConfiguration {
         return H2ConfigurationHelper.createServer(port);
     }
 
+    /**
+     * Register the {@link TableChangeListener}, which counts the changes of the tables read by the collection ETags.
+     *
+     * @return the customizer adding the listener to the Hibernate events.
+     */
+    @Bean
+    public HibernatePropertiesCustomizer tableChangeListenerCustomizer() {
+        TableChangeListener listener = new TableChangeListener();
+        Integrator integrator = new Integrator() {
+            @Override
+            public void integrate(Metadata metadata, BootstrapContext bootstrapContext, SessionFactoryImplementor sessionFactory) {
+                EventListenerRegistry registry = sessionFactory.getServiceRegistry().requireService(EventListenerRegistry.class);
+                registry.appendListeners(EventType.POST_INSERT, listener);
+                registry.appendListeners(EventType.POST_UPDATE, listener);
+                registry.appendListeners(EventType.POST_DELETE, listener);
+                registry.appendListeners(EventType.POST_COLLECTION_RECREATE, listener);
+                registry.appendListeners(EventType.POST_COLLECTION_UPDATE, listener);
+                registry.appendListeners(EventType.POST_COLLECTION_REMOVE, listener);
+            }
+
+            @Override
+            public void disintegrate(SessionFactoryImplementor sessionFactory, SessionFactoryServiceRegistry serviceRegistry) {
+                // Nothing to release
+            }
+        };
+        return hibernateProperties -> hibernateProperties.put(INTEGRATOR_PROVIDER, (IntegratorProvider) () -> List.of(integrator));
+    }
+
     private String getValidPortForH2() {
         int port = Integer.parseInt(env.getProperty("server.port"));
         if (port < 10000) {
@@ -1,17 +1,16 @@
 package com.joaogomes.icligo.config;
 
 import com.joaogomes.icligo.aop.logging.LoggingAspect;
+import io.micrometer.core.instrument.MeterRegistry;
 import org.springframework.context.annotation.*;
 import org.springframework.core.env.Environment;
-import tech.jhipster.config.JHipsterConstants;
 
 @Configuration
 @EnableAspectJAutoProxy
 public class LoggingAspectConfiguration {
 
     @Bean
-    @Profile(JHipsterConstants.SPRING_PROFILE_DEVELOPMENT)
-    public LoggingAspect loggingAspect(Environment env) {
-        return new LoggingAspect(env);
+    public LoggingAspect loggingAspect(Environment env, MeterRegistry meterRegistry, ApplicationProperties applicationProperties) {
+        return new LoggingAspect(env, meterRegistry, applicationProperties);
     }
 }
@@ -2,26 +2,41 @@ package com.joaogomes.icligo.config;
 
 import static tech.jhipster.config.logging.LoggingUtils.*;
 
+import ch.qos.logback.classic.Logger;
 import ch.qos.logback.classic.LoggerContext;
+import ch.qos.logback.classic.spi.ILoggingEvent;
+import ch.qos.logback.core.Appender;
 import com.fasterxml.jackson.core.JsonProcessingException;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import tech.jhipster.config.JHipsterProperties;
 
 /*
- * Configures the console and Logstash log appenders from the app properties
+ * Configures the console and Logstash log appenders from the app properties, and moves the appenders of the root logger
+ * behind a MeteredAsyncAppender when application.async-logging is enabled
  */
 @Configuration
 public class LoggingConfiguration {
 
+    private static final String ASYNC_APPENDER_NAME = "ASYNC";
+
+    private final MeteredAsyncAppender asyncAppender;
+
     public LoggingConfiguration(
         @Value("${spring.application.name}") String appName,
         @Value("${server.port}") String serverPort,
         JHipsterProperties jHipsterProperties,
+        ApplicationProperties applicationProperties,
         ObjectMapper mapper
     ) throws JsonProcessingException {
         LoggerContext context = (LoggerContext) LoggerFactory.getILoggerFactory();
@@ -43,5 +58,45 @@ public class LoggingConfiguration {
         if (loggingProperties.isUseJsonFormat() || logstashProperties.isEnabled()) {
             addContextListener(context, customFields, loggingProperties);
         }
+        ApplicationProperties.AsyncLogging asyncLogging = applicationProperties.getAsyncLogging();
+        asyncAppender = asyncLogging.isEnabled() ? addAsyncAppender(context, asyncLogging) : null;
+    }
+
+    @Bean
+    public MeterBinder asyncLoggingMetrics() {
+        return registry -> {
+            if (asyncAppender != null) {
+                FunctionCounter.builder("logging.async.events.dropped", asyncAppender, MeteredAsyncAppender::getDroppedEvents)
+                    .description("Log events dropped because the buffer of the async appender was full")
+                    .register(registry);
+                Gauge.builder("logging.async.events.queued", asyncAppender, MeteredAsyncAppender::getQueuedEvents)
+                    .description("Log events waiting for the worker thread of the async appender")
+                    .register(registry);
+            }
+        };
+    }
+
+    private static MeteredAsyncAppender addAsyncAppender(LoggerContext context, ApplicationProperties.AsyncLogging asyncLogging) {
+        Logger rootLogger = context.getLogger(Logger.ROOT_LOGGER_NAME);
+        if (rootLogger.getAppender(ASYNC_APPENDER_NAME) instanceof MeteredAsyncAppender existing) {
+            return existing;
+        }
+        MeteredAsyncAppender asyncAppender = new MeteredAsyncAppender();
+        asyncAppender.setContext(context);
+        asyncAppender.setName(ASYNC_APPENDER_NAME);
+        asyncAppender.setQueueSize(asyncLogging.getQueueSize());
+        asyncAppender.setOverflowPolicy(asyncLogging.getOverflowPolicy());
+        asyncAppender.setMaxFlushTime(asyncLogging.getMaxFlushTime());
+        List<Appender<ILoggingEvent>> appenders = new ArrayList<>();
+        rootLogger.iteratorForAppenders().forEachRemaining(appenders::add);
+        appenders.forEach(asyncAppender::addAppender);
+        asyncAppender.start();
+        if (!asyncAppender.isStarted()) {
+            return null;
+        }
+        // Attached before the other appenders are detached, so that no event is lost meanwhile
+        rootLogger.addAppender(asyncAppender);
+        appenders.forEach(rootLogger::detachAppender);
+        return asyncAppender;
     }
 }
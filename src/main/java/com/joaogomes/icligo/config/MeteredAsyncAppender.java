@@ -0,0 +1,195 @@
+package com.joaogomes.icligo.config;
+
+import ch.qos.logback.classic.spi.ILoggingEvent;
+import ch.qos.logback.core.Appender;
+import ch.qos.logback.core.UnsynchronizedAppenderBase;
+import ch.qos.logback.core.spi.AppenderAttachable;
+import ch.qos.logback.core.spi.AppenderAttachableImpl;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Appender writing the log events to its appenders from a worker thread, so that the request threads do not wait for
+ * the console or the files.
+ * <p>
+ * The events go through a bounded ring buffer. When it is full, the {@link OverflowPolicy#DROP} policy drops the event,
+ * and the {@link OverflowPolicy#BLOCK} policy waits for room. The dropped events are counted, see
+ * {@link #getDroppedEvents()}. On stop, the events still buffered are written for at most the max flush time.
+ * <p>
+ * Unlike the Logback {@link ch.qos.logback.classic.AsyncAppender}, events are never discarded by level, and the drops
+ * are counted.
+ */
+public class MeteredAsyncAppender extends UnsynchronizedAppenderBase<ILoggingEvent> implements AppenderAttachable<ILoggingEvent> {
+
+    public enum OverflowPolicy {
+        /**
+         * Drop the event, without waiting.
+         */
+        DROP,
+        /**
+         * Wait until the worker thread makes room for the event.
+         */
+        BLOCK,
+    }
+
+    private final AppenderAttachableImpl<ILoggingEvent> appenders = new AppenderAttachableImpl<>();
+
+    private final LongAdder droppedEvents = new LongAdder();
+
+    private int queueSize = 1024;
+
+    private OverflowPolicy overflowPolicy = OverflowPolicy.DROP;
+
+    private Duration maxFlushTime = Duration.ofSeconds(1);
+
+    private BlockingQueue<ILoggingEvent> queue;
+
+    private Thread worker;
+
+    @Override
+    public void start() {
+        if (isStarted()) {
+            return;
+        }
+        if (!appenders.iteratorForAppenders().hasNext()) {
+            addError("No appender attached to the async appender [" + getName() + "]");
+            return;
+        }
+        if (queueSize < 1) {
+            addError("Invalid queue size [" + queueSize + "]");
+            return;
+        }
+        queue = new ArrayBlockingQueue<>(queueSize);
+        worker = new Thread(this::work, "AsyncAppender-" + getName());
+        worker.setDaemon(true);
+        super.start();
+        worker.start();
+    }
+
+    @Override
+    public void stop() {
+        if (!isStarted()) {
+            return;
+        }
+        super.stop();
+        worker.interrupt();
+        try {
+            worker.join(maxFlushTime.toMillis());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        if (worker.isAlive()) {
+            addWarn("Max flush time of " + maxFlushTime + " elapsed, " + queue.size() + " queued events are lost");
+        }
+        appenders.detachAndStopAllAppenders();
+    }
+
+    @Override
+    protected void append(ILoggingEvent event) {
+        // The worker thread may run once the arguments and the MDC changed
+        event.prepareForDeferredProcessing();
+        if (overflowPolicy == OverflowPolicy.BLOCK) {
+            try {
+                queue.put(event);
+            } catch (InterruptedException e) {
+                droppedEvents.increment();
+                Thread.currentThread().interrupt();
+            }
+        } else if (!queue.offer(event)) {
+            droppedEvents.increment();
+        }
+    }
+
+    private void work() {
+        try {
+            while (isStarted()) {
+                appenders.appendLoopOnAppenders(queue.take());
+            }
+        } catch (InterruptedException e) {
+            // Stopped
+        }
+        List<ILoggingEvent> remaining = new ArrayList<>(queue.size());
+        queue.drainTo(remaining);
+        for (ILoggingEvent event : remaining) {
+            appenders.appendLoopOnAppenders(event);
+        }
+    }
+
+    /**
+     * @return the number of events dropped since the appender was created.
+     */
+    public long getDroppedEvents() {
+        return droppedEvents.sum();
+    }
+
+    /**
+     * @return the number of events waiting for the worker thread.
+     */
+    public int getQueuedEvents() {
+        return queue == null ? 0 : queue.size();
+    }
+
+    public int getQueueSize() {
+        return queueSize;
+    }
+
+    public void setQueueSize(int queueSize) {
+        this.queueSize = queueSize;
+    }
+
+    public OverflowPolicy getOverflowPolicy() {
+        return overflowPolicy;
+    }
+
+    public void setOverflowPolicy(OverflowPolicy overflowPolicy) {
+        this.overflowPolicy = overflowPolicy;
+    }
+
+    public Duration getMaxFlushTime() {
+        return maxFlushTime;
+    }
+
+    public void setMaxFlushTime(Duration maxFlushTime) {
+        this.maxFlushTime = maxFlushTime;
+    }
+
+    @Override
+    public void addAppender(Appender<ILoggingEvent> newAppender) {
+        appenders.addAppender(newAppender);
+    }
+
+    @Override
+    public Iterator<Appender<ILoggingEvent>> iteratorForAppenders() {
+        return appenders.iteratorForAppenders();
+    }
+
+    @Override
+    public Appender<ILoggingEvent> getAppender(String name) {
+        return appenders.getAppender(name);
+    }
+
+    @Override
+    public boolean isAttached(Appender<ILoggingEvent> appender) {
+        return appenders.isAttached(appender);
+    }
+
+    @Override
+    public void detachAndStopAllAppenders() {
+        appenders.detachAndStopAllAppenders();
+    }
+
+    @Override
+    public boolean detachAppender(Appender<ILoggingEvent> appender) {
+        return appenders.detachAppender(appender);
+    }
+
+    @Override
+    public boolean detachAppender(String name) {
+        return appenders.detachAppender(name);
+    }
+}
@@ -0,0 +1,84 @@
+package com.joaogomes.icligo.config;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import javax.sql.DataSource;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+
+/**
+ * Measures the replication lag of the replica database every {@code application.read-replica.lag-check-interval}, and
+ * takes it out of the routing while it lags more than {@code application.read-replica.max-lag} behind the primary
+ * database, is not replicating or cannot be reached.
+ * <p>
+ * The replica is not used until its lag has been measured once.
+ */
+public class ReplicaLagGuard {
+
+    private static final Logger LOG = LoggerFactory.getLogger(ReplicaLagGuard.class);
+
+    private final JdbcTemplate replicaJdbcTemplate;
+
+    private final ApplicationProperties.ReadReplica properties;
+
+    private volatile boolean replicaUsable;
+
+    private volatile double lagSeconds = Double.NaN;
+
+    public ReplicaLagGuard(DataSource replica, ApplicationProperties.ReadReplica properties, MeterRegistry meterRegistry) {
+        this.replicaJdbcTemplate = new JdbcTemplate(replica);
+        this.replicaJdbcTemplate.setQueryTimeout((int) Math.max(1, properties.getLagCheckInterval().toSeconds()));
+        this.properties = properties;
+        Gauge.builder("jdbc.replica.lag", this, ReplicaLagGuard::getLagSeconds)
+            .description("Replication lag of the replica database, as of the last check")
+            .baseUnit("seconds")
+            .register(meterRegistry);
+        Gauge.builder("jdbc.replica.usable", this, guard -> guard.isReplicaUsable() ? 1 : 0)
+            .description("Whether read-only transactions are routed to the replica database")
+            .register(meterRegistry);
+    }
+
+    public boolean isReplicaUsable() {
+        return replicaUsable;
+    }
+
+    public double getLagSeconds() {
+        return lagSeconds;
+    }
+
+    @Scheduled(fixedDelayString = "${application.read-replica.lag-check-interval:5s}")
+    public void checkLag() {
+        Duration lag = measureLag();
+        boolean usable = lag != null && lag.compareTo(properties.getMaxLag()) <= 0;
+        lagSeconds = lag != null ? lag.toMillis() / 1000.0 : Double.NaN;
+        if (usable != replicaUsable) {
+            if (usable) {
+                LOG.info("Replica database is {}s behind, routing read-only transactions to it", lagSeconds);
+            } else {
+                LOG.warn("Replica database is {}s behind, routing read-only transactions to the primary database", lagSeconds);
+            }
+        }
+        replicaUsable = usable;
+    }
+
+    private Duration measureLag() {
+        try {
+            List<Map<String, Object>> rows = replicaJdbcTemplate.queryForList(properties.getLagQuery());
+            // The column names of queryForList rows are case insensitive
+            Object lag = rows.isEmpty() ? null : rows.get(0).get(properties.getLagColumn());
+            if (lag instanceof Number number) {
+                return Duration.ofMillis(Math.round(number.doubleValue() * 1000));
+            }
+            return null;
+        } catch (DataAccessException e) {
+            LOG.debug("Could not measure the lag of the replica database", e);
+            return null;
+        }
+    }
+}
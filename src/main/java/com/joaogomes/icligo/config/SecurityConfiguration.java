@@ -4,29 +4,37 @@ import static org.springframework.security.config.Customizer.withDefaults;
 import static org.springframework.security.web.util.matcher.AntPathRequestMatcher.antMatcher;
 
 import com.joaogomes.icligo.security.*;
+import com.joaogomes.icligo.web.filter.AdaptiveConcurrencyLimit;
+import com.joaogomes.icligo.web.filter.ConcurrencyLimitFilter;
+import com.joaogomes.icligo.web.filter.LoginThrottlingFilter;
 import com.joaogomes.icligo.web.filter.SpaWebFilter;
+import io.micrometer.core.instrument.MeterRegistry;
 import jakarta.servlet.http.HttpServletRequest;
 import jakarta.servlet.http.HttpServletResponse;
+import java.util.List;
 import java.util.function.Supplier;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.core.env.Environment;
 import org.springframework.core.env.Profiles;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
 import org.springframework.http.HttpStatus;
 import org.springframework.security.config.annotation.method.configuration.EnableMethodSecurity;
 import org.springframework.security.config.annotation.web.builders.HttpSecurity;
 import org.springframework.security.config.annotation.web.configurers.HeadersConfigurer.FrameOptionsConfig;
-import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
 import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.security.web.SecurityFilterChain;
 import org.springframework.security.web.authentication.HttpStatusEntryPoint;
 import org.springframework.security.web.authentication.RememberMeServices;
+import org.springframework.security.web.authentication.UsernamePasswordAuthenticationFilter;
 import org.springframework.security.web.authentication.logout.HttpStatusReturningLogoutSuccessHandler;
 import org.springframework.security.web.authentication.www.BasicAuthenticationFilter;
 import org.springframework.security.web.csrf.*;
 import org.springframework.security.web.header.writers.ReferrerPolicyHeaderWriter;
 import org.springframework.security.web.servlet.util.matcher.MvcRequestMatcher;
 import org.springframework.security.web.util.matcher.OrRequestMatcher;
+import org.springframework.security.web.util.matcher.RequestMatcher;
 import org.springframework.util.StringUtils;
 import org.springframework.web.servlet.handler.HandlerMappingIntrospector;
 import tech.jhipster.config.JHipsterConstants;
@@ -36,25 +44,51 @@ import tech.jhipster.config.JHipsterProperties;
 @EnableMethodSecurity(securedEnabled = true)
 public class SecurityConfiguration {
 
+    private static final String LOGIN_PROCESSING_URL = "/api/authentication";
+
     private final Environment env;
 
     private final JHipsterProperties jHipsterProperties;
 
+    private final ApplicationProperties applicationProperties;
+
     private final RememberMeServices rememberMeServices;
 
-    public SecurityConfiguration(Environment env, RememberMeServices rememberMeServices, JHipsterProperties jHipsterProperties) {
+    public SecurityConfiguration(
+        Environment env,
+        RememberMeServices rememberMeServices,
+        JHipsterProperties jHipsterProperties,
+        ApplicationProperties applicationProperties
+    ) {
         this.env = env;
         this.rememberMeServices = rememberMeServices;
         this.jHipsterProperties = jHipsterProperties;
+        this.applicationProperties = applicationProperties;
     }
 
     @Bean
-    public PasswordEncoder passwordEncoder() {
-        return new BCryptPasswordEncoder();
+    public PasswordEncoder passwordEncoder(MeterRegistry meterRegistry) {
+        ApplicationProperties.PasswordHashing properties = applicationProperties.getPasswordHashing();
+        return new OffloadedPasswordEncoder(properties.getBcryptCost(), properties.getThreads(), properties.getQueueSize(), meterRegistry);
     }
 
     @Bean
-    public SecurityFilterChain filterChain(HttpSecurity http, MvcRequestMatcher.Builder mvc) throws Exception {
+    public SecurityFilterChain filterChain(HttpSecurity http, MvcRequestMatcher.Builder mvc, MeterRegistry meterRegistry) throws Exception {
+        if (applicationProperties.getConcurrencyLimit().isEnabled()) {
+            // Before the authentication, which reads the users and the remember-me tokens from the database
+            http.addFilterBefore(concurrencyLimitFilter(meterRegistry), CsrfFilter.class);
+        }
+        if (applicationProperties.getLoginThrottling().isEnabled()) {
+            http.addFilterBefore(
+                new LoginThrottlingFilter(
+                    antMatcher(HttpMethod.POST, LOGIN_PROCESSING_URL),
+                    UsernamePasswordAuthenticationFilter.SPRING_SECURITY_FORM_USERNAME_KEY,
+                    applicationProperties.getLoginThrottling(),
+                    meterRegistry
+                ),
+                UsernamePasswordAuthenticationFilter.class
+            );
+        }
         http
             .cors(withDefaults())
             .csrf(csrf ->
@@ -112,9 +146,16 @@ public class SecurityConfiguration {
             .formLogin(formLogin ->
                 formLogin
                     .loginPage("/")
-                    .loginProcessingUrl("/api/authentication")
+                    .loginProcessingUrl(LOGIN_PROCESSING_URL)
                     .successHandler((request, response, authentication) -> response.setStatus(HttpStatus.OK.value()))
-                    .failureHandler((request, response, exception) -> response.setStatus(HttpStatus.UNAUTHORIZED.value()))
+                    .failureHandler((request, response, exception) -> {
+                        if (exception instanceof PasswordHashingRejectedException) {
+                            response.setStatus(HttpStatus.SERVICE_UNAVAILABLE.value());
+                            response.setHeader(HttpHeaders.RETRY_AFTER, PasswordHashingRejectedException.RETRY_AFTER_SECONDS);
+                        } else {
+                            response.setStatus(HttpStatus.UNAUTHORIZED.value());
+                        }
+                    })
                     .permitAll()
             )
             .logout(logout ->
@@ -128,6 +169,31 @@ public class SecurityConfiguration {
         return http.build();
     }
 
+    private ConcurrencyLimitFilter concurrencyLimitFilter(MeterRegistry meterRegistry) {
+        ApplicationProperties.ConcurrencyLimit properties = applicationProperties.getConcurrencyLimit();
+        // The catch-all api group comes last, as the first group matching a request applies
+        List<ConcurrencyLimitFilter.RouteGroup> groups = List.of(
+            routeGroup("cars", properties.getCars()),
+            routeGroup("admin-users", properties.getAdminUsers()),
+            routeGroup("account", properties.getAccount()),
+            routeGroup("api", properties.getApi())
+        );
+        return new ConcurrencyLimitFilter(groups, anyPath(properties.getUnsampledPaths()), properties.getRetryAfter(), meterRegistry);
+    }
+
+    private static ConcurrencyLimitFilter.RouteGroup routeGroup(String name, ApplicationProperties.ConcurrencyLimit.Group group) {
+        RequestMatcher matcher = anyPath(group.getPaths());
+        AdaptiveConcurrencyLimit limit = new AdaptiveConcurrencyLimit(group.getInitialLimit(), group.getMinLimit(), group.getMaxLimit());
+        return new ConcurrencyLimitFilter.RouteGroup(name, matcher, limit);
+    }
+
+    private static RequestMatcher anyPath(List<String> paths) {
+        if (paths.isEmpty()) {
+            return request -> false;
+        }
+        return new OrRequestMatcher(paths.stream().<RequestMatcher>map(path -> antMatcher(path)).toList());
+    }
+
     @Bean
     MvcRequestMatcher.Builder mvc(HandlerMappingIntrospector introspector) {
         return new MvcRequestMatcher.Builder(introspector);
@@ -0,0 +1,64 @@
+package com.joaogomes.icligo.config;
+
+import com.joaogomes.icligo.web.filter.SqlStatisticsFilter;
+import io.micrometer.core.instrument.MeterRegistry;
+import javax.sql.DataSource;
+import net.ttddyy.dsproxy.support.ProxyDataSourceBuilder;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.security.SecurityProperties;
+import org.springframework.boot.web.servlet.FilterRegistrationBean;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * Counts the SQL statements run by each HTTP request, when {@code application.sql-statistics.enabled} is {@code true}.
+ * <p>
+ * The {@code dataSource} bean is wrapped in a datasource-proxy {@link net.ttddyy.dsproxy.support.ProxyDataSource}, whose
+ * {@link SqlStatisticsListener} feeds the statistics started by the {@link SqlStatisticsFilter}. The result sets are
+ * proxied too, so that the rows read are counted. As every call to a statement or a result set then goes through a
+ * proxy, this is only enabled in development and in the tests.
+ */
+@Configuration
+@ConditionalOnProperty(prefix = "application.sql-statistics", name = "enabled", havingValue = "true")
+public class SqlStatisticsConfiguration {
+
+    private static final Logger LOG = LoggerFactory.getLogger(SqlStatisticsConfiguration.class);
+
+    private static final String DATA_SOURCE_BEAN_NAME = "dataSource";
+
+    @Bean
+    public static BeanPostProcessor sqlStatisticsDataSourcePostProcessor() {
+        SqlStatisticsListener listener = new SqlStatisticsListener();
+        return new BeanPostProcessor() {
+            @Override
+            public Object postProcessAfterInitialization(Object bean, String beanName) {
+                if (bean instanceof DataSource dataSource && DATA_SOURCE_BEAN_NAME.equals(beanName)) {
+                    LOG.debug("Counting the SQL statements run by the HTTP requests");
+                    return ProxyDataSourceBuilder.create(dataSource)
+                        .name(beanName)
+                        .listener(listener)
+                        .methodListener(listener)
+                        .proxyResultSet()
+                        .build();
+                }
+                return bean;
+            }
+        };
+    }
+
+    @Bean
+    public FilterRegistrationBean<SqlStatisticsFilter> sqlStatisticsFilter(
+        MeterRegistry meterRegistry,
+        ApplicationProperties applicationProperties
+    ) {
+        FilterRegistrationBean<SqlStatisticsFilter> registration = new FilterRegistrationBean<>(
+            new SqlStatisticsFilter(meterRegistry, applicationProperties.getSqlStatistics())
+        );
+        // Before Spring Security, so that the statements loading the user are counted
+        registration.setOrder(SecurityProperties.DEFAULT_FILTER_ORDER - 1);
+        return registration;
+    }
+}
@@ -0,0 +1,79 @@
+package com.joaogomes.icligo.config;
+
+import com.joaogomes.icligo.web.filter.SqlStatistics;
+import java.sql.ResultSet;
+import java.util.List;
+import java.util.stream.Collectors;
+import net.ttddyy.dsproxy.ExecutionInfo;
+import net.ttddyy.dsproxy.QueryInfo;
+import net.ttddyy.dsproxy.listener.MethodExecutionContext;
+import net.ttddyy.dsproxy.listener.MethodExecutionListener;
+import net.ttddyy.dsproxy.listener.QueryExecutionListener;
+
+/**
+ * Feeds the {@link SqlStatistics} of the current HTTP request with the statements run through the data source, and with
+ * the rows read from their result sets.
+ */
+public class SqlStatisticsListener implements QueryExecutionListener, MethodExecutionListener {
+
+    private static final String START_NANOS = SqlStatisticsListener.class.getName() + ".startNanos";
+
+    @Override
+    public void beforeQuery(ExecutionInfo execInfo, List<QueryInfo> queryInfoList) {
+        if (SqlStatistics.current() != null) {
+            execInfo.addCustomValue(START_NANOS, System.nanoTime());
+        }
+    }
+
+    @Override
+    public void afterQuery(ExecutionInfo execInfo, List<QueryInfo> queryInfoList) {
+        SqlStatistics statistics = SqlStatistics.current();
+        Long startNanos = execInfo.getCustomValue(START_NANOS, Long.class);
+        if (statistics == null || startNanos == null) {
+            return;
+        }
+        String sql = queryInfoList.size() == 1
+            ? queryInfoList.get(0).getQuery()
+            : queryInfoList.stream().map(QueryInfo::getQuery).collect(Collectors.joining("; "));
+        statistics.recordStatement(sql, System.nanoTime() - startNanos, updatedRows(execInfo.getResult()));
+    }
+
+    @Override
+    public void beforeMethod(MethodExecutionContext executionContext) {
+        // Rows are counted once read
+    }
+
+    @Override
+    public void afterMethod(MethodExecutionContext executionContext) {
+        if (
+            executionContext.getTarget() instanceof ResultSet &&
+            Boolean.TRUE.equals(executionContext.getResult()) &&
+            "next".equals(executionContext.getMethod().getName())
+        ) {
+            SqlStatistics statistics = SqlStatistics.current();
+            if (statistics != null) {
+                statistics.recordRow();
+            }
+        }
+    }
+
+    /**
+     * @param result the result of {@code executeUpdate}, {@code executeBatch} or of another execute method.
+     * @return the number of rows updated, or {@code 0} when the driver does not tell.
+     */
+    static long updatedRows(Object result) {
+        long rows = 0;
+        if (result instanceof Number count) {
+            rows = Math.max(0, count.longValue());
+        } else if (result instanceof int[] counts) {
+            for (int count : counts) {
+                rows += Math.max(0, count);
+            }
+        } else if (result instanceof long[] counts) {
+            for (long count : counts) {
+                rows += Math.max(0, count);
+            }
+        }
+        return rows;
+    }
+}
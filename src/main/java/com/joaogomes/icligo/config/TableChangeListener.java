@@ -0,0 +1,90 @@
+package com.joaogomes.icligo.config;
+
+import com.joaogomes.icligo.domain.Car;
+import com.joaogomes.icligo.domain.User;
+import com.joaogomes.icligo.repository.TableChanges;
+import com.joaogomes.icligo.repository.TableVersionRepository;
+import java.util.Map;
+import org.hibernate.engine.spi.SessionImplementor;
+import org.hibernate.event.spi.AbstractCollectionEvent;
+import org.hibernate.event.spi.PostCollectionRecreateEvent;
+import org.hibernate.event.spi.PostCollectionRecreateEventListener;
+import org.hibernate.event.spi.PostCollectionRemoveEvent;
+import org.hibernate.event.spi.PostCollectionRemoveEventListener;
+import org.hibernate.event.spi.PostCollectionUpdateEvent;
+import org.hibernate.event.spi.PostCollectionUpdateEventListener;
+import org.hibernate.event.spi.PostDeleteEvent;
+import org.hibernate.event.spi.PostDeleteEventListener;
+import org.hibernate.event.spi.PostInsertEvent;
+import org.hibernate.event.spi.PostInsertEventListener;
+import org.hibernate.event.spi.PostUpdateEvent;
+import org.hibernate.event.spi.PostUpdateEventListener;
+import org.hibernate.persister.entity.EntityPersister;
+
+/**
+ * Records the changes made through Hibernate to the tables with a change counter, see {@link TableVersionRepository}.
+ * <p>
+ * The collections of an entity, like the authorities of a user, count as part of its table.
+ */
+public class TableChangeListener
+    implements
+        PostInsertEventListener,
+        PostUpdateEventListener,
+        PostDeleteEventListener,
+        PostCollectionRecreateEventListener,
+        PostCollectionUpdateEventListener,
+        PostCollectionRemoveEventListener {
+
+    private static final Map<String, String> TABLES_BY_ENTITY = Map.of(
+        Car.class.getName(),
+        TableVersionRepository.CAR,
+        User.class.getName(),
+        TableVersionRepository.USER
+    );
+
+    @Override
+    public void onPostInsert(PostInsertEvent event) {
+        record(event.getSession(), event.getPersister().getEntityName());
+    }
+
+    @Override
+    public void onPostUpdate(PostUpdateEvent event) {
+        record(event.getSession(), event.getPersister().getEntityName());
+    }
+
+    @Override
+    public void onPostDelete(PostDeleteEvent event) {
+        record(event.getSession(), event.getPersister().getEntityName());
+    }
+
+    @Override
+    public void onPostRecreateCollection(PostCollectionRecreateEvent event) {
+        record(event);
+    }
+
+    @Override
+    public void onPostUpdateCollection(PostCollectionUpdateEvent event) {
+        record(event);
+    }
+
+    @Override
+    public void onPostRemoveCollection(PostCollectionRemoveEvent event) {
+        record(event);
+    }
+
+    @Override
+    public boolean requiresPostCommitHandling(EntityPersister persister) {
+        return false;
+    }
+
+    private static void record(AbstractCollectionEvent event) {
+        record(event.getSession(), event.getAffectedOwnerEntityName());
+    }
+
+    private static void record(SessionImplementor session, String entityName) {
+        String table = TABLES_BY_ENTITY.get(entityName);
+        if (table != null) {
+            TableChanges.record(session, table);
+        }
+    }
+}
@@ -0,0 +1,94 @@
+package com.joaogomes.icligo.config;
+
+import com.zaxxer.hikari.HikariDataSource;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import io.micrometer.java21.instrument.binder.jdk.VirtualThreadMetrics;
+import java.sql.SQLException;
+import java.time.Duration;
+import javax.sql.DataSource;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnThreading;
+import org.springframework.boot.autoconfigure.thread.Threading;
+import org.springframework.boot.web.embedded.undertow.UndertowDeploymentInfoCustomizer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.Ordered;
+import org.springframework.core.task.VirtualThreadTaskExecutor;
+
+/**
+ * Runs the servlet requests on virtual threads, when {@code spring.threads.virtual.enabled} is {@code true}.
+ * <p>
+ * Spring Boot switches the {@code @Scheduled} tasks to virtual threads by itself, and {@link AsyncConfiguration} the
+ * {@code @Async} ones. As request handling is no longer bounded by a worker pool, the connections borrowed at the same
+ * time are bounded by a {@link ConnectionPermitDataSource} sized like the Hikari pool.
+ */
+@Configuration
+@ConditionalOnThreading(Threading.VIRTUAL)
+public class VirtualThreadsConfiguration {
+
+    private static final Logger LOG = LoggerFactory.getLogger(VirtualThreadsConfiguration.class);
+
+    // Size Hikari gives the pool when maximum-pool-size is not set, it only applies it when the pool starts
+    private static final int HIKARI_DEFAULT_POOL_SIZE = 10;
+
+    @Bean
+    public UndertowDeploymentInfoCustomizer virtualThreadsDeploymentInfoCustomizer() {
+        return deploymentInfo -> {
+            LOG.debug("Dispatching servlet requests to virtual threads");
+            deploymentInfo.setExecutor(new VirtualThreadTaskExecutor("undertow-"));
+            deploymentInfo.setAsyncExecutor(new VirtualThreadTaskExecutor("undertow-async-"));
+        };
+    }
+
+    @Bean
+    public static ConnectionPermitDataSourcePostProcessor connectionPermitDataSourcePostProcessor() {
+        return new ConnectionPermitDataSourcePostProcessor();
+    }
+
+    @Bean
+    public MeterBinder connectionPermitMetrics(DataSource dataSource) throws SQLException {
+        ConnectionPermitDataSource connectionPermitDataSource = dataSource.unwrap(ConnectionPermitDataSource.class);
+        return registry -> {
+            Gauge.builder("jdbc.connections.permits.available", connectionPermitDataSource, ConnectionPermitDataSource::getAvailablePermits)
+                .description("Number of database connections that can still be borrowed")
+                .register(registry);
+            Gauge.builder("jdbc.connections.permits.waiting", connectionPermitDataSource, ConnectionPermitDataSource::getWaitingThreads)
+                .description("Number of threads waiting to borrow a database connection")
+                .register(registry);
+        };
+    }
+
+    /**
+     * Records {@code jvm.threads.virtual.pinned}: virtual threads blocked while pinned to their carrier thread, for
+     * instance inside a {@code synchronized} block, hold a platform thread like a worker pool would.
+     */
+    @Bean(destroyMethod = "close")
+    public VirtualThreadMetrics virtualThreadMetrics() {
+        return new VirtualThreadMetrics();
+    }
+
+    /**
+     * Ordered, and declared as such by its factory method, so that the Hikari pools are wrapped before the unordered post
+     * processors wrap the data source, like the one of {@link SqlStatisticsConfiguration}.
+     */
+    static final class ConnectionPermitDataSourcePostProcessor implements BeanPostProcessor, Ordered {
+
+        @Override
+        public Object postProcessAfterInitialization(Object bean, String beanName) {
+            if (bean instanceof HikariDataSource hikariDataSource) {
+                int poolSize = hikariDataSource.getMaximumPoolSize() > 0 ? hikariDataSource.getMaximumPoolSize() : HIKARI_DEFAULT_POOL_SIZE;
+                LOG.debug("Limiting the connections borrowed at the same time to {}", poolSize);
+                return new ConnectionPermitDataSource(hikariDataSource, poolSize, Duration.ofMillis(hikariDataSource.getConnectionTimeout()));
+            }
+            return bean;
+        }
+
+        @Override
+        public int getOrder() {
+            return Ordered.LOWEST_PRECEDENCE;
+        }
+    }
+}
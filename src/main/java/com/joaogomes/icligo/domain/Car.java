@@ -2,12 +2,15 @@ package com.joaogomes.icligo.domain;
 
 import jakarta.persistence.*;
 import java.io.Serializable;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
 
 /**
  * A Car.
  */
 @Entity
 @Table(name = "car")
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE)
 @SuppressWarnings("common-java:DuplicatedBlocks")
 public class Car implements Serializable {
 
@@ -30,6 +33,10 @@ public class Car implements Serializable {
     @Column(name = "available")
     private Boolean available;
 
+    @Version
+    @Column(name = "version", nullable = false)
+    private Long version;
+
     // jhipster-needle-entity-add-field - JHipster will add fields here
 
     public Long getId() {
@@ -97,6 +104,19 @@ public class Car implements Serializable {
         this.available = available;
     }
 
+    public Long getVersion() {
+        return this.version;
+    }
+
+    public Car version(Long version) {
+        this.setVersion(version);
+        return this;
+    }
+
+    public void setVersion(Long version) {
+        this.version = version;
+    }
+
     // jhipster-needle-entity-add-getters-setters - JHipster will add getters and setters here
 
     @Override
@@ -125,6 +145,7 @@ public class Car implements Serializable {
             ", brand='" + getBrand() + "'" +
             ", cyear=" + getCyear() +
             ", available='" + getAvailable() + "'" +
+            ", version=" + getVersion() +
             "}";
     }
 }
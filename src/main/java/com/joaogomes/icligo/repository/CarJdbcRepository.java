@@ -0,0 +1,41 @@
+package com.joaogomes.icligo.repository;
+
+import com.joaogomes.icligo.domain.Car;
+import java.util.List;
+
+/**
+ * Plain JDBC operations on the Car table, for the cases Hibernate cannot batch.
+ */
+public interface CarJdbcRepository {
+    /**
+     * Insert new cars in a single JDBC batch.
+     * <p>
+     * {@link Car} ids are generated by the database ({@code IDENTITY}), which makes Hibernate execute one insert per entity
+     * to read the key back. This bypasses the persistence context: the generated ids are not read back, and the cars are
+     * not managed afterwards.
+     *
+     * @param cars the cars to insert, their ids are ignored.
+     */
+    void insertAll(List<Car> cars);
+
+    /**
+     * Update every column of a car in a single statement, without loading it first.
+     * <p>
+     * When the car has a version, the row is only updated if its version still matches, and the version of the car is
+     * then incremented like the one of the row. The car is evicted from the second-level cache, and refreshed if it is
+     * managed by the persistence context.
+     *
+     * @param car the car to update, with its id.
+     * @return the number of updated rows: {@code 0} if the car does not exist or, when it has a version, if it was
+     * updated since that version was read.
+     */
+    int update(Car car);
+
+    /**
+     * Update the columns of a car which are not {@code null}, like {@link #update}.
+     *
+     * @param car the fields to update, with the id of the car.
+     * @return the number of updated rows.
+     */
+    int partialUpdate(Car car);
+}
@@ -0,0 +1,136 @@
+package com.joaogomes.icligo.repository;
+
+import com.joaogomes.icligo.domain.Car;
+import jakarta.persistence.CacheStoreMode;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import java.sql.Types;
+import java.util.List;
+import java.util.StringJoiner;
+import org.hibernate.SessionFactory;
+import org.hibernate.engine.spi.SessionImplementor;
+import org.hibernate.jpa.SpecHints;
+import org.hibernate.persister.entity.EntityPersister;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+/**
+ * {@link CarJdbcRepository} implementation, it takes part in the current JPA transaction and records its changes in the
+ * {@code car} change counter.
+ * <p>
+ * The updates do not go through the soft locks of the {@code READ_WRITE} second-level cache: the updated car is evicted
+ * from it right away and again after the commit, so that a concurrent load cannot put its previous state back, and the
+ * session no longer puts the cars it reads into the cache until the transaction ends, as they are not committed yet.
+ */
+class CarJdbcRepositoryImpl implements CarJdbcRepository {
+
+    private static final String INSERT_SQL = "insert into car (model, brand, cyear, available) values (?, ?, ?, ?)";
+
+    private final JdbcTemplate jdbcTemplate;
+
+    private final NamedParameterJdbcTemplate namedParameterJdbcTemplate;
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    CarJdbcRepositoryImpl(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.namedParameterJdbcTemplate = new NamedParameterJdbcTemplate(jdbcTemplate);
+    }
+
+    @Override
+    public void insertAll(List<Car> cars) {
+        if (cars.isEmpty()) {
+            return;
+        }
+        jdbcTemplate.batchUpdate(INSERT_SQL, cars, cars.size(), (ps, car) -> {
+            ps.setString(1, car.getModel());
+            ps.setString(2, car.getBrand());
+            ps.setObject(3, car.getCyear(), Types.INTEGER);
+            ps.setObject(4, car.getAvailable(), Types.BOOLEAN);
+        });
+        TableChanges.record(entityManager.unwrap(SessionImplementor.class), TableVersionRepository.CAR);
+    }
+
+    @Override
+    public int update(Car car) {
+        return update(car, false);
+    }
+
+    @Override
+    public int partialUpdate(Car car) {
+        return update(car, true);
+    }
+
+    private int update(Car car, boolean partial) {
+        MapSqlParameterSource parameters = new MapSqlParameterSource("id", car.getId());
+        StringJoiner assignments = new StringJoiner(", ");
+        assign(assignments, parameters, "model", car.getModel(), Types.VARCHAR, partial);
+        assign(assignments, parameters, "brand", car.getBrand(), Types.VARCHAR, partial);
+        assign(assignments, parameters, "cyear", car.getCyear(), Types.INTEGER, partial);
+        assign(assignments, parameters, "available", car.getAvailable(), Types.BOOLEAN, partial);
+        assignments.add("version = version + 1");
+        String sql = "update car set " + assignments + " where id = :id";
+        if (car.getVersion() != null) {
+            sql += " and version = :version";
+            parameters.addValue("version", car.getVersion());
+        }
+
+        entityManager.flush();
+        int updated = namedParameterJdbcTemplate.update(sql, parameters);
+        if (updated > 0) {
+            TableChanges.record(entityManager.unwrap(SessionImplementor.class), TableVersionRepository.CAR);
+            if (car.getVersion() != null) {
+                car.setVersion(car.getVersion() + 1);
+            }
+            evictAfterCommit(car.getId());
+            Object managedCar = managedCar(car.getId());
+            if (managedCar != null) {
+                entityManager.refresh(managedCar);
+            }
+        }
+        return updated;
+    }
+
+    private void evictAfterCommit(Long id) {
+        SessionFactory sessionFactory = entityManager.getEntityManagerFactory().unwrap(SessionFactory.class);
+        sessionFactory.getCache().evictEntityData(Car.class, id);
+        entityManager.setProperty(SpecHints.HINT_SPEC_CACHE_STORE_MODE, CacheStoreMode.BYPASS);
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(
+                new TransactionSynchronization() {
+                    @Override
+                    public void afterCommit() {
+                        sessionFactory.getCache().evictEntityData(Car.class, id);
+                    }
+                }
+            );
+        }
+    }
+
+    private static void assign(
+        StringJoiner assignments,
+        MapSqlParameterSource parameters,
+        String column,
+        Object value,
+        int sqlType,
+        boolean partial
+    ) {
+        if (!partial || value != null) {
+            assignments.add(column + " = :" + column);
+            parameters.addValue(column, value, sqlType);
+        }
+    }
+
+    /**
+     * @return the car with the given id if it is already in the persistence context, without loading it otherwise.
+     */
+    private Object managedCar(Long id) {
+        SessionImplementor session = entityManager.unwrap(SessionImplementor.class);
+        EntityPersister persister = session.getFactory().getMappingMetamodel().getEntityDescriptor(Car.class);
+        return session.getPersistenceContextInternal().getEntity(session.generateEntityKey(id, persister));
+    }
+}
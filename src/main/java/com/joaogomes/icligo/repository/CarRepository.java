@@ -1,7 +1,15 @@
 package com.joaogomes.icligo.repository;
 
+import static org.hibernate.jpa.HibernateHints.HINT_CACHE_MODE;
+import static org.hibernate.jpa.HibernateHints.HINT_FETCH_SIZE;
+import static org.hibernate.jpa.HibernateHints.HINT_READ_ONLY;
+
 import com.joaogomes.icligo.domain.Car;
+import jakarta.persistence.QueryHint;
+import java.util.Optional;
+import java.util.stream.Stream;
 import org.springframework.data.jpa.repository.*;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 /**
@@ -9,4 +17,40 @@ import org.springframework.stereotype.Repository;
  */
 @SuppressWarnings("unused")
 @Repository
-public interface CarRepository extends JpaRepository<Car, Long> {}
+public interface CarRepository extends JpaRepository<Car, Long>, JpaSpecificationExecutor<Car>, CarJdbcRepository {
+    /**
+     * The columns of an available car indexed by the car availability index.
+     */
+    record AvailableCar(Long id, String brand, Integer cyear) {}
+
+    /**
+     * Stream all the cars by id, fetching rows from the database in chunks rather than loading the whole result.
+     * The returned cars are read-only, are not put in the second-level cache, and should be detached once consumed.
+     * The stream must be closed, inside a transaction.
+     */
+    @QueryHints(
+        {
+            @QueryHint(name = HINT_FETCH_SIZE, value = "500"),
+            @QueryHint(name = HINT_READ_ONLY, value = "true"),
+            @QueryHint(name = HINT_CACHE_MODE, value = "IGNORE"),
+        }
+    )
+    @Query("select car from Car car order by car.id")
+    Stream<Car> streamAll();
+
+    /**
+     * Stream the available cars, fetching rows from the database in chunks rather than loading the whole result.
+     * The stream must be closed, inside a transaction.
+     */
+    @QueryHints(@QueryHint(name = HINT_FETCH_SIZE, value = "500"))
+    @Query(
+        "select new com.joaogomes.icligo.repository.CarRepository$AvailableCar(car.id, car.brand, car.cyear) from Car car where car.available = true"
+    )
+    Stream<AvailableCar> streamAvailable();
+
+    /**
+     * Get the version of a car, to check an ETag without loading the car.
+     */
+    @Query("select car.version from Car car where car.id = :id")
+    Optional<Long> findVersionById(@Param("id") Long id);
+}
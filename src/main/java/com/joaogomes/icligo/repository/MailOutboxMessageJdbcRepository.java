@@ -0,0 +1,20 @@
+package com.joaogomes.icligo.repository;
+
+import com.joaogomes.icligo.domain.MailOutboxMessage;
+import java.util.List;
+
+/**
+ * Plain JDBC operations on the MailOutboxMessage table, for the cases Hibernate cannot batch.
+ */
+public interface MailOutboxMessageJdbcRepository {
+    /**
+     * Insert new messages in a single JDBC batch.
+     * <p>
+     * {@link MailOutboxMessage} ids are generated by the database ({@code IDENTITY}), which makes Hibernate execute one
+     * insert per entity to read the key back. This bypasses the persistence context: the generated ids are not read back,
+     * and the messages are not managed afterwards.
+     *
+     * @param messages the messages to insert, their ids are ignored.
+     */
+    void insertAll(List<MailOutboxMessage> messages);
+}
@@ -0,0 +1,45 @@
+package com.joaogomes.icligo.repository;
+
+import com.joaogomes.icligo.domain.MailOutboxMessage;
+import java.sql.Timestamp;
+import java.util.Calendar;
+import java.util.List;
+import java.util.TimeZone;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+/**
+ * {@link MailOutboxMessageJdbcRepository} implementation, it takes part in the current JPA transaction.
+ * <p>
+ * The dates are written in UTC, like Hibernate does with {@code hibernate.jdbc.time_zone}.
+ */
+class MailOutboxMessageJdbcRepositoryImpl implements MailOutboxMessageJdbcRepository {
+
+    private static final String INSERT_SQL =
+        "insert into jhi_mail_outbox (recipient, subject, content, multipart, html, status, attempts, next_attempt_date, created_date)" +
+        " values (?, ?, ?, ?, ?, ?, ?, ?, ?)";
+
+    private final JdbcTemplate jdbcTemplate;
+
+    MailOutboxMessageJdbcRepositoryImpl(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    @Override
+    public void insertAll(List<MailOutboxMessage> messages) {
+        if (messages.isEmpty()) {
+            return;
+        }
+        Calendar utc = Calendar.getInstance(TimeZone.getTimeZone("UTC"));
+        jdbcTemplate.batchUpdate(INSERT_SQL, messages, messages.size(), (ps, message) -> {
+            ps.setString(1, message.getRecipient());
+            ps.setString(2, message.getSubject());
+            ps.setString(3, message.getContent());
+            ps.setBoolean(4, message.isMultipart());
+            ps.setBoolean(5, message.isHtml());
+            ps.setString(6, message.getStatus().name());
+            ps.setInt(7, message.getAttempts());
+            ps.setTimestamp(8, Timestamp.from(message.getNextAttemptDate()), utc);
+            ps.setTimestamp(9, Timestamp.from(message.getCreatedDate()), utc);
+        });
+    }
+}
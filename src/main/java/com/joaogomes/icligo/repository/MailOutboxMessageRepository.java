@@ -0,0 +1,32 @@
+package com.joaogomes.icligo.repository;
+
+import com.joaogomes.icligo.domain.MailOutboxMessage;
+import jakarta.persistence.LockModeType;
+import jakarta.persistence.QueryHint;
+import java.time.Instant;
+import java.util.List;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.stereotype.Repository;
+
+/**
+ * Spring Data JPA repository for the {@link MailOutboxMessage} entity.
+ */
+@Repository
+public interface MailOutboxMessageRepository extends JpaRepository<MailOutboxMessage, Long>, MailOutboxMessageJdbcRepository {
+    /**
+     * Locks the oldest messages due for sending, skipping the ones already locked by another instance of the
+     * application so that several senders can drain the outbox concurrently.
+     */
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @QueryHints(@QueryHint(name = "jakarta.persistence.lock.timeout", value = "-2"))
+    List<MailOutboxMessage> findByStatusAndNextAttemptDateLessThanEqualOrderByIdAsc(
+        MailOutboxMessage.Status status,
+        Instant nextAttemptDate,
+        Limit limit
+    );
+
+    long countByStatus(MailOutboxMessage.Status status);
+}
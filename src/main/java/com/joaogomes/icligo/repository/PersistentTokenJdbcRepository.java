@@ -0,0 +1,54 @@
+package com.joaogomes.icligo.repository;
+
+import com.joaogomes.icligo.domain.PersistentToken;
+import java.time.LocalDate;
+import java.util.List;
+
+/**
+ * Plain JDBC updates of the PersistentToken table, which only write the columns that change.
+ */
+public interface PersistentTokenJdbcRepository {
+    /**
+     * Replace the value of a token, if it still has the presented value.
+     *
+     * @param series the series of the token.
+     * @param presentedTokenValue the value the token is expected to have.
+     * @param newTokenValue the new value.
+     * @return {@code false} if the token doesn't exist anymore or its value was changed in the meantime.
+     */
+    boolean updateTokenValue(String series, String presentedTokenValue, String newTokenValue);
+
+    /**
+     * Update the date, IP address and user agent of tokens in a single JDBC batch. Tokens which don't exist anymore are ignored.
+     *
+     * @param tokens the tokens.
+     */
+    void updateActivity(List<PersistentToken> tokens);
+
+    /**
+     * Delete at most {@code limit} of the tokens last used before a date, the oldest ones first.
+     * The persistence context is flushed before the delete and cleared after it.
+     *
+     * @param tokenDate the date.
+     * @param limit the maximum number of tokens to delete.
+     * @return the number of deleted tokens.
+     */
+    int deleteChunkByTokenDateBefore(LocalDate tokenDate, int limit);
+
+    /**
+     * Delete a token, if it belongs to the user. The persistence context is flushed before the delete and cleared after it.
+     *
+     * @param series the series of the token.
+     * @param login the login of the user.
+     * @return {@code false} if the user has no token of this series.
+     */
+    boolean deleteBySeriesAndUserLogin(String series, String login);
+
+    /**
+     * Delete all the tokens of a user. The persistence context is flushed before the delete and cleared after it.
+     *
+     * @param login the login of the user.
+     * @return the number of deleted tokens.
+     */
+    int deleteByUserLogin(String login);
+}
@@ -0,0 +1,99 @@
+package com.joaogomes.icligo.repository;
+
+import com.joaogomes.icligo.domain.PersistentToken;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import java.sql.Date;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Map;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.transaction.annotation.Transactional;
+
+/**
+ * {@link PersistentTokenJdbcRepository} implementation, each update is committed in its own transaction unless one is
+ * already running. Like a {@code @Modifying(flushAutomatically = true, clearAutomatically = true)} query, the deletes
+ * flush the persistence context before running and clear it afterwards.
+ */
+class PersistentTokenJdbcRepositoryImpl implements PersistentTokenJdbcRepository {
+
+    private static final String UPDATE_TOKEN_VALUE_SQL = "update jhi_persistent_token set token_value = ? where series = ? and token_value = ?";
+
+    private static final String UPDATE_ACTIVITY_SQL =
+        "update jhi_persistent_token set token_date = ?, ip_address = ?, user_agent = ? where series = ?";
+
+    private static final String SELECT_SERIES_BY_TOKEN_DATE_SQL =
+        "select series from jhi_persistent_token where token_date < ? order by token_date limit ? for update";
+
+    private static final String DELETE_BY_SERIES_SQL = "delete from jhi_persistent_token where series in (:series)";
+
+    private static final String DELETE_BY_SERIES_AND_USER_LOGIN_SQL =
+        "delete from jhi_persistent_token where series = ? and user_id = (select id from jhi_user where login = ?)";
+
+    private static final String DELETE_BY_USER_LOGIN_SQL =
+        "delete from jhi_persistent_token where user_id = (select id from jhi_user where login = ?)";
+
+    private final JdbcTemplate jdbcTemplate;
+
+    private final NamedParameterJdbcTemplate namedParameterJdbcTemplate;
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    PersistentTokenJdbcRepositoryImpl(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.namedParameterJdbcTemplate = new NamedParameterJdbcTemplate(jdbcTemplate);
+    }
+
+    @Override
+    @Transactional
+    public boolean updateTokenValue(String series, String presentedTokenValue, String newTokenValue) {
+        return jdbcTemplate.update(UPDATE_TOKEN_VALUE_SQL, newTokenValue, series, presentedTokenValue) == 1;
+    }
+
+    @Override
+    @Transactional
+    public void updateActivity(List<PersistentToken> tokens) {
+        if (tokens.isEmpty()) {
+            return;
+        }
+        jdbcTemplate.batchUpdate(UPDATE_ACTIVITY_SQL, tokens, tokens.size(), (ps, token) -> {
+            ps.setDate(1, token.getTokenDate() != null ? Date.valueOf(token.getTokenDate()) : null);
+            ps.setString(2, token.getIpAddress());
+            ps.setString(3, token.getUserAgent());
+            ps.setString(4, token.getSeries());
+        });
+    }
+
+    @Override
+    @Transactional
+    public int deleteChunkByTokenDateBefore(LocalDate tokenDate, int limit) {
+        entityManager.flush();
+        List<String> series = jdbcTemplate.queryForList(SELECT_SERIES_BY_TOKEN_DATE_SQL, String.class, Date.valueOf(tokenDate), limit);
+        if (series.isEmpty()) {
+            return 0;
+        }
+        int deleted = namedParameterJdbcTemplate.update(DELETE_BY_SERIES_SQL, Map.of("series", series));
+        entityManager.clear();
+        return deleted;
+    }
+
+    @Override
+    @Transactional
+    public boolean deleteBySeriesAndUserLogin(String series, String login) {
+        entityManager.flush();
+        int deleted = jdbcTemplate.update(DELETE_BY_SERIES_AND_USER_LOGIN_SQL, series, login);
+        entityManager.clear();
+        return deleted == 1;
+    }
+
+    @Override
+    @Transactional
+    public int deleteByUserLogin(String login) {
+        entityManager.flush();
+        int deleted = jdbcTemplate.update(DELETE_BY_USER_LOGIN_SQL, login);
+        entityManager.clear();
+        return deleted;
+    }
+}
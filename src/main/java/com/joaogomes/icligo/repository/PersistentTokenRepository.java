@@ -5,12 +5,29 @@ import com.joaogomes.icligo.domain.User;
 import java.time.LocalDate;
 import java.util.List;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 
 /**
  * Spring Data JPA repository for the {@link PersistentToken} entity.
  */
-public interface PersistentTokenRepository extends JpaRepository<PersistentToken, String> {
+public interface PersistentTokenRepository extends JpaRepository<PersistentToken, String>, PersistentTokenJdbcRepository {
+    /**
+     * The columns of a token shown in the list of the sessions of a user.
+     */
+    record Session(String series, LocalDate tokenDate, String ipAddress, String userAgent) {}
+
     List<PersistentToken> findByUser(User user);
 
+    /**
+     * Find the sessions of a user, most recently used first, read through the index of {@code user_id} without loading
+     * the user or the tokens.
+     */
+    @Query(
+        "select new com.joaogomes.icligo.repository.PersistentTokenRepository$Session(t.series, t.tokenDate, t.ipAddress, t.userAgent) " +
+        "from PersistentToken t where t.user.login = :login order by t.tokenDate desc, t.series"
+    )
+    List<Session> findSessionsByUserLogin(@Param("login") String login);
+
     List<PersistentToken> findByTokenDateBefore(LocalDate localDate);
 }
@@ -0,0 +1,83 @@
+package com.joaogomes.icligo.repository;
+
+import java.sql.PreparedStatement;
+import java.util.Set;
+import java.util.TreeSet;
+import org.hibernate.HibernateException;
+import org.hibernate.action.spi.AfterTransactionCompletionProcess;
+import org.hibernate.action.spi.BeforeTransactionCompletionProcess;
+import org.hibernate.engine.spi.SessionImplementor;
+import org.hibernate.engine.spi.SharedSessionContractImplementor;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+/**
+ * Records the tables changed by the current transaction, to increment their counters in {@code jhi_table_version} when
+ * it commits (see {@link TableVersionRepository}).
+ * <p>
+ * Changes made through Hibernate are recorded by a listener; the statements run with JDBC must record theirs. Each
+ * counter is incremented once per transaction, right before the commit and after the last flush, so that its row stays
+ * locked as briefly as possible. A rolled back transaction increments nothing.
+ */
+public final class TableChanges {
+
+    private static final String INCREMENT_VERSION_SQL = "update jhi_table_version set version = version + 1 where table_name = ?";
+
+    private TableChanges() {}
+
+    /**
+     * Record that the current transaction of the session changed a table.
+     *
+     * @param session the session of the transaction.
+     * @param table the changed table, ignored if it is not one of the {@link TableVersionRepository#TABLES}.
+     */
+    public static void record(SessionImplementor session, String table) {
+        if (!TableVersionRepository.TABLES.contains(table)) {
+            return;
+        }
+        Changes changes = (Changes) TransactionSynchronizationManager.getResource(session);
+        if (changes == null) {
+            changes = new Changes();
+            TransactionSynchronizationManager.bindResource(session, changes);
+            session.getActionQueue().registerProcess((BeforeTransactionCompletionProcess) changes);
+            session.getActionQueue().registerProcess((AfterTransactionCompletionProcess) changes);
+        }
+        changes.tables.add(table);
+    }
+
+    /**
+     * Tells whether the current transaction of the session changed a table, in which case the data derived from the
+     * committed rows of the table, like caches or in-memory indexes, does not show these changes yet.
+     *
+     * @param session the session of the transaction.
+     * @param table one of the {@link TableVersionRepository#TABLES}.
+     * @return {@code true} if a change of the table was recorded.
+     */
+    public static boolean isRecorded(SessionImplementor session, String table) {
+        Changes changes = (Changes) TransactionSynchronizationManager.getResource(session);
+        return changes != null && changes.tables.contains(table);
+    }
+
+    private static final class Changes implements BeforeTransactionCompletionProcess, AfterTransactionCompletionProcess {
+
+        // Sorted, so that concurrent transactions lock the counters in the same order
+        private final Set<String> tables = new TreeSet<>();
+
+        @Override
+        public void doBeforeTransactionCompletion(SessionImplementor session) {
+            session.doWork(connection -> {
+                try (PreparedStatement statement = connection.prepareStatement(INCREMENT_VERSION_SQL)) {
+                    for (String table : tables) {
+                        statement.setString(1, table);
+                        statement.addBatch();
+                    }
+                    statement.executeBatch();
+                }
+            });
+        }
+
+        @Override
+        public void doAfterTransactionCompletion(boolean success, SharedSessionContractImplementor session) throws HibernateException {
+            TransactionSynchronizationManager.unbindResourceIfPossible(session);
+        }
+    }
+}
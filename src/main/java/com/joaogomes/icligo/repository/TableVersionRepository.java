@@ -0,0 +1,45 @@
+package com.joaogomes.icligo.repository;
+
+import java.util.Set;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+/**
+ * Repository for the change counters of the {@code jhi_table_version} table.
+ * <p>
+ * The counter of a table is incremented once by every transaction inserting, updating or deleting its rows, when it
+ * commits (see {@link TableChanges}). Reading it tells whether a list of rows may have changed without reading the list,
+ * which makes the ETags of the collection resources cheap.
+ */
+@Repository
+public class TableVersionRepository {
+
+    public static final String CAR = "car";
+
+    public static final String USER = "jhi_user";
+
+    /**
+     * The tables with a change counter.
+     */
+    public static final Set<String> TABLES = Set.of(CAR, USER);
+
+    private static final String SELECT_VERSION_SQL = "select version from jhi_table_version where table_name = ?";
+
+    private final JdbcTemplate jdbcTemplate;
+
+    public TableVersionRepository(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    /**
+     * Get the change counter of a table. Read it before the rows it stands for, so that a concurrent change is never
+     * hidden behind an older counter.
+     *
+     * @param table one of the {@link #TABLES}.
+     * @return the number of transactions which changed the table.
+     */
+    public long getVersion(String table) {
+        Long version = jdbcTemplate.queryForObject(SELECT_VERSION_SQL, Long.class, table);
+        return version != null ? version : 0;
+    }
+}
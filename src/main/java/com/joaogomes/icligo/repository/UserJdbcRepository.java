@@ -0,0 +1,25 @@
+package com.joaogomes.icligo.repository;
+
+import java.time.Instant;
+import java.util.List;
+
+/**
+ * Plain JDBC bulk deletes of the User table, which don't load the users in the persistence context.
+ */
+public interface UserJdbcRepository {
+    /**
+     * Login and email of a deleted user, to evict it from the caches.
+     */
+    record DeletedUser(String login, String email) {}
+
+    /**
+     * Delete at most {@code limit} of the not activated users with an activation key created before a date, together
+     * with their authorities and persistent tokens.
+     * The persistence context is flushed before the delete and cleared after it.
+     *
+     * @param createdDate the date.
+     * @param limit the maximum number of users to delete.
+     * @return the deleted users.
+     */
+    List<DeletedUser> deleteChunkOfNotActivatedUsersCreatedBefore(Instant createdDate, int limit);
+}
@@ -0,0 +1,81 @@
+package com.joaogomes.icligo.repository;
+
+import com.joaogomes.icligo.domain.User;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import org.hibernate.Cache;
+import org.hibernate.SessionFactory;
+import org.hibernate.engine.spi.SessionImplementor;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.transaction.annotation.Transactional;
+
+/**
+ * {@link UserJdbcRepository} implementation, each delete is committed in its own transaction unless one is already
+ * running. Like a {@code @Modifying(flushAutomatically = true, clearAutomatically = true)} query, it flushes the
+ * persistence context before deleting and clears it afterwards, and it evicts the deleted users from the Hibernate
+ * second-level cache. The deletes are recorded in the {@code jhi_user} change counter.
+ */
+class UserJdbcRepositoryImpl implements UserJdbcRepository {
+
+    private static final String SELECT_NOT_ACTIVATED_SQL =
+        "select id, login, email from jhi_user where activated = false and activation_key is not null and created_date < ?" +
+        " order by created_date, id limit ? for update";
+
+    private static final String DELETE_PERSISTENT_TOKENS_SQL = "delete from jhi_persistent_token where user_id in (:ids)";
+
+    private static final String DELETE_AUTHORITIES_SQL = "delete from jhi_user_authority where user_id in (:ids)";
+
+    private static final String DELETE_USERS_SQL = "delete from jhi_user where id in (:ids)";
+
+    private static final String AUTHORITIES_ROLE = User.class.getName() + ".authorities";
+
+    private final JdbcTemplate jdbcTemplate;
+
+    private final NamedParameterJdbcTemplate namedParameterJdbcTemplate;
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    UserJdbcRepositoryImpl(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.namedParameterJdbcTemplate = new NamedParameterJdbcTemplate(jdbcTemplate);
+    }
+
+    @Override
+    @Transactional
+    public List<DeletedUser> deleteChunkOfNotActivatedUsersCreatedBefore(Instant createdDate, int limit) {
+        List<Long> ids = new ArrayList<>(limit);
+        List<DeletedUser> users = new ArrayList<>(limit);
+        entityManager.flush();
+        jdbcTemplate.query(
+            SELECT_NOT_ACTIVATED_SQL,
+            rs -> {
+                ids.add(rs.getLong("id"));
+                users.add(new DeletedUser(rs.getString("login"), rs.getString("email")));
+            },
+            Timestamp.from(createdDate),
+            limit
+        );
+        if (ids.isEmpty()) {
+            return users;
+        }
+        Map<String, List<Long>> parameters = Map.of("ids", ids);
+        namedParameterJdbcTemplate.update(DELETE_PERSISTENT_TOKENS_SQL, parameters);
+        namedParameterJdbcTemplate.update(DELETE_AUTHORITIES_SQL, parameters);
+        namedParameterJdbcTemplate.update(DELETE_USERS_SQL, parameters);
+        TableChanges.record(entityManager.unwrap(SessionImplementor.class), TableVersionRepository.USER);
+        entityManager.clear();
+        Cache cache = entityManager.getEntityManagerFactory().unwrap(SessionFactory.class).getCache();
+        for (Long id : ids) {
+            cache.evictEntityData(User.class, id);
+            cache.evictCollectionData(AUTHORITIES_ROLE, id);
+        }
+        return users;
+    }
+}
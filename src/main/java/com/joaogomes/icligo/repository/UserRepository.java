@@ -1,19 +1,59 @@
 package com.joaogomes.icligo.repository;
 
+import static org.hibernate.jpa.HibernateHints.HINT_FETCH_SIZE;
+
 import com.joaogomes.icligo.domain.User;
+import jakarta.persistence.QueryHint;
 import java.time.Instant;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
+import java.util.stream.Stream;
+import org.springframework.cache.annotation.Cacheable;
 import org.springframework.data.domain.*;
 import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
 
 /**
  * Spring Data JPA repository for the {@link User} entity.
  */
 @Repository
-public interface UserRepository extends JpaRepository<User, Long> {
+public interface UserRepository extends JpaRepository<User, Long>, UserJdbcRepository {
+    String USERS_BY_LOGIN_CACHE = "usersByLogin";
+
+    String USERS_BY_EMAIL_CACHE = "usersByEmail";
+
+    /**
+     * The columns of a user shown in the public user listing.
+     */
+    record PublicUser(Long id, String login) {}
+
+    /**
+     * The columns of a user shown in the user management listing, its authorities are fetched by
+     * {@link #findAuthoritiesByUserIdIn}.
+     */
+    record ManagedUser(
+        Long id,
+        String login,
+        String firstName,
+        String lastName,
+        String email,
+        String imageUrl,
+        boolean activated,
+        String langKey,
+        String createdBy,
+        Instant createdDate,
+        String lastModifiedBy,
+        Instant lastModifiedDate
+    ) {}
+
+    record UserAuthority(Long userId, String authority) {}
+
     Optional<User> findOneByActivationKey(String activationKey);
     List<User> findAllByActivatedIsFalseAndActivationKeyIsNotNullAndCreatedDateBefore(Instant dateTime);
     Optional<User> findOneByResetKey(String resetKey);
@@ -21,10 +61,43 @@ public interface UserRepository extends JpaRepository<User, Long> {
     Optional<User> findOneByLogin(String login);
 
     @EntityGraph(attributePaths = "authorities")
+    @Cacheable(cacheNames = USERS_BY_LOGIN_CACHE)
     Optional<User> findOneWithAuthoritiesByLogin(String login);
 
     @EntityGraph(attributePaths = "authorities")
+    @Cacheable(cacheNames = USERS_BY_EMAIL_CACHE)
     Optional<User> findOneWithAuthoritiesByEmailIgnoreCase(String email);
 
-    Page<User> findAllByIdNotNullAndActivatedIsTrue(Pageable pageable);
+    /**
+     * Same as {@link #findOneWithAuthoritiesByLogin}, without the cache and in a read-write transaction, so that the
+     * user is read from the primary database rather than from a replica which may lag behind. Used to authenticate.
+     */
+    @Transactional
+    @EntityGraph(attributePaths = "authorities")
+    Optional<User> readOneWithAuthoritiesByLogin(String login);
+
+    /**
+     * Same as {@link #findOneWithAuthoritiesByEmailIgnoreCase}, see {@link #readOneWithAuthoritiesByLogin}.
+     */
+    @Transactional
+    @EntityGraph(attributePaths = "authorities")
+    Optional<User> readOneWithAuthoritiesByEmailIgnoreCase(String email);
+
+    Page<PublicUser> findPublicUsersByIdNotNullAndActivatedIsTrue(Pageable pageable);
+
+    Window<PublicUser> findPublicUsersByIdNotNullAndActivatedIsTrue(ScrollPosition position, Sort sort, Limit limit);
+
+    Page<ManagedUser> findManagedUsersByIdNotNull(Pageable pageable);
+
+    Window<ManagedUser> findManagedUsersByIdNotNull(ScrollPosition position, Sort sort, Limit limit);
+
+    /**
+     * Stream the users of the user management listing by id, fetching rows from the database in chunks rather than
+     * loading the whole result. The stream must be closed, inside a transaction.
+     */
+    @QueryHints(@QueryHint(name = HINT_FETCH_SIZE, value = "500"))
+    Stream<ManagedUser> streamManagedUsersByIdNotNullOrderByIdAsc();
+
+    @Query("select new com.joaogomes.icligo.repository.UserRepository$UserAuthority(u.id, a.name) from User u join u.authorities a where u.id in :ids")
+    List<UserAuthority> findAuthoritiesByUserIdIn(@Param("ids") Collection<Long> ids);
 }
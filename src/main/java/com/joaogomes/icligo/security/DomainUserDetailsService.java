@@ -3,60 +3,173 @@ package com.joaogomes.icligo.security;
 import com.joaogomes.icligo.domain.Authority;
 import com.joaogomes.icligo.domain.User;
 import com.joaogomes.icligo.repository.UserRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import java.io.Serializable;
 import java.util.*;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
 import org.hibernate.validator.internal.constraintvalidators.hv.EmailValidator;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
 import org.springframework.security.core.authority.SimpleGrantedAuthority;
 import org.springframework.security.core.userdetails.UserDetails;
+import org.springframework.security.core.userdetails.UserDetailsPasswordService;
 import org.springframework.security.core.userdetails.UserDetailsService;
 import org.springframework.security.core.userdetails.UsernameNotFoundException;
 import org.springframework.stereotype.Component;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
 
 /**
  * Authenticate a user from the database.
+ * <p>
+ * The login, password hash and authorities of activated users are kept in the {@link #USER_DETAILS_BY_LOGIN_CACHE} and
+ * {@link #USER_DETAILS_BY_EMAIL_CACHE} caches, so that a cache hit neither opens a transaction nor borrows a connection.
+ * A new {@link UserDetails} is built for every call, as the caller erases its credentials once authenticated.
+ * <p>
+ * On a miss, the user is read from the primary database, bypassing the {@link UserRepository#USERS_BY_LOGIN_CACHE} and
+ * {@link UserRepository#USERS_BY_EMAIL_CACHE} caches. The changes to a user must go through {@link #evictUser}, right
+ * away and after their commit: a user read while an eviction happened is not cached, as it may predate the change.
+ * <p>
+ * When the password encoder asks for it, the password of a user who just logged in is rehashed, see
+ * {@link #updatePassword}.
  */
 @Component("userDetailsService")
-public class DomainUserDetailsService implements UserDetailsService {
+public class DomainUserDetailsService implements UserDetailsService, UserDetailsPasswordService {
+
+    public static final String USER_DETAILS_BY_LOGIN_CACHE = "userDetailsByLogin";
+
+    public static final String USER_DETAILS_BY_EMAIL_CACHE = "userDetailsByEmail";
 
     private static final Logger LOG = LoggerFactory.getLogger(DomainUserDetailsService.class);
 
+    // Stateless, so a single instance can be shared by all threads
+    private static final EmailValidator EMAIL_VALIDATOR = new EmailValidator();
+
     private final UserRepository userRepository;
 
-    public DomainUserDetailsService(UserRepository userRepository) {
+    private final Cache userDetailsByLoginCache;
+
+    private final Cache userDetailsByEmailCache;
+
+    private final Cache usersByLoginCache;
+
+    private final Cache usersByEmailCache;
+
+    private final Counter rehashedPasswords;
+
+    // Number of evictions so far, to tell whether one happened while a user was read
+    private final AtomicLong evictions = new AtomicLong();
+
+    public DomainUserDetailsService(UserRepository userRepository, CacheManager cacheManager, MeterRegistry meterRegistry) {
         this.userRepository = userRepository;
+        this.userDetailsByLoginCache = Objects.requireNonNull(cacheManager.getCache(USER_DETAILS_BY_LOGIN_CACHE));
+        this.userDetailsByEmailCache = Objects.requireNonNull(cacheManager.getCache(USER_DETAILS_BY_EMAIL_CACHE));
+        this.usersByLoginCache = Objects.requireNonNull(cacheManager.getCache(UserRepository.USERS_BY_LOGIN_CACHE));
+        this.usersByEmailCache = Objects.requireNonNull(cacheManager.getCache(UserRepository.USERS_BY_EMAIL_CACHE));
+        this.rehashedPasswords = Counter.builder("security.password.rehashed")
+            .description("Number of passwords rehashed with the configured cost when their user logged in")
+            .register(meterRegistry);
     }
 
     @Override
-    @Transactional(readOnly = true)
     public UserDetails loadUserByUsername(final String login) {
         LOG.debug("Authenticating {}", login);
 
-        if (new EmailValidator().isValid(login, null)) {
-            return userRepository
-                .findOneWithAuthoritiesByEmailIgnoreCase(login)
-                .map(user -> createSpringSecurityUser(login, user))
-                .orElseThrow(() -> new UsernameNotFoundException("User with email " + login + " was not found in the database"));
+        // Emails and logins are stored lowercase, use the same form as the cache key
+        String lowercaseLogin = login.toLowerCase(Locale.ENGLISH);
+        if (EMAIL_VALIDATOR.isValid(login, null)) {
+            CachedUser cachedUser = userDetailsByEmailCache.get(lowercaseLogin, CachedUser.class);
+            if (cachedUser == null) {
+                cachedUser = loadAndCache(userDetailsByEmailCache, lowercaseLogin, () ->
+                    userRepository
+                        .readOneWithAuthoritiesByEmailIgnoreCase(lowercaseLogin)
+                        .map(user -> createCachedUser(login, user))
+                        .orElseThrow(() -> new UsernameNotFoundException("User with email " + login + " was not found in the database"))
+                );
+            }
+            return createSpringSecurityUser(cachedUser);
         }
 
-        String lowercaseLogin = login.toLowerCase(Locale.ENGLISH);
-        return userRepository
-            .findOneWithAuthoritiesByLogin(lowercaseLogin)
-            .map(user -> createSpringSecurityUser(lowercaseLogin, user))
-            .orElseThrow(() -> new UsernameNotFoundException("User " + lowercaseLogin + " was not found in the database"));
+        CachedUser cachedUser = userDetailsByLoginCache.get(lowercaseLogin, CachedUser.class);
+        if (cachedUser == null) {
+            cachedUser = loadAndCache(userDetailsByLoginCache, lowercaseLogin, () ->
+                userRepository
+                    .readOneWithAuthoritiesByLogin(lowercaseLogin)
+                    .map(user -> createCachedUser(lowercaseLogin, user))
+                    .orElseThrow(() -> new UsernameNotFoundException("User " + lowercaseLogin + " was not found in the database"))
+            );
+        }
+        return createSpringSecurityUser(cachedUser);
     }
 
-    private org.springframework.security.core.userdetails.User createSpringSecurityUser(String lowercaseLogin, User user) {
+    private CachedUser loadAndCache(Cache cache, String key, Supplier<CachedUser> loader) {
+        long evictionsBefore = evictions.get();
+        CachedUser cachedUser = loader.get();
+        if (evictions.get() == evictionsBefore) {
+            cache.put(key, cachedUser);
+        }
+        return cachedUser;
+    }
+
+    /**
+     * Store the password of a user who just logged in, hashed again because its hash had another cost.
+     */
+    @Override
+    @Transactional
+    public UserDetails updatePassword(UserDetails userDetails, String newPassword) {
+        String login = userDetails.getUsername();
+        userRepository
+            .findOneByLogin(login)
+            .ifPresent(user -> {
+                LOG.debug("Rehashing the password of {}", login);
+                user.setPassword(newPassword);
+                rehashedPasswords.increment();
+                String email = user.getEmail();
+                evictUser(login, email);
+                TransactionSynchronizationManager.registerSynchronization(
+                    new TransactionSynchronization() {
+                        @Override
+                        public void afterCommit() {
+                            evictUser(login, email);
+                        }
+                    }
+                );
+            });
+        return org.springframework.security.core.userdetails.User.withUserDetails(userDetails).password(newPassword).build();
+    }
+
+    /**
+     * Evict a user from the user caches, including the ones of this service.
+     */
+    public void evictUser(String login, String email) {
+        evictions.incrementAndGet();
+        usersByLoginCache.evictIfPresent(login);
+        userDetailsByLoginCache.evictIfPresent(login);
+        if (email != null) {
+            usersByEmailCache.evictIfPresent(email);
+            userDetailsByEmailCache.evictIfPresent(email.toLowerCase(Locale.ENGLISH));
+        }
+    }
+
+    private static CachedUser createCachedUser(String lowercaseLogin, User user) {
         if (!user.isActivated()) {
             throw new UserNotActivatedException("User " + lowercaseLogin + " was not activated");
         }
-        List<SimpleGrantedAuthority> grantedAuthorities = user
-            .getAuthorities()
-            .stream()
-            .map(Authority::getName)
-            .map(SimpleGrantedAuthority::new)
-            .toList();
-        return new org.springframework.security.core.userdetails.User(user.getLogin(), user.getPassword(), grantedAuthorities);
+        return new CachedUser(user.getLogin(), user.getPassword(), user.getAuthorities().stream().map(Authority::getName).toList());
     }
+
+    private static org.springframework.security.core.userdetails.User createSpringSecurityUser(CachedUser user) {
+        List<SimpleGrantedAuthority> grantedAuthorities = user.authorities().stream().map(SimpleGrantedAuthority::new).toList();
+        return new org.springframework.security.core.userdetails.User(user.login(), user.password(), grantedAuthorities);
+    }
+
+    /**
+     * Credentials and authorities of a user, as kept in the user details caches.
+     */
+    record CachedUser(String login, String password, List<String> authorities) implements Serializable {}
 }
@@ -0,0 +1,110 @@
+package com.joaogomes.icligo.security;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.jvm.ExecutorServiceMetrics;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+import org.springframework.security.crypto.password.PasswordEncoder;
+
+/**
+ * BCrypt {@link PasswordEncoder} hashing and verifying the passwords on a bounded pool of threads.
+ * <p>
+ * The threads of the requests wait for the pool, so that a burst of logins or registrations takes at most
+ * {@code threads} cores, and the other requests keep theirs. Once {@code queueSize} passwords are waiting, a
+ * {@link PasswordHashingRejectedException} is thrown instead. The pool is monitored by the {@code executor.*} metrics
+ * tagged with {@code name=passwordHashing}, and the refused passwords are counted in
+ * {@code security.password.hashing.rejected}.
+ * <p>
+ * {@link #upgradeEncoding(String)} is {@code true} for the hashes of another cost than the configured one, so that they
+ * are rehashed when their user logs in, see {@link DomainUserDetailsService#updatePassword}.
+ */
+public class OffloadedPasswordEncoder implements PasswordEncoder, AutoCloseable {
+
+    private static final Pattern BCRYPT_COST = Pattern.compile("\\A\\$2[aby]?\\$(\\d\\d)\\$");
+
+    private final PasswordEncoder delegate;
+
+    private final int cost;
+
+    private final ExecutorService executor;
+
+    private final Counter rejected;
+
+    public OffloadedPasswordEncoder(int cost, int threads, int queueSize, MeterRegistry meterRegistry) {
+        this(new BCryptPasswordEncoder(cost), cost, threads, queueSize, meterRegistry);
+    }
+
+    OffloadedPasswordEncoder(PasswordEncoder delegate, int cost, int threads, int queueSize, MeterRegistry meterRegistry) {
+        this.delegate = delegate;
+        this.cost = cost;
+        CustomizableThreadFactory threadFactory = new CustomizableThreadFactory("password-hashing-");
+        threadFactory.setDaemon(true);
+        ThreadPoolExecutor pool = new ThreadPoolExecutor(
+            threads,
+            threads,
+            0,
+            TimeUnit.MILLISECONDS,
+            new ArrayBlockingQueue<>(queueSize),
+            threadFactory
+        );
+        this.executor = ExecutorServiceMetrics.monitor(meterRegistry, pool, "passwordHashing");
+        this.rejected = Counter.builder("security.password.hashing.rejected")
+            .description("Number of passwords not hashed or verified because too many were waiting")
+            .register(meterRegistry);
+    }
+
+    @Override
+    public String encode(CharSequence rawPassword) {
+        return offload(() -> delegate.encode(rawPassword));
+    }
+
+    @Override
+    public boolean matches(CharSequence rawPassword, String encodedPassword) {
+        if (encodedPassword == null || encodedPassword.isEmpty()) {
+            // Nothing to hash
+            return delegate.matches(rawPassword, encodedPassword);
+        }
+        return offload(() -> delegate.matches(rawPassword, encodedPassword));
+    }
+
+    @Override
+    public boolean upgradeEncoding(String encodedPassword) {
+        if (encodedPassword == null) {
+            return false;
+        }
+        Matcher matcher = BCRYPT_COST.matcher(encodedPassword);
+        return matcher.find() && Integer.parseInt(matcher.group(1)) != cost;
+    }
+
+    private <T> T offload(Callable<T> task) {
+        try {
+            return executor.submit(task).get();
+        } catch (RejectedExecutionException e) {
+            rejected.increment();
+            throw new PasswordHashingRejectedException("Too many passwords are waiting to be hashed", e);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new PasswordHashingRejectedException("Interrupted while waiting for the password to be hashed", e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException runtimeException) {
+                throw runtimeException;
+            }
+            throw new IllegalStateException(e.getCause());
+        }
+    }
+
+    @Override
+    public void close() {
+        executor.shutdown();
+    }
+}
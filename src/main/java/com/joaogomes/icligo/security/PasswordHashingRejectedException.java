@@ -0,0 +1,29 @@
+package com.joaogomes.icligo.security;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.security.authentication.AuthenticationServiceException;
+import org.springframework.web.bind.annotation.ResponseStatus;
+
+/**
+ * This exception is thrown when too many passwords are waiting to be hashed or verified.
+ * <p>
+ * It is an authentication exception so that a login refused for this reason gets to the authentication failure handler.
+ */
+@ResponseStatus(HttpStatus.SERVICE_UNAVAILABLE)
+public class PasswordHashingRejectedException extends AuthenticationServiceException {
+
+    private static final long serialVersionUID = 1L;
+
+    /**
+     * Value of the {@code Retry-After} header of the responses refused for this reason, in seconds.
+     */
+    public static final String RETRY_AFTER_SECONDS = "1";
+
+    public PasswordHashingRejectedException(String message) {
+        super(message);
+    }
+
+    public PasswordHashingRejectedException(String message, Throwable t) {
+        super(message, t);
+    }
+}
@@ -0,0 +1,83 @@
+package com.joaogomes.icligo.security;
+
+import com.joaogomes.icligo.config.ApplicationProperties;
+import com.joaogomes.icligo.domain.PersistentToken;
+import com.joaogomes.icligo.repository.PersistentTokenRepository;
+import jakarta.annotation.PreDestroy;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.dao.DataAccessException;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+/**
+ * Write-behind buffer for the activity of remember-me tokens: the date they were last used, and the IP address and user
+ * agent they were last used from.
+ * <p>
+ * This information is only used for auditing and for listing the sessions of a user, so it is not written while the user
+ * waits for the auto-login. Updates are coalesced per series, only the latest one being kept, and written in JDBC batches
+ * every {@code application.remember-me.activity-flush-interval}, and when the application stops.
+ */
+@Component
+public class PersistentTokenActivityWriter {
+
+    private static final Logger LOG = LoggerFactory.getLogger(PersistentTokenActivityWriter.class);
+
+    private final ConcurrentMap<String, PersistentToken> pendingActivity = new ConcurrentHashMap<>();
+
+    private final PersistentTokenRepository persistentTokenRepository;
+
+    private final int batchSize;
+
+    public PersistentTokenActivityWriter(PersistentTokenRepository persistentTokenRepository, ApplicationProperties applicationProperties) {
+        this.persistentTokenRepository = persistentTokenRepository;
+        this.batchSize = applicationProperties.getRememberMe().getActivityBatchSize();
+    }
+
+    /**
+     * Record the activity of a token, replacing any activity of the same series not written yet.
+     *
+     * @param token the token, with its new date, IP address and user agent.
+     */
+    public void record(PersistentToken token) {
+        pendingActivity.put(token.getSeries(), token);
+    }
+
+    /**
+     * Write the recorded activity. Activity recorded while the write is running is left for the next one.
+     */
+    @Scheduled(fixedDelayString = "${application.remember-me.activity-flush-interval:1s}")
+    @PreDestroy
+    public void flush() {
+        List<PersistentToken> batch = new ArrayList<>(Math.min(batchSize, pendingActivity.size()));
+        for (String series : pendingActivity.keySet()) {
+            PersistentToken token = pendingActivity.remove(series);
+            if (token != null) {
+                batch.add(token);
+            }
+            if (batch.size() == batchSize) {
+                write(batch);
+            }
+        }
+        write(batch);
+    }
+
+    private void write(List<PersistentToken> batch) {
+        if (batch.isEmpty()) {
+            return;
+        }
+        LOG.debug("Writing the activity of {} persistent tokens", batch.size());
+        try {
+            persistentTokenRepository.updateActivity(batch);
+        } catch (DataAccessException e) {
+            LOG.warn("Failed to write the activity of {} persistent tokens, it will be retried", batch.size(), e);
+            // Keep any newer activity recorded in the meantime
+            batch.forEach(token -> pendingActivity.putIfAbsent(token.getSeries(), token));
+        }
+        batch.clear();
+    }
+}
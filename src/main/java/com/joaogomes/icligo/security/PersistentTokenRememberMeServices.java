@@ -8,16 +8,21 @@ import jakarta.servlet.http.HttpServletResponse;
 import java.io.Serializable;
 import java.time.LocalDate;
 import java.util.*;
+import java.util.concurrent.locks.ReentrantLock;
+import javax.cache.Cache;
+import javax.cache.CacheManager;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.dao.DataAccessException;
 import org.springframework.security.core.Authentication;
 import org.springframework.security.core.userdetails.UserDetails;
 import org.springframework.security.core.userdetails.UsernameNotFoundException;
 import org.springframework.security.web.authentication.rememberme.*;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
 import tech.jhipster.config.JHipsterProperties;
-import tech.jhipster.security.PersistentTokenCache;
 import tech.jhipster.security.RandomUtil;
 
 /**
@@ -37,6 +42,23 @@ import tech.jhipster.security.RandomUtil;
  * cache during that period. This is to allow concurrent requests from the same user: otherwise, two
  * requests being sent at the same time could invalidate each other's token.
  * <p>
+ * That cache is the {@value #UPGRADED_TOKENS_CACHE} JCache cache, shared by the nodes when the shared caching provider
+ * is distributed, see the {@code hazelcast} profile. A node claims the refresh of a token with a {@code putIfAbsent} in
+ * that cache before writing the new value, so the concurrent requests of a page load sent to other nodes use the
+ * claimed refresh instead of racing on the token, or mistaking its new value for a cookie theft.
+ * <p>
+ * Within a node, requests presenting the same series are serialized by a lock striped on the series, so that only one
+ * of them refreshes the token while the others find it in the cache. Requests for different series, the usual case,
+ * run in parallel.
+ * <p>
+ * The sessions revoked outside of this class must be evicted from that cache, with {@link #evictUpgradedToken} or
+ * {@link #evictUpgradedTokens}, or their previous values would still log their users in until the cached upgrades
+ * expire.
+ * <p>
+ * When a token is used, only its new value is written before the cookie is returned, with a conditional update that
+ * fails if another node rotated it first. Its date, IP address and user agent are written later by the
+ * {@link PersistentTokenActivityWriter}.
+ * <p>
  * This is inspired by:
  * <ul>
  * <li><a href="https://github.com/blog/1661-modeling-your-app-s-user-session">GitHub's "Modeling your App's User Session"</a></li>
@@ -50,6 +72,8 @@ public class PersistentTokenRememberMeServices extends AbstractRememberMeService
 
     private static final Logger LOG = LoggerFactory.getLogger(PersistentTokenRememberMeServices.class);
 
+    public static final String UPGRADED_TOKENS_CACHE = "upgradedRememberMeTokens";
+
     // Token is valid for one month
     private static final int TOKEN_VALIDITY_DAYS = 31;
 
@@ -57,55 +81,140 @@ public class PersistentTokenRememberMeServices extends AbstractRememberMeService
 
     private static final long UPGRADED_TOKEN_VALIDITY_MILLIS = 5000l;
 
-    private final PersistentTokenCache<UpgradedRememberMeToken> upgradedTokenCache;
+    // Must be a power of two
+    private static final int SERIES_LOCK_STRIPES = 256;
+
+    private final ReentrantLock[] seriesLocks = new ReentrantLock[SERIES_LOCK_STRIPES];
+
+    private final Cache<String, UpgradedRememberMeToken> upgradedTokenCache;
 
     private final PersistentTokenRepository persistentTokenRepository;
 
     private final UserRepository userRepository;
 
+    private final PersistentTokenActivityWriter persistentTokenActivityWriter;
+
     public PersistentTokenRememberMeServices(
         JHipsterProperties jHipsterProperties,
         org.springframework.security.core.userdetails.UserDetailsService userDetailsService,
         PersistentTokenRepository persistentTokenRepository,
-        UserRepository userRepository
+        UserRepository userRepository,
+        PersistentTokenActivityWriter persistentTokenActivityWriter,
+        @Qualifier("sharedJCacheCacheManager") CacheManager cacheManager
     ) {
         super(jHipsterProperties.getSecurity().getRememberMe().getKey(), userDetailsService);
         this.persistentTokenRepository = persistentTokenRepository;
         this.userRepository = userRepository;
-        upgradedTokenCache = new PersistentTokenCache<>(UPGRADED_TOKEN_VALIDITY_MILLIS);
+        this.persistentTokenActivityWriter = persistentTokenActivityWriter;
+        this.upgradedTokenCache = cacheManager.getCache(UPGRADED_TOKENS_CACHE);
+        for (int i = 0; i < SERIES_LOCK_STRIPES; i++) {
+            seriesLocks[i] = new ReentrantLock();
+        }
     }
 
     @Override
     protected UserDetails processAutoLoginCookie(String[] cookieTokens, HttpServletRequest request, HttpServletResponse response) {
-        synchronized (this) { // prevent 2 authentication requests from the same user in parallel
-            String login = null;
-            UpgradedRememberMeToken upgradedToken = upgradedTokenCache.get(cookieTokens[0]);
-            if (upgradedToken != null) {
-                login = upgradedToken.getUserLoginIfValid(cookieTokens);
+        String login;
+        ReentrantLock seriesLock = seriesLock(cookieTokens[0]);
+        seriesLock.lock(); // prevent 2 authentication requests from the same user in parallel
+        try {
+            login = getUpgradedTokenLogin(cookieTokens);
+            if (login != null) {
                 LOG.debug("Detected previously upgraded login token for user '{}'", login);
-            }
-
-            if (login == null) {
-                PersistentToken token = getPersistentToken(cookieTokens);
-                login = token.getUser().getLogin();
-
-                // Token also matches, so login is valid. Update the token value, keeping the *same* series number.
-                LOG.debug("Refreshing persistent login token for user '{}', series '{}'", login, token.getSeries());
-                token.setTokenDate(LocalDate.now());
-                token.setTokenValue(RandomUtil.generateRandomAlphanumericString());
-                token.setIpAddress(request.getRemoteAddr());
-                token.setUserAgent(request.getHeader("User-Agent"));
-                try {
-                    persistentTokenRepository.saveAndFlush(token);
-                } catch (DataAccessException e) {
-                    LOG.error("Failed to update token: ", e);
-                    throw new RememberMeAuthenticationException("Autologin failed due to data access problem", e);
+            } else {
+                PersistentToken token = findPersistentToken(cookieTokens);
+                if (cookieTokens.length == 2 && !cookieTokens[1].equals(token.getTokenValue())) {
+                    // Another node may have refreshed the token since the cache was read
+                    login = getUpgradedTokenLogin(cookieTokens);
+                }
+                if (login != null) {
+                    LOG.debug("Detected login token upgraded by a concurrent request for user '{}'", login);
+                } else {
+                    checkPersistentToken(token, cookieTokens);
+                    login = refreshPersistentToken(token, cookieTokens, request, response);
                 }
-                addCookie(token, request, response);
-                upgradedTokenCache.put(cookieTokens[0], new UpgradedRememberMeToken(cookieTokens, login));
             }
-            return getUserDetailsService().loadUserByUsername(login);
+        } finally {
+            seriesLock.unlock();
+        }
+        return getUserDetailsService().loadUserByUsername(login);
+    }
+
+    /**
+     * Refresh the value of a token, unless a concurrent request claimed its refresh first.
+     *
+     * @return the login of the user of the token.
+     */
+    private String refreshPersistentToken(
+        PersistentToken token,
+        String[] cookieTokens,
+        HttpServletRequest request,
+        HttpServletResponse response
+    ) {
+        String login = token.getUser().getLogin();
+        UpgradedRememberMeToken upgrade = new UpgradedRememberMeToken(cookieTokens[0], cookieTokens[1], login, System.currentTimeMillis());
+        String concurrentLogin = claimUpgrade(upgrade, cookieTokens);
+        if (concurrentLogin != null) {
+            LOG.debug("Detected login token being upgraded by a concurrent request for user '{}'", concurrentLogin);
+            return concurrentLogin;
+        }
+
+        // Token also matches, so login is valid. Update the token value, keeping the *same* series number.
+        LOG.debug("Refreshing persistent login token for user '{}', series '{}'", login, token.getSeries());
+        String tokenValue = RandomUtil.generateRandomAlphanumericString();
+        boolean updated;
+        try {
+            updated = persistentTokenRepository.updateTokenValue(token.getSeries(), token.getTokenValue(), tokenValue);
+        } catch (DataAccessException e) {
+            upgradedTokenCache.remove(upgrade.series(), upgrade);
+            LOG.error("Failed to update token: ", e);
+            throw new RememberMeAuthenticationException("Autologin failed due to data access problem", e);
+        }
+        if (!updated) {
+            upgradedTokenCache.remove(upgrade.series(), upgrade);
+            throw new RememberMeAuthenticationException("Remember-me token was refreshed by a concurrent request");
+        }
+        token.setTokenValue(tokenValue);
+        token.setTokenDate(LocalDate.now());
+        token.setIpAddress(request.getRemoteAddr());
+        token.setUserAgent(request.getHeader("User-Agent"));
+        persistentTokenActivityWriter.record(token);
+        addCookie(token, request, response);
+        return login;
+    }
+
+    private ReentrantLock seriesLock(String series) {
+        int hash = series.hashCode();
+        return seriesLocks[(hash ^ (hash >>> 16)) & (SERIES_LOCK_STRIPES - 1)];
+    }
+
+    private String getUpgradedTokenLogin(String[] cookieTokens) {
+        UpgradedRememberMeToken upgradedToken = upgradedTokenCache.get(cookieTokens[0]);
+        return upgradedToken != null ? upgradedToken.getUserLoginIfValid(cookieTokens, System.currentTimeMillis()) : null;
+    }
+
+    /**
+     * Claim the refresh of a token, atomically across the nodes sharing the cache.
+     *
+     * @return {@code null} if the refresh is claimed, or the login of the user when a concurrent request claimed it.
+     */
+    private String claimUpgrade(UpgradedRememberMeToken upgrade, String[] cookieTokens) {
+        if (upgradedTokenCache.putIfAbsent(upgrade.series(), upgrade)) {
+            return null;
+        }
+        UpgradedRememberMeToken current = upgradedTokenCache.get(upgrade.series());
+        String login = current != null ? current.getUserLoginIfValid(cookieTokens, upgrade.upgradedAtMillis()) : null;
+        if (login != null) {
+            return login;
         }
+        // The entry is an expired upgrade, or was removed meanwhile
+        boolean claimed = current != null
+            ? upgradedTokenCache.replace(upgrade.series(), current, upgrade)
+            : upgradedTokenCache.putIfAbsent(upgrade.series(), upgrade);
+        if (!claimed) {
+            throw new RememberMeAuthenticationException("Remember-me token was refreshed by a concurrent request");
+        }
+        return null;
     }
 
     @Override
@@ -152,6 +261,7 @@ public class PersistentTokenRememberMeServices extends AbstractRememberMeService
                 String[] cookieTokens = decodeCookie(rememberMeCookie);
                 PersistentToken token = getPersistentToken(cookieTokens);
                 persistentTokenRepository.deleteById(token.getSeries());
+                evictUpgradedToken(token.getSeries());
             } catch (InvalidCookieException ice) {
                 LOG.info("Invalid cookie, no persistent token could be deleted", ice);
             } catch (RememberMeAuthenticationException rmae) {
@@ -161,23 +271,78 @@ public class PersistentTokenRememberMeServices extends AbstractRememberMeService
         super.logout(request, response, authentication);
     }
 
+    /**
+     * Evict the upgrade of a revoked session from the {@value #UPGRADED_TOKENS_CACHE} cache, right away and after the
+     * commit of the current transaction, if any, so that a concurrent refresh cannot cache it again meanwhile.
+     *
+     * @param series the series of the session.
+     */
+    public void evictUpgradedToken(String series) {
+        upgradedTokenCache.remove(series);
+        afterCommit(() -> upgradedTokenCache.remove(series));
+    }
+
+    /**
+     * Evict the upgrades of the revoked sessions of a user from the {@value #UPGRADED_TOKENS_CACHE} cache, right away
+     * and after the commit of the current transaction, if any.
+     * <p>
+     * The cache is scanned rather than keyed by the series of the user, which would have to be read before they are
+     * deleted: it only holds the tokens refreshed during the last {@value #UPGRADED_TOKEN_VALIDITY_MILLIS} milliseconds.
+     *
+     * @param login the login of the user.
+     */
+    public void evictUpgradedTokens(String login) {
+        removeUpgradedTokens(login);
+        afterCommit(() -> removeUpgradedTokens(login));
+    }
+
+    private void removeUpgradedTokens(String login) {
+        for (Cache.Entry<String, UpgradedRememberMeToken> entry : upgradedTokenCache) {
+            if (login.equals(entry.getValue().userLogin())) {
+                upgradedTokenCache.remove(entry.getKey(), entry.getValue());
+            }
+        }
+    }
+
+    private static void afterCommit(Runnable eviction) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(
+                new TransactionSynchronization() {
+                    @Override
+                    public void afterCommit() {
+                        eviction.run();
+                    }
+                }
+            );
+        }
+    }
+
     /**
      * Validate the token and return it.
      */
     private PersistentToken getPersistentToken(String[] cookieTokens) {
+        PersistentToken token = findPersistentToken(cookieTokens);
+        checkPersistentToken(token, cookieTokens);
+        return token;
+    }
+
+    private PersistentToken findPersistentToken(String[] cookieTokens) {
         if (cookieTokens.length != 2) {
             throw new InvalidCookieException(
                 "Cookie token did not contain " + 2 + " tokens, but contained '" + Arrays.asList(cookieTokens) + "'"
             );
         }
         String presentedSeries = cookieTokens[0];
-        String presentedToken = cookieTokens[1];
         Optional<PersistentToken> optionalToken = persistentTokenRepository.findById(presentedSeries);
         if (!optionalToken.isPresent()) {
             // No series match, so we can't authenticate using this cookie
             throw new RememberMeAuthenticationException("No persistent token found for series id: " + presentedSeries);
         }
-        PersistentToken token = optionalToken.orElseThrow();
+        return optionalToken.orElseThrow();
+    }
+
+    private void checkPersistentToken(PersistentToken token, String[] cookieTokens) {
+        String presentedToken = cookieTokens[1];
         // We have a match for this user/series combination
         LOG.info("presentedToken={} / tokenValue={}", presentedToken, token.getTokenValue());
         if (!presentedToken.equals(token.getTokenValue())) {
@@ -189,29 +354,31 @@ public class PersistentTokenRememberMeServices extends AbstractRememberMeService
             persistentTokenRepository.deleteById(token.getSeries());
             throw new RememberMeAuthenticationException("Remember-me login has expired");
         }
-        return token;
     }
 
     private void addCookie(PersistentToken token, HttpServletRequest request, HttpServletResponse response) {
         setCookie(new String[] { token.getSeries(), token.getTokenValue() }, TOKEN_VALIDITY_SECONDS, request, response);
     }
 
-    private static class UpgradedRememberMeToken implements Serializable {
-
-        private static final long serialVersionUID = 1L;
-
-        private final String[] upgradedToken;
-
-        private final String userLogin;
-
-        UpgradedRememberMeToken(String[] upgradedToken, String userLogin) {
-            this.upgradedToken = upgradedToken;
-            this.userLogin = userLogin;
-        }
-
-        String getUserLoginIfValid(String[] currentToken) {
-            if (currentToken[0].equals(this.upgradedToken[0]) && currentToken[1].equals(this.upgradedToken[1])) {
-                return this.userLogin;
+    /**
+     * A token whose value is being or was refreshed, cached so that the concurrent requests presenting its previous value
+     * are authenticated during {@value #UPGRADED_TOKEN_VALIDITY_MILLIS} milliseconds. Serializable, to be shared by the
+     * nodes.
+     *
+     * @param series the series of the token.
+     * @param tokenValue the value of the token before its refresh.
+     * @param userLogin the login of the user of the token.
+     * @param upgradedAtMillis the time of the refresh.
+     */
+    record UpgradedRememberMeToken(String series, String tokenValue, String userLogin, long upgradedAtMillis) implements Serializable {
+        String getUserLoginIfValid(String[] currentToken, long nowMillis) {
+            if (
+                currentToken.length == 2 &&
+                currentToken[0].equals(series) &&
+                currentToken[1].equals(tokenValue) &&
+                nowMillis - upgradedAtMillis <= UPGRADED_TOKEN_VALIDITY_MILLIS
+            ) {
+                return userLogin;
             }
             return null;
         }
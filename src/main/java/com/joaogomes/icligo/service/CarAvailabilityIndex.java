@@ -0,0 +1,492 @@
+package com.joaogomes.icligo.service;
+
+import com.joaogomes.icligo.config.ApplicationProperties;
+import com.joaogomes.icligo.domain.Car;
+import com.joaogomes.icligo.repository.CarRepository;
+import com.joaogomes.icligo.service.criteria.CarCriteria;
+import java.text.Normalizer;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.OptionalLong;
+import java.util.TreeMap;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.stream.Stream;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import tech.jhipster.service.filter.BooleanFilter;
+import tech.jhipster.service.filter.IntegerFilter;
+import tech.jhipster.service.filter.StringFilter;
+
+/**
+ * In-memory index of the available cars, answering the {@code available=true&brand=X&cyear>=Y} queries without the
+ * database.
+ * <p>
+ * The index is a bitmap of the ids of the available cars, with a bitmap of the available cars of each brand and of each
+ * year. It is loaded when the application is ready, and updated by the writes of the {@link
+ * com.joaogomes.icligo.web.rest.CarResource} once their transaction commits: rolled back writes leave it untouched. The
+ * writes of other instances are not seen, so it can be disabled with {@code application.car-availability-index.enabled}.
+ * It can be compared to the database with {@link #check()}, and reloaded with {@link #rebuild()}.
+ * <p>
+ * The criteria it answers select the cars with {@code available.equals=true}, optionally an exact brand, and optionally
+ * a range of years; it answers the pages sorted by id. {@link CarQueryService} falls back to the database for the other
+ * queries.
+ * <p>
+ * The database compares the brands with the collation of their column, which ignores the case and the accents on
+ * MySQL but not on H2. The index only answers a brand when no available car has another spelling of it, as both
+ * comparisons then select the same cars.
+ */
+@Service
+public class CarAvailabilityIndex {
+
+    private static final Logger LOG = LoggerFactory.getLogger(CarAvailabilityIndex.class);
+
+    private static final String ID_PROPERTY = "id";
+
+    private final CarRepository carRepository;
+
+    private final TransactionTemplate transactionTemplate;
+
+    private final boolean enabled;
+
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+    /**
+     * The index, {@code null} until it is loaded. Guarded by the lock.
+     */
+    private Bitmaps bitmaps;
+
+    /**
+     * The changes committed while the index is rebuilt, {@code null} otherwise. Guarded by the lock.
+     */
+    private List<Change> pendingChanges;
+
+    public CarAvailabilityIndex(
+        CarRepository carRepository,
+        PlatformTransactionManager transactionManager,
+        ApplicationProperties applicationProperties
+    ) {
+        this.carRepository = carRepository;
+        // Read from the primary database, in a transaction of its own when called after a commit
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.transactionTemplate.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        this.enabled = applicationProperties.getCarAvailabilityIndex().isEnabled();
+    }
+
+    /**
+     * The result of the comparison of the index with the database.
+     *
+     * @param indexedCars the number of available cars in the index.
+     * @param availableCars the number of available cars in the database.
+     * @param mismatchedCars the number of cars whose availability, brand or year differ.
+     */
+    public record Check(long indexedCars, long availableCars, long mismatchedCars) {
+        public boolean isConsistent() {
+            return mismatchedCars == 0;
+        }
+    }
+
+    private record Change(long id, String brand, Integer cyear, boolean available) {}
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void load() {
+        if (enabled) {
+            try {
+                rebuild();
+            } catch (RuntimeException e) {
+                LOG.warn("Could not load the car availability index, the cars are counted by the database: {}", e.getMessage());
+            }
+        }
+    }
+
+    /**
+     * Reload the index from the database. The changes committed meanwhile are applied once it is loaded; concurrent
+     * rebuilds run one after the other.
+     *
+     * @return the number of available cars indexed.
+     */
+    public synchronized long rebuild() {
+        if (!enabled) {
+            return 0;
+        }
+        LOG.debug("Request to rebuild the car availability index");
+        lock.writeLock().lock();
+        try {
+            pendingChanges = new ArrayList<>();
+        } finally {
+            lock.writeLock().unlock();
+        }
+        Bitmaps loaded = null;
+        try {
+            loaded = loadBitmaps();
+        } finally {
+            lock.writeLock().lock();
+            try {
+                if (loaded != null && !pendingChanges.stream().allMatch(loaded::apply)) {
+                    loaded = null;
+                }
+                if (loaded != null) {
+                    bitmaps = loaded;
+                }
+                pendingChanges = null;
+            } finally {
+                lock.writeLock().unlock();
+            }
+        }
+        if (loaded == null) {
+            throw new IllegalStateException("The ids of the cars do not fit in the car availability index");
+        }
+        LOG.info("Indexed {} available cars", loaded.available.cardinality());
+        return loaded.available.cardinality();
+    }
+
+    /**
+     * Compare the index with the available cars of the database. Writes running meanwhile may be reported as mismatches.
+     *
+     * @return the result of the comparison.
+     */
+    public Check check() {
+        Bitmaps loaded = loadBitmaps();
+        lock.readLock().lock();
+        try {
+            Bitmaps indexed = bitmaps != null ? bitmaps : new Bitmaps();
+            BitSet mismatched = xor(indexed.available, loaded.available);
+            indexed.byBrand.forEach((brand, cars) -> mismatched.or(xor(cars, loaded.byBrand.get(brand))));
+            loaded.byBrand.forEach((brand, cars) -> mismatched.or(xor(cars, indexed.byBrand.get(brand))));
+            indexed.byYear.forEach((year, cars) -> mismatched.or(xor(cars, loaded.byYear.get(year))));
+            loaded.byYear.forEach((year, cars) -> mismatched.or(xor(cars, indexed.byYear.get(year))));
+            Check check = new Check(indexed.available.cardinality(), loaded.available.cardinality(), mismatched.cardinality());
+            if (!check.isConsistent()) {
+                LOG.warn("The car availability index does not match the database: {}", check);
+            }
+            return check;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Index a created or updated car, once the current transaction commits.
+     *
+     * @param car the car, with all its fields.
+     */
+    public void update(Car car) {
+        afterCommit(new Change(car.getId(), car.getBrand(), car.getCyear(), Boolean.TRUE.equals(car.getAvailable())));
+    }
+
+    /**
+     * Remove a deleted car from the index, once the current transaction commits.
+     *
+     * @param id the id of the car.
+     */
+    public void remove(Long id) {
+        afterCommit(new Change(id, null, null, false));
+    }
+
+    /**
+     * Rebuild the index once the current transaction commits, after writes which do not tell the cars they changed.
+     */
+    public void rebuildAfterCommit() {
+        if (enabled) {
+            afterCommit(this::rebuild);
+        }
+    }
+
+    /**
+     * Count the cars matching the criteria.
+     *
+     * @param criteria the criteria.
+     * @return the number of matching cars, or empty if the index cannot answer the criteria.
+     */
+    public OptionalLong count(CarCriteria criteria) {
+        Optional<Selection> selection = Selection.of(criteria);
+        if (selection.isEmpty()) {
+            return OptionalLong.empty();
+        }
+        lock.readLock().lock();
+        try {
+            BitSet cars = bitmaps != null ? bitmaps.select(selection.orElseThrow()) : null;
+            return cars != null ? OptionalLong.of(cars.cardinality()) : OptionalLong.empty();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Find a page of the ids of the cars matching the criteria.
+     *
+     * @param criteria the criteria.
+     * @param pageable the page, sorted by id or unsorted.
+     * @return the page of ids, or empty if the index cannot answer the criteria or the sort.
+     */
+    public Optional<Page<Long>> findIds(CarCriteria criteria, Pageable pageable) {
+        Optional<Selection> selection = Selection.of(criteria);
+        if (selection.isEmpty() || !pageable.getSort().stream().map(Sort.Order::getProperty).allMatch(ID_PROPERTY::equals)) {
+            return Optional.empty();
+        }
+        BitSet cars;
+        lock.readLock().lock();
+        try {
+            cars = bitmaps != null ? bitmaps.select(selection.orElseThrow()) : null;
+        } finally {
+            lock.readLock().unlock();
+        }
+        if (cars == null) {
+            return Optional.empty();
+        }
+        Sort.Order order = pageable.getSort().getOrderFor(ID_PROPERTY);
+        boolean descending = order != null && order.isDescending();
+        List<Long> ids = new ArrayList<>(pageable.getPageSize());
+        long skipped = 0;
+        for (
+            int id = descending ? cars.previousSetBit(cars.length()) : cars.nextSetBit(0);
+            id >= 0 && ids.size() < pageable.getPageSize();
+            id = descending ? cars.previousSetBit(id - 1) : cars.nextSetBit(id + 1)
+        ) {
+            if (skipped++ >= pageable.getOffset()) {
+                ids.add((long) id);
+            }
+        }
+        return Optional.of(new PageImpl<>(ids, pageable, cars.cardinality()));
+    }
+
+    private Bitmaps loadBitmaps() {
+        return transactionTemplate.execute(status -> {
+            Bitmaps loaded = new Bitmaps();
+            try (Stream<CarRepository.AvailableCar> cars = carRepository.streamAvailable()) {
+                if (!cars.allMatch(car -> loaded.apply(new Change(car.id(), car.brand(), car.cyear(), true)))) {
+                    throw new IllegalStateException("The ids of the cars do not fit in the car availability index");
+                }
+            }
+            return loaded;
+        });
+    }
+
+    private void afterCommit(Change change) {
+        afterCommit(() -> apply(change));
+    }
+
+    private void afterCommit(Runnable action) {
+        if (!enabled) {
+            return;
+        }
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            action.run();
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(
+            new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    action.run();
+                }
+            }
+        );
+    }
+
+    private void apply(Change change) {
+        lock.writeLock().lock();
+        try {
+            if (bitmaps != null && !bitmaps.apply(change)) {
+                LOG.warn("Car {} cannot be indexed, the car availability index is dropped until it is rebuilt", change.id());
+                bitmaps = null;
+            }
+            if (pendingChanges != null) {
+                pendingChanges.add(change);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private static BitSet xor(BitSet a, BitSet b) {
+        BitSet result = a != null ? (BitSet) a.clone() : new BitSet();
+        if (b != null) {
+            result.xor(b);
+        }
+        return result;
+    }
+
+    /**
+     * The cars selected by criteria the index can answer: the available cars, of a brand if not {@code null}, made in the
+     * given years, inclusive.
+     */
+    private record Selection(String brand, int minYear, int maxYear) {
+        private static Optional<Selection> of(CarCriteria criteria) {
+            if (
+                criteria == null ||
+                criteria.getId() != null ||
+                criteria.getModel() != null ||
+                !Objects.equals(criteria.getAvailable(), availableFilter()) ||
+                (criteria.getBrand() != null && !criteria.getBrand().equals(brandFilter(criteria.getBrand().getEquals()))) ||
+                (criteria.getCyear() != null && !criteria.getCyear().equals(yearFilter(criteria.getCyear())))
+            ) {
+                return Optional.empty();
+            }
+            String brand = criteria.getBrand() != null ? criteria.getBrand().getEquals() : null;
+            long minYear = Integer.MIN_VALUE;
+            long maxYear = Integer.MAX_VALUE;
+            IntegerFilter cyear = criteria.getCyear();
+            if (cyear != null) {
+                if (cyear.getEquals() != null) {
+                    minYear = Math.max(minYear, cyear.getEquals());
+                    maxYear = Math.min(maxYear, cyear.getEquals());
+                }
+                if (cyear.getGreaterThan() != null) {
+                    minYear = Math.max(minYear, cyear.getGreaterThan() + 1L);
+                }
+                if (cyear.getGreaterThanOrEqual() != null) {
+                    minYear = Math.max(minYear, cyear.getGreaterThanOrEqual());
+                }
+                if (cyear.getLessThan() != null) {
+                    maxYear = Math.min(maxYear, cyear.getLessThan() - 1L);
+                }
+                if (cyear.getLessThanOrEqual() != null) {
+                    maxYear = Math.min(maxYear, cyear.getLessThanOrEqual());
+                }
+            }
+            return Optional.of(new Selection(brand, (int) minYear, (int) Math.max(minYear - 1, maxYear)));
+        }
+
+        private static BooleanFilter availableFilter() {
+            BooleanFilter filter = new BooleanFilter();
+            filter.setEquals(true);
+            return filter;
+        }
+
+        private static StringFilter brandFilter(String brand) {
+            StringFilter filter = new StringFilter();
+            filter.setEquals(brand);
+            return filter;
+        }
+
+        /**
+         * @return the filter with only the bounds of the given filter, equal to it if it has no other condition.
+         */
+        private static IntegerFilter yearFilter(IntegerFilter cyear) {
+            IntegerFilter filter = new IntegerFilter();
+            filter.setEquals(cyear.getEquals());
+            filter.setGreaterThan(cyear.getGreaterThan());
+            filter.setGreaterThanOrEqual(cyear.getGreaterThanOrEqual());
+            filter.setLessThan(cyear.getLessThan());
+            filter.setLessThanOrEqual(cyear.getLessThanOrEqual());
+            return filter;
+        }
+    }
+
+    /**
+     * The bitmaps of the available cars, by car id. The cars whose id does not fit in an {@code int} cannot be indexed.
+     */
+    private static final class Bitmaps {
+
+        private final BitSet available = new BitSet();
+
+        private final Map<String, BitSet> byBrand = new HashMap<>();
+
+        // Number of spellings in byBrand of each folded brand
+        private final Map<String, Integer> spellingsByFoldedBrand = new HashMap<>();
+
+        private final NavigableMap<Integer, BitSet> byYear = new TreeMap<>();
+
+        /**
+         * @return {@code false} if the id of the car does not fit in the bitmaps.
+         */
+        private boolean apply(Change change) {
+            if (change.id() < 0 || change.id() > Integer.MAX_VALUE) {
+                return false;
+            }
+            int bit = (int) change.id();
+            if (available.get(bit)) {
+                available.clear(bit);
+                byBrand
+                    .entrySet()
+                    .removeIf(brand -> {
+                        if (!clear(brand.getValue(), bit)) {
+                            return false;
+                        }
+                        spellingsByFoldedBrand.computeIfPresent(fold(brand.getKey()), (folded, spellings) -> spellings > 1 ? spellings - 1 : null);
+                        return true;
+                    });
+                byYear.values().removeIf(cars -> clear(cars, bit));
+            }
+            if (change.available()) {
+                available.set(bit);
+                if (change.brand() != null) {
+                    byBrand
+                        .computeIfAbsent(change.brand(), brand -> {
+                            spellingsByFoldedBrand.merge(fold(brand), 1, Integer::sum);
+                            return new BitSet();
+                        })
+                        .set(bit);
+                }
+                if (change.cyear() != null) {
+                    byYear.computeIfAbsent(change.cyear(), year -> new BitSet()).set(bit);
+                }
+            }
+            return true;
+        }
+
+        /**
+         * @return the selected cars, or {@code null} if available cars have another spelling of the brand.
+         */
+        private BitSet select(Selection selection) {
+            BitSet cars = available;
+            if (selection.brand() != null) {
+                cars = byBrand.get(selection.brand());
+                int spellings = spellingsByFoldedBrand.getOrDefault(fold(selection.brand()), 0);
+                if (spellings > (cars != null ? 1 : 0)) {
+                    return null;
+                }
+            }
+            cars = cars != null ? (BitSet) cars.clone() : new BitSet();
+            if (selection.minYear() != Integer.MIN_VALUE || selection.maxYear() != Integer.MAX_VALUE) {
+                BitSet years = new BitSet();
+                if (selection.minYear() <= selection.maxYear()) {
+                    byYear.subMap(selection.minYear(), true, selection.maxYear(), true).values().forEach(years::or);
+                }
+                cars.and(years);
+            }
+            return cars;
+        }
+
+        /**
+         * Fold a brand at least as much as the collations of the brand column: the case, accents, spaces and punctuation
+         * are ignored, so that two brands equal for the database have the same folded brand.
+         */
+        private static String fold(String brand) {
+            StringBuilder folded = new StringBuilder(brand.length());
+            Normalizer.normalize(brand, Normalizer.Form.NFKD)
+                .codePoints()
+                .filter(Character::isLetterOrDigit)
+                .forEach(folded::appendCodePoint);
+            return folded.toString().toUpperCase(Locale.ROOT).toLowerCase(Locale.ROOT);
+        }
+
+        /**
+         * @return {@code true} if the bitmap is empty once the bit is cleared.
+         */
+        private static boolean clear(BitSet cars, int bit) {
+            cars.clear(bit);
+            return cars.isEmpty();
+        }
+    }
+}
@@ -0,0 +1,319 @@
+package com.joaogomes.icligo.service;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.joaogomes.icligo.domain.Car;
+import com.joaogomes.icligo.repository.CarRepository;
+import com.joaogomes.icligo.service.criteria.CarCriteria;
+import jakarta.persistence.EntityManager;
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.Reader;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.stream.Stream;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+/**
+ * Service for importing and exporting {@link Car} entities in bulk.
+ * <p>
+ * Imports read their input line by line and insert in JDBC batches of {@value #BATCH_SIZE} cars, so memory does not grow
+ * with the size of the import. Exports write each car as soon as it is read from the database.
+ * <p>
+ * Two formats are supported: newline-delimited JSON, one car per line, and the semicolon separated CSV of
+ * {@code config/liquibase/fake-data/car.csv}, whose first line names the columns. Ids found in imports are ignored, the
+ * database generates new ones.
+ */
+@Service
+@Transactional
+public class CarBulkService {
+
+    private static final Logger LOG = LoggerFactory.getLogger(CarBulkService.class);
+
+    static final int BATCH_SIZE = 1000;
+
+    private static final char CSV_SEPARATOR = ';';
+
+    private static final char CSV_QUOTE = '"';
+
+    private static final List<String> CSV_COLUMNS = List.of("id", "model", "brand", "cyear", "available");
+
+    private final CarRepository carRepository;
+
+    private final CarQueryService carQueryService;
+
+    private final EntityManager entityManager;
+
+    private final ObjectMapper objectMapper;
+
+    public CarBulkService(
+        CarRepository carRepository,
+        CarQueryService carQueryService,
+        EntityManager entityManager,
+        ObjectMapper objectMapper
+    ) {
+        this.carRepository = carRepository;
+        this.carQueryService = carQueryService;
+        this.entityManager = entityManager;
+        this.objectMapper = objectMapper;
+    }
+
+    /**
+     * Import cars from newline-delimited JSON. Blank lines are skipped.
+     *
+     * @param reader the input.
+     * @return the number of cars created.
+     * @throws InvalidCarImportException if a line is not a valid car, nothing is imported then.
+     */
+    public long importNdjson(Reader reader) throws IOException {
+        LOG.debug("Request to import Cars from NDJSON");
+        BufferedReader in = new BufferedReader(reader);
+        List<Car> batch = new ArrayList<>(BATCH_SIZE);
+        long count = 0;
+        long lineNumber = 0;
+        String line;
+        while ((line = in.readLine()) != null) {
+            lineNumber++;
+            if (line.isBlank()) {
+                continue;
+            }
+            try {
+                batch.add(objectMapper.readValue(line, Car.class));
+            } catch (JsonProcessingException e) {
+                throw new InvalidCarImportException(lineNumber, e.getOriginalMessage());
+            }
+            count += flushIfFull(batch);
+        }
+        return count + flush(batch);
+    }
+
+    /**
+     * Import cars from CSV. The header line may list the columns in any order and omit some of them.
+     *
+     * @param reader the input.
+     * @return the number of cars created.
+     * @throws InvalidCarImportException if the header or a record is invalid, nothing is imported then.
+     */
+    public long importCsv(Reader reader) throws IOException {
+        LOG.debug("Request to import Cars from CSV");
+        CsvRecordReader in = new CsvRecordReader(new BufferedReader(reader));
+        List<String> header = in.next();
+        if (header == null) {
+            return 0;
+        }
+        for (String column : header) {
+            if (!CSV_COLUMNS.contains(column)) {
+                throw new InvalidCarImportException(in.recordLine, "unknown column " + column);
+            }
+        }
+        List<Car> batch = new ArrayList<>(BATCH_SIZE);
+        long count = 0;
+        List<String> values;
+        while ((values = in.next()) != null) {
+            if (values.size() == 1 && values.get(0).isEmpty()) {
+                continue;
+            }
+            if (values.size() != header.size()) {
+                throw new InvalidCarImportException(in.recordLine, "expected " + header.size() + " values, got " + values.size());
+            }
+            batch.add(toCar(header, values, in.recordLine));
+            count += flushIfFull(batch);
+        }
+        return count + flush(batch);
+    }
+
+    /**
+     * Export all the cars as newline-delimited JSON.
+     *
+     * @param writer the output, flushed but not closed.
+     * @return the number of cars exported.
+     */
+    @Transactional(readOnly = true)
+    public long exportNdjson(Writer writer) throws IOException {
+        LOG.debug("Request to export Cars to NDJSON");
+        try (Stream<Car> cars = carRepository.streamAll()) {
+            return writeNdjson(cars, writer);
+        }
+    }
+
+    /**
+     * Export the cars which match the criteria as newline-delimited JSON, by id.
+     *
+     * @param criteria the criteria which the exported cars should match.
+     * @param writer the output, flushed but not closed.
+     * @return the number of cars exported.
+     */
+    @Transactional(readOnly = true)
+    public long exportNdjson(CarCriteria criteria, Writer writer) throws IOException {
+        LOG.debug("Request to export Cars to NDJSON by criteria: {}", criteria);
+        try (Stream<Car> cars = carQueryService.streamByCriteria(criteria)) {
+            return writeNdjson(cars, writer);
+        }
+    }
+
+    private long writeNdjson(Stream<Car> cars, Writer writer) throws IOException {
+        ObjectWriter carWriter = objectMapper.writerFor(Car.class);
+        long count = 0;
+        for (Iterator<Car> it = cars.iterator(); it.hasNext(); count++) {
+            Car car = it.next();
+            writer.write(carWriter.writeValueAsString(car));
+            writer.write('\n');
+            entityManager.detach(car);
+        }
+        writer.flush();
+        return count;
+    }
+
+    /**
+     * Export all the cars as CSV, with a header line.
+     *
+     * @param writer the output, flushed but not closed.
+     * @return the number of cars exported.
+     */
+    @Transactional(readOnly = true)
+    public long exportCsv(Writer writer) throws IOException {
+        LOG.debug("Request to export Cars to CSV");
+        writer.write(String.join(String.valueOf(CSV_SEPARATOR), CSV_COLUMNS));
+        writer.write('\n');
+        long count = 0;
+        try (Stream<Car> cars = carRepository.streamAll()) {
+            for (Iterator<Car> it = cars.iterator(); it.hasNext(); count++) {
+                Car car = it.next();
+                writer.write(String.valueOf(car.getId()));
+                writeCsvValue(writer, car.getModel());
+                writeCsvValue(writer, car.getBrand());
+                writeCsvValue(writer, car.getCyear());
+                writeCsvValue(writer, car.getAvailable());
+                writer.write('\n');
+                entityManager.detach(car);
+            }
+        }
+        writer.flush();
+        return count;
+    }
+
+    private long flushIfFull(List<Car> batch) {
+        return batch.size() < BATCH_SIZE ? 0 : flush(batch);
+    }
+
+    private long flush(List<Car> batch) {
+        int size = batch.size();
+        carRepository.insertAll(batch);
+        batch.clear();
+        return size;
+    }
+
+    private static Car toCar(List<String> header, List<String> values, long lineNumber) {
+        Car car = new Car();
+        try {
+            for (int i = 0; i < header.size(); i++) {
+                String value = values.get(i).isEmpty() ? null : values.get(i);
+                switch (header.get(i)) {
+                    case "model" -> car.setModel(value);
+                    case "brand" -> car.setBrand(value);
+                    case "cyear" -> car.setCyear(value == null ? null : Integer.valueOf(value));
+                    case "available" -> car.setAvailable(value == null ? null : parseBoolean(value));
+                    default -> {
+                        // the id is generated by the database
+                    }
+                }
+            }
+        } catch (IllegalArgumentException e) {
+            throw new InvalidCarImportException(lineNumber, e.getMessage());
+        }
+        return car;
+    }
+
+    private static Boolean parseBoolean(String value) {
+        if ("true".equalsIgnoreCase(value)) {
+            return Boolean.TRUE;
+        }
+        if ("false".equalsIgnoreCase(value)) {
+            return Boolean.FALSE;
+        }
+        throw new IllegalArgumentException("not a boolean: " + value);
+    }
+
+    private static void writeCsvValue(Writer writer, Object value) throws IOException {
+        writer.write(CSV_SEPARATOR);
+        if (value == null) {
+            return;
+        }
+        String text = value.toString();
+        if (text.indexOf(CSV_SEPARATOR) < 0 && text.indexOf(CSV_QUOTE) < 0 && text.indexOf('\n') < 0 && text.indexOf('\r') < 0) {
+            writer.write(text);
+            return;
+        }
+        writer.write(CSV_QUOTE);
+        writer.write(text.replace("\"", "\"\""));
+        writer.write(CSV_QUOTE);
+    }
+
+    /**
+     * Reads CSV records, a record spanning several lines when a quoted value contains line breaks.
+     */
+    private static final class CsvRecordReader {
+
+        private final BufferedReader in;
+
+        private long lineNumber;
+
+        private long recordLine;
+
+        private CsvRecordReader(BufferedReader in) {
+            this.in = in;
+        }
+
+        /**
+         * @return the values of the next record, or {@code null} at the end of the input.
+         */
+        private List<String> next() throws IOException {
+            String line = in.readLine();
+            if (line == null) {
+                return null;
+            }
+            recordLine = ++lineNumber;
+            List<String> values = new ArrayList<>();
+            StringBuilder value = new StringBuilder();
+            boolean quoted = false;
+            while (true) {
+                for (int i = 0; i < line.length(); i++) {
+                    char c = line.charAt(i);
+                    if (quoted) {
+                        if (c != CSV_QUOTE) {
+                            value.append(c);
+                        } else if (i + 1 < line.length() && line.charAt(i + 1) == CSV_QUOTE) {
+                            value.append(CSV_QUOTE);
+                            i++;
+                        } else {
+                            quoted = false;
+                        }
+                    } else if (c == CSV_QUOTE) {
+                        quoted = true;
+                    } else if (c == CSV_SEPARATOR) {
+                        values.add(value.toString());
+                        value.setLength(0);
+                    } else {
+                        value.append(c);
+                    }
+                }
+                if (!quoted) {
+                    values.add(value.toString());
+                    return values;
+                }
+                line = in.readLine();
+                if (line == null) {
+                    throw new InvalidCarImportException(recordLine, "unterminated quoted value");
+                }
+                lineNumber++;
+                value.append('\n');
+            }
+        }
+    }
+}
@@ -0,0 +1,212 @@
+package com.joaogomes.icligo.service;
+
+import com.joaogomes.icligo.domain.*; // for static metamodels
+import com.joaogomes.icligo.domain.Car;
+import com.joaogomes.icligo.repository.CarRepository;
+import com.joaogomes.icligo.repository.TableChanges;
+import com.joaogomes.icligo.repository.TableVersionRepository;
+import com.joaogomes.icligo.service.criteria.CarCriteria;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.criteria.CriteriaBuilder;
+import jakarta.persistence.criteria.CriteriaQuery;
+import jakarta.persistence.criteria.Predicate;
+import jakarta.persistence.criteria.Root;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.OptionalLong;
+import java.util.stream.Stream;
+import org.hibernate.CacheMode;
+import org.hibernate.engine.spi.SessionImplementor;
+import org.hibernate.jpa.HibernateHints;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.ScrollPosition;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.domain.Window;
+import org.springframework.data.jpa.domain.Specification;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import tech.jhipster.service.QueryService;
+
+/**
+ * Service for executing complex queries for {@link Car} entities in the database.
+ * The main input is a {@link CarCriteria} which gets converted to {@link Specification},
+ * in a way that all the filters must apply.
+ * It returns a {@link Page} of {@link Car} which fulfills the criteria.
+ * The counts and pages of available cars are answered by the {@link CarAvailabilityIndex} when it can.
+ */
+@Service
+@Transactional(readOnly = true)
+public class CarQueryService extends QueryService<Car> {
+
+    private static final Logger LOG = LoggerFactory.getLogger(CarQueryService.class);
+
+    private static final char LIKE_ESCAPE = '\\';
+
+    static final int STREAM_FETCH_SIZE = 500;
+
+    private final CarRepository carRepository;
+
+    private final EntityManager entityManager;
+
+    private final CarAvailabilityIndex carAvailabilityIndex;
+
+    public CarQueryService(CarRepository carRepository, EntityManager entityManager, CarAvailabilityIndex carAvailabilityIndex) {
+        this.carRepository = carRepository;
+        this.entityManager = entityManager;
+        this.carAvailabilityIndex = carAvailabilityIndex;
+    }
+
+    /**
+     * Return a {@link Page} of {@link Car} which matches the criteria from the database.
+     * @param criteria The object which holds all the filters, which the entities should match.
+     * @param page The page, which should be returned.
+     * @return the matching entities.
+     */
+    @Transactional(readOnly = true)
+    public Page<Car> findByCriteria(CarCriteria criteria, Pageable page) {
+        LOG.debug("find by criteria : {}, page: {}", criteria, page);
+        Optional<Page<Long>> ids = isIndexCurrent() ? carAvailabilityIndex.findIds(criteria, page) : Optional.empty();
+        if (ids.isPresent()) {
+            return findAllById(ids.orElseThrow());
+        }
+        final Specification<Car> specification = createSpecification(criteria);
+        return carRepository.findAll(specification, page);
+    }
+
+    /**
+     * Return a {@link Window} of {@link Car} which matches the criteria, read with a keyset seek from the given position.
+     * No count query is issued.
+     * @param criteria The object which holds all the filters, which the entities should match.
+     * @param position The keyset position to scroll from.
+     * @param sort The sort, on the keys of the position.
+     * @param size The maximum number of entities to return.
+     * @return the matching entities.
+     */
+    @Transactional(readOnly = true)
+    public Window<Car> findByCriteria(CarCriteria criteria, ScrollPosition position, Sort sort, int size) {
+        LOG.debug("find by criteria : {}, position: {}, sort: {}, size: {}", criteria, position, sort, size);
+        final Specification<Car> specification = createSpecification(criteria);
+        return carRepository.findBy(specification, query -> query.sortBy(sort).limit(size).scroll(position));
+    }
+
+    /**
+     * Stream the {@link Car}s which match the criteria, by id, from a forward-only cursor fetching rows in chunks of
+     * {@value #STREAM_FETCH_SIZE}, like {@link CarRepository#streamAll()}. The returned cars are read-only, are not put in
+     * the second-level cache, and should be detached once consumed. The stream must be closed, inside a transaction.
+     * @param criteria The object which holds all the filters, which the entities should match.
+     * @return the matching entities.
+     */
+    @Transactional(readOnly = true)
+    public Stream<Car> streamByCriteria(CarCriteria criteria) {
+        LOG.debug("stream by criteria : {}", criteria);
+        final Specification<Car> specification = createSpecification(criteria);
+        CriteriaBuilder builder = entityManager.getCriteriaBuilder();
+        CriteriaQuery<Car> query = builder.createQuery(Car.class);
+        Root<Car> root = query.from(Car.class);
+        Predicate predicate = specification.toPredicate(root, query, builder);
+        if (predicate != null) {
+            query.where(predicate);
+        }
+        query.select(root).orderBy(builder.asc(root.get(Car_.id)));
+        return entityManager
+            .createQuery(query)
+            .setHint(HibernateHints.HINT_FETCH_SIZE, STREAM_FETCH_SIZE)
+            .setHint(HibernateHints.HINT_READ_ONLY, true)
+            .setHint(HibernateHints.HINT_CACHE_MODE, CacheMode.IGNORE)
+            .getResultStream();
+    }
+
+    /**
+     * Return the number of matching entities in the database.
+     * @param criteria The object which holds all the filters, which the entities should match.
+     * @return the number of matching entities.
+     */
+    @Transactional(readOnly = true)
+    public long countByCriteria(CarCriteria criteria) {
+        LOG.debug("count by criteria : {}", criteria);
+        OptionalLong count = isIndexCurrent() ? carAvailabilityIndex.count(criteria) : OptionalLong.empty();
+        if (count.isPresent()) {
+            return count.getAsLong();
+        }
+        final Specification<Car> specification = createSpecification(criteria);
+        return carRepository.count(specification);
+    }
+
+    /**
+     * The index only sees committed changes: the current transaction reads its own changes from the database.
+     */
+    private boolean isIndexCurrent() {
+        return !TableChanges.isRecorded(entityManager.unwrap(SessionImplementor.class), TableVersionRepository.CAR);
+    }
+
+    private Page<Car> findAllById(Page<Long> ids) {
+        Map<Long, Integer> positions = new HashMap<>();
+        ids.getContent().forEach(id -> positions.put(id, positions.size()));
+        List<Car> cars = new ArrayList<>(carRepository.findAllById(ids.getContent()));
+        cars.sort(Comparator.comparing(car -> positions.get(car.getId())));
+        return new PageImpl<>(cars, ids.getPageable(), ids.getTotalElements());
+    }
+
+    /**
+     * Function to convert {@link CarCriteria} to a {@link Specification}
+     * @param criteria The object which holds all the filters, which the entities should match.
+     * @return the matching {@link Specification} of the entity.
+     */
+    protected Specification<Car> createSpecification(CarCriteria criteria) {
+        Specification<Car> specification = Specification.where(null);
+        if (criteria != null) {
+            // This has to be called first, because the distinct method returns null
+            if (criteria.getDistinct() != null) {
+                specification = specification.and(distinct(criteria.getDistinct()));
+            }
+            if (criteria.getId() != null) {
+                specification = specification.and(buildRangeSpecification(criteria.getId(), Car_.id));
+            }
+            if (criteria.getModel() != null) {
+                specification = specification.and(buildStringSpecification(criteria.getModel(), Car_.model));
+                if (criteria.getModel().getStartsWith() != null) {
+                    specification = specification.and(buildPrefixSpecification(criteria.getModel().getStartsWith()));
+                }
+            }
+            if (criteria.getBrand() != null) {
+                specification = specification.and(buildStringSpecification(criteria.getBrand(), Car_.brand));
+            }
+            if (criteria.getCyear() != null) {
+                specification = specification.and(buildRangeSpecification(criteria.getCyear(), Car_.cyear));
+            }
+            if (criteria.getAvailable() != null) {
+                specification = specification.and(buildSpecification(criteria.getAvailable(), Car_.available));
+            }
+        }
+        return specification;
+    }
+
+    /**
+     * Translates {@code model.startsWith} to a case-sensitive {@code like 'prefix%'}, without the {@code upper()}
+     * wrapping used by {@code contains}, so the database can use an index range scan on the column.
+     */
+    private Specification<Car> buildPrefixSpecification(String prefix) {
+        String pattern = escapeLike(prefix) + "%";
+        return (root, query, builder) -> builder.like(root.get(Car_.model), pattern, LIKE_ESCAPE);
+    }
+
+    private static String escapeLike(String value) {
+        StringBuilder escaped = new StringBuilder(value.length() + 4);
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c == LIKE_ESCAPE || c == '%' || c == '_') {
+                escaped.append(LIKE_ESCAPE);
+            }
+            escaped.append(c);
+        }
+        return escaped.toString();
+    }
+}
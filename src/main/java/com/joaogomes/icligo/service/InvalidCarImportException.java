@@ -0,0 +1,10 @@
+package com.joaogomes.icligo.service;
+
+public class InvalidCarImportException extends RuntimeException {
+
+    private static final long serialVersionUID = 1L;
+
+    public InvalidCarImportException(long lineNumber, String reason) {
+        super("Invalid car at line " + lineNumber + ": " + reason);
+    }
+}
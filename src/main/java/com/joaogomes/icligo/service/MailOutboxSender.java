@@ -0,0 +1,204 @@
+package com.joaogomes.icligo.service;
+
+import com.joaogomes.icligo.config.ApplicationProperties;
+import com.joaogomes.icligo.domain.MailOutboxMessage;
+import com.joaogomes.icligo.repository.MailOutboxMessageRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.mail.MessagingException;
+import jakarta.mail.internet.MimeMessage;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.data.domain.Limit;
+import org.springframework.mail.MailException;
+import org.springframework.mail.MailSendException;
+import org.springframework.mail.javamail.JavaMailSender;
+import org.springframework.mail.javamail.MimeMessageHelper;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import tech.jhipster.config.JHipsterProperties;
+
+/**
+ * Sends the emails stored in the outbox by {@link MailService}.
+ * <p>
+ * Every {@code application.mail-outbox.poll-interval}, the emails due for sending are claimed in batches of
+ * {@code application.mail-outbox.batch-size} and each batch is sent over a single SMTP connection. Sent emails are
+ * removed from the outbox, failed ones are retried with an exponential backoff and marked as
+ * {@link MailOutboxMessage.Status#FAILED} after {@code application.mail-outbox.max-attempts} attempts.
+ * <p>
+ * Emails are claimed with {@code SKIP LOCKED} and by pushing back their next attempt date, so several instances of the
+ * application can drain the outbox at the same time, and emails claimed by an instance which stopped before sending them
+ * are claimed again after {@code application.mail-outbox.claim-timeout}.
+ */
+@Service
+public class MailOutboxSender {
+
+    private static final Logger LOG = LoggerFactory.getLogger(MailOutboxSender.class);
+
+    private final MailOutboxMessageRepository mailOutboxMessageRepository;
+
+    private final JavaMailSender javaMailSender;
+
+    private final JHipsterProperties jHipsterProperties;
+
+    private final ApplicationProperties.MailOutbox properties;
+
+    private final TransactionTemplate transactionTemplate;
+
+    private final Timer sendTimer;
+
+    private final Counter sentCounter;
+
+    private final Counter retriedCounter;
+
+    private final Counter failedCounter;
+
+    private final AtomicLong pending = new AtomicLong();
+
+    public MailOutboxSender(
+        MailOutboxMessageRepository mailOutboxMessageRepository,
+        JavaMailSender javaMailSender,
+        JHipsterProperties jHipsterProperties,
+        ApplicationProperties applicationProperties,
+        PlatformTransactionManager transactionManager,
+        MeterRegistry meterRegistry
+    ) {
+        this.mailOutboxMessageRepository = mailOutboxMessageRepository;
+        this.javaMailSender = javaMailSender;
+        this.jHipsterProperties = jHipsterProperties;
+        this.properties = applicationProperties.getMailOutbox();
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.sendTimer = Timer.builder("mail.outbox.send").description("Time taken to send a batch of emails").register(meterRegistry);
+        this.sentCounter = messagesCounter(meterRegistry, "sent");
+        this.retriedCounter = messagesCounter(meterRegistry, "retried");
+        this.failedCounter = messagesCounter(meterRegistry, "failed");
+        Gauge.builder("mail.outbox.pending", pending, AtomicLong::get)
+            .description("Number of emails waiting in the outbox, as of the last poll")
+            .register(meterRegistry);
+    }
+
+    private static Counter messagesCounter(MeterRegistry meterRegistry, String result) {
+        return Counter.builder("mail.outbox.messages").description("Number of emails sent from the outbox").tag("result", result).register(meterRegistry);
+    }
+
+    /**
+     * Send the emails due for sending, batch after batch, until none is left.
+     */
+    @Scheduled(fixedDelayString = "${application.mail-outbox.poll-interval:2s}")
+    public void sendPendingEmails() {
+        List<MailOutboxMessage> batch;
+        do {
+            batch = claimBatch();
+            if (!batch.isEmpty()) {
+                sendBatch(batch);
+            }
+        } while (batch.size() == properties.getBatchSize());
+        pending.set(mailOutboxMessageRepository.countByStatus(MailOutboxMessage.Status.PENDING));
+    }
+
+    private List<MailOutboxMessage> claimBatch() {
+        return transactionTemplate.execute(status -> {
+            Instant now = Instant.now();
+            List<MailOutboxMessage> batch = mailOutboxMessageRepository.findByStatusAndNextAttemptDateLessThanEqualOrderByIdAsc(
+                MailOutboxMessage.Status.PENDING,
+                now,
+                Limit.of(properties.getBatchSize())
+            );
+            batch.forEach(message -> message.setNextAttemptDate(now.plus(properties.getClaimTimeout())));
+            return batch;
+        });
+    }
+
+    private void sendBatch(List<MailOutboxMessage> batch) {
+        LOG.debug("Sending {} emails from the outbox", batch.size());
+        Map<MailOutboxMessage, Exception> failures = new IdentityHashMap<>();
+        // Sent in the order of the outbox, the map only finds the failed messages back
+        Map<MimeMessage, MailOutboxMessage> mimeMessages = new LinkedHashMap<>();
+        for (MailOutboxMessage message : batch) {
+            try {
+                mimeMessages.put(toMimeMessage(message), message);
+            } catch (MessagingException e) {
+                failures.put(message, e);
+            }
+        }
+        if (!mimeMessages.isEmpty()) {
+            Timer.Sample sample = Timer.start();
+            try {
+                // A single call, so that JavaMailSenderImpl sends all the messages over the same connection
+                javaMailSender.send(mimeMessages.keySet().toArray(MimeMessage[]::new));
+            } catch (MailSendException e) {
+                if (e.getFailedMessages().isEmpty()) {
+                    mimeMessages.values().forEach(message -> failures.put(message, e));
+                } else {
+                    e.getFailedMessages().forEach((mimeMessage, cause) -> failures.put(mimeMessages.get(mimeMessage), cause));
+                }
+            } catch (MailException e) {
+                mimeMessages.values().forEach(message -> failures.put(message, e));
+            } finally {
+                sample.stop(sendTimer);
+            }
+        }
+        transactionTemplate.executeWithoutResult(status -> saveResults(batch, failures));
+    }
+
+    private MimeMessage toMimeMessage(MailOutboxMessage message) throws MessagingException {
+        MimeMessage mimeMessage = javaMailSender.createMimeMessage();
+        MimeMessageHelper helper = new MimeMessageHelper(mimeMessage, message.isMultipart(), StandardCharsets.UTF_8.name());
+        helper.setTo(message.getRecipient());
+        helper.setFrom(jHipsterProperties.getMail().getFrom());
+        helper.setSubject(message.getSubject());
+        helper.setText(message.getContent(), message.isHtml());
+        return mimeMessage;
+    }
+
+    private void saveResults(List<MailOutboxMessage> batch, Map<MailOutboxMessage, Exception> failures) {
+        List<Long> sent = new ArrayList<>(batch.size());
+        List<MailOutboxMessage> failed = new ArrayList<>(failures.size());
+        for (MailOutboxMessage message : batch) {
+            Exception failure = failures.get(message);
+            if (failure == null) {
+                sent.add(message.getId());
+                continue;
+            }
+            message.setAttempts(message.getAttempts() + 1);
+            message.setLastError(String.valueOf(failure.getMessage()));
+            if (message.getAttempts() >= properties.getMaxAttempts()) {
+                LOG.warn("Email to '{}' could not be sent after {} attempts, giving up", message.getRecipient(), message.getAttempts(), failure);
+                message.setStatus(MailOutboxMessage.Status.FAILED);
+                failedCounter.increment();
+            } else {
+                LOG.warn("Email to '{}' could not be sent, it will be retried: {}", message.getRecipient(), failure.getMessage());
+                message.setNextAttemptDate(Instant.now().plus(backoff(message.getAttempts())));
+                retriedCounter.increment();
+            }
+            failed.add(message);
+        }
+        mailOutboxMessageRepository.deleteAllByIdInBatch(sent);
+        mailOutboxMessageRepository.saveAll(failed);
+        sentCounter.increment(sent.size());
+    }
+
+    /**
+     * Delay before the next attempt to send an email.
+     *
+     * @param attempts number of attempts already made.
+     * @return the initial backoff, doubled for every attempt but the first one, and at most the maximum backoff.
+     */
+    Duration backoff(int attempts) {
+        Duration backoff = properties.getInitialBackoff().multipliedBy(1L << Math.min(attempts - 1, 30));
+        return backoff.compareTo(properties.getMaxBackoff()) > 0 ? properties.getMaxBackoff() : backoff;
+    }
+}
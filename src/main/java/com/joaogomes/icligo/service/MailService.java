@@ -1,120 +1,140 @@
 package com.joaogomes.icligo.service;
 
+import com.joaogomes.icligo.config.ApplicationProperties;
+import com.joaogomes.icligo.domain.MailOutboxMessage;
 import com.joaogomes.icligo.domain.User;
-import jakarta.mail.MessagingException;
-import jakarta.mail.internet.MimeMessage;
-import java.nio.charset.StandardCharsets;
-import java.util.Locale;
+import com.joaogomes.icligo.repository.MailOutboxMessageRepository;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
-import org.springframework.context.MessageSource;
-import org.springframework.mail.MailException;
-import org.springframework.mail.javamail.JavaMailSender;
-import org.springframework.mail.javamail.MimeMessageHelper;
-import org.springframework.scheduling.annotation.Async;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
 import org.springframework.stereotype.Service;
-import org.thymeleaf.context.Context;
-import org.thymeleaf.spring6.SpringTemplateEngine;
-import tech.jhipster.config.JHipsterProperties;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
 
 /**
- * Service for sending emails asynchronously.
+ * Service for sending emails.
  * <p>
- * We use the {@link Async} annotation to send emails asynchronously.
+ * Emails are rendered right away but only stored in the outbox, in the transaction of the caller when there is one: they
+ * are sent later by {@link MailOutboxSender}, and are not sent at all if the transaction of the caller rolls back.
  */
 @Service
+@Transactional
 public class MailService {
 
     private static final Logger LOG = LoggerFactory.getLogger(MailService.class);
 
-    private static final String USER = "user";
+    private static final String ACTIVATION_TEMPLATE = "mail/activationEmail";
 
-    private static final String BASE_URL = "baseUrl";
+    private static final String CREATION_TEMPLATE = "mail/creationEmail";
 
-    private final JHipsterProperties jHipsterProperties;
+    private static final String PASSWORD_RESET_TEMPLATE = "mail/passwordResetEmail";
 
-    private final JavaMailSender javaMailSender;
+    private static final String ACTIVATION_TITLE_KEY = "email.activation.title";
 
-    private final MessageSource messageSource;
+    private static final String PASSWORD_RESET_TITLE_KEY = "email.reset.title";
 
-    private final SpringTemplateEngine templateEngine;
+    private final MailOutboxMessageRepository mailOutboxMessageRepository;
+
+    private final MailTemplateCache mailTemplateCache;
+
+    private final List<String> languages;
+
+    private final int insertBatchSize;
 
     public MailService(
-        JHipsterProperties jHipsterProperties,
-        JavaMailSender javaMailSender,
-        MessageSource messageSource,
-        SpringTemplateEngine templateEngine
+        MailOutboxMessageRepository mailOutboxMessageRepository,
+        MailTemplateCache mailTemplateCache,
+        ApplicationProperties applicationProperties
     ) {
-        this.jHipsterProperties = jHipsterProperties;
-        this.javaMailSender = javaMailSender;
-        this.messageSource = messageSource;
-        this.templateEngine = templateEngine;
+        this.mailOutboxMessageRepository = mailOutboxMessageRepository;
+        this.mailTemplateCache = mailTemplateCache;
+        this.languages = applicationProperties.getMailTemplates().getLanguages();
+        this.insertBatchSize = applicationProperties.getMailOutbox().getInsertBatchSize();
     }
 
-    @Async
-    public void sendEmail(String to, String subject, String content, boolean isMultipart, boolean isHtml) {
-        sendEmailSync(to, subject, content, isMultipart, isHtml);
+    @EventListener(ApplicationReadyEvent.class)
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
+    public void precompileTemplates() {
+        mailTemplateCache.precompile(ACTIVATION_TEMPLATE, ACTIVATION_TITLE_KEY, languages);
+        mailTemplateCache.precompile(CREATION_TEMPLATE, ACTIVATION_TITLE_KEY, languages);
+        mailTemplateCache.precompile(PASSWORD_RESET_TEMPLATE, PASSWORD_RESET_TITLE_KEY, languages);
     }
 
-    private void sendEmailSync(String to, String subject, String content, boolean isMultipart, boolean isHtml) {
+    public void sendEmail(String to, String subject, String content, boolean isMultipart, boolean isHtml) {
         LOG.debug(
-            "Send email[multipart '{}' and html '{}'] to '{}' with subject '{}' and content={}",
+            "Queue email[multipart '{}' and html '{}'] to '{}' with subject '{}' and content={}",
             isMultipart,
             isHtml,
             to,
             subject,
             content
         );
-
-        // Prepare message using a Spring helper
-        MimeMessage mimeMessage = javaMailSender.createMimeMessage();
-        try {
-            MimeMessageHelper message = new MimeMessageHelper(mimeMessage, isMultipart, StandardCharsets.UTF_8.name());
-            message.setTo(to);
-            message.setFrom(jHipsterProperties.getMail().getFrom());
-            message.setSubject(subject);
-            message.setText(content, isHtml);
-            javaMailSender.send(mimeMessage);
-            LOG.debug("Sent email to User '{}'", to);
-        } catch (MailException | MessagingException e) {
-            LOG.warn("Email could not be sent to user '{}'", to, e);
-        }
+        mailOutboxMessageRepository.save(toOutboxMessage(to, subject, content, isMultipart, isHtml));
     }
 
-    @Async
-    public void sendEmailFromTemplate(User user, String templateName, String titleKey) {
-        sendEmailFromTemplateSync(user, templateName, titleKey);
+    private MailOutboxMessage toOutboxMessage(String to, String subject, String content, boolean isMultipart, boolean isHtml) {
+        Instant now = Instant.now();
+        MailOutboxMessage message = new MailOutboxMessage();
+        message.setRecipient(to);
+        message.setSubject(subject);
+        message.setContent(content);
+        message.setMultipart(isMultipart);
+        message.setHtml(isHtml);
+        message.setCreatedDate(now);
+        message.setNextAttemptDate(now);
+        return message;
     }
 
-    private void sendEmailFromTemplateSync(User user, String templateName, String titleKey) {
+    public void sendEmailFromTemplate(User user, String templateName, String titleKey) {
         if (user.getEmail() == null) {
             LOG.debug("Email doesn't exist for user '{}'", user.getLogin());
             return;
         }
-        Locale locale = Locale.forLanguageTag(user.getLangKey());
-        Context context = new Context(locale);
-        context.setVariable(USER, user);
-        context.setVariable(BASE_URL, jHipsterProperties.getMail().getBaseUrl());
-        String content = templateEngine.process(templateName, context);
-        String subject = messageSource.getMessage(titleKey, null, locale);
-        sendEmailSync(user.getEmail(), subject, content, false, true);
+        MailTemplateCache.RenderedEmail email = mailTemplateCache.render(user, templateName, titleKey);
+        sendEmail(email.to(), email.subject(), email.content(), false, true);
+    }
+
+    /**
+     * Queue an email rendered from a template for each of the given users, in their language. Users without an email
+     * address are skipped.
+     * <p>
+     * The emails are rendered and inserted by chunks of {@code insertBatchSize}, in one JDBC batch each, so that only a
+     * chunk of rendered emails is held in memory.
+     */
+    public void sendEmailsFromTemplate(List<User> users, String templateName, String titleKey) {
+        List<User> recipients = users.stream().filter(user -> user.getEmail() != null).toList();
+        LOG.debug("Queue {} emails from template {}", recipients.size(), templateName);
+        for (int from = 0; from < recipients.size(); from += insertBatchSize) {
+            List<User> chunk = recipients.subList(from, Math.min(from + insertBatchSize, recipients.size()));
+            List<MailOutboxMessage> messages = new ArrayList<>(chunk.size());
+            for (MailTemplateCache.RenderedEmail email : mailTemplateCache.renderAll(chunk, templateName, titleKey)) {
+                messages.add(toOutboxMessage(email.to(), email.subject(), email.content(), false, true));
+            }
+            mailOutboxMessageRepository.insertAll(messages);
+        }
     }
 
-    @Async
     public void sendActivationEmail(User user) {
         LOG.debug("Sending activation email to '{}'", user.getEmail());
-        sendEmailFromTemplateSync(user, "mail/activationEmail", "email.activation.title");
+        sendEmailFromTemplate(user, ACTIVATION_TEMPLATE, ACTIVATION_TITLE_KEY);
+    }
+
+    public void sendActivationEmails(List<User> users) {
+        LOG.debug("Sending activation email to {} users", users.size());
+        sendEmailsFromTemplate(users, ACTIVATION_TEMPLATE, ACTIVATION_TITLE_KEY);
     }
 
-    @Async
     public void sendCreationEmail(User user) {
         LOG.debug("Sending creation email to '{}'", user.getEmail());
-        sendEmailFromTemplateSync(user, "mail/creationEmail", "email.activation.title");
+        sendEmailFromTemplate(user, CREATION_TEMPLATE, ACTIVATION_TITLE_KEY);
     }
 
-    @Async
     public void sendPasswordResetMail(User user) {
         LOG.debug("Sending password reset email to '{}'", user.getEmail());
-        sendEmailFromTemplateSync(user, "mail/passwordResetEmail", "email.reset.title");
+        sendEmailFromTemplate(user, PASSWORD_RESET_TEMPLATE, PASSWORD_RESET_TITLE_KEY);
     }
 }
@@ -0,0 +1,238 @@
+package com.joaogomes.icligo.service;
+
+import com.joaogomes.icligo.domain.User;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.function.BiConsumer;
+import java.util.function.Function;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.MessageSource;
+import org.springframework.stereotype.Service;
+import org.thymeleaf.context.Context;
+import org.thymeleaf.spring6.SpringTemplateEngine;
+import org.unbescape.html.HtmlEscape;
+import tech.jhipster.config.JHipsterProperties;
+
+/**
+ * Renders the email templates, without going through Thymeleaf for every email.
+ * <p>
+ * A mail template only depends on the locale and on a few text fields of the user, which are only ever printed. So each
+ * template is rendered once per locale with placeholders in place of these fields, and the result is split into a list of
+ * literal parts and placeholders: rendering an email then boils down to concatenating these parts with the escaped fields
+ * of the user. The subject is resolved at the same time.
+ * <p>
+ * Before being used, a compiled template is checked against Thymeleaf with fields containing the characters that need
+ * escaping. Templates which do not compile this way, for instance because they test the fields, and users with a field
+ * used by the template left empty are rendered by Thymeleaf. So are all the emails when {@code spring.thymeleaf.cache} is
+ * disabled, so that the changes to the templates show up right away in development.
+ */
+@Service
+public class MailTemplateCache {
+
+    private static final Logger LOG = LoggerFactory.getLogger(MailTemplateCache.class);
+
+    private static final String USER = "user";
+
+    private static final String BASE_URL = "baseUrl";
+
+    private final SpringTemplateEngine templateEngine;
+
+    private final MessageSource messageSource;
+
+    private final String baseUrl;
+
+    private final boolean enabled;
+
+    /**
+     * Lower case and alphanumeric, so that it is left as is by {@link User#setLogin}, escaping and URL building.
+     */
+    private final String placeholderPrefix = "mtc" + Long.toHexString(ThreadLocalRandom.current().nextLong() | Long.MIN_VALUE) + "s";
+
+    private final Pattern placeholderPattern = Pattern.compile(placeholderPrefix + "(\\d+)e");
+
+    private final Map<Key, CompiledTemplate> templates = new ConcurrentHashMap<>();
+
+    public MailTemplateCache(
+        SpringTemplateEngine templateEngine,
+        MessageSource messageSource,
+        JHipsterProperties jHipsterProperties,
+        @Value("${spring.thymeleaf.cache:true}") boolean enabled
+    ) {
+        this.templateEngine = templateEngine;
+        this.messageSource = messageSource;
+        this.baseUrl = jHipsterProperties.getMail().getBaseUrl();
+        this.enabled = enabled;
+    }
+
+    /**
+     * An email ready to be sent.
+     *
+     * @param to the email address of the user.
+     * @param subject the subject, in the language of the user.
+     * @param content the HTML content, in the language of the user.
+     */
+    public record RenderedEmail(String to, String subject, String content) {}
+
+    /**
+     * Compile a template for the given languages, so that the first emails do not pay for it.
+     *
+     * @param templateName the name of the Thymeleaf template.
+     * @param titleKey the message key of the subject.
+     * @param langKeys the languages to compile the template for.
+     */
+    public void precompile(String templateName, String titleKey, List<String> langKeys) {
+        if (enabled) {
+            langKeys.forEach(langKey -> compiledTemplate(templateName, titleKey, langKey));
+        }
+    }
+
+    /**
+     * Render a template for a user, in the language of the user.
+     *
+     * @param user the user, with an email address.
+     * @param templateName the name of the Thymeleaf template.
+     * @param titleKey the message key of the subject.
+     * @return the rendered email.
+     */
+    public RenderedEmail render(User user, String templateName, String titleKey) {
+        CompiledTemplate template = enabled ? compiledTemplate(templateName, titleKey, user.getLangKey()) : null;
+        if (template != null && template.canRender(user)) {
+            return new RenderedEmail(user.getEmail(), template.subject(), template.render(user));
+        }
+        Locale locale = Locale.forLanguageTag(user.getLangKey());
+        return new RenderedEmail(
+            user.getEmail(),
+            messageSource.getMessage(titleKey, null, locale),
+            templateEngine.process(templateName, context(locale, user))
+        );
+    }
+
+    /**
+     * Render a template for many users, each in their language.
+     *
+     * @param users the users, with an email address.
+     * @param templateName the name of the Thymeleaf template.
+     * @param titleKey the message key of the subject.
+     * @return the rendered emails, in the order of the users.
+     */
+    public List<RenderedEmail> renderAll(List<User> users, String templateName, String titleKey) {
+        List<RenderedEmail> emails = new ArrayList<>(users.size());
+        for (User user : users) {
+            emails.add(render(user, templateName, titleKey));
+        }
+        return emails;
+    }
+
+    /**
+     * Whether a template is rendered without Thymeleaf for the given language.
+     */
+    boolean isCompiled(String templateName, String titleKey, String langKey) {
+        return enabled && compiledTemplate(templateName, titleKey, langKey) != null;
+    }
+
+    private CompiledTemplate compiledTemplate(String templateName, String titleKey, String langKey) {
+        Key key = new Key(templateName, titleKey, langKey);
+        // A template which does not compile is cached as NOT_COMPILED, as computeIfAbsent does not store nulls
+        CompiledTemplate template = templates.computeIfAbsent(key, this::compile);
+        return template == CompiledTemplate.NOT_COMPILED ? null : template;
+    }
+
+    private CompiledTemplate compile(Key key) {
+        Locale locale = Locale.forLanguageTag(key.langKey());
+        User placeholders = new User();
+        for (Field field : Field.values()) {
+            field.setter.accept(placeholders, placeholderPrefix + field.ordinal() + "e");
+        }
+        String rendered = templateEngine.process(key.templateName(), context(locale, placeholders));
+
+        List<String> literals = new ArrayList<>();
+        List<Field> fields = new ArrayList<>();
+        Matcher matcher = placeholderPattern.matcher(rendered);
+        int literalStart = 0;
+        while (matcher.find()) {
+            literals.add(rendered.substring(literalStart, matcher.start()));
+            fields.add(Field.values()[Integer.parseInt(matcher.group(1))]);
+            literalStart = matcher.end();
+        }
+        literals.add(rendered.substring(literalStart));
+        CompiledTemplate template = new CompiledTemplate(
+            messageSource.getMessage(key.titleKey(), null, locale),
+            literals.toArray(String[]::new),
+            fields.toArray(Field[]::new)
+        );
+
+        User probe = new User();
+        for (Field field : Field.values()) {
+            field.setter.accept(probe, "<a href=\"x\">&'" + field.name().toLowerCase(Locale.ENGLISH) + "</a>");
+        }
+        if (!template.render(probe).equals(templateEngine.process(key.templateName(), context(locale, probe)))) {
+            LOG.warn("Mail template {} cannot be compiled for language {}, it will be rendered by Thymeleaf", key.templateName(), key.langKey());
+            return CompiledTemplate.NOT_COMPILED;
+        }
+        LOG.debug("Compiled mail template {} for language {}", key.templateName(), key.langKey());
+        return template;
+    }
+
+    private Context context(Locale locale, User user) {
+        Context context = new Context(locale);
+        context.setVariable(USER, user);
+        context.setVariable(BASE_URL, baseUrl);
+        return context;
+    }
+
+    private record Key(String templateName, String titleKey, String langKey) {}
+
+    /**
+     * The fields of the user a compiled template can print.
+     */
+    private enum Field {
+        LOGIN(User::getLogin, User::setLogin),
+        FIRST_NAME(User::getFirstName, User::setFirstName),
+        LAST_NAME(User::getLastName, User::setLastName),
+        EMAIL(User::getEmail, User::setEmail),
+        ACTIVATION_KEY(User::getActivationKey, User::setActivationKey),
+        RESET_KEY(User::getResetKey, User::setResetKey);
+
+        private final Function<User, String> getter;
+
+        private final BiConsumer<User, String> setter;
+
+        Field(Function<User, String> getter, BiConsumer<User, String> setter) {
+            this.getter = getter;
+            this.setter = setter;
+        }
+    }
+
+    /**
+     * A template rendered for a locale, as {@code literals[0] + fields[0] + literals[1] + ... + literals[n]}.
+     */
+    private record CompiledTemplate(String subject, String[] literals, Field[] fields) {
+        static final CompiledTemplate NOT_COMPILED = new CompiledTemplate(null, new String[0], new Field[0]);
+
+        boolean canRender(User user) {
+            for (Field field : fields) {
+                if (field.getter.apply(user) == null) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        String render(User user) {
+            StringBuilder builder = new StringBuilder(literals[0].length() * 2);
+            for (int i = 0; i < fields.length; i++) {
+                builder.append(literals[i]).append(HtmlEscape.escapeHtml4Xml(Objects.requireNonNull(fields[i].getter.apply(user))));
+            }
+            return builder.append(literals[fields.length]).toString();
+        }
+    }
+}
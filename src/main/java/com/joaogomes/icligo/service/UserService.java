@@ -1,28 +1,47 @@
 package com.joaogomes.icligo.service;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.joaogomes.icligo.config.ApplicationProperties;
 import com.joaogomes.icligo.config.Constants;
 import com.joaogomes.icligo.domain.Authority;
 import com.joaogomes.icligo.domain.User;
 import com.joaogomes.icligo.repository.AuthorityRepository;
 import com.joaogomes.icligo.repository.PersistentTokenRepository;
+import com.joaogomes.icligo.repository.UserJdbcRepository;
 import com.joaogomes.icligo.repository.UserRepository;
 import com.joaogomes.icligo.security.AuthoritiesConstants;
+import com.joaogomes.icligo.security.DomainUserDetailsService;
+import com.joaogomes.icligo.security.PersistentTokenRememberMeServices;
 import com.joaogomes.icligo.security.SecurityUtils;
 import com.joaogomes.icligo.service.dto.AdminUserDTO;
 import com.joaogomes.icligo.service.dto.UserDTO;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import java.io.IOException;
+import java.io.Writer;
 import java.time.Instant;
 import java.time.LocalDate;
 import java.time.temporal.ChronoUnit;
 import java.util.*;
 import java.util.stream.Collectors;
+import java.util.stream.Stream;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.ScrollPosition;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.domain.Window;
 import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
 import tech.jhipster.security.RandomUtil;
 
 /**
@@ -34,24 +53,63 @@ public class UserService {
 
     private static final Logger LOG = LoggerFactory.getLogger(UserService.class);
 
+    private static final int EXPORT_CHUNK_SIZE = 500;
+
     private final UserRepository userRepository;
 
     private final PasswordEncoder passwordEncoder;
 
     private final PersistentTokenRepository persistentTokenRepository;
 
+    private final PersistentTokenRememberMeServices rememberMeServices;
+
     private final AuthorityRepository authorityRepository;
 
+    private final DomainUserDetailsService userDetailsService;
+
+    private final ObjectMapper objectMapper;
+
+    private final int cleanupChunkSize;
+
+    private final Timer persistentTokensCleanupTimer;
+
+    private final Counter persistentTokensCleanupCounter;
+
+    private final Timer notActivatedUsersCleanupTimer;
+
+    private final Counter notActivatedUsersCleanupCounter;
+
     public UserService(
         UserRepository userRepository,
         PasswordEncoder passwordEncoder,
         PersistentTokenRepository persistentTokenRepository,
-        AuthorityRepository authorityRepository
+        PersistentTokenRememberMeServices rememberMeServices,
+        AuthorityRepository authorityRepository,
+        DomainUserDetailsService userDetailsService,
+        ObjectMapper objectMapper,
+        ApplicationProperties applicationProperties,
+        MeterRegistry meterRegistry
     ) {
         this.userRepository = userRepository;
         this.passwordEncoder = passwordEncoder;
         this.persistentTokenRepository = persistentTokenRepository;
+        this.rememberMeServices = rememberMeServices;
         this.authorityRepository = authorityRepository;
+        this.userDetailsService = userDetailsService;
+        this.objectMapper = objectMapper;
+        this.cleanupChunkSize = applicationProperties.getCleanup().getChunkSize();
+        this.persistentTokensCleanupTimer = cleanupTimer(meterRegistry, "persistent-tokens");
+        this.persistentTokensCleanupCounter = cleanupCounter(meterRegistry, "persistent-tokens");
+        this.notActivatedUsersCleanupTimer = cleanupTimer(meterRegistry, "not-activated-users");
+        this.notActivatedUsersCleanupCounter = cleanupCounter(meterRegistry, "not-activated-users");
+    }
+
+    private static Timer cleanupTimer(MeterRegistry meterRegistry, String job) {
+        return Timer.builder("cleanup.chunk").description("Time taken to delete a chunk of rows").tag("job", job).register(meterRegistry);
+    }
+
+    private static Counter cleanupCounter(MeterRegistry meterRegistry, String job) {
+        return Counter.builder("cleanup.deleted").description("Number of rows deleted by the cleanup jobs").tag("job", job).register(meterRegistry);
     }
 
     public Optional<User> activateRegistration(String key) {
@@ -62,6 +120,7 @@ public class UserService {
                 // activate given user for the registration key.
                 user.setActivated(true);
                 user.setActivationKey(null);
+                this.clearUserCaches(user);
                 LOG.debug("Activated user: {}", user);
                 return user;
             });
@@ -76,6 +135,7 @@ public class UserService {
                 user.setPassword(passwordEncoder.encode(newPassword));
                 user.setResetKey(null);
                 user.setResetDate(null);
+                this.clearUserCaches(user);
                 return user;
             });
     }
@@ -87,6 +147,7 @@ public class UserService {
             .map(user -> {
                 user.setResetKey(RandomUtil.generateResetKey());
                 user.setResetDate(Instant.now());
+                this.clearUserCaches(user);
                 return user;
             });
     }
@@ -128,6 +189,7 @@ public class UserService {
         authorityRepository.findById(AuthoritiesConstants.USER).ifPresent(authorities::add);
         newUser.setAuthorities(authorities);
         userRepository.save(newUser);
+        this.clearUserCaches(newUser);
         LOG.debug("Created Information for User: {}", newUser);
         return newUser;
     }
@@ -138,6 +200,7 @@ public class UserService {
         }
         userRepository.delete(existingUser);
         userRepository.flush();
+        this.clearUserCaches(existingUser);
         return true;
     }
 
@@ -171,6 +234,7 @@ public class UserService {
             user.setAuthorities(authorities);
         }
         userRepository.save(user);
+        this.clearUserCaches(user);
         LOG.debug("Created Information for User: {}", user);
         return user;
     }
@@ -186,6 +250,7 @@ public class UserService {
             .filter(Optional::isPresent)
             .map(Optional::get)
             .map(user -> {
+                this.clearUserCaches(user);
                 user.setLogin(userDTO.getLogin().toLowerCase());
                 user.setFirstName(userDTO.getFirstName());
                 user.setLastName(userDTO.getLastName());
@@ -205,6 +270,7 @@ public class UserService {
                     .map(Optional::get)
                     .forEach(managedAuthorities::add);
                 userRepository.save(user);
+                this.clearUserCaches(user);
                 LOG.debug("Changed Information for User: {}", user);
                 return user;
             })
@@ -216,10 +282,25 @@ public class UserService {
             .findOneByLogin(login)
             .ifPresent(user -> {
                 userRepository.delete(user);
+                this.clearUserCaches(user);
                 LOG.debug("Deleted User: {}", user);
             });
     }
 
+    /**
+     * Revoke all the sessions of a user, in a single statement: the remember-me cookies of all its devices stop working,
+     * including the previous values of the ones just refreshed, evicted from the upgraded tokens cache after the commit.
+     *
+     * @param login the login of the user.
+     * @return the number of revoked sessions.
+     */
+    public int revokeSessions(String login) {
+        int revoked = persistentTokenRepository.deleteByUserLogin(login);
+        rememberMeServices.evictUpgradedTokens(login);
+        LOG.debug("Revoked {} sessions of User: {}", revoked, login);
+        return revoked;
+    }
+
     /**
      * Update basic information (first name, last name, email, language) for the current user.
      *
@@ -233,6 +314,7 @@ public class UserService {
         SecurityUtils.getCurrentUserLogin()
             .flatMap(userRepository::findOneByLogin)
             .ifPresent(user -> {
+                this.clearUserCaches(user);
                 user.setFirstName(firstName);
                 user.setLastName(lastName);
                 if (email != null) {
@@ -241,6 +323,7 @@ public class UserService {
                 user.setLangKey(langKey);
                 user.setImageUrl(imageUrl);
                 userRepository.save(user);
+                this.clearUserCaches(user);
                 LOG.debug("Changed Information for User: {}", user);
             });
     }
@@ -256,18 +339,105 @@ public class UserService {
                 }
                 String encryptedPassword = passwordEncoder.encode(newPassword);
                 user.setPassword(encryptedPassword);
+                this.clearUserCaches(user);
                 LOG.debug("Changed password for User: {}", user);
             });
     }
 
     @Transactional(readOnly = true)
     public Page<AdminUserDTO> getAllManagedUsers(Pageable pageable) {
-        return userRepository.findAll(pageable).map(AdminUserDTO::new);
+        Page<UserRepository.ManagedUser> page = userRepository.findManagedUsersByIdNotNull(pageable);
+        Map<Long, Set<String>> authorities = getAuthorities(page.getContent());
+        return page.map(user -> toAdminUserDTO(user, authorities));
+    }
+
+    @Transactional(readOnly = true)
+    public Window<AdminUserDTO> getAllManagedUsers(ScrollPosition position, Sort sort, int size) {
+        Window<UserRepository.ManagedUser> window = userRepository.findManagedUsersByIdNotNull(position, sort, Limit.of(size));
+        Map<Long, Set<String>> authorities = getAuthorities(window.getContent());
+        return window.map(user -> toAdminUserDTO(user, authorities));
+    }
+
+    /**
+     * Export the users of the user management listing as newline-delimited JSON, by id.
+     * <p>
+     * The users are read from a forward-only cursor and written by chunks of {@value #EXPORT_CHUNK_SIZE}, with the
+     * authorities of each chunk fetched in a single query, so memory does not grow with the number of users.
+     *
+     * @param writer the output, flushed but not closed.
+     * @return the number of users exported.
+     */
+    @Transactional(readOnly = true)
+    public long exportManagedUsersNdjson(Writer writer) throws IOException {
+        LOG.debug("Request to export managed Users to NDJSON");
+        ObjectWriter userWriter = objectMapper.writerFor(AdminUserDTO.class);
+        List<UserRepository.ManagedUser> chunk = new ArrayList<>(EXPORT_CHUNK_SIZE);
+        long count = 0;
+        try (Stream<UserRepository.ManagedUser> users = userRepository.streamManagedUsersByIdNotNullOrderByIdAsc()) {
+            for (Iterator<UserRepository.ManagedUser> it = users.iterator(); it.hasNext();) {
+                chunk.add(it.next());
+                if (chunk.size() == EXPORT_CHUNK_SIZE || !it.hasNext()) {
+                    Map<Long, Set<String>> authorities = getAuthorities(chunk);
+                    for (UserRepository.ManagedUser user : chunk) {
+                        writer.write(userWriter.writeValueAsString(toAdminUserDTO(user, authorities)));
+                        writer.write('\n');
+                    }
+                    count += chunk.size();
+                    chunk.clear();
+                }
+            }
+        }
+        writer.flush();
+        return count;
     }
 
     @Transactional(readOnly = true)
     public Page<UserDTO> getAllPublicUsers(Pageable pageable) {
-        return userRepository.findAllByIdNotNullAndActivatedIsTrue(pageable).map(UserDTO::new);
+        return userRepository.findPublicUsersByIdNotNullAndActivatedIsTrue(pageable).map(UserService::toUserDTO);
+    }
+
+    @Transactional(readOnly = true)
+    public Window<UserDTO> getAllPublicUsers(ScrollPosition position, Sort sort, int size) {
+        return userRepository.findPublicUsersByIdNotNullAndActivatedIsTrue(position, sort, Limit.of(size)).map(UserService::toUserDTO);
+    }
+
+    /**
+     * Fetches the authorities of a page of users in a single query.
+     */
+    private Map<Long, Set<String>> getAuthorities(List<UserRepository.ManagedUser> users) {
+        if (users.isEmpty()) {
+            return Map.of();
+        }
+        Map<Long, Set<String>> authorities = new HashMap<>();
+        userRepository
+            .findAuthoritiesByUserIdIn(users.stream().map(UserRepository.ManagedUser::id).toList())
+            .forEach(authority -> authorities.computeIfAbsent(authority.userId(), id -> new HashSet<>()).add(authority.authority()));
+        return authorities;
+    }
+
+    private static AdminUserDTO toAdminUserDTO(UserRepository.ManagedUser user, Map<Long, Set<String>> authorities) {
+        AdminUserDTO userDTO = new AdminUserDTO();
+        userDTO.setId(user.id());
+        userDTO.setLogin(user.login());
+        userDTO.setFirstName(user.firstName());
+        userDTO.setLastName(user.lastName());
+        userDTO.setEmail(user.email());
+        userDTO.setImageUrl(user.imageUrl());
+        userDTO.setActivated(user.activated());
+        userDTO.setLangKey(user.langKey());
+        userDTO.setCreatedBy(user.createdBy());
+        userDTO.setCreatedDate(user.createdDate());
+        userDTO.setLastModifiedBy(user.lastModifiedBy());
+        userDTO.setLastModifiedDate(user.lastModifiedDate());
+        userDTO.setAuthorities(authorities.getOrDefault(user.id(), Set.of()));
+        return userDTO;
+    }
+
+    private static UserDTO toUserDTO(UserRepository.PublicUser user) {
+        UserDTO userDTO = new UserDTO();
+        userDTO.setId(user.id());
+        userDTO.setLogin(user.login());
+        return userDTO;
     }
 
     @Transactional(readOnly = true)
@@ -284,34 +454,46 @@ public class UserService {
      * Persistent Token are used for providing automatic authentication, they should be automatically deleted after
      * 30 days.
      * <p>
-     * This is scheduled to get fired every day, at midnight.
+     * This is scheduled to get fired every day, at midnight. Tokens are deleted by chunks of
+     * {@code application.cleanup.chunk-size}, each in its own transaction.
      */
     @Scheduled(cron = "0 0 0 * * ?")
+    @Transactional(propagation = Propagation.SUPPORTS)
     public void removeOldPersistentTokens() {
-        LocalDate now = LocalDate.now();
-        persistentTokenRepository
-            .findByTokenDateBefore(now.minusMonths(1))
-            .forEach(token -> {
-                LOG.debug("Deleting token {}", token.getSeries());
-                User user = token.getUser();
-                user.getPersistentTokens().remove(token);
-                persistentTokenRepository.delete(token);
-            });
+        LocalDate tokenDate = LocalDate.now().minusMonths(1);
+        long total = 0;
+        int deleted;
+        do {
+            deleted = persistentTokensCleanupTimer.record(() ->
+                persistentTokenRepository.deleteChunkByTokenDateBefore(tokenDate, cleanupChunkSize)
+            );
+            persistentTokensCleanupCounter.increment(deleted);
+            total += deleted;
+        } while (deleted == cleanupChunkSize);
+        LOG.debug("Deleted {} persistent tokens", total);
     }
 
     /**
      * Not activated users should be automatically deleted after 3 days.
      * <p>
-     * This is scheduled to get fired every day, at 01:00 (am).
+     * This is scheduled to get fired every day, at 01:00 (am). Users are deleted by chunks of
+     * {@code application.cleanup.chunk-size}, each in its own transaction.
      */
     @Scheduled(cron = "0 0 1 * * ?")
+    @Transactional(propagation = Propagation.SUPPORTS)
     public void removeNotActivatedUsers() {
-        userRepository
-            .findAllByActivatedIsFalseAndActivationKeyIsNotNullAndCreatedDateBefore(Instant.now().minus(3, ChronoUnit.DAYS))
-            .forEach(user -> {
-                LOG.debug("Deleting not activated user {}", user.getLogin());
-                userRepository.delete(user);
-            });
+        Instant createdDate = Instant.now().minus(3, ChronoUnit.DAYS);
+        long total = 0;
+        List<UserJdbcRepository.DeletedUser> deleted;
+        do {
+            deleted = notActivatedUsersCleanupTimer.record(() ->
+                userRepository.deleteChunkOfNotActivatedUsersCreatedBefore(createdDate, cleanupChunkSize)
+            );
+            deleted.forEach(user -> clearUserCaches(user.login(), user.email()));
+            notActivatedUsersCleanupCounter.increment(deleted.size());
+            total += deleted.size();
+        } while (deleted.size() == cleanupChunkSize);
+        LOG.debug("Deleted {} not activated users", total);
     }
 
     /**
@@ -322,4 +504,26 @@ public class UserService {
     public List<String> getAuthorities() {
         return authorityRepository.findAll().stream().map(Authority::getName).toList();
     }
+
+    /**
+     * Evicts the user from the login and email caches, right away and once more after the current transaction commits,
+     * so that a concurrent lookup cannot put the pre-commit state back in the cache.
+     */
+    private void clearUserCaches(User user) {
+        clearUserCaches(user.getLogin(), user.getEmail());
+    }
+
+    private void clearUserCaches(String login, String email) {
+        userDetailsService.evictUser(login, email);
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(
+                new TransactionSynchronization() {
+                    @Override
+                    public void afterCommit() {
+                        userDetailsService.evictUser(login, email);
+                    }
+                }
+            );
+        }
+    }
 }
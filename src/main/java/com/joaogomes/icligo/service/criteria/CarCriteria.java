@@ -0,0 +1,203 @@
+package com.joaogomes.icligo.service.criteria;
+
+import java.io.Serializable;
+import java.util.Objects;
+import java.util.Optional;
+import org.springdoc.core.annotations.ParameterObject;
+import tech.jhipster.service.Criteria;
+import tech.jhipster.service.filter.*;
+
+/**
+ * Criteria class for the {@link com.joaogomes.icligo.domain.Car} entity. This class is used
+ * in {@link com.joaogomes.icligo.web.rest.CarResource} to receive all the possible filtering options from
+ * the Http GET request parameters.
+ * For example the following could be a valid request:
+ * {@code /cars?brand.equals=Toyota&model.startsWith=Cor&cyear.greaterThanOrEqual=2015&available.equals=true}
+ * As Spring is unable to properly convert the types, unless specific {@link Filter} class are used, we need to use
+ * fix type specific filters.
+ */
+@ParameterObject
+@SuppressWarnings("common-java:DuplicatedBlocks")
+public class CarCriteria implements Serializable, Criteria {
+
+    private static final long serialVersionUID = 1L;
+
+    private LongFilter id;
+
+    private PrefixStringFilter model;
+
+    private StringFilter brand;
+
+    private IntegerFilter cyear;
+
+    private BooleanFilter available;
+
+    private Boolean distinct;
+
+    public CarCriteria() {}
+
+    public CarCriteria(CarCriteria other) {
+        this.id = other.optionalId().map(LongFilter::copy).orElse(null);
+        this.model = other.optionalModel().map(PrefixStringFilter::copy).orElse(null);
+        this.brand = other.optionalBrand().map(StringFilter::copy).orElse(null);
+        this.cyear = other.optionalCyear().map(IntegerFilter::copy).orElse(null);
+        this.available = other.optionalAvailable().map(BooleanFilter::copy).orElse(null);
+        this.distinct = other.distinct;
+    }
+
+    @Override
+    public CarCriteria copy() {
+        return new CarCriteria(this);
+    }
+
+    public LongFilter getId() {
+        return id;
+    }
+
+    public Optional<LongFilter> optionalId() {
+        return Optional.ofNullable(id);
+    }
+
+    public LongFilter id() {
+        if (id == null) {
+            setId(new LongFilter());
+        }
+        return id;
+    }
+
+    public void setId(LongFilter id) {
+        this.id = id;
+    }
+
+    public PrefixStringFilter getModel() {
+        return model;
+    }
+
+    public Optional<PrefixStringFilter> optionalModel() {
+        return Optional.ofNullable(model);
+    }
+
+    public PrefixStringFilter model() {
+        if (model == null) {
+            setModel(new PrefixStringFilter());
+        }
+        return model;
+    }
+
+    public void setModel(PrefixStringFilter model) {
+        this.model = model;
+    }
+
+    public StringFilter getBrand() {
+        return brand;
+    }
+
+    public Optional<StringFilter> optionalBrand() {
+        return Optional.ofNullable(brand);
+    }
+
+    public StringFilter brand() {
+        if (brand == null) {
+            setBrand(new StringFilter());
+        }
+        return brand;
+    }
+
+    public void setBrand(StringFilter brand) {
+        this.brand = brand;
+    }
+
+    public IntegerFilter getCyear() {
+        return cyear;
+    }
+
+    public Optional<IntegerFilter> optionalCyear() {
+        return Optional.ofNullable(cyear);
+    }
+
+    public IntegerFilter cyear() {
+        if (cyear == null) {
+            setCyear(new IntegerFilter());
+        }
+        return cyear;
+    }
+
+    public void setCyear(IntegerFilter cyear) {
+        this.cyear = cyear;
+    }
+
+    public BooleanFilter getAvailable() {
+        return available;
+    }
+
+    public Optional<BooleanFilter> optionalAvailable() {
+        return Optional.ofNullable(available);
+    }
+
+    public BooleanFilter available() {
+        if (available == null) {
+            setAvailable(new BooleanFilter());
+        }
+        return available;
+    }
+
+    public void setAvailable(BooleanFilter available) {
+        this.available = available;
+    }
+
+    public Boolean getDistinct() {
+        return distinct;
+    }
+
+    public Optional<Boolean> optionalDistinct() {
+        return Optional.ofNullable(distinct);
+    }
+
+    public Boolean distinct() {
+        if (distinct == null) {
+            setDistinct(true);
+        }
+        return distinct;
+    }
+
+    public void setDistinct(Boolean distinct) {
+        this.distinct = distinct;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (o == null || getClass() != o.getClass()) {
+            return false;
+        }
+        final CarCriteria that = (CarCriteria) o;
+        return (
+            Objects.equals(id, that.id) &&
+            Objects.equals(model, that.model) &&
+            Objects.equals(brand, that.brand) &&
+            Objects.equals(cyear, that.cyear) &&
+            Objects.equals(available, that.available) &&
+            Objects.equals(distinct, that.distinct)
+        );
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(id, model, brand, cyear, available, distinct);
+    }
+
+    // prettier-ignore
+    @Override
+    public String toString() {
+        return "CarCriteria{" +
+            optionalId().map(f -> "id=" + f + ", ").orElse("") +
+            optionalModel().map(f -> "model=" + f + ", ").orElse("") +
+            optionalBrand().map(f -> "brand=" + f + ", ").orElse("") +
+            optionalCyear().map(f -> "cyear=" + f + ", ").orElse("") +
+            optionalAvailable().map(f -> "available=" + f + ", ").orElse("") +
+            optionalDistinct().map(f -> "distinct=" + f + ", ").orElse("") +
+        "}";
+    }
+}
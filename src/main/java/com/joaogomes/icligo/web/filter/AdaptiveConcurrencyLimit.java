@@ -0,0 +1,127 @@
+package com.joaogomes.icligo.web.filter;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Limit of the requests in progress at the same time, adapted to their latency.
+ * <p>
+ * The limit follows the gradient between the long-term average latency and the latency of each request: while the
+ * latency stays within {@value #TOLERANCE} times the average, the limit grows by its square root, and once the requests
+ * slow down, because they wait on the database for instance, it shrinks in proportion. Requests that fail with a
+ * server error shrink it by {@value #BACKOFF_RATIO}. The limit stays between the min and max limits.
+ * <p>
+ * The latency is not measured against the limit while less than half of the limit is in use, as it then tells nothing
+ * about the capacity.
+ */
+public class AdaptiveConcurrencyLimit {
+
+    private static final double TOLERANCE = 1.5;
+
+    private static final double SMOOTHING = 0.2;
+
+    private static final double BACKOFF_RATIO = 0.9;
+
+    private static final int WARMUP_SAMPLES = 10;
+
+    private static final int LONG_WINDOW = 600;
+
+    private final int minLimit;
+
+    private final int maxLimit;
+
+    private final AtomicInteger inFlight = new AtomicInteger();
+
+    private final ReentrantLock lock = new ReentrantLock();
+
+    private volatile int limit;
+
+    private double estimatedLimit;
+
+    private double longRtt;
+
+    private long samples;
+
+    public AdaptiveConcurrencyLimit(int initialLimit, int minLimit, int maxLimit) {
+        if (minLimit < 1 || maxLimit < minLimit) {
+            throw new IllegalArgumentException("Invalid limits [" + minLimit + ", " + maxLimit + "]");
+        }
+        this.minLimit = minLimit;
+        this.maxLimit = maxLimit;
+        this.estimatedLimit = Math.clamp(initialLimit, minLimit, maxLimit);
+        this.limit = (int) estimatedLimit;
+    }
+
+    /**
+     * Take a place for a request, unless the limit is reached.
+     *
+     * @return the number of requests in progress, this one included, or {@code 0} when the request must be rejected.
+     */
+    public int tryAcquire() {
+        int current;
+        do {
+            current = inFlight.get();
+            if (current >= limit) {
+                return 0;
+            }
+        } while (!inFlight.compareAndSet(current, current + 1));
+        return current + 1;
+    }
+
+    /**
+     * Release the place of a request and adapt the limit to its latency.
+     *
+     * @param rttNanos the time taken by the request.
+     * @param inFlightAtStart the number of requests in progress when it started, returned by {@link #tryAcquire()}.
+     * @param failed whether the request failed with a server error.
+     */
+    public void release(long rttNanos, int inFlightAtStart, boolean failed) {
+        inFlight.decrementAndGet();
+        lock.lock();
+        try {
+            if (failed) {
+                estimatedLimit = Math.max(minLimit, estimatedLimit * BACKOFF_RATIO);
+            } else {
+                sample(Math.max(rttNanos, 1), inFlightAtStart);
+            }
+            limit = (int) estimatedLimit;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Release the place of a request without adapting the limit, for the requests whose latency tells nothing about the
+     * capacity, like the streamed responses whose latency depends on their size.
+     */
+    public void release() {
+        inFlight.decrementAndGet();
+    }
+
+    private void sample(long rtt, int inFlightAtStart) {
+        samples++;
+        if (samples <= WARMUP_SAMPLES) {
+            longRtt += (rtt - longRtt) / samples;
+        } else {
+            longRtt += (rtt - longRtt) * 2 / (LONG_WINDOW + 1);
+        }
+        // After a long slowdown the average only comes back slowly, let it follow the requests faster
+        if (longRtt / rtt > 2) {
+            longRtt *= 0.95;
+        }
+        if (samples <= WARMUP_SAMPLES || inFlightAtStart < estimatedLimit / 2) {
+            return;
+        }
+        double gradient = Math.clamp(TOLERANCE * longRtt / rtt, 0.5, 1.0);
+        double newLimit = estimatedLimit * gradient + Math.sqrt(estimatedLimit);
+        estimatedLimit = Math.clamp(estimatedLimit * (1 - SMOOTHING) + newLimit * SMOOTHING, minLimit, maxLimit);
+    }
+
+    public int getLimit() {
+        return limit;
+    }
+
+    public int getInFlight() {
+        return inFlight.get();
+    }
+}
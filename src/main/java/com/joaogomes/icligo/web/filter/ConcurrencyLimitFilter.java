@@ -0,0 +1,167 @@
+package com.joaogomes.icligo.web.filter;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.servlet.AsyncEvent;
+import jakarta.servlet.AsyncListener;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import java.io.IOException;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.security.web.util.matcher.RequestMatcher;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+/**
+ * Limits the requests in progress at the same time, per group of paths.
+ * <p>
+ * Each group has its own {@link AdaptiveConcurrencyLimit}, so that when the requests of a group slow down, because the
+ * database does for instance, they are rejected before they queue for the connection pool, and the requests of the
+ * other groups, as well as the health checks which belong to no group, keep their latency. The requests above the limit
+ * get a {@code 503 Service Unavailable} with a {@code Retry-After} header, without going further into the filter chain.
+ * <p>
+ * The streamed responses, which are written asynchronously, and the requests matching the {@code unsampled} matcher,
+ * like the bulk imports, keep their place while in progress but their latency, which depends on their size, does not
+ * adapt the limit.
+ * <p>
+ * The limit, the requests in progress and the rejected requests of each group are recorded into the
+ * {@code http.server.concurrency.limit}, {@code http.server.concurrency.in-flight} and
+ * {@code http.server.concurrency.rejected} metrics, tagged with the group.
+ */
+public class ConcurrencyLimitFilter extends OncePerRequestFilter {
+
+    /**
+     * Requests matching {@code matcher} share {@code limit}.
+     */
+    public record RouteGroup(String name, RequestMatcher matcher, AdaptiveConcurrencyLimit limit) {}
+
+    private final List<RouteGroup> groups;
+
+    private final RequestMatcher unsampled;
+
+    private final List<Counter> rejected;
+
+    private final String retryAfter;
+
+    /**
+     * @param groups the groups, the first one matching a request applies.
+     * @param unsampled the requests whose latency does not adapt the limit of their group.
+     */
+    public ConcurrencyLimitFilter(List<RouteGroup> groups, RequestMatcher unsampled, Duration retryAfter, MeterRegistry meterRegistry) {
+        this.groups = List.copyOf(groups);
+        this.unsampled = unsampled;
+        this.retryAfter = Long.toString(Math.max(1, retryAfter.toSeconds()));
+        this.rejected = groups
+            .stream()
+            .map(group -> {
+                Gauge.builder("http.server.concurrency.limit", group.limit(), AdaptiveConcurrencyLimit::getLimit)
+                    .description("Number of requests of the group allowed in progress at the same time")
+                    .tag("group", group.name())
+                    .strongReference(true)
+                    .register(meterRegistry);
+                Gauge.builder("http.server.concurrency.in-flight", group.limit(), AdaptiveConcurrencyLimit::getInFlight)
+                    .description("Number of requests of the group in progress")
+                    .tag("group", group.name())
+                    .strongReference(true)
+                    .register(meterRegistry);
+                return Counter.builder("http.server.concurrency.rejected")
+                    .description("Number of requests of the group rejected because its limit was reached")
+                    .tag("group", group.name())
+                    .register(meterRegistry);
+            })
+            .toList();
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain)
+        throws ServletException, IOException {
+        int index = findGroup(request);
+        if (index < 0) {
+            filterChain.doFilter(request, response);
+            return;
+        }
+        AdaptiveConcurrencyLimit limit = groups.get(index).limit();
+        int inFlight = limit.tryAcquire();
+        if (inFlight == 0) {
+            rejected.get(index).increment();
+            response.setStatus(HttpStatus.SERVICE_UNAVAILABLE.value());
+            response.setHeader(HttpHeaders.RETRY_AFTER, retryAfter);
+            return;
+        }
+        boolean sampled = !unsampled.matches(request);
+        long start = System.nanoTime();
+        boolean failed = true;
+        boolean async = false;
+        try {
+            filterChain.doFilter(request, response);
+            failed = response.getStatus() >= 500;
+            if (request.isAsyncStarted()) {
+                // Streamed responses keep their place until they are written
+                request.getAsyncContext().addListener(new ReleasingAsyncListener(limit));
+                async = true;
+            }
+        } finally {
+            if (!async && sampled) {
+                limit.release(System.nanoTime() - start, inFlight, failed);
+            } else if (!async) {
+                limit.release();
+            }
+        }
+    }
+
+    private int findGroup(HttpServletRequest request) {
+        for (int i = 0; i < groups.size(); i++) {
+            if (groups.get(i).matcher().matches(request)) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Releases the place of a streamed response once written, without sampling its latency: a long download or a timeout
+     * tells nothing about the capacity.
+     */
+    private static final class ReleasingAsyncListener implements AsyncListener {
+
+        private final AdaptiveConcurrencyLimit limit;
+
+        private final AtomicBoolean released = new AtomicBoolean();
+
+        private ReleasingAsyncListener(AdaptiveConcurrencyLimit limit) {
+            this.limit = limit;
+        }
+
+        private void release() {
+            if (released.compareAndSet(false, true)) {
+                limit.release();
+            }
+        }
+
+        @Override
+        public void onComplete(AsyncEvent event) {
+            release();
+        }
+
+        @Override
+        public void onTimeout(AsyncEvent event) {
+            release();
+        }
+
+        @Override
+        public void onError(AsyncEvent event) {
+            release();
+        }
+
+        @Override
+        public void onStartAsync(AsyncEvent event) {
+            event.getAsyncContext().addListener(this);
+        }
+    }
+}
@@ -0,0 +1,181 @@
+package com.joaogomes.icligo.web.filter;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.joaogomes.icligo.config.ApplicationProperties;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Enumeration;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.TimeUnit;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.security.web.util.matcher.IpAddressMatcher;
+import org.springframework.security.web.util.matcher.RequestMatcher;
+import org.springframework.util.StringUtils;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+/**
+ * Throttles the login attempts per login and per client IP, before their password is verified.
+ * <p>
+ * Each attempt takes a token from the {@link TokenBucket} of its client IP, then from the one of its login. When either
+ * is empty, the attempt gets a {@code 429 Too Many Requests} with a {@code Retry-After} header, so that a credential
+ * stuffing burst does not take the cores hashing passwords. The token of the login is given back unless the attempt
+ * fails with a {@code 401 Unauthorized}, so that only the wrong passwords count against a login, and its user is not
+ * locked out by their own logins.
+ * <p>
+ * The client IP is the peer address of the request. When the peer is one of the
+ * {@code application.login-throttling.trusted-proxies}, it is the last address of its {@code X-Forwarded-For} header
+ * not added by a trusted proxy: the addresses before it are sent by the client, which can set them to anything.
+ * <p>
+ * The buckets are kept in memory until they are full again, for at most
+ * {@code application.login-throttling.max-tracked-keys} logins and as many IPs. Past that, the least used buckets are
+ * forgotten, so that a flood of new logins or IPs neither exhausts the memory nor throttles the other users, while the
+ * buckets used again and again are kept. The bucket of a login is dropped as soon as it is full again. The throttled
+ * attempts are counted in the {@code security.login.throttled} metric, tagged with the bucket that was empty.
+ */
+public class LoginThrottlingFilter extends OncePerRequestFilter {
+
+    private static final String FORWARDED_FOR_HEADER = "X-Forwarded-For";
+
+    private final RequestMatcher loginRequestMatcher;
+
+    private final String usernameParameter;
+
+    private final ApplicationProperties.LoginThrottling properties;
+
+    private final List<IpAddressMatcher> trustedProxies;
+
+    private final Cache<String, TokenBucket> bucketsByIp;
+
+    private final Cache<String, TokenBucket> bucketsByLogin;
+
+    private final Counter throttledByIp;
+
+    private final Counter throttledByLogin;
+
+    public LoginThrottlingFilter(
+        RequestMatcher loginRequestMatcher,
+        String usernameParameter,
+        ApplicationProperties.LoginThrottling properties,
+        MeterRegistry meterRegistry
+    ) {
+        this.loginRequestMatcher = loginRequestMatcher;
+        this.usernameParameter = usernameParameter;
+        this.properties = properties;
+        this.trustedProxies = properties.getTrustedProxies().stream().map(IpAddressMatcher::new).toList();
+        this.bucketsByIp = createBuckets(properties.getPerIp(), properties.getMaxTrackedKeys());
+        this.bucketsByLogin = createBuckets(properties.getPerLogin(), properties.getMaxTrackedKeys());
+        this.throttledByIp = createThrottledCounter(meterRegistry, "ip");
+        this.throttledByLogin = createThrottledCounter(meterRegistry, "login");
+    }
+
+    private static Cache<String, TokenBucket> createBuckets(ApplicationProperties.LoginThrottling.Bucket bucket, int maxTrackedKeys) {
+        // A bucket not used for a whole refill period is full again, like a new one
+        return Caffeine.newBuilder().maximumSize(maxTrackedKeys).expireAfterAccess(bucket.getRefillPeriod()).build();
+    }
+
+    private static Counter createThrottledCounter(MeterRegistry meterRegistry, String bucket) {
+        return Counter.builder("security.login.throttled")
+            .description("Number of login attempts refused because their bucket was empty")
+            .tag("bucket", bucket)
+            .register(meterRegistry);
+    }
+
+    @Override
+    protected boolean shouldNotFilter(HttpServletRequest request) {
+        return !loginRequestMatcher.matches(request);
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain)
+        throws ServletException, IOException {
+        long now = System.nanoTime();
+        TokenBucket ipBucket = findBucket(bucketsByIp, properties.getPerIp(), clientIp(request), now);
+        long wait = ipBucket.tryConsume(now);
+        if (wait > 0) {
+            throttledByIp.increment();
+            throttle(response, wait);
+            return;
+        }
+        String login = request.getParameter(usernameParameter);
+        String loginKey = null;
+        TokenBucket loginBucket = null;
+        if (login != null) {
+            loginKey = login.trim().toLowerCase(Locale.ENGLISH);
+            loginBucket = findBucket(bucketsByLogin, properties.getPerLogin(), loginKey, now);
+            wait = loginBucket.tryConsume(now);
+            if (wait > 0) {
+                throttledByLogin.increment();
+                throttle(response, wait);
+                return;
+            }
+        }
+        filterChain.doFilter(request, response);
+        // Only the wrong passwords count against the login
+        if (loginBucket != null && response.getStatus() != HttpStatus.UNAUTHORIZED.value()) {
+            loginBucket.refund();
+            if (loginBucket.isFull(System.nanoTime())) {
+                bucketsByLogin.asMap().remove(loginKey, loginBucket);
+            }
+        }
+    }
+
+    private String clientIp(HttpServletRequest request) {
+        String address = request.getRemoteAddr();
+        if (!isTrustedProxy(address)) {
+            return address;
+        }
+        List<String> forwardedFor = new ArrayList<>();
+        Enumeration<String> headers = request.getHeaders(FORWARDED_FOR_HEADER);
+        while (headers.hasMoreElements()) {
+            for (String forwarded : StringUtils.commaDelimitedListToStringArray(headers.nextElement())) {
+                forwardedFor.add(forwarded.trim());
+            }
+        }
+        // From the right, the addresses are added by the trusted proxies, until the one of the client
+        for (int i = forwardedFor.size() - 1; i >= 0; i--) {
+            address = forwardedFor.get(i);
+            if (!isTrustedProxy(address)) {
+                return address;
+            }
+        }
+        return address;
+    }
+
+    private boolean isTrustedProxy(String address) {
+        for (IpAddressMatcher trustedProxy : trustedProxies) {
+            try {
+                if (trustedProxy.matches(address)) {
+                    return true;
+                }
+            } catch (IllegalArgumentException e) {
+                // Not an IP address
+                return false;
+            }
+        }
+        return false;
+    }
+
+    private static TokenBucket findBucket(
+        Cache<String, TokenBucket> buckets,
+        ApplicationProperties.LoginThrottling.Bucket bucket,
+        String key,
+        long now
+    ) {
+        return buckets.get(key, ignored -> new TokenBucket(bucket.getCapacity(), bucket.getRefillPeriod(), now));
+    }
+
+    private static void throttle(HttpServletResponse response, long waitNanos) {
+        response.setStatus(HttpStatus.TOO_MANY_REQUESTS.value());
+        // Rounded up, so that the client does not come back before the token
+        response.setHeader(HttpHeaders.RETRY_AFTER, Long.toString(Math.ceilDiv(waitNanos, TimeUnit.SECONDS.toNanos(1))));
+    }
+}
@@ -0,0 +1,96 @@
+package com.joaogomes.icligo.web.filter;
+
+import java.time.Duration;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * SQL statements run by an HTTP request, with the number of rows they returned or updated and the time spent running
+ * them.
+ * <p>
+ * The statistics of the request handled by the current thread are started and published by {@link SqlStatisticsFilter},
+ * and fed by the listener of the data source. Statements run by other threads, for instance by {@code @Async} methods,
+ * are not counted.
+ */
+public final class SqlStatistics {
+
+    private static final ThreadLocal<SqlStatistics> CURRENT = new ThreadLocal<>();
+
+    private int statements;
+
+    private long rows;
+
+    private long nanos;
+
+    private final Map<String, Integer> executions = new HashMap<>();
+
+    static SqlStatistics start() {
+        SqlStatistics statistics = new SqlStatistics();
+        CURRENT.set(statistics);
+        return statistics;
+    }
+
+    static void stop() {
+        CURRENT.remove();
+    }
+
+    /**
+     * @return the statistics of the request handled by the current thread, or {@code null} outside of a request.
+     */
+    public static SqlStatistics current() {
+        return CURRENT.get();
+    }
+
+    /**
+     * Record a statement, or a batch of statements sent in one round trip.
+     *
+     * @param sql the SQL of the statement.
+     * @param nanos the time spent running it.
+     * @param updatedRows the number of rows it updated.
+     */
+    public void recordStatement(String sql, long nanos, long updatedRows) {
+        statements++;
+        this.nanos += nanos;
+        rows += updatedRows;
+        executions.merge(sql, 1, Integer::sum);
+    }
+
+    /**
+     * Record a row read from a result set.
+     */
+    public void recordRow() {
+        rows++;
+    }
+
+    public int getStatements() {
+        return statements;
+    }
+
+    public long getRows() {
+        return rows;
+    }
+
+    public Duration getTime() {
+        return Duration.ofNanos(nanos);
+    }
+
+    /**
+     * @return the number of times each SQL statement was run.
+     */
+    public Map<String, Integer> getExecutions() {
+        return Collections.unmodifiableMap(executions);
+    }
+
+    /**
+     * @return the SQL statement run the most times, or {@code null} if no statement was run.
+     */
+    public Map.Entry<String, Integer> getMostRepeatedStatement() {
+        return executions.entrySet().stream().max(Map.Entry.comparingByValue()).orElse(null);
+    }
+
+    @Override
+    public String toString() {
+        return "SqlStatistics{statements=" + statements + ", rows=" + rows + ", time=" + getTime().toMillis() + "ms}";
+    }
+}
@@ -0,0 +1,101 @@
+package com.joaogomes.icligo.web.filter;
+
+import com.joaogomes.icligo.config.ApplicationProperties;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+import io.micrometer.core.instrument.Timer;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import java.io.IOException;
+import java.util.Map;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.web.filter.OncePerRequestFilter;
+import org.springframework.web.servlet.HandlerMapping;
+
+/**
+ * Counts the SQL statements run by each HTTP request.
+ * <p>
+ * The statements, rows and JDBC time of a request are recorded into the {@code sql.request.statements},
+ * {@code sql.request.rows} and {@code sql.request.time} metrics, tagged with the method and URI pattern of the request
+ * like {@code http.server.requests}. Requests running more statements or spending more time in the database than
+ * allowed by {@code application.sql-statistics.*} are logged, as are requests running the same statement many times,
+ * which usually comes from lazy loading in a loop.
+ * <p>
+ * The {@link SqlStatistics} of a request are also stored in its {@value #STATISTICS_ATTRIBUTE} attribute.
+ */
+public class SqlStatisticsFilter extends OncePerRequestFilter {
+
+    public static final String STATISTICS_ATTRIBUTE = SqlStatisticsFilter.class.getName() + ".statistics";
+
+    private static final Logger LOG = LoggerFactory.getLogger(SqlStatisticsFilter.class);
+
+    private static final String UNKNOWN_URI = "UNKNOWN";
+
+    private final MeterRegistry meterRegistry;
+
+    private final ApplicationProperties.SqlStatistics properties;
+
+    public SqlStatisticsFilter(MeterRegistry meterRegistry, ApplicationProperties.SqlStatistics properties) {
+        this.meterRegistry = meterRegistry;
+        this.properties = properties;
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain)
+        throws ServletException, IOException {
+        SqlStatistics statistics = SqlStatistics.start();
+        request.setAttribute(STATISTICS_ATTRIBUTE, statistics);
+        try {
+            filterChain.doFilter(request, response);
+        } finally {
+            SqlStatistics.stop();
+            record(request, statistics);
+        }
+    }
+
+    private void record(HttpServletRequest request, SqlStatistics statistics) {
+        Object pattern = request.getAttribute(HandlerMapping.BEST_MATCHING_PATTERN_ATTRIBUTE);
+        String uri = pattern != null ? pattern.toString() : UNKNOWN_URI;
+        Tags tags = Tags.of("method", request.getMethod(), "uri", uri);
+        DistributionSummary.builder("sql.request.statements")
+            .description("Number of SQL statements run by an HTTP request")
+            .tags(tags)
+            .register(meterRegistry)
+            .record(statistics.getStatements());
+        DistributionSummary.builder("sql.request.rows")
+            .description("Number of rows returned or updated by the SQL statements of an HTTP request")
+            .tags(tags)
+            .register(meterRegistry)
+            .record(statistics.getRows());
+        Timer.builder("sql.request.time")
+            .description("Time spent running the SQL statements of an HTTP request")
+            .tags(tags)
+            .register(meterRegistry)
+            .record(statistics.getTime());
+
+        if (statistics.getStatements() > properties.getMaxStatements() || statistics.getTime().compareTo(properties.getMaxTime()) > 0) {
+            LOG.warn(
+                "{} {} ran {} SQL statements for {} rows in {}ms",
+                request.getMethod(),
+                uri,
+                statistics.getStatements(),
+                statistics.getRows(),
+                statistics.getTime().toMillis()
+            );
+        }
+        Map.Entry<String, Integer> mostRepeated = statistics.getMostRepeatedStatement();
+        if (mostRepeated != null && mostRepeated.getValue() > properties.getMaxRepeatedStatements()) {
+            LOG.warn(
+                "{} {} ran the same SQL statement {} times, which may be an N+1 select: {}",
+                request.getMethod(),
+                uri,
+                mostRepeated.getValue(),
+                mostRepeated.getKey()
+            );
+        }
+    }
+}
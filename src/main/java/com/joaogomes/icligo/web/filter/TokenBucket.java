@@ -0,0 +1,63 @@
+package com.joaogomes.icligo.web.filter;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Token bucket of {@code capacity} tokens, given back at a steady rate over {@code refillPeriod}.
+ * <p>
+ * Instead of the tokens left, the bucket only keeps the time at which it will be full again, which is updated without
+ * locking.
+ */
+public class TokenBucket {
+
+    private final long nanosPerToken;
+
+    private final long burstNanos;
+
+    private final AtomicLong fullAt;
+
+    public TokenBucket(int capacity, Duration refillPeriod, long nowNanos) {
+        if (capacity < 1 || refillPeriod.isNegative() || refillPeriod.isZero()) {
+            throw new IllegalArgumentException("Invalid bucket of " + capacity + " tokens per " + refillPeriod);
+        }
+        this.nanosPerToken = Math.max(1, refillPeriod.toNanos() / capacity);
+        this.burstNanos = nanosPerToken * capacity;
+        this.fullAt = new AtomicLong(nowNanos);
+    }
+
+    /**
+     * Take a token, unless the bucket is empty.
+     *
+     * @param nowNanos the current {@link System#nanoTime()}.
+     * @return {@code 0} when a token was taken, or else the time to wait for the next token, in nanoseconds.
+     */
+    public long tryConsume(long nowNanos) {
+        while (true) {
+            long current = fullAt.get();
+            // Time until the bucket is full again once this token is taken
+            long next = Math.max(current - nowNanos, 0) + nanosPerToken;
+            if (next > burstNanos) {
+                return next - burstNanos;
+            }
+            if (fullAt.compareAndSet(current, nowNanos + next)) {
+                return 0;
+            }
+        }
+    }
+
+    /**
+     * Give back a token taken by {@link #tryConsume(long)}.
+     */
+    public void refund() {
+        fullAt.addAndGet(-nanosPerToken);
+    }
+
+    /**
+     * @param nowNanos the current {@link System#nanoTime()}.
+     * @return whether no token is taken, like in a new bucket.
+     */
+    public boolean isFull(long nowNanos) {
+        return fullAt.get() <= nowNanos;
+    }
+}
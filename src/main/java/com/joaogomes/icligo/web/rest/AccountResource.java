@@ -1,9 +1,9 @@
 package com.joaogomes.icligo.web.rest;
 
-import com.joaogomes.icligo.domain.PersistentToken;
 import com.joaogomes.icligo.domain.User;
 import com.joaogomes.icligo.repository.PersistentTokenRepository;
 import com.joaogomes.icligo.repository.UserRepository;
+import com.joaogomes.icligo.security.PersistentTokenRememberMeServices;
 import com.joaogomes.icligo.security.SecurityUtils;
 import com.joaogomes.icligo.service.MailService;
 import com.joaogomes.icligo.service.UserService;
@@ -48,16 +48,20 @@ public class AccountResource {
 
     private final PersistentTokenRepository persistentTokenRepository;
 
+    private final PersistentTokenRememberMeServices rememberMeServices;
+
     public AccountResource(
         UserRepository userRepository,
         UserService userService,
         MailService mailService,
-        PersistentTokenRepository persistentTokenRepository
+        PersistentTokenRepository persistentTokenRepository,
+        PersistentTokenRememberMeServices rememberMeServices
     ) {
         this.userRepository = userRepository;
         this.userService = userService;
         this.mailService = mailService;
         this.persistentTokenRepository = persistentTokenRepository;
+        this.rememberMeServices = rememberMeServices;
     }
 
     /**
@@ -167,13 +171,9 @@ public class AccountResource {
      * @throws RuntimeException {@code 500 (Internal Server Error)} if the current open sessions couldn't be retrieved.
      */
     @GetMapping("/account/sessions")
-    public List<PersistentToken> getCurrentSessions() {
-        return persistentTokenRepository.findByUser(
-            userRepository
-                .findOneByLogin(
-                    SecurityUtils.getCurrentUserLogin().orElseThrow(() -> new AccountResourceException("Current user login not found"))
-                )
-                .orElseThrow(() -> new AccountResourceException("User could not be found"))
+    public List<PersistentTokenRepository.Session> getCurrentSessions() {
+        return persistentTokenRepository.findSessionsByUserLogin(
+            SecurityUtils.getCurrentUserLogin().orElseThrow(() -> new AccountResourceException("Current user login not found"))
         );
     }
 
@@ -197,15 +197,8 @@ public class AccountResource {
     public void invalidateSession(@PathVariable("series") String series) {
         String decodedSeries = URLDecoder.decode(series, StandardCharsets.UTF_8);
         SecurityUtils.getCurrentUserLogin()
-            .flatMap(userRepository::findOneByLogin)
-            .ifPresent(u ->
-                persistentTokenRepository
-                    .findByUser(u)
-                    .stream()
-                    .filter(persistentToken -> StringUtils.equals(persistentToken.getSeries(), decodedSeries))
-                    .findAny()
-                    .ifPresent(t -> persistentTokenRepository.deleteById(decodedSeries))
-            );
+            .filter(login -> persistentTokenRepository.deleteBySeriesAndUserLogin(decodedSeries, login))
+            .ifPresent(login -> rememberMeServices.evictUpgradedToken(decodedSeries));
     }
 
     /**
@@ -2,21 +2,44 @@ package com.joaogomes.icligo.web.rest;
 
 import com.joaogomes.icligo.domain.Car;
 import com.joaogomes.icligo.repository.CarRepository;
+import com.joaogomes.icligo.repository.TableVersionRepository;
+import com.joaogomes.icligo.security.AuthoritiesConstants;
+import com.joaogomes.icligo.service.CarAvailabilityIndex;
+import com.joaogomes.icligo.service.CarBulkService;
+import com.joaogomes.icligo.service.CarQueryService;
+import com.joaogomes.icligo.service.InvalidCarImportException;
+import com.joaogomes.icligo.service.criteria.CarCriteria;
 import com.joaogomes.icligo.web.rest.errors.BadRequestAlertException;
+import com.joaogomes.icligo.web.rest.util.CursorPaginationUtil;
+import com.joaogomes.icligo.web.rest.util.ETagUtil;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
 import java.net.URI;
 import java.net.URISyntaxException;
+import java.nio.charset.StandardCharsets;
 import java.util.List;
 import java.util.Objects;
 import java.util.Optional;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.OptimisticLockingFailureException;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Window;
+import org.springframework.http.ContentDisposition;
 import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
+import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.transaction.annotation.Propagation;
 import org.springframework.transaction.annotation.Transactional;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.server.ResponseStatusException;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 import org.springframework.web.servlet.support.ServletUriComponentsBuilder;
 import tech.jhipster.web.util.HeaderUtil;
 import tech.jhipster.web.util.PaginationUtil;
@@ -34,13 +57,33 @@ public class CarResource {
 
     private static final String ENTITY_NAME = "car";
 
+    private static final String TEXT_CSV_VALUE = "text/csv";
+
     @Value("${jhipster.clientApp.name}")
     private String applicationName;
 
     private final CarRepository carRepository;
 
-    public CarResource(CarRepository carRepository) {
+    private final CarQueryService carQueryService;
+
+    private final CarBulkService carBulkService;
+
+    private final TableVersionRepository tableVersionRepository;
+
+    private final CarAvailabilityIndex carAvailabilityIndex;
+
+    public CarResource(
+        CarRepository carRepository,
+        CarQueryService carQueryService,
+        CarBulkService carBulkService,
+        TableVersionRepository tableVersionRepository,
+        CarAvailabilityIndex carAvailabilityIndex
+    ) {
         this.carRepository = carRepository;
+        this.carQueryService = carQueryService;
+        this.carBulkService = carBulkService;
+        this.tableVersionRepository = tableVersionRepository;
+        this.carAvailabilityIndex = carAvailabilityIndex;
     }
 
     /**
@@ -57,18 +100,67 @@ public class CarResource {
             throw new BadRequestAlertException("A new car cannot already have an ID", ENTITY_NAME, "idexists");
         }
         car = carRepository.save(car);
+        carAvailabilityIndex.update(car);
         return ResponseEntity.created(new URI("/api/cars/" + car.getId()))
             .headers(HeaderUtil.createEntityCreationAlert(applicationName, true, ENTITY_NAME, car.getId().toString()))
             .body(car);
     }
 
+    /**
+     * {@code POST  /cars/bulk} : Create cars in bulk from a CSV stream, in the format of the Liquibase fake data.
+     *
+     * @param body the CSV, with a header line.
+     * @return the {@link ResponseEntity} with status {@code 200 (OK)} and with body the number of cars created,
+     * or with status {@code 400 (Bad Request)} if a record is invalid, in which case no car is created.
+     * @throws IOException if the request body cannot be read.
+     */
+    @PostMapping(value = "/bulk", consumes = TEXT_CSV_VALUE)
+    public ResponseEntity<Long> importCarsCsv(InputStream body) throws IOException {
+        LOG.debug("REST request to import Cars from CSV");
+        try {
+            return importedCars(carBulkService.importCsv(new InputStreamReader(body, StandardCharsets.UTF_8)));
+        } catch (InvalidCarImportException e) {
+            throw new BadRequestAlertException(e.getMessage(), ENTITY_NAME, "importinvalid");
+        }
+    }
+
+    /**
+     * {@code POST  /cars/bulk} : Create cars in bulk from a newline-delimited JSON stream.
+     *
+     * @param body the cars, one JSON object per line.
+     * @return the {@link ResponseEntity} with status {@code 200 (OK)} and with body the number of cars created,
+     * or with status {@code 400 (Bad Request)} if a line is invalid, in which case no car is created.
+     * @throws IOException if the request body cannot be read.
+     */
+    @PostMapping(value = "/bulk", consumes = MediaType.APPLICATION_NDJSON_VALUE)
+    public ResponseEntity<Long> importCarsNdjson(InputStream body) throws IOException {
+        LOG.debug("REST request to import Cars from NDJSON");
+        try {
+            return importedCars(carBulkService.importNdjson(new InputStreamReader(body, StandardCharsets.UTF_8)));
+        } catch (InvalidCarImportException e) {
+            throw new BadRequestAlertException(e.getMessage(), ENTITY_NAME, "importinvalid");
+        }
+    }
+
+    private ResponseEntity<Long> importedCars(long count) {
+        carAvailabilityIndex.rebuildAfterCommit();
+        return ResponseEntity.ok()
+            .headers(HeaderUtil.createAlert(applicationName, applicationName + "." + ENTITY_NAME + ".imported", String.valueOf(count)))
+            .body(count);
+    }
+
     /**
      * {@code PUT  /cars/:id} : Updates an existing car.
+     * <p>
+     * The car is updated in a single statement. When it has a version, the update is rejected if the car was updated
+     * since that version was read.
      *
      * @param id the id of the car to save.
      * @param car the car to update.
      * @return the {@link ResponseEntity} with status {@code 200 (OK)} and with body the updated car,
      * or with status {@code 400 (Bad Request)} if the car is not valid,
+     * or with status {@code 404 (Not Found)} if the car is not found,
+     * or with status {@code 409 (Conflict)} if the car was updated since its version was read,
      * or with status {@code 500 (Internal Server Error)} if the car couldn't be updated.
      * @throws URISyntaxException if the Location URI syntax is incorrect.
      */
@@ -83,24 +175,28 @@ public class CarResource {
             throw new BadRequestAlertException("Invalid ID", ENTITY_NAME, "idinvalid");
         }
 
-        if (!carRepository.existsById(id)) {
-            throw new BadRequestAlertException("Entity not found", ENTITY_NAME, "idnotfound");
+        boolean versioned = car.getVersion() != null;
+        if (carRepository.update(car) == 0) {
+            throw notFoundOrConflict(car);
         }
-
-        car = carRepository.save(car);
-        return ResponseEntity.ok()
-            .headers(HeaderUtil.createEntityUpdateAlert(applicationName, true, ENTITY_NAME, car.getId().toString()))
-            .body(car);
+        // Without a version, the new one is only known from the database
+        Optional<Car> result = versioned ? Optional.of(car) : carRepository.findById(id);
+        result.ifPresent(carAvailabilityIndex::update);
+        return ResponseUtil.wrapOrNotFound(result, HeaderUtil.createEntityUpdateAlert(applicationName, true, ENTITY_NAME, id.toString()));
     }
 
     /**
      * {@code PATCH  /cars/:id} : Partial updates given fields of an existing car, field will ignore if it is null
+     * <p>
+     * The given fields are updated in a single statement, and the car is then read back. When a version is given, the
+     * update is rejected if the car was updated since that version was read.
      *
      * @param id the id of the car to save.
      * @param car the car to update.
      * @return the {@link ResponseEntity} with status {@code 200 (OK)} and with body the updated car,
      * or with status {@code 400 (Bad Request)} if the car is not valid,
      * or with status {@code 404 (Not Found)} if the car is not found,
+     * or with status {@code 409 (Conflict)} if the car was updated since its version was read,
      * or with status {@code 500 (Internal Server Error)} if the car couldn't be updated.
      * @throws URISyntaxException if the Location URI syntax is incorrect.
      */
@@ -115,61 +211,178 @@ public class CarResource {
             throw new BadRequestAlertException("Invalid ID", ENTITY_NAME, "idinvalid");
         }
 
-        if (!carRepository.existsById(id)) {
-            throw new BadRequestAlertException("Entity not found", ENTITY_NAME, "idnotfound");
+        if (carRepository.partialUpdate(car) == 0) {
+            throw notFoundOrConflict(car);
         }
-
-        Optional<Car> result = carRepository
-            .findById(car.getId())
-            .map(existingCar -> {
-                if (car.getModel() != null) {
-                    existingCar.setModel(car.getModel());
-                }
-                if (car.getBrand() != null) {
-                    existingCar.setBrand(car.getBrand());
-                }
-                if (car.getCyear() != null) {
-                    existingCar.setCyear(car.getCyear());
-                }
-                if (car.getAvailable() != null) {
-                    existingCar.setAvailable(car.getAvailable());
-                }
-
-                return existingCar;
-            })
-            .map(carRepository::save);
-
+        Optional<Car> result = carRepository.findById(id);
+        result.ifPresent(carAvailabilityIndex::update);
         return ResponseUtil.wrapOrNotFound(
             result,
             HeaderUtil.createEntityUpdateAlert(applicationName, true, ENTITY_NAME, car.getId().toString())
         );
     }
 
+    /**
+     * Tells apart why a car was not updated, only once the update failed.
+     */
+    private RuntimeException notFoundOrConflict(Car car) {
+        if (car.getVersion() != null && carRepository.existsById(car.getId())) {
+            return new OptimisticLockingFailureException("Car " + car.getId() + " was updated since version " + car.getVersion());
+        }
+        return new ResponseStatusException(HttpStatus.NOT_FOUND);
+    }
+
     /**
      * {@code GET  /cars} : get all the cars.
+     * <p>
+     * With an {@code after} parameter the cars are returned in cursor mode, see {@link CursorPaginationUtil}.
+     * <p>
+     * The ETag of the list is the change counter of the {@code car} table, see {@link ETagUtil}.
      *
      * @param pageable the pagination information.
-     * @return the {@link ResponseEntity} with status {@code 200 (OK)} and the list of cars in body.
+     * @param criteria the criteria which the requested entities should match.
+     * @param after the cursor returned with the previous page, empty for the first page of cursor mode.
+     * @param ifNoneMatch the ETag of the list already known by the client.
+     * @return the {@link ResponseEntity} with status {@code 200 (OK)} and the list of cars in body,
+     * or with status {@code 304 (Not Modified)} if no car changed since the given ETag.
      */
     @GetMapping("")
-    public ResponseEntity<List<Car>> getAllCars(@org.springdoc.core.annotations.ParameterObject Pageable pageable) {
-        LOG.debug("REST request to get a page of Cars");
-        Page<Car> page = carRepository.findAll(pageable);
+    public ResponseEntity<List<Car>> getAllCars(
+        CarCriteria criteria,
+        @org.springdoc.core.annotations.ParameterObject Pageable pageable,
+        @RequestParam(name = CursorPaginationUtil.AFTER_PARAMETER, required = false) String after,
+        @RequestHeader(name = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch
+    ) {
+        String eTag = ETagUtil.eTag(tableVersionRepository.getVersion(TableVersionRepository.CAR));
+        if (ETagUtil.matches(ifNoneMatch, eTag)) {
+            return ETagUtil.notModified(eTag);
+        }
+        if (after != null) {
+            return getCarsAfter(criteria, pageable, after, eTag);
+        }
+        LOG.debug("REST request to get Cars by criteria: {}", criteria);
+
+        Page<Car> page = carQueryService.findByCriteria(criteria, pageable);
         HttpHeaders headers = PaginationUtil.generatePaginationHttpHeaders(ServletUriComponentsBuilder.fromCurrentRequest(), page);
-        return ResponseEntity.ok().headers(headers).body(page.getContent());
+        return ResponseEntity.ok().headers(ETagUtil.withETag(headers, eTag)).body(page.getContent());
+    }
+
+    /**
+     * {@code GET  /cars} : get all the cars as newline-delimited JSON, when requested with
+     * {@code Accept: application/x-ndjson}.
+     * <p>
+     * The cars are sorted by id and written while they are read from a forward-only cursor, so that memory does not grow
+     * with their number: there is no page, and the sort parameter is ignored.
+     *
+     * @param criteria the criteria which the requested entities should match.
+     * @return the {@link ResponseEntity} with status {@code 200 (OK)} and the cars in body.
+     */
+    @GetMapping(value = "", produces = MediaType.APPLICATION_NDJSON_VALUE)
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
+    public ResponseEntity<StreamingResponseBody> streamAllCars(CarCriteria criteria) {
+        LOG.debug("REST request to stream Cars by criteria: {}", criteria);
+        return ResponseEntity.ok()
+            .contentType(MediaType.APPLICATION_NDJSON)
+            .body(out -> carBulkService.exportNdjson(criteria, new OutputStreamWriter(out, StandardCharsets.UTF_8)));
+    }
+
+    private ResponseEntity<List<Car>> getCarsAfter(CarCriteria criteria, Pageable pageable, String after, String eTag) {
+        LOG.debug("REST request to get Cars by criteria: {} after cursor: {}", criteria, after);
+        if (!CursorPaginationUtil.isSeekable(pageable.getSort())) {
+            throw new BadRequestAlertException("Cursor pagination can only be sorted by id", ENTITY_NAME, "cursorsortinvalid");
+        }
+
+        Window<Car> window = carQueryService.findByCriteria(
+            criteria,
+            CursorPaginationUtil.decodeCursor(after, ENTITY_NAME),
+            CursorPaginationUtil.seekSort(pageable.getSort()),
+            pageable.getPageSize()
+        );
+        HttpHeaders headers = CursorPaginationUtil.generateCursorHttpHeaders(
+            ServletUriComponentsBuilder.fromCurrentRequest(),
+            window,
+            Car::getId
+        );
+        return ResponseEntity.ok().headers(ETagUtil.withETag(headers, eTag)).body(window.getContent());
+    }
+
+    /**
+     * {@code GET  /cars/count} : count all the cars.
+     *
+     * @param criteria the criteria which the requested entities should match.
+     * @param ifNoneMatch the ETag of the count already known by the client.
+     * @return the {@link ResponseEntity} with status {@code 200 (OK)} and the count in body,
+     * or with status {@code 304 (Not Modified)} if no car changed since the given ETag.
+     */
+    @GetMapping("/count")
+    public ResponseEntity<Long> countCars(
+        CarCriteria criteria,
+        @RequestHeader(name = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch
+    ) {
+        LOG.debug("REST request to count Cars by criteria: {}", criteria);
+        String eTag = ETagUtil.eTag(tableVersionRepository.getVersion(TableVersionRepository.CAR));
+        if (ETagUtil.matches(ifNoneMatch, eTag)) {
+            return ETagUtil.notModified(eTag);
+        }
+        return ResponseEntity.ok().headers(ETagUtil.withETag(new HttpHeaders(), eTag)).body(carQueryService.countByCriteria(criteria));
+    }
+
+    /**
+     * {@code GET  /cars/bulk} : export all the cars as CSV, written while they are read from the database.
+     *
+     * @return the {@link ResponseEntity} with status {@code 200 (OK)} and the cars in body.
+     */
+    @GetMapping(value = "/bulk", produces = TEXT_CSV_VALUE)
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
+    public ResponseEntity<StreamingResponseBody> exportCarsCsv() {
+        LOG.debug("REST request to export Cars to CSV");
+        return ResponseEntity.ok()
+            .contentType(MediaType.parseMediaType(TEXT_CSV_VALUE))
+            .header(HttpHeaders.CONTENT_DISPOSITION, ContentDisposition.attachment().filename("cars.csv").build().toString())
+            .body(out -> carBulkService.exportCsv(new OutputStreamWriter(out, StandardCharsets.UTF_8)));
+    }
+
+    /**
+     * {@code GET  /cars/bulk} : export all the cars as newline-delimited JSON, written while they are read from the database.
+     *
+     * @return the {@link ResponseEntity} with status {@code 200 (OK)} and the cars in body.
+     */
+    @GetMapping(value = "/bulk", produces = MediaType.APPLICATION_NDJSON_VALUE)
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
+    public ResponseEntity<StreamingResponseBody> exportCarsNdjson() {
+        LOG.debug("REST request to export Cars to NDJSON");
+        return ResponseEntity.ok()
+            .contentType(MediaType.APPLICATION_NDJSON)
+            .body(out -> carBulkService.exportNdjson(new OutputStreamWriter(out, StandardCharsets.UTF_8)));
     }
 
     /**
      * {@code GET  /cars/:id} : get the "id" car.
+     * <p>
+     * The ETag of the car is its version. When the client sends one, the version is checked before loading the car.
      *
      * @param id the id of the car to retrieve.
-     * @return the {@link ResponseEntity} with status {@code 200 (OK)} and with body the car, or with status {@code 404 (Not Found)}.
+     * @param ifNoneMatch the ETag of the car already known by the client.
+     * @return the {@link ResponseEntity} with status {@code 200 (OK)} and with body the car,
+     * or with status {@code 304 (Not Modified)} if the car did not change since the given ETag,
+     * or with status {@code 404 (Not Found)}.
      */
     @GetMapping("/{id}")
-    public ResponseEntity<Car> getCar(@PathVariable("id") Long id) {
+    public ResponseEntity<Car> getCar(
+        @PathVariable("id") Long id,
+        @RequestHeader(name = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch
+    ) {
         LOG.debug("REST request to get Car : {}", id);
+        if (ifNoneMatch != null) {
+            Optional<String> eTag = carRepository.findVersionById(id).map(ETagUtil::eTag);
+            if (eTag.isPresent() && ETagUtil.matches(ifNoneMatch, eTag.orElseThrow())) {
+                return ETagUtil.notModified(eTag.orElseThrow());
+            }
+        }
         Optional<Car> car = carRepository.findById(id);
-        return ResponseUtil.wrapOrNotFound(car);
+        return car
+            .map(response -> ResponseEntity.ok().headers(ETagUtil.withETag(new HttpHeaders(), ETagUtil.eTag(response.getVersion()))).body(response))
+            .orElseThrow(() -> new ResponseStatusException(HttpStatus.NOT_FOUND));
     }
 
     /**
@@ -182,8 +395,35 @@ public class CarResource {
     public ResponseEntity<Void> deleteCar(@PathVariable("id") Long id) {
         LOG.debug("REST request to delete Car : {}", id);
         carRepository.deleteById(id);
+        carAvailabilityIndex.remove(id);
         return ResponseEntity.noContent()
             .headers(HeaderUtil.createEntityDeletionAlert(applicationName, true, ENTITY_NAME, id.toString()))
             .build();
     }
+
+    /**
+     * {@code POST  /cars/availability-index/rebuild} : reload the index of the available cars from the database.
+     *
+     * @return the {@link ResponseEntity} with status {@code 200 (OK)} and with body the number of available cars indexed.
+     */
+    @PostMapping("/availability-index/rebuild")
+    @PreAuthorize("hasAuthority(\"" + AuthoritiesConstants.ADMIN + "\")")
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
+    public ResponseEntity<Long> rebuildAvailabilityIndex() {
+        LOG.debug("REST request to rebuild the car availability index");
+        return ResponseEntity.ok(carAvailabilityIndex.rebuild());
+    }
+
+    /**
+     * {@code GET  /cars/availability-index/check} : compare the index of the available cars with the database.
+     *
+     * @return the {@link ResponseEntity} with status {@code 200 (OK)} and with body the result of the comparison.
+     */
+    @GetMapping("/availability-index/check")
+    @PreAuthorize("hasAuthority(\"" + AuthoritiesConstants.ADMIN + "\")")
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
+    public ResponseEntity<CarAvailabilityIndex.Check> checkAvailabilityIndex() {
+        LOG.debug("REST request to check the car availability index");
+        return ResponseEntity.ok(carAvailabilityIndex.check());
+    }
 }
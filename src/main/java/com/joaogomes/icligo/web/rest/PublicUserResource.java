@@ -2,12 +2,14 @@ package com.joaogomes.icligo.web.rest;
 
 import com.joaogomes.icligo.service.UserService;
 import com.joaogomes.icligo.service.dto.UserDTO;
+import com.joaogomes.icligo.web.rest.util.CursorPaginationUtil;
 import java.util.*;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.domain.Sort;
+import org.springframework.data.domain.Window;
 import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
@@ -33,12 +35,21 @@ public class PublicUserResource {
 
     /**
      * {@code GET /users} : get all users with only public information - calling this method is allowed for anyone.
+     * <p>
+     * With an {@code after} parameter the users are returned in cursor mode, see {@link CursorPaginationUtil}.
      *
      * @param pageable the pagination information.
+     * @param after the cursor returned with the previous page, empty for the first page of cursor mode.
      * @return the {@link ResponseEntity} with status {@code 200 (OK)} and with body all users.
      */
     @GetMapping("/users")
-    public ResponseEntity<List<UserDTO>> getAllPublicUsers(@org.springdoc.core.annotations.ParameterObject Pageable pageable) {
+    public ResponseEntity<List<UserDTO>> getAllPublicUsers(
+        @org.springdoc.core.annotations.ParameterObject Pageable pageable,
+        @RequestParam(name = CursorPaginationUtil.AFTER_PARAMETER, required = false) String after
+    ) {
+        if (after != null) {
+            return getPublicUsersAfter(pageable, after);
+        }
         LOG.debug("REST request to get all public User names");
         if (!onlyContainsAllowedProperties(pageable)) {
             return ResponseEntity.badRequest().build();
@@ -49,6 +60,25 @@ public class PublicUserResource {
         return new ResponseEntity<>(page.getContent(), headers, HttpStatus.OK);
     }
 
+    private ResponseEntity<List<UserDTO>> getPublicUsersAfter(Pageable pageable, String after) {
+        LOG.debug("REST request to get all public User names after cursor: {}", after);
+        if (!CursorPaginationUtil.isSeekable(pageable.getSort())) {
+            return ResponseEntity.badRequest().build();
+        }
+
+        final Window<UserDTO> window = userService.getAllPublicUsers(
+            CursorPaginationUtil.decodeCursor(after, "userManagement"),
+            CursorPaginationUtil.seekSort(pageable.getSort()),
+            pageable.getPageSize()
+        );
+        HttpHeaders headers = CursorPaginationUtil.generateCursorHttpHeaders(
+            ServletUriComponentsBuilder.fromCurrentRequest(),
+            window,
+            UserDTO::getId
+        );
+        return new ResponseEntity<>(window.getContent(), headers, HttpStatus.OK);
+    }
+
     private boolean onlyContainsAllowedProperties(Pageable pageable) {
         return pageable.getSort().stream().map(Sort.Order::getProperty).allMatch(ALLOWED_ORDERED_PROPERTIES::contains);
     }
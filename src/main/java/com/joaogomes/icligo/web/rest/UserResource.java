@@ -2,6 +2,7 @@ package com.joaogomes.icligo.web.rest;
 
 import com.joaogomes.icligo.config.Constants;
 import com.joaogomes.icligo.domain.User;
+import com.joaogomes.icligo.repository.TableVersionRepository;
 import com.joaogomes.icligo.repository.UserRepository;
 import com.joaogomes.icligo.security.AuthoritiesConstants;
 import com.joaogomes.icligo.service.MailService;
@@ -10,10 +11,14 @@ import com.joaogomes.icligo.service.dto.AdminUserDTO;
 import com.joaogomes.icligo.web.rest.errors.BadRequestAlertException;
 import com.joaogomes.icligo.web.rest.errors.EmailAlreadyUsedException;
 import com.joaogomes.icligo.web.rest.errors.LoginAlreadyUsedException;
+import com.joaogomes.icligo.web.rest.util.CursorPaginationUtil;
+import com.joaogomes.icligo.web.rest.util.ETagUtil;
 import jakarta.validation.Valid;
 import jakarta.validation.constraints.Pattern;
+import java.io.OutputStreamWriter;
 import java.net.URI;
 import java.net.URISyntaxException;
+import java.nio.charset.StandardCharsets;
 import java.util.*;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -21,11 +26,15 @@ import org.springframework.beans.factory.annotation.Value;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.domain.Sort;
+import org.springframework.data.domain.Window;
 import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.transaction.annotation.Transactional;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 import org.springframework.web.servlet.support.ServletUriComponentsBuilder;
 import tech.jhipster.web.util.HeaderUtil;
 import tech.jhipster.web.util.PaginationUtil;
@@ -86,10 +95,18 @@ public class UserResource {
 
     private final MailService mailService;
 
-    public UserResource(UserService userService, UserRepository userRepository, MailService mailService) {
+    private final TableVersionRepository tableVersionRepository;
+
+    public UserResource(
+        UserService userService,
+        UserRepository userRepository,
+        MailService mailService,
+        TableVersionRepository tableVersionRepository
+    ) {
         this.userService = userService;
         this.userRepository = userRepository;
         this.mailService = mailService;
+        this.tableVersionRepository = tableVersionRepository;
     }
 
     /**
@@ -158,13 +175,33 @@ public class UserResource {
 
     /**
      * {@code GET /admin/users} : get all users with all the details - calling this are only allowed for the administrators.
+     * <p>
+     * With an {@code after} parameter the users are returned in cursor mode, see {@link CursorPaginationUtil}.
+     * <p>
+     * The ETag of the list is the change counter of the {@code jhi_user} table, see {@link ETagUtil}. It is read in the
+     * same read-only transaction as the users, so that both come from the same database when it is routed to the replica.
      *
      * @param pageable the pagination information.
-     * @return the {@link ResponseEntity} with status {@code 200 (OK)} and with body all users.
+     * @param after the cursor returned with the previous page, empty for the first page of cursor mode.
+     * @param ifNoneMatch the ETag of the list already known by the client.
+     * @return the {@link ResponseEntity} with status {@code 200 (OK)} and with body all users,
+     * or with status {@code 304 (Not Modified)} if no user changed since the given ETag.
      */
     @GetMapping("/users")
     @PreAuthorize("hasAuthority(\"" + AuthoritiesConstants.ADMIN + "\")")
-    public ResponseEntity<List<AdminUserDTO>> getAllUsers(@org.springdoc.core.annotations.ParameterObject Pageable pageable) {
+    @Transactional(readOnly = true)
+    public ResponseEntity<List<AdminUserDTO>> getAllUsers(
+        @org.springdoc.core.annotations.ParameterObject Pageable pageable,
+        @RequestParam(name = CursorPaginationUtil.AFTER_PARAMETER, required = false) String after,
+        @RequestHeader(name = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch
+    ) {
+        String eTag = ETagUtil.eTag(tableVersionRepository.getVersion(TableVersionRepository.USER));
+        if (ETagUtil.matches(ifNoneMatch, eTag)) {
+            return ETagUtil.notModified(eTag);
+        }
+        if (after != null) {
+            return getUsersAfter(pageable, after, eTag);
+        }
         LOG.debug("REST request to get all User for an admin");
         if (!onlyContainsAllowedProperties(pageable)) {
             return ResponseEntity.badRequest().build();
@@ -172,7 +209,44 @@ public class UserResource {
 
         final Page<AdminUserDTO> page = userService.getAllManagedUsers(pageable);
         HttpHeaders headers = PaginationUtil.generatePaginationHttpHeaders(ServletUriComponentsBuilder.fromCurrentRequest(), page);
-        return new ResponseEntity<>(page.getContent(), headers, HttpStatus.OK);
+        return new ResponseEntity<>(page.getContent(), ETagUtil.withETag(headers, eTag), HttpStatus.OK);
+    }
+
+    private ResponseEntity<List<AdminUserDTO>> getUsersAfter(Pageable pageable, String after, String eTag) {
+        LOG.debug("REST request to get all User for an admin after cursor: {}", after);
+        if (!CursorPaginationUtil.isSeekable(pageable.getSort())) {
+            return ResponseEntity.badRequest().build();
+        }
+
+        final Window<AdminUserDTO> window = userService.getAllManagedUsers(
+            CursorPaginationUtil.decodeCursor(after, "userManagement"),
+            CursorPaginationUtil.seekSort(pageable.getSort()),
+            pageable.getPageSize()
+        );
+        HttpHeaders headers = CursorPaginationUtil.generateCursorHttpHeaders(
+            ServletUriComponentsBuilder.fromCurrentRequest(),
+            window,
+            AdminUserDTO::getId
+        );
+        return new ResponseEntity<>(window.getContent(), ETagUtil.withETag(headers, eTag), HttpStatus.OK);
+    }
+
+    /**
+     * {@code GET /admin/users} : get all users with all the details as newline-delimited JSON, when requested with
+     * {@code Accept: application/x-ndjson} - calling this are only allowed for the administrators.
+     * <p>
+     * The users are sorted by id and written while they are read from a forward-only cursor, so that memory does not grow
+     * with their number: there is no page, and the sort parameter is ignored.
+     *
+     * @return the {@link ResponseEntity} with status {@code 200 (OK)} and with body all users.
+     */
+    @GetMapping(value = "/users", produces = MediaType.APPLICATION_NDJSON_VALUE)
+    @PreAuthorize("hasAuthority(\"" + AuthoritiesConstants.ADMIN + "\")")
+    public ResponseEntity<StreamingResponseBody> streamAllUsers() {
+        LOG.debug("REST request to stream all User for an admin");
+        return ResponseEntity.ok()
+            .contentType(MediaType.APPLICATION_NDJSON)
+            .body(out -> userService.exportManagedUsersNdjson(new OutputStreamWriter(out, StandardCharsets.UTF_8)));
     }
 
     private boolean onlyContainsAllowedProperties(Pageable pageable) {
@@ -181,15 +255,33 @@ public class UserResource {
 
     /**
      * {@code GET /admin/users/:login} : get the "login" user.
+     * <p>
+     * The ETag of the user is the change counter of the {@code jhi_user} table: the {@code last_modified_date} column
+     * only keeps seconds on MySQL, and does not change with the authorities of the user. Like the list, it is read in the
+     * same read-only transaction as the user.
      *
      * @param login the login of the user to find.
-     * @return the {@link ResponseEntity} with status {@code 200 (OK)} and with body the "login" user, or with status {@code 404 (Not Found)}.
+     * @param ifNoneMatch the ETag of the user already known by the client.
+     * @return the {@link ResponseEntity} with status {@code 200 (OK)} and with body the "login" user,
+     * or with status {@code 304 (Not Modified)} if no user changed since the given ETag,
+     * or with status {@code 404 (Not Found)}.
      */
     @GetMapping("/users/{login}")
     @PreAuthorize("hasAuthority(\"" + AuthoritiesConstants.ADMIN + "\")")
-    public ResponseEntity<AdminUserDTO> getUser(@PathVariable("login") @Pattern(regexp = Constants.LOGIN_REGEX) String login) {
+    @Transactional(readOnly = true)
+    public ResponseEntity<AdminUserDTO> getUser(
+        @PathVariable("login") @Pattern(regexp = Constants.LOGIN_REGEX) String login,
+        @RequestHeader(name = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch
+    ) {
         LOG.debug("REST request to get User : {}", login);
-        return ResponseUtil.wrapOrNotFound(userService.getUserWithAuthoritiesByLogin(login).map(AdminUserDTO::new));
+        String eTag = ETagUtil.eTag(tableVersionRepository.getVersion(TableVersionRepository.USER));
+        if (ETagUtil.matches(ifNoneMatch, eTag)) {
+            return ETagUtil.notModified(eTag);
+        }
+        return ResponseUtil.wrapOrNotFound(
+            userService.getUserWithAuthoritiesByLogin(login).map(AdminUserDTO::new),
+            ETagUtil.withETag(new HttpHeaders(), eTag)
+        );
     }
 
     /**
@@ -205,4 +297,20 @@ public class UserResource {
         userService.deleteUser(login);
         return ResponseEntity.noContent().headers(HeaderUtil.createAlert(applicationName, "userManagement.deleted", login)).build();
     }
+
+    /**
+     * {@code DELETE /admin/users/:login/sessions} : revoke all the sessions of the "login" User.
+     *
+     * @param login the login of the user whose sessions are revoked.
+     * @return the {@link ResponseEntity} with status {@code 204 (NO_CONTENT)}.
+     */
+    @DeleteMapping("/users/{login}/sessions")
+    @PreAuthorize("hasAuthority(\"" + AuthoritiesConstants.ADMIN + "\")")
+    public ResponseEntity<Void> revokeSessions(@PathVariable("login") @Pattern(regexp = Constants.LOGIN_REGEX) String login) {
+        LOG.debug("REST request to revoke the sessions of User: {}", login);
+        int revoked = userService.revokeSessions(login);
+        return ResponseEntity.noContent()
+            .headers(HeaderUtil.createAlert(applicationName, "userManagement.sessionsRevoked", String.valueOf(revoked)))
+            .build();
+    }
 }
@@ -0,0 +1,100 @@
+package com.joaogomes.icligo.web.rest.util;
+
+import com.joaogomes.icligo.web.rest.errors.BadRequestAlertException;
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+import org.springframework.data.domain.ScrollPosition;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.domain.Window;
+import org.springframework.http.HttpHeaders;
+import org.springframework.web.util.UriComponentsBuilder;
+
+/**
+ * Utility class for keyset (cursor) pagination.
+ * <p>
+ * Cursor mode is requested with {@code ?after=<cursor>&size=N}, an empty {@code after} asking for the first page. Rows are
+ * read with a seek on the primary key ({@code where id > :last order by id limit N}) instead of an offset, so deep pages
+ * cost the same as the first one, and no count query is issued. When there is a next page, its URL is returned in a
+ * {@code Link} header with {@code rel="next"}. Cursors are opaque to clients.
+ */
+public final class CursorPaginationUtil {
+
+    public static final String AFTER_PARAMETER = "after";
+
+    private static final String ID_PROPERTY = "id";
+
+    private CursorPaginationUtil() {}
+
+    /**
+     * Only the primary key can be seeked on, so cursor mode accepts no sort or a sort on {@code id} alone.
+     *
+     * @param sort the requested sort.
+     * @return {@code true} if the sort can be used in cursor mode.
+     */
+    public static boolean isSeekable(Sort sort) {
+        return sort.stream().map(Sort.Order::getProperty).allMatch(ID_PROPERTY::equals);
+    }
+
+    /**
+     * Returns the sort used in cursor mode: by {@code id}, in the requested direction or ascending by default.
+     *
+     * @param sort the requested sort, which must be {@link #isSeekable(Sort) seekable}.
+     * @return the sort on the primary key.
+     */
+    public static Sort seekSort(Sort sort) {
+        Sort.Order order = sort.getOrderFor(ID_PROPERTY);
+        return Sort.by(order != null ? order.getDirection() : Sort.Direction.ASC, ID_PROPERTY);
+    }
+
+    /**
+     * Decodes the {@code after} request parameter into a scroll position.
+     *
+     * @param cursor the cursor, blank for the first page.
+     * @param entityName the entity name, used in the error returned for an invalid cursor.
+     * @return the keyset position to scroll from.
+     */
+    public static ScrollPosition decodeCursor(String cursor, String entityName) {
+        if (cursor == null || cursor.isBlank()) {
+            return ScrollPosition.keyset();
+        }
+        try {
+            long id = Long.parseLong(new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.US_ASCII));
+            return ScrollPosition.forward(Map.of(ID_PROPERTY, id));
+        } catch (IllegalArgumentException e) {
+            throw new BadRequestAlertException("Invalid cursor", entityName, "cursorinvalid");
+        }
+    }
+
+    /**
+     * Encodes the primary key of the last element of a page into an opaque cursor.
+     *
+     * @param id the primary key.
+     * @return the cursor.
+     */
+    public static String encodeCursor(Long id) {
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(id.toString().getBytes(StandardCharsets.US_ASCII));
+    }
+
+    /**
+     * Generate the {@code Link} header of a cursor page, which only points to the next page when there is one.
+     *
+     * @param uriBuilder the current request URI.
+     * @param window the page.
+     * @param idExtractor the function returning the primary key of an element.
+     * @param <T> the type of the elements.
+     * @return http header.
+     */
+    public static <T> HttpHeaders generateCursorHttpHeaders(UriComponentsBuilder uriBuilder, Window<T> window, Function<T, Long> idExtractor) {
+        HttpHeaders headers = new HttpHeaders();
+        List<T> content = window.getContent();
+        if (window.hasNext() && !content.isEmpty()) {
+            String cursor = encodeCursor(idExtractor.apply(content.get(content.size() - 1)));
+            String next = uriBuilder.replaceQueryParam(AFTER_PARAMETER, cursor).toUriString();
+            headers.add(HttpHeaders.LINK, "<" + next + ">; rel=\"next\"");
+        }
+        return headers;
+    }
+}
@@ -0,0 +1,75 @@
+package com.joaogomes.icligo.web.rest.util;
+
+import java.util.Arrays;
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+
+/**
+ * Utility class for conditional GETs.
+ * <p>
+ * ETags are weak tags built from a version: the version column of an entity, or the change counter of a table for a
+ * collection (see {@link com.joaogomes.icligo.repository.TableVersionRepository}). Clients polling a resource send its
+ * last ETag in an {@code If-None-Match} header, and get a {@code 304 (Not Modified)} response without a body when the
+ * version did not change, which the resources check before reading the data whenever they can. Responses are marked
+ * {@code Cache-Control: no-cache, private} so that browsers keep them but revalidate them on every use.
+ */
+public final class ETagUtil {
+
+    private static final CacheControl CACHE_CONTROL = CacheControl.noCache().cachePrivate();
+
+    private static final String WEAK_PREFIX = "W/";
+
+    private ETagUtil() {}
+
+    /**
+     * @param version the version of the resource.
+     * @return the ETag of the version.
+     */
+    public static String eTag(Object version) {
+        return WEAK_PREFIX + '"' + version + '"';
+    }
+
+    /**
+     * Tells whether the client already has the given version of the resource. The {@code *} tag is not matched, as it
+     * asks whether the resource exists, which the version alone does not tell.
+     *
+     * @param ifNoneMatch the {@code If-None-Match} request header, may be {@code null}.
+     * @param eTag the ETag of the current version.
+     * @return {@code true} if one of the tags of the header is the given ETag, compared weakly.
+     */
+    public static boolean matches(String ifNoneMatch, String eTag) {
+        if (ifNoneMatch == null) {
+            return false;
+        }
+        String opaqueTag = opaqueTag(eTag);
+        return Arrays.stream(ifNoneMatch.split(",")).map(String::trim).map(ETagUtil::opaqueTag).anyMatch(opaqueTag::equals);
+    }
+
+    /**
+     * Generate the headers of a response with an ETag.
+     *
+     * @param headers the other headers of the response, updated.
+     * @param eTag the ETag of the response.
+     * @return the updated headers.
+     */
+    public static HttpHeaders withETag(HttpHeaders headers, String eTag) {
+        headers.setETag(eTag);
+        headers.setCacheControl(CACHE_CONTROL);
+        return headers;
+    }
+
+    /**
+     * @param eTag the ETag of the current version.
+     * @param <X> type of the response body.
+     * @return a {@code 304 (Not Modified)} response.
+     */
+    public static <X> ResponseEntity<X> notModified(String eTag) {
+        return ResponseEntity.status(HttpStatus.NOT_MODIFIED).headers(withETag(new HttpHeaders(), eTag)).build();
+    }
+
+    private static String opaqueTag(String tag) {
+        return tag.startsWith(WEAK_PREFIX) ? tag.substring(WEAK_PREFIX.length()) : tag;
+    }
+}
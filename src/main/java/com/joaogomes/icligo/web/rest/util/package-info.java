@@ -0,0 +1,4 @@
+/**
+ * Rest layer utilities.
+ */
+package com.joaogomes.icligo.web.rest.util;
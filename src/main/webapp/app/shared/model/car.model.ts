@@ -4,6 +4,7 @@ export interface ICar {
   brand?: string | null;
   cyear?: number | null;
   available?: boolean | null;
+  version?: number | null;
 }
 
 export const defaultValue: Readonly<ICar> = {
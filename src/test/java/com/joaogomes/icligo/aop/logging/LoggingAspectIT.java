@@ -0,0 +1,86 @@
+package com.joaogomes.icligo.aop.logging;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import ch.qos.logback.classic.Level;
+import ch.qos.logback.classic.Logger;
+import com.joaogomes.icligo.IntegrationTest;
+import com.joaogomes.icligo.repository.CarRepository;
+import com.joaogomes.icligo.repository.UserRepository;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.transaction.annotation.Transactional;
+
+/**
+ * Integration tests for the {@link LoggingAspect} on the Spring Data repositories.
+ */
+@IntegrationTest
+@Transactional
+class LoggingAspectIT {
+
+    @Autowired
+    private CarRepository carRepository;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @BeforeEach
+    void setup() {
+        timingLogger().setLevel(Level.INFO);
+    }
+
+    @AfterEach
+    void cleanup() {
+        timingLogger().setLevel(null);
+        timingLogger(CarRepository.class).setLevel(null);
+    }
+
+    @Test
+    void inheritedRepositoryMethodsAreTimedPerRepository() {
+        double carCallsBefore = findByIdCount(CarRepository.class);
+        double userCallsBefore = findByIdCount(UserRepository.class);
+
+        carRepository.findById(Long.MAX_VALUE);
+        carRepository.findById(Long.MAX_VALUE);
+        userRepository.findById(Long.MAX_VALUE);
+
+        assertThat(findByIdCount(CarRepository.class)).isEqualTo(carCallsBefore + 2);
+        assertThat(findByIdCount(UserRepository.class)).isEqualTo(userCallsBefore + 1);
+    }
+
+    @Test
+    void inheritedRepositoryMethodsAreSwitchedOffWithTheirRepository() {
+        carRepository.findById(Long.MAX_VALUE);
+        double carCallsBefore = findByIdCount(CarRepository.class);
+        timingLogger(CarRepository.class).setLevel(Level.WARN);
+
+        carRepository.findById(Long.MAX_VALUE);
+
+        assertThat(findByIdCount(CarRepository.class)).isEqualTo(carCallsBefore);
+    }
+
+    private double findByIdCount(Class<?> repository) {
+        var timer = meterRegistry
+            .find(LoggingAspect.TIMER_NAME)
+            .tag("class", repository.getName())
+            .tag("method", "findById")
+            .tag("exception", "none")
+            .timer();
+        return timer != null ? timer.count() : 0;
+    }
+
+    private static Logger timingLogger() {
+        return (Logger) LoggerFactory.getLogger(LoggingAspect.TIMING_LOGGER_PREFIX.substring(0, LoggingAspect.TIMING_LOGGER_PREFIX.length() - 1));
+    }
+
+    private static Logger timingLogger(Class<?> repository) {
+        return (Logger) LoggerFactory.getLogger(LoggingAspect.TIMING_LOGGER_PREFIX + repository.getName());
+    }
+}
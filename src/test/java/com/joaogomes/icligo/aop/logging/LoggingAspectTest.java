@@ -0,0 +1,111 @@
+package com.joaogomes.icligo.aop.logging;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatNullPointerException;
+
+import ch.qos.logback.classic.Level;
+import ch.qos.logback.classic.Logger;
+import com.joaogomes.icligo.config.ApplicationProperties;
+import com.joaogomes.icligo.domain.User;
+import com.joaogomes.icligo.service.mapper.UserMapper;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.util.List;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.slf4j.LoggerFactory;
+import org.springframework.aop.aspectj.annotation.AspectJProxyFactory;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.mock.env.MockEnvironment;
+
+/**
+ * Unit tests for the {@link LoggingAspect} class.
+ */
+class LoggingAspectTest {
+
+    private static final String TIMING_LOGGER = LoggingAspect.TIMING_LOGGER_PREFIX + "com.joaogomes.icligo.service.mapper";
+
+    private MeterRegistry meterRegistry;
+
+    private LoggingAspect loggingAspect;
+
+    private UserMapper userMapper;
+
+    @BeforeEach
+    public void setup() {
+        meterRegistry = new SimpleMeterRegistry();
+        ApplicationProperties applicationProperties = new ApplicationProperties();
+        applicationProperties.getAop().setMaxArgumentLength(10);
+        loggingAspect = new LoggingAspect(new MockEnvironment(), meterRegistry, applicationProperties);
+        AspectJProxyFactory proxyFactory = new AspectJProxyFactory(new UserMapper());
+        proxyFactory.setProxyTargetClass(true);
+        proxyFactory.addAspect(loggingAspect);
+        userMapper = proxyFactory.getProxy();
+        timingLogger().setLevel(Level.INFO);
+    }
+
+    @AfterEach
+    public void cleanup() {
+        timingLogger().setLevel(null);
+    }
+
+    @Test
+    void shouldTimeCalls() {
+        User user = new User();
+        user.setLogin("johndoe");
+
+        userMapper.userToUserDTO(user);
+        userMapper.userToUserDTO(user);
+
+        assertThat(timer("none").count()).isEqualTo(2);
+    }
+
+    @Test
+    void shouldTagTimerWithException() {
+        assertThatNullPointerException().isThrownBy(() -> userMapper.userToUserDTO(null));
+        assertThatNullPointerException().isThrownBy(() -> userMapper.userToUserDTO(null));
+
+        assertThat(timer("NullPointerException").count()).isEqualTo(2);
+        assertThat(timer("none").count()).isZero();
+    }
+
+    @Test
+    void shouldNotTimeCallsWhenTimingLoggerIsDisabled() {
+        timingLogger().setLevel(Level.WARN);
+
+        userMapper.userToUserDTO(new User());
+
+        assertThat(timer("none").count()).isZero();
+    }
+
+    @Test
+    void shouldTruncateArguments() {
+        assertThat(loggingAspect.abbreviate("johndoe")).isEqualTo("johndoe");
+        assertThat(loggingAspect.abbreviate("johndoe@localhost")).isEqualTo("johndoe@lo...");
+        assertThat(loggingAspect.abbreviate(null)).isEqualTo("null");
+    }
+
+    @Test
+    void shouldOnlyRenderSizeOfCollections() {
+        LoggingAspect defaultLoggingAspect = new LoggingAspect(new MockEnvironment(), meterRegistry, new ApplicationProperties());
+
+        assertThat(defaultLoggingAspect.abbreviate(List.of(1, 2, 3))).endsWith("[size=3]");
+        assertThat(defaultLoggingAspect.abbreviate(new byte[4])).isEqualTo("byte[4]");
+        assertThat(defaultLoggingAspect.abbreviate(new PageImpl<>(List.of(1, 2)))).isEqualTo("PageImpl[number=0, elements=2]");
+    }
+
+    private Timer timer(String exception) {
+        return meterRegistry
+            .get(LoggingAspect.TIMER_NAME)
+            .tag("class", UserMapper.class.getName())
+            .tag("method", "userToUserDTO")
+            .tag("exception", exception)
+            .timer();
+    }
+
+    private static Logger timingLogger() {
+        return (Logger) LoggerFactory.getLogger(TIMING_LOGGER);
+    }
+}
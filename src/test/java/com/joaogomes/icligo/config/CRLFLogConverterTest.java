@@ -99,6 +99,30 @@ class CRLFLogConverterTest {
         assertEquals("Test_input_string", result);
     }
 
+    @Test
+    void transformShouldReturnTheSameInstanceWhenThereIsNoControlCharacter() {
+        ILoggingEvent event = mock(ILoggingEvent.class);
+        when(event.getLoggerName()).thenReturn("com.mycompany.myapp.example.Logger");
+        String input = "Test input string";
+        CRLFLogConverter converter = new CRLFLogConverter();
+
+        String result = converter.transform(event, input);
+
+        assertSame(input, result);
+    }
+
+    @Test
+    void transformShouldReplaceEachControlCharacterWhenLoggerIsNotSafe() {
+        ILoggingEvent event = mock(ILoggingEvent.class);
+        when(event.getLoggerName()).thenReturn("com.mycompany.myapp.example.Logger");
+        String input = "\r\nTest\tinput\n";
+        CRLFLogConverter converter = new CRLFLogConverter();
+
+        String result = converter.transform(event, input);
+
+        assertEquals("__Test_input_", result);
+    }
+
     @Test
     void isLoggerSafeShouldReturnTrueWhenLoggerNameStartsWithSafeLogger() {
         ILoggingEvent event = mock(ILoggingEvent.class);
@@ -0,0 +1,73 @@
+package com.joaogomes.icligo.config;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatExceptionOfType;
+import static org.mockito.Mockito.*;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.SQLTransientConnectionException;
+import java.time.Duration;
+import javax.sql.DataSource;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.datasource.ConnectionProxy;
+
+/**
+ * Unit tests for the {@link ConnectionPermitDataSource} class.
+ */
+class ConnectionPermitDataSourceTest {
+
+    private DataSource targetDataSource;
+
+    private ConnectionPermitDataSource connectionPermitDataSource;
+
+    @BeforeEach
+    public void setup() throws SQLException {
+        targetDataSource = mock(DataSource.class);
+        when(targetDataSource.getConnection()).thenAnswer(invocation -> mock(Connection.class));
+        connectionPermitDataSource = new ConnectionPermitDataSource(targetDataSource, 2, Duration.ofMillis(50));
+    }
+
+    @Test
+    void shouldReleasePermitWhenConnectionIsClosed() throws SQLException {
+        Connection connection = connectionPermitDataSource.getConnection();
+        assertThat(connectionPermitDataSource.getAvailablePermits()).isEqualTo(1);
+
+        Connection target = ((ConnectionProxy) connection).getTargetConnection();
+        connection.close();
+        connection.close();
+
+        verify(target, times(2)).close();
+        assertThat(connectionPermitDataSource.getAvailablePermits()).isEqualTo(2);
+    }
+
+    @Test
+    void shouldTimeOutWhenAllPermitsAreTaken() throws SQLException {
+        connectionPermitDataSource.getConnection();
+        Connection connection = connectionPermitDataSource.getConnection();
+
+        assertThatExceptionOfType(SQLTransientConnectionException.class).isThrownBy(() -> connectionPermitDataSource.getConnection());
+
+        connection.close();
+        assertThat(connectionPermitDataSource.getConnection()).isNotNull();
+    }
+
+    @Test
+    void shouldReleasePermitWhenPoolFails() throws SQLException {
+        when(targetDataSource.getConnection()).thenThrow(new SQLTransientConnectionException("pool timeout"));
+
+        assertThatExceptionOfType(SQLException.class).isThrownBy(() -> connectionPermitDataSource.getConnection());
+
+        assertThat(connectionPermitDataSource.getAvailablePermits()).isEqualTo(2);
+    }
+
+    @Test
+    void shouldDelegateToTargetConnection() throws SQLException {
+        Connection connection = connectionPermitDataSource.getConnection();
+        connection.setAutoCommit(false);
+
+        verify(((ConnectionProxy) connection).getTargetConnection()).setAutoCommit(false);
+        assertThat(connection).isEqualTo(connection).isNotEqualTo(connectionPermitDataSource.getConnection());
+    }
+}
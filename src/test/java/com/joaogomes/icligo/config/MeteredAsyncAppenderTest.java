@@ -0,0 +1,132 @@
+package com.joaogomes.icligo.config;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import ch.qos.logback.classic.Level;
+import ch.qos.logback.classic.Logger;
+import ch.qos.logback.classic.LoggerContext;
+import ch.qos.logback.classic.spi.ILoggingEvent;
+import ch.qos.logback.classic.spi.LoggingEvent;
+import ch.qos.logback.classic.util.LogbackMDCAdapter;
+import ch.qos.logback.core.AppenderBase;
+import ch.qos.logback.core.read.ListAppender;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+class MeteredAsyncAppenderTest {
+
+    private LoggerContext context;
+
+    private Logger logger;
+
+    private MeteredAsyncAppender asyncAppender;
+
+    @BeforeEach
+    void setUp() {
+        context = new LoggerContext();
+        context.setMDCAdapter(new LogbackMDCAdapter());
+        logger = context.getLogger(MeteredAsyncAppenderTest.class);
+        asyncAppender = new MeteredAsyncAppender();
+        asyncAppender.setContext(context);
+        asyncAppender.setName("ASYNC");
+    }
+
+    @AfterEach
+    void tearDown() {
+        asyncAppender.stop();
+    }
+
+    private LoggingEvent event(String message) {
+        return new LoggingEvent(MeteredAsyncAppenderTest.class.getName(), logger, Level.INFO, message, null, null);
+    }
+
+    @Test
+    void eventsAreWrittenToTheAttachedAppenders() {
+        ListAppender<ILoggingEvent> listAppender = new ListAppender<>();
+        listAppender.start();
+        asyncAppender.addAppender(listAppender);
+        asyncAppender.start();
+
+        asyncAppender.doAppend(event("first"));
+        asyncAppender.doAppend(event("second"));
+        asyncAppender.stop();
+
+        assertThat(listAppender.list).extracting(ILoggingEvent::getMessage).containsExactly("first", "second");
+        assertThat(asyncAppender.getDroppedEvents()).isZero();
+        assertThat(listAppender.isStarted()).isFalse();
+    }
+
+    @Test
+    void eventsAreDroppedAndCountedWhenTheBufferIsFull() throws InterruptedException {
+        BlockedAppender blockedAppender = new BlockedAppender();
+        asyncAppender.addAppender(blockedAppender);
+        asyncAppender.setQueueSize(1);
+        asyncAppender.start();
+
+        asyncAppender.doAppend(event("taken by the worker"));
+        assertThat(blockedAppender.appending.await(5, TimeUnit.SECONDS)).isTrue();
+        asyncAppender.doAppend(event("queued"));
+        asyncAppender.doAppend(event("dropped"));
+        asyncAppender.doAppend(event("dropped too"));
+
+        assertThat(asyncAppender.getDroppedEvents()).isEqualTo(2);
+        assertThat(asyncAppender.getQueuedEvents()).isEqualTo(1);
+        blockedAppender.release.countDown();
+    }
+
+    @Test
+    void blockPolicyWaitsForTheWorker() throws InterruptedException {
+        BlockedAppender blockedAppender = new BlockedAppender();
+        asyncAppender.addAppender(blockedAppender);
+        asyncAppender.setQueueSize(1);
+        asyncAppender.setOverflowPolicy(MeteredAsyncAppender.OverflowPolicy.BLOCK);
+        asyncAppender.start();
+
+        asyncAppender.doAppend(event("taken by the worker"));
+        assertThat(blockedAppender.appending.await(5, TimeUnit.SECONDS)).isTrue();
+        asyncAppender.doAppend(event("queued"));
+        Thread producer = new Thread(() -> asyncAppender.doAppend(event("waiting")));
+        producer.start();
+        producer.join(200);
+        assertThat(producer.isAlive()).isTrue();
+
+        blockedAppender.release.countDown();
+        producer.join(5000);
+        assertThat(producer.isAlive()).isFalse();
+        assertThat(asyncAppender.getDroppedEvents()).isZero();
+    }
+
+    @Test
+    void appenderDoesNotStartWithoutAppenders() {
+        asyncAppender.start();
+
+        assertThat(asyncAppender.isStarted()).isFalse();
+    }
+
+    /**
+     * Appender blocking the worker thread until released.
+     */
+    private static class BlockedAppender extends AppenderBase<ILoggingEvent> {
+
+        private final CountDownLatch appending = new CountDownLatch(1);
+
+        private final CountDownLatch release = new CountDownLatch(1);
+
+        BlockedAppender() {
+            start();
+        }
+
+        @Override
+        protected void append(ILoggingEvent event) {
+            appending.countDown();
+            try {
+                release.await(5, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+}
@@ -0,0 +1,124 @@
+package com.joaogomes.icligo.config;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import com.joaogomes.icligo.IntegrationTest;
+import io.micrometer.core.instrument.MeterRegistry;
+import javax.sql.DataSource;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.support.JdbcTransactionManager;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+/**
+ * Integration tests for {@link ReadReplicaDataSourceConfiguration}, with a second in-memory H2 database standing for the
+ * replica. Its replication lag is read from a table of the test.
+ */
+@IntegrationTest
+@TestPropertySource(
+    properties = {
+        "spring.datasource.replica.url=jdbc:h2:mem:replica;DB_CLOSE_DELAY=-1",
+        "spring.datasource.replica.username=sa",
+        "application.read-replica.lag-query=select lag as seconds_behind_source from replica_status",
+        "application.read-replica.max-lag=10s",
+    }
+)
+class ReadReplicaRoutingIT {
+
+    private static final String DATABASE_NAME_SQL = "select database()";
+
+    @Autowired
+    private DataSource dataSource;
+
+    @Autowired
+    @Qualifier("replicaDataSource")
+    private DataSource replicaDataSource;
+
+    @Autowired
+    private ReplicaLagGuard replicaLagGuard;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    private JdbcTemplate jdbcTemplate;
+
+    private JdbcTemplate replicaJdbcTemplate;
+
+    private String replicaDatabaseName;
+
+    @BeforeEach
+    void setUp() {
+        jdbcTemplate = new JdbcTemplate(dataSource);
+        replicaJdbcTemplate = new JdbcTemplate(replicaDataSource);
+        updateReplica("create table if not exists replica_status (lag int)");
+        updateReplica("delete from replica_status");
+        updateReplica("insert into replica_status (lag) values (0)");
+        replicaDatabaseName = replicaJdbcTemplate.queryForObject(DATABASE_NAME_SQL, String.class);
+    }
+
+    @AfterEach
+    void tearDown() {
+        updateReplica("drop table if exists replica_status");
+        replicaLagGuard.checkLag();
+    }
+
+    /**
+     * The replica pool does not auto-commit, as the application only reads from it.
+     */
+    private void updateReplica(String sql) {
+        new TransactionTemplate(new JdbcTransactionManager(replicaDataSource)).executeWithoutResult(status -> replicaJdbcTemplate.execute(sql)
+        );
+    }
+
+    private String databaseName(boolean readOnly) {
+        TransactionTemplate transactionTemplate = new TransactionTemplate(transactionManager);
+        transactionTemplate.setReadOnly(readOnly);
+        return transactionTemplate.execute(status -> jdbcTemplate.queryForObject(DATABASE_NAME_SQL, String.class));
+    }
+
+    @Test
+    void readOnlyTransactionsGoToTheReplica() {
+        replicaLagGuard.checkLag();
+
+        assertThat(replicaLagGuard.isReplicaUsable()).isTrue();
+        assertThat(databaseName(true)).isEqualTo(replicaDatabaseName);
+        assertThat(databaseName(false)).isNotEqualTo(replicaDatabaseName);
+    }
+
+    @Test
+    void readOnlyTransactionsGoToThePrimaryWhenTheReplicaLags() {
+        updateReplica("update replica_status set lag = 60");
+        replicaLagGuard.checkLag();
+
+        assertThat(replicaLagGuard.isReplicaUsable()).isFalse();
+        assertThat(meterRegistry.get("jdbc.replica.lag").gauge().value()).isEqualTo(60);
+        assertThat(databaseName(true)).isNotEqualTo(replicaDatabaseName);
+    }
+
+    @Test
+    void readOnlyTransactionsGoToThePrimaryWhenTheReplicaIsNotReplicating() {
+        updateReplica("drop table replica_status");
+        replicaLagGuard.checkLag();
+
+        assertThat(replicaLagGuard.isReplicaUsable()).isFalse();
+        assertThat(databaseName(true)).isNotEqualTo(replicaDatabaseName);
+    }
+
+    @Test
+    void eachPoolPublishesItsMetrics() {
+        replicaLagGuard.checkLag();
+        databaseName(true);
+
+        assertThat(meterRegistry.get("hikaricp.connections").tag("pool", "replica").gauge()).isNotNull();
+        assertThat(meterRegistry.find("hikaricp.connections").gauges()).hasSizeGreaterThanOrEqualTo(2);
+    }
+}
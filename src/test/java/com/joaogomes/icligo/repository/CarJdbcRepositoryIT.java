@@ -0,0 +1,61 @@
+package com.joaogomes.icligo.repository;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import com.joaogomes.icligo.IntegrationTest;
+import com.joaogomes.icligo.domain.Car;
+import jakarta.persistence.EntityManagerFactory;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.transaction.support.TransactionTemplate;
+
+/**
+ * Integration tests for the second-level cache of the cars updated by {@link CarJdbcRepository}, which only sees the
+ * committed cars: these tests commit their transactions.
+ */
+@IntegrationTest
+class CarJdbcRepositoryIT {
+
+    @Autowired
+    private CarRepository carRepository;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    private Long carId;
+
+    @AfterEach
+    public void cleanup() {
+        if (carId != null) {
+            carRepository.deleteById(carId);
+        }
+    }
+
+    private boolean isCached(Long id) {
+        return entityManagerFactory.getCache().contains(Car.class, id);
+    }
+
+    @Test
+    void testUpdatedCarIsNotCachedBeforeTheCommit() {
+        carId = carRepository.save(new Car().model("model").brand("brand").cyear(2020).available(true)).getId();
+        carRepository.findById(carId);
+        assertThat(isCached(carId)).isTrue();
+
+        transactionTemplate.executeWithoutResult(status -> {
+            carRepository.partialUpdate(new Car().id(carId).model("updated"));
+            assertThat(isCached(carId)).isFalse();
+
+            // Read back before the commit, like the REST API does
+            assertThat(carRepository.findById(carId)).get().extracting(Car::getModel).isEqualTo("updated");
+            assertThat(isCached(carId)).isFalse();
+        });
+        assertThat(isCached(carId)).isFalse();
+
+        assertThat(carRepository.findById(carId)).get().extracting(Car::getModel).isEqualTo("updated");
+        assertThat(isCached(carId)).isTrue();
+    }
+}
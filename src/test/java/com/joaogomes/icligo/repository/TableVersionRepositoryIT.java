@@ -0,0 +1,131 @@
+package com.joaogomes.icligo.repository;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import com.joaogomes.icligo.IntegrationTest;
+import com.joaogomes.icligo.domain.Car;
+import com.joaogomes.icligo.domain.User;
+import com.joaogomes.icligo.security.AuthoritiesConstants;
+import java.util.ArrayList;
+import java.util.List;
+import org.apache.commons.lang3.RandomStringUtils;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.support.TransactionTemplate;
+
+/**
+ * Integration tests for the change counters of {@link TableVersionRepository}, which are only incremented when the
+ * changes are committed: these tests commit their transactions.
+ */
+@IntegrationTest
+class TableVersionRepositoryIT {
+
+    private static final String IMPORTED_MODEL = "table-version-it";
+
+    @Autowired
+    private TableVersionRepository tableVersionRepository;
+
+    @Autowired
+    private CarRepository carRepository;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private AuthorityRepository authorityRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    private final List<Long> carIds = new ArrayList<>();
+
+    private Long userId;
+
+    private static Car newCar() {
+        return new Car().model("model").brand("brand").cyear(2020).available(true);
+    }
+
+    private static User newUser() {
+        User user = new User();
+        user.setLogin("table-version-it");
+        user.setPassword(RandomStringUtils.insecure().nextAlphanumeric(60));
+        user.setActivated(true);
+        user.setLangKey("en");
+        user.setEmail("table-version-it@localhost");
+        return user;
+    }
+
+    @AfterEach
+    public void cleanup() {
+        transactionTemplate.executeWithoutResult(status -> {
+            carIds.forEach(carRepository::deleteById);
+            if (userId != null) {
+                userRepository.deleteById(userId);
+            }
+            jdbcTemplate.update("delete from car where model = ?", IMPORTED_MODEL);
+        });
+    }
+
+    @Test
+    void testCarChangesIncrementTheCounterOncePerTransaction() {
+        long version = tableVersionRepository.getVersion(TableVersionRepository.CAR);
+
+        transactionTemplate.executeWithoutResult(status -> {
+            carIds.add(carRepository.save(newCar()).getId());
+            carIds.add(carRepository.save(newCar()).getId());
+        });
+        assertThat(tableVersionRepository.getVersion(TableVersionRepository.CAR)).isEqualTo(version + 1);
+
+        transactionTemplate.executeWithoutResult(status -> carRepository.findById(carIds.get(0)).orElseThrow().setModel("updated"));
+        assertThat(tableVersionRepository.getVersion(TableVersionRepository.CAR)).isEqualTo(version + 2);
+    }
+
+    @Test
+    void testRolledBackChangesDoNotIncrementTheCounter() {
+        long version = tableVersionRepository.getVersion(TableVersionRepository.CAR);
+
+        transactionTemplate.executeWithoutResult(status -> {
+            carRepository.saveAndFlush(newCar());
+            status.setRollbackOnly();
+        });
+
+        assertThat(tableVersionRepository.getVersion(TableVersionRepository.CAR)).isEqualTo(version);
+    }
+
+    @Test
+    void testJdbcChangesIncrementTheCounter() {
+        long version = tableVersionRepository.getVersion(TableVersionRepository.CAR);
+
+        transactionTemplate.executeWithoutResult(status -> carRepository.insertAll(List.of(newCar().model(IMPORTED_MODEL)))
+        );
+        assertThat(tableVersionRepository.getVersion(TableVersionRepository.CAR)).isEqualTo(version + 1);
+
+        Car car = carRepository.saveAndFlush(newCar());
+        carIds.add(car.getId());
+        version = tableVersionRepository.getVersion(TableVersionRepository.CAR);
+        transactionTemplate.executeWithoutResult(status -> carRepository.update(car.model("updated")));
+        assertThat(tableVersionRepository.getVersion(TableVersionRepository.CAR)).isEqualTo(version + 1);
+    }
+
+    @Test
+    void testAuthoritiesChangesIncrementTheUserCounter() {
+        User user = newUser();
+        userId = transactionTemplate.execute(status -> userRepository.save(user).getId());
+        long version = tableVersionRepository.getVersion(TableVersionRepository.USER);
+
+        transactionTemplate.executeWithoutResult(status ->
+            userRepository
+                .findById(userId)
+                .orElseThrow()
+                .getAuthorities()
+                .add(authorityRepository.findById(AuthoritiesConstants.USER).orElseThrow())
+        );
+
+        assertThat(tableVersionRepository.getVersion(TableVersionRepository.USER)).isEqualTo(version + 1);
+    }
+}
@@ -7,6 +7,8 @@ import com.joaogomes.icligo.IntegrationTest;
 import com.joaogomes.icligo.domain.User;
 import com.joaogomes.icligo.repository.UserRepository;
 import com.joaogomes.icligo.service.UserService;
+import com.joaogomes.icligo.service.dto.AdminUserDTO;
+import io.micrometer.core.instrument.MeterRegistry;
 import java.util.Locale;
 import org.apache.commons.lang3.RandomStringUtils;
 import org.junit.jupiter.api.AfterEach;
@@ -14,8 +16,14 @@ import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.cache.CacheManager;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.config.annotation.authentication.configuration.AuthenticationConfiguration;
+import org.springframework.security.core.CredentialsContainer;
 import org.springframework.security.core.userdetails.UserDetails;
 import org.springframework.security.core.userdetails.UserDetailsService;
+import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.transaction.annotation.Transactional;
 
 /**
@@ -42,6 +50,18 @@ class DomainUserDetailsServiceIT {
     @Qualifier("userDetailsService")
     private UserDetailsService domainUserDetailsService;
 
+    @Autowired
+    private CacheManager cacheManager;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Autowired
+    private AuthenticationConfiguration authenticationConfiguration;
+
+    @Autowired
+    private PasswordEncoder passwordEncoder;
+
     public User getUserOne() {
         User userOne = new User();
         userOne.setLogin(USER_ONE_LOGIN);
@@ -133,4 +153,79 @@ class DomainUserDetailsServiceIT {
             domainUserDetailsService.loadUserByUsername(USER_THREE_LOGIN)
         );
     }
+
+    @Test
+    void assertThatUserDetailsAreCachedByLoginAndEmail() {
+        domainUserDetailsService.loadUserByUsername(USER_ONE_LOGIN.toUpperCase(Locale.ENGLISH));
+        domainUserDetailsService.loadUserByUsername(USER_ONE_EMAIL.toUpperCase(Locale.ENGLISH));
+
+        assertThat(cacheManager.getCache(DomainUserDetailsService.USER_DETAILS_BY_LOGIN_CACHE).get(USER_ONE_LOGIN)).isNotNull();
+        assertThat(cacheManager.getCache(DomainUserDetailsService.USER_DETAILS_BY_EMAIL_CACHE).get(USER_ONE_EMAIL)).isNotNull();
+        assertThat(meterRegistry.find("cache.gets").tag("cache", DomainUserDetailsService.USER_DETAILS_BY_LOGIN_CACHE).meters()).isNotEmpty();
+    }
+
+    @Test
+    void assertThatCachedUserDetailsKeepTheirCredentials() {
+        UserDetails userDetails = domainUserDetailsService.loadUserByUsername(USER_ONE_LOGIN);
+        String password = userDetails.getPassword();
+        // The authentication manager erases the credentials of the authenticated principal
+        ((CredentialsContainer) userDetails).eraseCredentials();
+
+        assertThat(domainUserDetailsService.loadUserByUsername(USER_ONE_LOGIN).getPassword()).isEqualTo(password);
+    }
+
+    @Test
+    void assertThatUserDetailsCachesAreEvictedOnUpdate() {
+        domainUserDetailsService.loadUserByUsername(USER_ONE_LOGIN);
+        domainUserDetailsService.loadUserByUsername(USER_ONE_EMAIL);
+
+        AdminUserDTO userDTO = new AdminUserDTO(userRepository.findOneByLogin(USER_ONE_LOGIN).orElseThrow());
+        userDTO.setActivated(false);
+        userService.updateUser(userDTO);
+
+        assertThat(cacheManager.getCache(DomainUserDetailsService.USER_DETAILS_BY_LOGIN_CACHE).get(USER_ONE_LOGIN)).isNull();
+        assertThat(cacheManager.getCache(DomainUserDetailsService.USER_DETAILS_BY_EMAIL_CACHE).get(USER_ONE_EMAIL)).isNull();
+        assertThatExceptionOfType(UserNotActivatedException.class).isThrownBy(() ->
+            domainUserDetailsService.loadUserByUsername(USER_ONE_LOGIN)
+        );
+    }
+
+    @Test
+    void assertThatNotActivatedUsersAreNotCached() {
+        assertThatExceptionOfType(UserNotActivatedException.class).isThrownBy(() ->
+            domainUserDetailsService.loadUserByUsername(USER_THREE_LOGIN)
+        );
+
+        assertThat(cacheManager.getCache(DomainUserDetailsService.USER_DETAILS_BY_LOGIN_CACHE).get(USER_THREE_LOGIN)).isNull();
+    }
+
+    @Test
+    void assertThatPasswordHashedWithAnotherCostIsRehashedOnLogin() throws Exception {
+        User user = userRepository.findOneByLogin(USER_ONE_LOGIN).orElseThrow();
+        user.setPassword(new BCryptPasswordEncoder(4).encode("password"));
+        userRepository.saveAndFlush(user);
+        double rehashedBefore = meterRegistry.counter("security.password.rehashed").count();
+
+        authenticationConfiguration
+            .getAuthenticationManager()
+            .authenticate(UsernamePasswordAuthenticationToken.unauthenticated(USER_ONE_LOGIN, "password"));
+
+        String rehashed = userRepository.findOneByLogin(USER_ONE_LOGIN).orElseThrow().getPassword();
+        assertThat(passwordEncoder.upgradeEncoding(rehashed)).isFalse();
+        assertThat(passwordEncoder.matches("password", rehashed)).isTrue();
+        assertThat(meterRegistry.counter("security.password.rehashed").count()).isEqualTo(rehashedBefore + 1);
+    }
+
+    @Test
+    void assertThatUserDetailsCachesAreEvictedOnRehash() {
+        UserDetails userDetails = domainUserDetailsService.loadUserByUsername(USER_ONE_LOGIN);
+        domainUserDetailsService.loadUserByUsername(USER_ONE_EMAIL);
+
+        String rehashed = passwordEncoder.encode("password");
+        ((DomainUserDetailsService) domainUserDetailsService).updatePassword(userDetails, rehashed);
+
+        assertThat(cacheManager.getCache(DomainUserDetailsService.USER_DETAILS_BY_LOGIN_CACHE).get(USER_ONE_LOGIN)).isNull();
+        assertThat(cacheManager.getCache(DomainUserDetailsService.USER_DETAILS_BY_EMAIL_CACHE).get(USER_ONE_EMAIL)).isNull();
+        assertThat(domainUserDetailsService.loadUserByUsername(USER_ONE_LOGIN).getPassword()).isEqualTo(rehashed);
+    }
 }
@@ -0,0 +1,89 @@
+package com.joaogomes.icligo.security;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.*;
+
+import com.joaogomes.icligo.domain.Authority;
+import com.joaogomes.icligo.domain.User;
+import com.joaogomes.icligo.repository.UserRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.util.Optional;
+import java.util.Set;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.cache.CacheManager;
+import org.springframework.cache.concurrent.ConcurrentMapCacheManager;
+
+/**
+ * Test class for the caches of {@link DomainUserDetailsService}.
+ */
+class DomainUserDetailsServiceTest {
+
+    private static final String LOGIN = "user";
+
+    private static final String EMAIL = "user@localhost";
+
+    private UserRepository userRepository;
+
+    private CacheManager cacheManager;
+
+    private DomainUserDetailsService domainUserDetailsService;
+
+    @BeforeEach
+    void setUp() {
+        userRepository = mock(UserRepository.class);
+        cacheManager = new ConcurrentMapCacheManager(
+            UserRepository.USERS_BY_LOGIN_CACHE,
+            UserRepository.USERS_BY_EMAIL_CACHE,
+            DomainUserDetailsService.USER_DETAILS_BY_LOGIN_CACHE,
+            DomainUserDetailsService.USER_DETAILS_BY_EMAIL_CACHE
+        );
+        domainUserDetailsService = new DomainUserDetailsService(userRepository, cacheManager, new SimpleMeterRegistry());
+    }
+
+    private static User user(String password) {
+        User user = new User();
+        user.setLogin(LOGIN);
+        user.setEmail(EMAIL);
+        user.setPassword(password);
+        user.setActivated(true);
+        Authority authority = new Authority();
+        authority.setName(AuthoritiesConstants.USER);
+        user.setAuthorities(Set.of(authority));
+        return user;
+    }
+
+    @Test
+    void usersAreReadOnceThenCached() {
+        when(userRepository.readOneWithAuthoritiesByLogin(LOGIN)).thenReturn(Optional.of(user("hash")));
+
+        domainUserDetailsService.loadUserByUsername(LOGIN);
+        assertThat(domainUserDetailsService.loadUserByUsername(LOGIN).getPassword()).isEqualTo("hash");
+
+        verify(userRepository, times(1)).readOneWithAuthoritiesByLogin(LOGIN);
+        verify(userRepository, never()).findOneWithAuthoritiesByLogin(LOGIN);
+    }
+
+    @Test
+    void evictedUsersAreReadAgain() {
+        when(userRepository.readOneWithAuthoritiesByLogin(LOGIN)).thenReturn(Optional.of(user("old")), Optional.of(user("new")));
+        domainUserDetailsService.loadUserByUsername(LOGIN);
+
+        domainUserDetailsService.evictUser(LOGIN, EMAIL);
+
+        assertThat(domainUserDetailsService.loadUserByUsername(LOGIN).getPassword()).isEqualTo("new");
+    }
+
+    @Test
+    void usersReadDuringAnEvictionAreNotCached() {
+        // The password changes and its commit evicts the user while the old one is being read
+        when(userRepository.readOneWithAuthoritiesByEmailIgnoreCase(EMAIL)).thenAnswer(invocation -> {
+            domainUserDetailsService.evictUser(LOGIN, EMAIL);
+            return Optional.of(user("old"));
+        });
+
+        assertThat(domainUserDetailsService.loadUserByUsername(EMAIL).getPassword()).isEqualTo("old");
+
+        assertThat(cacheManager.getCache(DomainUserDetailsService.USER_DETAILS_BY_EMAIL_CACHE).get(EMAIL)).isNull();
+    }
+}
@@ -0,0 +1,101 @@
+package com.joaogomes.icligo.security;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+import org.springframework.security.crypto.password.PasswordEncoder;
+
+class OffloadedPasswordEncoderTest {
+
+    private MeterRegistry meterRegistry;
+
+    private OffloadedPasswordEncoder passwordEncoder;
+
+    @BeforeEach
+    void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+        passwordEncoder = new OffloadedPasswordEncoder(4, 1, 1, meterRegistry);
+    }
+
+    @AfterEach
+    void tearDown() {
+        passwordEncoder.close();
+    }
+
+    @Test
+    void passwordsAreHashedAndVerifiedOnThePool() {
+        String hash = passwordEncoder.encode("password");
+
+        assertThat(hash).startsWith("$2a$04$");
+        assertThat(passwordEncoder.matches("password", hash)).isTrue();
+        assertThat(passwordEncoder.matches("other", hash)).isFalse();
+        assertThat(passwordEncoder.matches("password", null)).isFalse();
+        // The null hash is not sent to the pool
+        assertThat(meterRegistry.get("executor").tag("name", "passwordHashing").timer().count()).isEqualTo(3);
+    }
+
+    @Test
+    void hashesOfAnotherCostAreUpgraded() {
+        assertThat(passwordEncoder.upgradeEncoding(new BCryptPasswordEncoder(4).encode("password"))).isFalse();
+        assertThat(passwordEncoder.upgradeEncoding(new BCryptPasswordEncoder(5).encode("password"))).isTrue();
+        assertThat(passwordEncoder.upgradeEncoding("$2b$10$" + "a".repeat(53))).isTrue();
+        assertThat(passwordEncoder.upgradeEncoding("not a bcrypt hash")).isFalse();
+        assertThat(passwordEncoder.upgradeEncoding(null)).isFalse();
+    }
+
+    @Test
+    void passwordsAreRejectedOnceTheQueueIsFull() throws Exception {
+        CountDownLatch hashing = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        PasswordEncoder blockedEncoder = new PasswordEncoder() {
+            @Override
+            public String encode(CharSequence rawPassword) {
+                hashing.countDown();
+                try {
+                    release.await(10, TimeUnit.SECONDS);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                return "hash";
+            }
+
+            @Override
+            public boolean matches(CharSequence rawPassword, String encodedPassword) {
+                return true;
+            }
+        };
+        MeterRegistry boundedRegistry = new SimpleMeterRegistry();
+        OffloadedPasswordEncoder boundedEncoder = new OffloadedPasswordEncoder(blockedEncoder, 4, 1, 1, boundedRegistry);
+        ExecutorService callers = Executors.newFixedThreadPool(2);
+        try {
+            Future<String> running = callers.submit(() -> boundedEncoder.encode("running"));
+            assertThat(hashing.await(10, TimeUnit.SECONDS)).isTrue();
+            Future<Boolean> queued = callers.submit(() -> boundedEncoder.matches("queued", "hash"));
+            while (boundedRegistry.get("executor.queued").tag("name", "passwordHashing").gauge().value() < 1) {
+                Thread.onSpinWait();
+            }
+
+            assertThatThrownBy(() -> boundedEncoder.encode("rejected")).isInstanceOf(PasswordHashingRejectedException.class);
+            assertThat(boundedRegistry.counter("security.password.hashing.rejected").count()).isEqualTo(1);
+
+            release.countDown();
+            assertThat(running.get(10, TimeUnit.SECONDS)).isEqualTo("hash");
+            assertThat(queued.get(10, TimeUnit.SECONDS)).isTrue();
+        } finally {
+            release.countDown();
+            callers.shutdownNow();
+            boundedEncoder.close();
+        }
+    }
+}
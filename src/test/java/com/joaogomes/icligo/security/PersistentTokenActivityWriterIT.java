@@ -0,0 +1,86 @@
+package com.joaogomes.icligo.security;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import com.joaogomes.icligo.IntegrationTest;
+import com.joaogomes.icligo.domain.PersistentToken;
+import com.joaogomes.icligo.repository.PersistentTokenRepository;
+import com.joaogomes.icligo.repository.UserRepository;
+import java.time.LocalDate;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+
+/**
+ * Integrations tests for {@link PersistentTokenActivityWriter} and the token updates it relies on.
+ * <p>
+ * Not transactional, as the updates are committed in their own transactions.
+ */
+@IntegrationTest
+class PersistentTokenActivityWriterIT {
+
+    private static final String SERIES = "activity-series";
+
+    private static final String TOKEN_VALUE = "activity-value";
+
+    @Autowired
+    private PersistentTokenRepository persistentTokenRepository;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private PersistentTokenActivityWriter persistentTokenActivityWriter;
+
+    @BeforeEach
+    public void init() {
+        PersistentToken token = new PersistentToken();
+        token.setSeries(SERIES);
+        token.setTokenValue(TOKEN_VALUE);
+        token.setTokenDate(LocalDate.of(2020, 1, 1));
+        token.setIpAddress("127.0.0.1");
+        token.setUserAgent("init");
+        token.setUser(userRepository.findOneByLogin("user").orElseThrow());
+        persistentTokenRepository.saveAndFlush(token);
+    }
+
+    @AfterEach
+    public void cleanup() {
+        persistentTokenRepository.deleteById(SERIES);
+    }
+
+    @Test
+    void assertThatTokenValueIsOnlyUpdatedFromThePresentedValue() {
+        assertThat(persistentTokenRepository.updateTokenValue(SERIES, "stale-value", "other-value")).isFalse();
+        assertThat(persistentTokenRepository.updateTokenValue(SERIES, TOKEN_VALUE, "new-value")).isTrue();
+        assertThat(persistentTokenRepository.updateTokenValue(SERIES, TOKEN_VALUE, "other-value")).isFalse();
+
+        assertThat(persistentTokenRepository.findById(SERIES).orElseThrow().getTokenValue()).isEqualTo("new-value");
+    }
+
+    @Test
+    void assertThatActivityIsCoalescedAndWrittenOnFlush() {
+        persistentTokenActivityWriter.record(activity(LocalDate.of(2024, 1, 1), "10.0.0.1", "first"));
+        persistentTokenActivityWriter.record(activity(LocalDate.of(2024, 1, 2), "10.0.0.2", "second"));
+
+        assertThat(persistentTokenRepository.findById(SERIES).orElseThrow().getUserAgent()).isEqualTo("init");
+
+        persistentTokenActivityWriter.flush();
+
+        PersistentToken token = persistentTokenRepository.findById(SERIES).orElseThrow();
+        assertThat(token.getTokenDate()).isEqualTo(LocalDate.of(2024, 1, 2));
+        assertThat(token.getIpAddress()).isEqualTo("10.0.0.2");
+        assertThat(token.getUserAgent()).isEqualTo("second");
+        assertThat(token.getTokenValue()).isEqualTo(TOKEN_VALUE);
+    }
+
+    private static PersistentToken activity(LocalDate date, String ipAddress, String userAgent) {
+        PersistentToken token = new PersistentToken();
+        token.setSeries(SERIES);
+        token.setTokenDate(date);
+        token.setIpAddress(ipAddress);
+        token.setUserAgent(userAgent);
+        return token;
+    }
+}
@@ -0,0 +1,261 @@
+package com.joaogomes.icligo.security;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.*;
+
+import com.github.benmanes.caffeine.jcache.spi.CaffeineCachingProvider;
+import com.joaogomes.icligo.domain.PersistentToken;
+import com.joaogomes.icligo.domain.User;
+import com.joaogomes.icligo.repository.PersistentTokenRepository;
+import com.joaogomes.icligo.repository.UserRepository;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicReference;
+import javax.cache.CacheManager;
+import javax.cache.Caching;
+import javax.cache.configuration.MutableConfiguration;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.security.core.userdetails.UserDetails;
+import org.springframework.security.core.userdetails.UserDetailsService;
+import org.springframework.security.web.authentication.rememberme.CookieTheftException;
+import org.springframework.security.web.authentication.rememberme.RememberMeAuthenticationException;
+import tech.jhipster.config.JHipsterProperties;
+
+/**
+ * Test class for the concurrency of {@link PersistentTokenRememberMeServices}.
+ * <p>
+ * The nodes of a cluster are simulated by services sharing the in-process JCache cache manager, as they would share a
+ * distributed one.
+ */
+class PersistentTokenRememberMeServicesUnitTest {
+
+    private PersistentTokenRepository persistentTokenRepository;
+
+    private CacheManager cacheManager;
+
+    private PersistentTokenRememberMeServices rememberMeServices;
+
+    @BeforeEach
+    void setUp() {
+        cacheManager = Caching.getCachingProvider(CaffeineCachingProvider.class.getName()).getCacheManager();
+        cacheManager.destroyCache(PersistentTokenRememberMeServices.UPGRADED_TOKENS_CACHE);
+        cacheManager.createCache(PersistentTokenRememberMeServices.UPGRADED_TOKENS_CACHE, new MutableConfiguration<>());
+        persistentTokenRepository = mock(PersistentTokenRepository.class);
+        when(persistentTokenRepository.updateTokenValue(anyString(), anyString(), anyString())).thenReturn(true);
+        rememberMeServices = createNode();
+    }
+
+    @AfterEach
+    void tearDown() {
+        cacheManager.destroyCache(PersistentTokenRememberMeServices.UPGRADED_TOKENS_CACHE);
+    }
+
+    private PersistentTokenRememberMeServices createNode() {
+        JHipsterProperties jHipsterProperties = new JHipsterProperties();
+        jHipsterProperties.getSecurity().getRememberMe().setKey("test-remember-me-key");
+        UserDetailsService userDetailsService = login ->
+            org.springframework.security.core.userdetails.User.withUsername(login).password("password").authorities("ROLE_USER").build();
+        return new PersistentTokenRememberMeServices(
+            jHipsterProperties,
+            userDetailsService,
+            persistentTokenRepository,
+            mock(UserRepository.class),
+            mock(PersistentTokenActivityWriter.class),
+            cacheManager
+        );
+    }
+
+    /**
+     * Store the token in a simulated database, whose conditional update only succeeds with the current value.
+     */
+    private void storeToken(PersistentToken token) {
+        AtomicReference<String> storedValue = new AtomicReference<>(token.getTokenValue());
+        when(persistentTokenRepository.findById(token.getSeries())).thenAnswer(invocation -> {
+            PersistentToken read = createToken(token.getSeries(), token.getUser().getLogin());
+            read.setTokenValue(storedValue.get());
+            return Optional.of(read);
+        });
+        when(persistentTokenRepository.updateTokenValue(eq(token.getSeries()), anyString(), anyString())).thenAnswer(invocation ->
+            storedValue.compareAndSet(invocation.getArgument(1), invocation.getArgument(2))
+        );
+    }
+
+    @Test
+    void testConcurrentRequestsOfTheSameSeriesRefreshTheTokenOnce() throws Exception {
+        PersistentToken token = createToken("series", "user");
+        when(persistentTokenRepository.findById("series")).thenReturn(Optional.of(token));
+        String[] cookieTokens = { "series", token.getTokenValue() };
+
+        int threads = 8;
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        try {
+            CountDownLatch start = new CountDownLatch(1);
+            List<Future<UserDetails>> results = new ArrayList<>();
+            for (int i = 0; i < threads; i++) {
+                results.add(
+                    executor.submit(() -> {
+                        start.await();
+                        return autoLogin(cookieTokens);
+                    })
+                );
+            }
+            start.countDown();
+            for (Future<UserDetails> result : results) {
+                assertThat(result.get(10, TimeUnit.SECONDS).getUsername()).isEqualTo("user");
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+
+        verify(persistentTokenRepository, times(1)).updateTokenValue(eq("series"), eq(cookieTokens[1]), anyString());
+        assertThat(token.getTokenValue()).isNotEqualTo(cookieTokens[1]);
+    }
+
+    @Test
+    void testRequestsOfDifferentSeriesDoNotWaitForEachOther() throws Exception {
+        PersistentToken slowToken = createToken("slow-series", "slow");
+        PersistentToken fastToken = createToken("fast-series", "fast");
+        CountDownLatch slowLookupStarted = new CountDownLatch(1);
+        CountDownLatch releaseSlowLookup = new CountDownLatch(1);
+        when(persistentTokenRepository.findById("slow-series")).thenAnswer(invocation -> {
+            slowLookupStarted.countDown();
+            releaseSlowLookup.await(10, TimeUnit.SECONDS);
+            return Optional.of(slowToken);
+        });
+        when(persistentTokenRepository.findById("fast-series")).thenReturn(Optional.of(fastToken));
+
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        try {
+            Future<UserDetails> slowLogin = executor.submit(() -> autoLogin(new String[] { "slow-series", slowToken.getTokenValue() }));
+            assertThat(slowLookupStarted.await(10, TimeUnit.SECONDS)).isTrue();
+
+            // The slow series is still holding its lock, the fast one must not be blocked by it
+            assertThat(autoLogin(new String[] { "fast-series", fastToken.getTokenValue() }).getUsername()).isEqualTo("fast");
+            assertThat(slowLogin).isNotDone();
+
+            releaseSlowLookup.countDown();
+            assertThat(slowLogin.get(10, TimeUnit.SECONDS).getUsername()).isEqualTo("slow");
+        } finally {
+            releaseSlowLookup.countDown();
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    void testConcurrentRequestsOfTheSameSeriesOnSeveralNodesRefreshTheTokenOnce() throws Exception {
+        PersistentToken token = createToken("series", "user");
+        storeToken(token);
+        String[] cookieTokens = { "series", token.getTokenValue() };
+        List<PersistentTokenRememberMeServices> nodes = List.of(rememberMeServices, createNode(), createNode());
+
+        int threads = 9;
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        try {
+            CountDownLatch start = new CountDownLatch(1);
+            List<Future<UserDetails>> results = new ArrayList<>();
+            for (int i = 0; i < threads; i++) {
+                PersistentTokenRememberMeServices node = nodes.get(i % nodes.size());
+                results.add(
+                    executor.submit(() -> {
+                        start.await();
+                        return autoLogin(node, cookieTokens);
+                    })
+                );
+            }
+            start.countDown();
+            for (Future<UserDetails> result : results) {
+                assertThat(result.get(10, TimeUnit.SECONDS).getUsername()).isEqualTo("user");
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+
+        verify(persistentTokenRepository, times(1)).updateTokenValue(eq("series"), eq(cookieTokens[1]), anyString());
+        verify(persistentTokenRepository, never()).deleteById(anyString());
+    }
+
+    @Test
+    void testPreviousValueOnAnotherNodeIsNotACookieTheft() {
+        PersistentToken token = createToken("series", "user");
+        storeToken(token);
+        String[] cookieTokens = { "series", token.getTokenValue() };
+
+        assertThat(autoLogin(cookieTokens).getUsername()).isEqualTo("user");
+        assertThat(autoLogin(createNode(), cookieTokens).getUsername()).isEqualTo("user");
+
+        verify(persistentTokenRepository, times(1)).updateTokenValue(eq("series"), eq(cookieTokens[1]), anyString());
+        verify(persistentTokenRepository, never()).deleteById(anyString());
+    }
+
+    @Test
+    void testUnknownValueIsACookieTheft() {
+        PersistentToken token = createToken("series", "user");
+        storeToken(token);
+
+        assertThatThrownBy(() -> autoLogin(new String[] { "series", "stolen" })).isInstanceOf(CookieTheftException.class);
+        verify(persistentTokenRepository).deleteById("series");
+    }
+
+    @Test
+    void testRevokedSessionsOfAUserAreEvictedFromOtherNodes() {
+        storeToken(createToken("revoked", "user"));
+        storeToken(createToken("other", "other"));
+        String[] revokedCookieTokens = { "revoked", "revoked-value" };
+        String[] otherCookieTokens = { "other", "other-value" };
+        assertThat(autoLogin(revokedCookieTokens).getUsername()).isEqualTo("user");
+        assertThat(autoLogin(otherCookieTokens).getUsername()).isEqualTo("other");
+
+        // The sessions of the user are deleted, then evicted by a node that did not refresh them
+        when(persistentTokenRepository.findById("revoked")).thenReturn(Optional.empty());
+        createNode().evictUpgradedTokens("user");
+
+        assertThatThrownBy(() -> autoLogin(revokedCookieTokens)).isInstanceOf(RememberMeAuthenticationException.class);
+        assertThat(autoLogin(otherCookieTokens).getUsername()).isEqualTo("other");
+    }
+
+    @Test
+    void testInvalidatedSessionIsEvicted() {
+        storeToken(createToken("invalidated", "user"));
+        storeToken(createToken("kept", "user"));
+        String[] invalidatedCookieTokens = { "invalidated", "invalidated-value" };
+        String[] keptCookieTokens = { "kept", "kept-value" };
+        assertThat(autoLogin(invalidatedCookieTokens).getUsername()).isEqualTo("user");
+        assertThat(autoLogin(keptCookieTokens).getUsername()).isEqualTo("user");
+
+        when(persistentTokenRepository.findById("invalidated")).thenReturn(Optional.empty());
+        rememberMeServices.evictUpgradedToken("invalidated");
+
+        assertThatThrownBy(() -> autoLogin(invalidatedCookieTokens)).isInstanceOf(RememberMeAuthenticationException.class);
+        assertThat(autoLogin(keptCookieTokens).getUsername()).isEqualTo("user");
+    }
+
+    private UserDetails autoLogin(String[] cookieTokens) {
+        return autoLogin(rememberMeServices, cookieTokens);
+    }
+
+    private static UserDetails autoLogin(PersistentTokenRememberMeServices node, String[] cookieTokens) {
+        MockHttpServletRequest request = new MockHttpServletRequest();
+        request.addHeader("User-Agent", "test");
+        return node.processAutoLoginCookie(cookieTokens, request, new MockHttpServletResponse());
+    }
+
+    private static PersistentToken createToken(String series, String login) {
+        User user = new User();
+        user.setLogin(login);
+        PersistentToken token = new PersistentToken();
+        token.setSeries(series);
+        token.setTokenValue(series + "-value");
+        token.setTokenDate(LocalDate.now());
+        token.setUser(user);
+        return token;
+    }
+}
@@ -0,0 +1,191 @@
+package com.joaogomes.icligo.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import com.joaogomes.icligo.IntegrationTest;
+import com.joaogomes.icligo.domain.Car;
+import com.joaogomes.icligo.repository.CarRepository;
+import com.joaogomes.icligo.service.criteria.CarCriteria;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.OptionalLong;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Sort;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.support.TransactionTemplate;
+
+/**
+ * Integration tests for the {@link CarAvailabilityIndex}, which only applies the changes once they are committed: these
+ * tests commit their transactions.
+ */
+@IntegrationTest
+class CarAvailabilityIndexIT {
+
+    private static final String BRAND = "availability-index-it";
+
+    @Autowired
+    private CarAvailabilityIndex carAvailabilityIndex;
+
+    @Autowired
+    private CarQueryService carQueryService;
+
+    @Autowired
+    private CarRepository carRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    private final List<Long> carIds = new ArrayList<>();
+
+    private static Car newCar(int cyear, boolean available) {
+        return new Car().model("model").brand(BRAND).cyear(cyear).available(available);
+    }
+
+    private static CarCriteria availableSince(int cyear) {
+        CarCriteria criteria = new CarCriteria();
+        criteria.available().setEquals(true);
+        criteria.brand().setEquals(BRAND);
+        criteria.cyear().setGreaterThanOrEqual(cyear);
+        return criteria;
+    }
+
+    private Car save(Car car) {
+        Car saved = transactionTemplate.execute(status -> {
+            Car result = carRepository.save(car);
+            carAvailabilityIndex.update(result);
+            return result;
+        });
+        carIds.add(saved.getId());
+        return saved;
+    }
+
+    @BeforeEach
+    public void rebuild() {
+        carAvailabilityIndex.rebuild();
+    }
+
+    @AfterEach
+    public void cleanup() {
+        transactionTemplate.executeWithoutResult(status -> {
+            carIds.forEach(carRepository::deleteById);
+            carIds.forEach(carAvailabilityIndex::remove);
+        });
+    }
+
+    @Test
+    void testCountMatchesTheDatabase() {
+        save(newCar(2010, true));
+        save(newCar(2015, true));
+        save(newCar(2020, true));
+        save(newCar(2020, false));
+
+        assertThat(carAvailabilityIndex.count(availableSince(2015))).hasValue(2);
+        assertThat(carAvailabilityIndex.count(availableSince(2021))).hasValue(0);
+        CarCriteria byYear = availableSince(2000);
+        byYear.cyear().setLessThan(2015);
+        assertThat(carAvailabilityIndex.count(byYear)).hasValue(1);
+        Long count = transactionTemplate.execute(status -> carQueryService.countByCriteria(availableSince(2015)));
+        assertThat(count).isEqualTo(2);
+        assertThat(carAvailabilityIndex.check().isConsistent()).isTrue();
+    }
+
+    @Test
+    void testBrandsSpeltOtherwiseAreLeftToTheDatabase() {
+        String mixedCaseBrand = "Availability-Index-IT";
+        save(newCar(2015, true).brand(mixedCaseBrand));
+
+        // The database may or may not ignore the case, depending on the collation of the brand column
+        CarCriteria lowerCase = availableSince(2000);
+        assertThat(carAvailabilityIndex.count(lowerCase)).isEmpty();
+        assertThat(carAvailabilityIndex.findIds(lowerCase, PageRequest.of(0, 2))).isEmpty();
+        CarCriteria mixedCase = availableSince(2000);
+        mixedCase.brand().setEquals(mixedCaseBrand);
+        assertThat(carAvailabilityIndex.count(mixedCase)).hasValue(1);
+
+        save(newCar(2016, true));
+        assertThat(carAvailabilityIndex.count(mixedCase)).isEmpty();
+        assertThat(carAvailabilityIndex.count(lowerCase)).isEmpty();
+        CarCriteria otherBrand = availableSince(2000);
+        otherBrand.brand().setEquals("availability-index-it-other");
+        assertThat(carAvailabilityIndex.count(otherBrand)).hasValue(0);
+    }
+
+    @Test
+    void testPagesAreSortedById() {
+        Car first = save(newCar(2015, true));
+        Car second = save(newCar(2016, true));
+        save(newCar(2017, false));
+        Car third = save(newCar(2018, true));
+
+        Page<Long> page = carAvailabilityIndex.findIds(availableSince(2000), PageRequest.of(1, 2, Sort.by("id"))).orElseThrow();
+        assertThat(page.getContent()).containsExactly(third.getId());
+        assertThat(page.getTotalElements()).isEqualTo(3);
+
+        Page<Car> cars = transactionTemplate.execute(status ->
+            carQueryService.findByCriteria(availableSince(2000), PageRequest.of(0, 2, Sort.by(Sort.Direction.DESC, "id")))
+        );
+        assertThat(cars.getContent()).extracting(Car::getId).containsExactly(third.getId(), second.getId());
+        assertThat(cars.getTotalElements()).isEqualTo(3);
+        assertThat(first.getId()).isLessThan(second.getId());
+    }
+
+    @Test
+    void testChangesAreAppliedOnceCommitted() {
+        Car car = save(newCar(2020, true));
+        assertThat(carAvailabilityIndex.count(availableSince(2020))).hasValue(1);
+
+        transactionTemplate.executeWithoutResult(status -> {
+            carRepository.update(car.available(false));
+            carAvailabilityIndex.update(car);
+            assertThat(carAvailabilityIndex.count(availableSince(2020))).hasValue(1);
+            status.setRollbackOnly();
+        });
+        assertThat(carAvailabilityIndex.count(availableSince(2020))).hasValue(1);
+
+        transactionTemplate.executeWithoutResult(status -> {
+            carRepository.deleteById(car.getId());
+            carAvailabilityIndex.remove(car.getId());
+        });
+        assertThat(carAvailabilityIndex.count(availableSince(2020))).hasValue(0);
+        assertThat(carAvailabilityIndex.check().isConsistent()).isTrue();
+    }
+
+    @Test
+    void testCheckFindsTheChangesMissedByTheIndex() {
+        Car car = save(newCar(2020, true));
+        transactionTemplate.executeWithoutResult(status ->
+            jdbcTemplate.update("update car set cyear = ? where id = ?", 2021, car.getId())
+        );
+
+        CarAvailabilityIndex.Check check = carAvailabilityIndex.check();
+        assertThat(check.isConsistent()).isFalse();
+        assertThat(check.mismatchedCars()).isEqualTo(1);
+
+        carAvailabilityIndex.rebuild();
+        assertThat(carAvailabilityIndex.check().isConsistent()).isTrue();
+        assertThat(carAvailabilityIndex.count(availableSince(2021))).hasValue(1);
+    }
+
+    @Test
+    void testOtherCriteriaAreNotAnswered() {
+        CarCriteria notAvailable = availableSince(2000);
+        notAvailable.available().setEquals(false);
+        CarCriteria brandContains = availableSince(2000);
+        brandContains.brand().setContains(BRAND);
+        CarCriteria byModel = availableSince(2000);
+        byModel.model().setEquals("model");
+
+        assertThat(carAvailabilityIndex.count(notAvailable)).isEqualTo(OptionalLong.empty());
+        assertThat(carAvailabilityIndex.count(brandContains)).isEqualTo(OptionalLong.empty());
+        assertThat(carAvailabilityIndex.count(byModel)).isEqualTo(OptionalLong.empty());
+        assertThat(carAvailabilityIndex.findIds(availableSince(2000), PageRequest.of(0, 2, Sort.by("brand")))).isEmpty();
+    }
+}
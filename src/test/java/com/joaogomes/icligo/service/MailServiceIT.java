@@ -6,8 +6,12 @@ import static org.mockito.Mockito.*;
 
 import com.joaogomes.icligo.IntegrationTest;
 import com.joaogomes.icligo.config.Constants;
+import com.joaogomes.icligo.domain.MailOutboxMessage;
 import com.joaogomes.icligo.domain.User;
+import com.joaogomes.icligo.repository.MailOutboxMessageRepository;
+import io.micrometer.core.instrument.MeterRegistry;
 import jakarta.mail.Multipart;
+import jakarta.mail.SendFailedException;
 import jakarta.mail.Session;
 import jakarta.mail.internet.MimeBodyPart;
 import jakarta.mail.internet.MimeMessage;
@@ -19,21 +23,28 @@ import java.io.InputStreamReader;
 import java.net.URI;
 import java.net.URL;
 import java.nio.charset.Charset;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
 import java.util.Properties;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
+import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.mockito.ArgumentCaptor;
 import org.mockito.Captor;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.Limit;
 import org.springframework.mail.MailSendException;
 import org.springframework.mail.javamail.JavaMailSender;
 import org.springframework.test.context.bean.override.mockito.MockitoBean;
+import org.springframework.transaction.support.TransactionTemplate;
 import tech.jhipster.config.JHipsterProperties;
 
 /**
- * Integration tests for {@link MailService}.
+ * Integration tests for {@link MailService} and {@link MailOutboxSender}.
  */
 @IntegrationTest
 class MailServiceIT {
@@ -53,22 +64,50 @@ class MailServiceIT {
     private JavaMailSender javaMailSender;
 
     @Captor
-    private ArgumentCaptor<MimeMessage> messageCaptor;
+    private ArgumentCaptor<MimeMessage[]> messagesCaptor;
 
     @Autowired
     private MailService mailService;
 
+    @Autowired
+    private MailOutboxSender mailOutboxSender;
+
+    @Autowired
+    private MailOutboxMessageRepository mailOutboxMessageRepository;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
     @BeforeEach
     public void setup() {
-        doNothing().when(javaMailSender).send(any(MimeMessage.class));
-        when(javaMailSender.createMimeMessage()).thenReturn(new MimeMessage((Session) null));
+        // Other tests leave the emails they queued in the outbox
+        mailOutboxMessageRepository.deleteAll();
+        doNothing().when(javaMailSender).send(any(MimeMessage[].class));
+        when(javaMailSender.createMimeMessage()).thenAnswer(invocation -> new MimeMessage((Session) null));
+    }
+
+    @AfterEach
+    public void cleanup() {
+        mailOutboxMessageRepository.deleteAll();
+    }
+
+    /**
+     * Send the queued emails and return the last one sent.
+     */
+    private MimeMessage sendPendingEmails() {
+        mailOutboxSender.sendPendingEmails();
+        verify(javaMailSender, atLeastOnce()).send(messagesCaptor.capture());
+        MimeMessage[] messages = messagesCaptor.getValue();
+        return messages[messages.length - 1];
     }
 
     @Test
     void testSendEmail() throws Exception {
         mailService.sendEmail("john.doe@example.com", "testSubject", "testContent", false, false);
-        verify(javaMailSender).send(messageCaptor.capture());
-        MimeMessage message = messageCaptor.getValue();
+        MimeMessage message = sendPendingEmails();
         assertThat(message.getSubject()).isEqualTo("testSubject");
         assertThat(message.getAllRecipients()[0]).hasToString("john.doe@example.com");
         assertThat(message.getFrom()[0]).hasToString(jHipsterProperties.getMail().getFrom());
@@ -80,8 +119,7 @@ class MailServiceIT {
     @Test
     void testSendHtmlEmail() throws Exception {
         mailService.sendEmail("john.doe@example.com", "testSubject", "testContent", false, true);
-        verify(javaMailSender).send(messageCaptor.capture());
-        MimeMessage message = messageCaptor.getValue();
+        MimeMessage message = sendPendingEmails();
         assertThat(message.getSubject()).isEqualTo("testSubject");
         assertThat(message.getAllRecipients()[0]).hasToString("john.doe@example.com");
         assertThat(message.getFrom()[0]).hasToString(jHipsterProperties.getMail().getFrom());
@@ -93,8 +131,7 @@ class MailServiceIT {
     @Test
     void testSendMultipartEmail() throws Exception {
         mailService.sendEmail("john.doe@example.com", "testSubject", "testContent", true, false);
-        verify(javaMailSender).send(messageCaptor.capture());
-        MimeMessage message = messageCaptor.getValue();
+        MimeMessage message = sendPendingEmails();
         MimeMultipart mp = (MimeMultipart) message.getContent();
         MimeBodyPart part = (MimeBodyPart) ((MimeMultipart) mp.getBodyPart(0).getContent()).getBodyPart(0);
         ByteArrayOutputStream aos = new ByteArrayOutputStream();
@@ -110,8 +147,7 @@ class MailServiceIT {
     @Test
     void testSendMultipartHtmlEmail() throws Exception {
         mailService.sendEmail("john.doe@example.com", "testSubject", "testContent", true, true);
-        verify(javaMailSender).send(messageCaptor.capture());
-        MimeMessage message = messageCaptor.getValue();
+        MimeMessage message = sendPendingEmails();
         MimeMultipart mp = (MimeMultipart) message.getContent();
         MimeBodyPart part = (MimeBodyPart) ((MimeMultipart) mp.getBodyPart(0).getContent()).getBodyPart(0);
         ByteArrayOutputStream aos = new ByteArrayOutputStream();
@@ -131,8 +167,7 @@ class MailServiceIT {
         user.setLogin("john");
         user.setEmail("john.doe@example.com");
         mailService.sendEmailFromTemplate(user, "mail/testEmail", "email.test.title");
-        verify(javaMailSender).send(messageCaptor.capture());
-        MimeMessage message = messageCaptor.getValue();
+        MimeMessage message = sendPendingEmails();
         assertThat(message.getSubject()).isEqualTo("test title");
         assertThat(message.getAllRecipients()[0]).hasToString(user.getEmail());
         assertThat(message.getFrom()[0]).hasToString(jHipsterProperties.getMail().getFrom());
@@ -147,14 +182,63 @@ class MailServiceIT {
         user.setLogin("john");
         user.setEmail("john.doe@example.com");
         mailService.sendActivationEmail(user);
-        verify(javaMailSender).send(messageCaptor.capture());
-        MimeMessage message = messageCaptor.getValue();
+        MimeMessage message = sendPendingEmails();
         assertThat(message.getAllRecipients()[0]).hasToString(user.getEmail());
         assertThat(message.getFrom()[0]).hasToString(jHipsterProperties.getMail().getFrom());
         assertThat(message.getContent().toString()).isNotEmpty();
         assertThat(message.getDataHandler().getContentType()).isEqualTo("text/html;charset=UTF-8");
     }
 
+    @Test
+    void testSendActivationEmailsByChunks() {
+        List<User> users = new ArrayList<>();
+        for (int i = 0; i < 1001; i++) {
+            User user = new User();
+            user.setLangKey(languages[i % languages.length]);
+            user.setLogin("john-" + i);
+            user.setEmail("john-" + i + "@example.com");
+            user.setActivationKey("key-" + i);
+            users.add(user);
+        }
+
+        mailService.sendActivationEmails(users);
+
+        List<MailOutboxMessage> due = transactionTemplate.execute(status ->
+            mailOutboxMessageRepository.findByStatusAndNextAttemptDateLessThanEqualOrderByIdAsc(
+                MailOutboxMessage.Status.PENDING,
+                Instant.now(),
+                Limit.of(2000)
+            )
+        );
+        assertThat(due).hasSize(1001);
+        assertThat(due.get(1000).getRecipient()).isEqualTo("john-1000@example.com");
+        assertThat(due.get(1000).getContent()).contains("/account/activate?key=key-1000");
+    }
+
+    @Test
+    void testSendActivationEmails() throws Exception {
+        List<User> users = new ArrayList<>();
+        for (String langKey : languages) {
+            User user = new User();
+            user.setLangKey(langKey);
+            user.setLogin("john-" + langKey);
+            user.setEmail("john-" + langKey + "@example.com");
+            user.setActivationKey("key-" + langKey);
+            users.add(user);
+        }
+        users.add(new User());
+        mailService.sendActivationEmails(users);
+        mailOutboxSender.sendPendingEmails();
+
+        verify(javaMailSender).send(messagesCaptor.capture());
+        MimeMessage[] messages = messagesCaptor.getValue();
+        assertThat(messages).hasSize(languages.length);
+        for (int i = 0; i < languages.length; i++) {
+            assertThat(messages[i].getAllRecipients()[0]).hasToString("john-" + languages[i] + "@example.com");
+            assertThat(messages[i].getContent().toString()).contains("/account/activate?key=key-" + languages[i]);
+        }
+    }
+
     @Test
     void testCreationEmail() throws Exception {
         User user = new User();
@@ -162,8 +246,7 @@ class MailServiceIT {
         user.setLogin("john");
         user.setEmail("john.doe@example.com");
         mailService.sendCreationEmail(user);
-        verify(javaMailSender).send(messageCaptor.capture());
-        MimeMessage message = messageCaptor.getValue();
+        MimeMessage message = sendPendingEmails();
         assertThat(message.getAllRecipients()[0]).hasToString(user.getEmail());
         assertThat(message.getFrom()[0]).hasToString(jHipsterProperties.getMail().getFrom());
         assertThat(message.getContent().toString()).isNotEmpty();
@@ -177,8 +260,7 @@ class MailServiceIT {
         user.setLogin("john");
         user.setEmail("john.doe@example.com");
         mailService.sendPasswordResetMail(user);
-        verify(javaMailSender).send(messageCaptor.capture());
-        MimeMessage message = messageCaptor.getValue();
+        MimeMessage message = sendPendingEmails();
         assertThat(message.getAllRecipients()[0]).hasToString(user.getEmail());
         assertThat(message.getFrom()[0]).hasToString(jHipsterProperties.getMail().getFrom());
         assertThat(message.getContent().toString()).isNotEmpty();
@@ -187,12 +269,104 @@ class MailServiceIT {
 
     @Test
     void testSendEmailWithException() {
-        doThrow(MailSendException.class).when(javaMailSender).send(any(MimeMessage.class));
+        doThrow(new MailSendException("Connection refused")).when(javaMailSender).send(any(MimeMessage[].class));
+        mailService.sendEmail("john.doe@example.com", "testSubject", "testContent", false, false);
         try {
-            mailService.sendEmail("john.doe@example.com", "testSubject", "testContent", false, false);
+            mailOutboxSender.sendPendingEmails();
         } catch (Exception e) {
             fail("Exception shouldn't have been thrown");
         }
+
+        assertThat(mailOutboxMessageRepository.findAll())
+            .singleElement()
+            .satisfies(message -> {
+                assertThat(message.getStatus()).isEqualTo(MailOutboxMessage.Status.PENDING);
+                assertThat(message.getAttempts()).isEqualTo(1);
+                assertThat(message.getLastError()).isEqualTo("Connection refused");
+                assertThat(message.getNextAttemptDate()).isAfter(Instant.now());
+            });
+    }
+
+    @Test
+    void testSendEmailsInOneBatch() {
+        mailService.sendEmail("john.doe@example.com", "testSubject", "testContent", false, false);
+        mailService.sendEmail("jane.doe@example.com", "testSubject", "testContent", false, false);
+        mailOutboxSender.sendPendingEmails();
+
+        verify(javaMailSender).send(messagesCaptor.capture());
+        assertThat(messagesCaptor.getValue()).hasSize(2);
+        assertThat(mailOutboxMessageRepository.count()).isZero();
+    }
+
+    @Test
+    void testOnlyRetryFailedEmailsOfBatch() {
+        doAnswer(invocation -> {
+            MimeMessage failed = invocation.getArgument(0);
+            throw new MailSendException(Map.of(failed, new SendFailedException("Invalid address")));
+        })
+            .when(javaMailSender)
+            .send(any(MimeMessage[].class));
+        mailService.sendEmail("john.doe@example.com", "testSubject", "testContent", false, false);
+        mailService.sendEmail("jane.doe@example.com", "testSubject", "testContent", false, false);
+        mailOutboxSender.sendPendingEmails();
+
+        assertThat(mailOutboxMessageRepository.findAll())
+            .singleElement()
+            .satisfies(message -> {
+                assertThat(message.getRecipient()).isEqualTo("john.doe@example.com");
+                assertThat(message.getAttempts()).isEqualTo(1);
+                assertThat(message.getLastError()).isEqualTo("Invalid address");
+            });
+    }
+
+    @Test
+    void testGiveUpAfterMaxAttempts() {
+        doThrow(new MailSendException("Connection refused")).when(javaMailSender).send(any(MimeMessage[].class));
+        mailService.sendEmail("john.doe@example.com", "testSubject", "testContent", false, false);
+        for (int attempt = 1; attempt <= 5; attempt++) {
+            mailOutboxSender.sendPendingEmails();
+            List<MailOutboxMessage> messages = mailOutboxMessageRepository.findAll();
+            messages.forEach(message -> message.setNextAttemptDate(Instant.now()));
+            mailOutboxMessageRepository.saveAll(messages);
+        }
+
+        verify(javaMailSender, times(5)).send(any(MimeMessage[].class));
+        assertThat(mailOutboxMessageRepository.findAll())
+            .singleElement()
+            .satisfies(message -> {
+                assertThat(message.getStatus()).isEqualTo(MailOutboxMessage.Status.FAILED);
+                assertThat(message.getAttempts()).isEqualTo(5);
+            });
+        mailOutboxSender.sendPendingEmails();
+        verify(javaMailSender, times(5)).send(any(MimeMessage[].class));
+    }
+
+    @Test
+    void testBackoff() {
+        assertThat(mailOutboxSender.backoff(1)).hasSeconds(30);
+        assertThat(mailOutboxSender.backoff(2)).hasSeconds(60);
+        assertThat(mailOutboxSender.backoff(3)).hasSeconds(120);
+        assertThat(mailOutboxSender.backoff(100)).hasHours(1);
+    }
+
+    @Test
+    void testEmailNotQueuedWhenTransactionRollsBack() {
+        transactionTemplate.executeWithoutResult(status -> {
+            mailService.sendEmail("john.doe@example.com", "testSubject", "testContent", false, false);
+            status.setRollbackOnly();
+        });
+
+        assertThat(mailOutboxMessageRepository.count()).isZero();
+    }
+
+    @Test
+    void testPendingEmailsGauge() {
+        doThrow(new MailSendException("Connection refused")).when(javaMailSender).send(any(MimeMessage[].class));
+        mailService.sendEmail("john.doe@example.com", "testSubject", "testContent", false, false);
+        mailService.sendEmail("jane.doe@example.com", "testSubject", "testContent", false, false);
+        mailOutboxSender.sendPendingEmails();
+
+        assertThat(meterRegistry.get("mail.outbox.pending").gauge().value()).isEqualTo(2);
     }
 
     @Test
@@ -203,8 +377,7 @@ class MailServiceIT {
         for (String langKey : languages) {
             user.setLangKey(langKey);
             mailService.sendEmailFromTemplate(user, "mail/testEmail", "email.test.title");
-            verify(javaMailSender, atLeastOnce()).send(messageCaptor.capture());
-            MimeMessage message = messageCaptor.getValue();
+            MimeMessage message = sendPendingEmails();
 
             String propertyFilePath = "i18n/messages_" + getMessageSourceSuffixForLanguage(langKey) + ".properties";
             URL resource = this.getClass().getClassLoader().getResource(propertyFilePath);
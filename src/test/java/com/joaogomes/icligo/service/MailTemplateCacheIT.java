@@ -0,0 +1,92 @@
+package com.joaogomes.icligo.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import com.joaogomes.icligo.IntegrationTest;
+import com.joaogomes.icligo.domain.User;
+import java.util.List;
+import java.util.Locale;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.MessageSource;
+import org.thymeleaf.context.Context;
+import org.thymeleaf.spring6.SpringTemplateEngine;
+import tech.jhipster.config.JHipsterProperties;
+
+/**
+ * Integration tests for {@link MailTemplateCache}.
+ */
+@IntegrationTest
+class MailTemplateCacheIT {
+
+    private static final List<String> TEMPLATES = List.of("mail/activationEmail", "mail/creationEmail", "mail/passwordResetEmail");
+
+    private static final List<String> LANGUAGES = List.of("en", "pt-pt");
+
+    @Autowired
+    private MailTemplateCache mailTemplateCache;
+
+    @Autowired
+    private SpringTemplateEngine templateEngine;
+
+    @Autowired
+    private MessageSource messageSource;
+
+    @Autowired
+    private JHipsterProperties jHipsterProperties;
+
+    private static User user(String langKey) {
+        User user = new User();
+        user.setLogin("o'brien<script>");
+        user.setEmail("obrien@example.com");
+        user.setFirstName("Dónal & co");
+        user.setActivationKey("activation\"key");
+        user.setResetKey("reset&key");
+        user.setLangKey(langKey);
+        return user;
+    }
+
+    private String renderWithThymeleaf(User user, String templateName) {
+        Context context = new Context(Locale.forLanguageTag(user.getLangKey()));
+        context.setVariable("user", user);
+        context.setVariable("baseUrl", jHipsterProperties.getMail().getBaseUrl());
+        return templateEngine.process(templateName, context);
+    }
+
+    @Test
+    void testCompiledTemplatesRenderLikeThymeleaf() {
+        for (String templateName : TEMPLATES) {
+            for (String langKey : LANGUAGES) {
+                User user = user(langKey);
+                assertThat(mailTemplateCache.isCompiled(templateName, "email.activation.title", langKey)).isTrue();
+
+                MailTemplateCache.RenderedEmail email = mailTemplateCache.render(user, templateName, "email.activation.title");
+
+                assertThat(email.to()).isEqualTo("obrien@example.com");
+                assertThat(email.subject()).isEqualTo(messageSource.getMessage("email.activation.title", null, Locale.forLanguageTag(langKey)));
+                assertThat(email.content()).isEqualTo(renderWithThymeleaf(user, templateName));
+            }
+        }
+    }
+
+    @Test
+    void testRenderUserWithMissingField() {
+        User user = user("en");
+        user.setResetKey(null);
+
+        MailTemplateCache.RenderedEmail email = mailTemplateCache.render(user, "mail/passwordResetEmail", "email.reset.title");
+
+        assertThat(email.content()).isEqualTo(renderWithThymeleaf(user, "mail/passwordResetEmail"));
+    }
+
+    @Test
+    void testRenderAll() {
+        List<User> users = List.of(user("en"), user("pt-pt"));
+
+        List<MailTemplateCache.RenderedEmail> emails = mailTemplateCache.renderAll(users, "mail/activationEmail", "email.activation.title");
+
+        assertThat(emails).hasSize(2);
+        assertThat(emails.get(0).subject()).isNotEqualTo(emails.get(1).subject());
+        assertThat(emails.get(1).content()).isEqualTo(renderWithThymeleaf(users.get(1), "mail/activationEmail"));
+    }
+}
@@ -6,21 +6,31 @@ import static org.mockito.Mockito.when;
 import com.joaogomes.icligo.IntegrationTest;
 import com.joaogomes.icligo.domain.PersistentToken;
 import com.joaogomes.icligo.domain.User;
+import com.joaogomes.icligo.repository.AuthorityRepository;
 import com.joaogomes.icligo.repository.PersistentTokenRepository;
+import com.joaogomes.icligo.repository.UserJdbcRepository;
 import com.joaogomes.icligo.repository.UserRepository;
+import com.joaogomes.icligo.security.AuthoritiesConstants;
+import com.joaogomes.icligo.service.dto.AdminUserDTO;
+import io.micrometer.core.instrument.MeterRegistry;
 import java.time.Instant;
 import java.time.LocalDate;
 import java.time.LocalDateTime;
 import java.time.temporal.ChronoUnit;
 import java.util.List;
 import java.util.Optional;
+import java.util.Set;
 import org.apache.commons.lang3.RandomStringUtils;
 import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.cache.CacheManager;
 import org.springframework.data.auditing.AuditingHandler;
 import org.springframework.data.auditing.DateTimeProvider;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Sort;
 import org.springframework.test.context.bean.override.mockito.MockitoBean;
 import org.springframework.transaction.annotation.Transactional;
 import tech.jhipster.security.RandomUtil;
@@ -56,6 +66,15 @@ class UserServiceIT {
     @Autowired
     private AuditingHandler auditingHandler;
 
+    @Autowired
+    private CacheManager cacheManager;
+
+    @Autowired
+    private AuthorityRepository authorityRepository;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
     @MockitoBean
     private DateTimeProvider dateTimeProvider;
 
@@ -214,6 +233,106 @@ class UserServiceIT {
         assertThat(maybeDbUser).contains(dbUser);
     }
 
+    @Test
+    @Transactional
+    void assertThatNotActivatedUsersAreDeletedWithTheirTokensAndAuthorities() {
+        Instant now = Instant.now();
+        when(dateTimeProvider.getNow()).thenReturn(Optional.of(now.minus(4, ChronoUnit.DAYS)));
+        user.setActivated(false);
+        user.setActivationKey(RandomStringUtils.insecure().next(20));
+        user.setAuthorities(Set.of(authorityRepository.findById(AuthoritiesConstants.USER).orElseThrow()));
+        User dbUser = userRepository.saveAndFlush(user);
+        generateUserToken(dbUser, "3333-3333", LocalDate.now());
+        assertThat(userRepository.findOneWithAuthoritiesByLogin(DEFAULT_LOGIN)).isPresent();
+        double deletedBefore = meterRegistry.get("cleanup.deleted").tag("job", "not-activated-users").counter().count();
+
+        userService.removeNotActivatedUsers();
+
+        assertThat(userRepository.findOneByLogin(DEFAULT_LOGIN)).isEmpty();
+        assertThat(persistentTokenRepository.findById("3333-3333")).isEmpty();
+        assertThat(cacheManager.getCache(UserRepository.USERS_BY_LOGIN_CACHE).get(DEFAULT_LOGIN)).isNull();
+        assertThat(meterRegistry.get("cleanup.deleted").tag("job", "not-activated-users").counter().count()).isEqualTo(
+            deletedBefore + 1
+        );
+    }
+
+    @Test
+    @Transactional
+    void assertThatNotActivatedUsersAreDeletedByChunks() {
+        Instant now = Instant.now();
+        when(dateTimeProvider.getNow()).thenReturn(Optional.of(now.minus(4, ChronoUnit.DAYS)));
+        for (int i = 0; i < 3; i++) {
+            User notActivated = new User();
+            notActivated.setLogin("not-activated-" + i);
+            notActivated.setPassword(RandomStringUtils.insecure().nextAlphanumeric(60));
+            notActivated.setActivated(false);
+            notActivated.setActivationKey(RandomStringUtils.insecure().nextAlphanumeric(20));
+            userRepository.saveAndFlush(notActivated);
+        }
+        Instant threeDaysAgo = now.minus(3, ChronoUnit.DAYS);
+
+        assertThat(userRepository.deleteChunkOfNotActivatedUsersCreatedBefore(threeDaysAgo, 2)).hasSize(2);
+        assertThat(userRepository.deleteChunkOfNotActivatedUsersCreatedBefore(threeDaysAgo, 2))
+            .singleElement()
+            .extracting(UserJdbcRepository.DeletedUser::login)
+            .isEqualTo("not-activated-2");
+        assertThat(userRepository.deleteChunkOfNotActivatedUsersCreatedBefore(threeDaysAgo, 2)).isEmpty();
+    }
+
+    @Test
+    @Transactional
+    void assertThatOldPersistentTokensAreDeletedByChunks() {
+        userRepository.saveAndFlush(user);
+        LocalDate today = LocalDate.now();
+        generateUserToken(user, "4444-4444", today.minusDays(40));
+        generateUserToken(user, "5555-5555", today.minusDays(35));
+        generateUserToken(user, "6666-6666", today);
+
+        assertThat(persistentTokenRepository.deleteChunkByTokenDateBefore(today.minusMonths(1), 1)).isEqualTo(1);
+        assertThat(persistentTokenRepository.findById("4444-4444")).isEmpty();
+        assertThat(persistentTokenRepository.deleteChunkByTokenDateBefore(today.minusMonths(1), 1)).isEqualTo(1);
+        assertThat(persistentTokenRepository.deleteChunkByTokenDateBefore(today.minusMonths(1), 1)).isZero();
+        assertThat(persistentTokenRepository.findById("6666-6666")).isPresent();
+    }
+
+    @Test
+    @Transactional
+    void assertThatManagedUsersAreListedWithTheirAuthorities() {
+        userRepository.saveAndFlush(user);
+
+        Page<AdminUserDTO> page = userService.getAllManagedUsers(PageRequest.of(0, 100, Sort.by("id")));
+
+        assertThat(page.getContent())
+            .filteredOn(userDTO -> userDTO.getLogin().equals("admin"))
+            .singleElement()
+            .extracting(AdminUserDTO::getAuthorities)
+            .isEqualTo(Set.of(AuthoritiesConstants.ADMIN, AuthoritiesConstants.USER));
+        assertThat(page.getContent())
+            .filteredOn(userDTO -> userDTO.getLogin().equals(DEFAULT_LOGIN))
+            .singleElement()
+            .satisfies(userDTO -> {
+                assertThat(userDTO.getEmail()).isEqualTo(DEFAULT_EMAIL);
+                assertThat(userDTO.getAuthorities()).isEmpty();
+            });
+    }
+
+    @Test
+    @Transactional
+    void assertThatUserCachesAreEvictedOnUpdate() {
+        userRepository.saveAndFlush(user);
+        assertThat(userRepository.findOneWithAuthoritiesByLogin(DEFAULT_LOGIN)).isPresent();
+        assertThat(userRepository.findOneWithAuthoritiesByEmailIgnoreCase(DEFAULT_EMAIL)).isPresent();
+        assertThat(cacheManager.getCache(UserRepository.USERS_BY_LOGIN_CACHE).get(DEFAULT_LOGIN)).isNotNull();
+        assertThat(cacheManager.getCache(UserRepository.USERS_BY_EMAIL_CACHE).get(DEFAULT_EMAIL)).isNotNull();
+
+        AdminUserDTO userDTO = new AdminUserDTO(user);
+        userDTO.setFirstName("jane");
+        userService.updateUser(userDTO);
+
+        assertThat(cacheManager.getCache(UserRepository.USERS_BY_LOGIN_CACHE).get(DEFAULT_LOGIN)).isNull();
+        assertThat(cacheManager.getCache(UserRepository.USERS_BY_EMAIL_CACHE).get(DEFAULT_EMAIL)).isNull();
+    }
+
     private void generateUserToken(User user, String tokenSeries, LocalDate localDate) {
         PersistentToken token = new PersistentToken();
         token.setSeries(tokenSeries);
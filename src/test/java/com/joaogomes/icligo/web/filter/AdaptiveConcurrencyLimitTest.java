@@ -0,0 +1,108 @@
+package com.joaogomes.icligo.web.filter;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import java.util.concurrent.TimeUnit;
+import org.junit.jupiter.api.Test;
+
+class AdaptiveConcurrencyLimitTest {
+
+    private static final long FAST = TimeUnit.MILLISECONDS.toNanos(10);
+
+    private static final long SLOW = TimeUnit.MILLISECONDS.toNanos(100);
+
+    /**
+     * Run a request taking {@code rtt}, as if it had started with the limit fully used.
+     */
+    private static void fullLoad(AdaptiveConcurrencyLimit limit, long rtt) {
+        limit.tryAcquire();
+        limit.release(rtt, limit.getLimit(), false);
+    }
+
+    @Test
+    void requestsAboveTheLimitAreRejected() {
+        AdaptiveConcurrencyLimit limit = new AdaptiveConcurrencyLimit(2, 1, 10);
+
+        assertThat(limit.tryAcquire()).isEqualTo(1);
+        assertThat(limit.tryAcquire()).isEqualTo(2);
+        assertThat(limit.tryAcquire()).isZero();
+        assertThat(limit.getInFlight()).isEqualTo(2);
+
+        limit.release(FAST, 2, false);
+        assertThat(limit.tryAcquire()).isEqualTo(2);
+    }
+
+    @Test
+    void limitGrowsWhileTheLatencyIsSteady() {
+        AdaptiveConcurrencyLimit limit = new AdaptiveConcurrencyLimit(10, 1, 100);
+
+        for (int i = 0; i < 200; i++) {
+            fullLoad(limit, FAST);
+        }
+
+        assertThat(limit.getLimit()).isEqualTo(100);
+    }
+
+    @Test
+    void limitShrinksWhenTheLatencyRises() {
+        AdaptiveConcurrencyLimit limit = new AdaptiveConcurrencyLimit(50, 2, 100);
+        for (int i = 0; i < 50; i++) {
+            fullLoad(limit, FAST);
+        }
+        int steadyLimit = limit.getLimit();
+
+        for (int i = 0; i < 20; i++) {
+            fullLoad(limit, SLOW);
+        }
+
+        assertThat(limit.getLimit()).isLessThan(steadyLimit / 2).isGreaterThanOrEqualTo(2);
+    }
+
+    @Test
+    void limitDoesNotGrowWhileMostlyUnused() {
+        AdaptiveConcurrencyLimit limit = new AdaptiveConcurrencyLimit(20, 1, 100);
+
+        for (int i = 0; i < 200; i++) {
+            limit.tryAcquire();
+            limit.release(FAST, 1, false);
+        }
+
+        assertThat(limit.getLimit()).isEqualTo(20);
+    }
+
+    @Test
+    void failedRequestsShrinkTheLimitDownToTheMinimum() {
+        AdaptiveConcurrencyLimit limit = new AdaptiveConcurrencyLimit(20, 3, 100);
+
+        limit.tryAcquire();
+        limit.release(FAST, 1, true);
+        assertThat(limit.getLimit()).isEqualTo(18);
+
+        for (int i = 0; i < 50; i++) {
+            limit.tryAcquire();
+            limit.release(FAST, 1, true);
+        }
+        assertThat(limit.getLimit()).isEqualTo(3);
+        assertThat(limit.getInFlight()).isZero();
+    }
+
+    @Test
+    void releaseWithoutSampleKeepsTheLimit() {
+        AdaptiveConcurrencyLimit limit = new AdaptiveConcurrencyLimit(10, 1, 100);
+
+        for (int i = 0; i < 20; i++) {
+            limit.tryAcquire();
+            limit.release();
+        }
+
+        assertThat(limit.getLimit()).isEqualTo(10);
+        assertThat(limit.getInFlight()).isZero();
+    }
+
+    @Test
+    void invalidLimitsAreRefused() {
+        assertThatThrownBy(() -> new AdaptiveConcurrencyLimit(10, 0, 10)).isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> new AdaptiveConcurrencyLimit(10, 5, 4)).isInstanceOf(IllegalArgumentException.class);
+    }
+}
@@ -0,0 +1,76 @@
+package com.joaogomes.icligo.web.filter;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+import com.joaogomes.icligo.IntegrationTest;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.servlet.Filter;
+import java.util.List;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.security.test.context.support.WithMockUser;
+import org.springframework.security.web.SecurityFilterChain;
+import org.springframework.security.web.authentication.UsernamePasswordAuthenticationFilter;
+import org.springframework.security.web.authentication.rememberme.RememberMeAuthenticationFilter;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.transaction.annotation.Transactional;
+
+/**
+ * Integration tests for the {@link ConcurrencyLimitFilter}.
+ */
+@AutoConfigureMockMvc
+@WithMockUser
+@IntegrationTest
+class ConcurrencyLimitFilterIT {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private SecurityFilterChain securityFilterChain;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    private int indexOf(Class<? extends Filter> filterClass) {
+        List<Filter> filters = securityFilterChain.getFilters();
+        for (int i = 0; i < filters.size(); i++) {
+            if (filterClass.isInstance(filters.get(i))) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    @Test
+    void testFilterRunsBeforeTheAuthentication() {
+        int index = indexOf(ConcurrencyLimitFilter.class);
+
+        assertThat(index).isNotNegative();
+        assertThat(index).isLessThan(indexOf(UsernamePasswordAuthenticationFilter.class));
+        assertThat(index).isLessThan(indexOf(RememberMeAuthenticationFilter.class));
+    }
+
+    @Test
+    @Transactional
+    void testRequestsReleaseTheirPlace() throws Exception {
+        double inFlightBefore = inFlight("cars");
+
+        mockMvc.perform(get("/api/cars")).andExpect(status().isOk());
+        mockMvc.perform(get("/api/authenticate")).andExpect(status().isOk());
+
+        assertThat(inFlight("cars")).isEqualTo(inFlightBefore);
+        assertThat(inFlight("account")).isZero();
+        for (String group : List.of("cars", "admin-users", "account", "api")) {
+            assertThat(meterRegistry.get("http.server.concurrency.limit").tag("group", group).gauge().value()).isPositive();
+            assertThat(meterRegistry.get("http.server.concurrency.rejected").tag("group", group).counter().count()).isZero();
+        }
+    }
+
+    private double inFlight(String group) {
+        return meterRegistry.get("http.server.concurrency.in-flight").tag("group", group).gauge().value();
+    }
+}
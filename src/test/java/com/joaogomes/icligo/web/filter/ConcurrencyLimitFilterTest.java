@@ -0,0 +1,157 @@
+package com.joaogomes.icligo.web.filter;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.security.web.util.matcher.AntPathRequestMatcher.antMatcher;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import jakarta.servlet.AsyncEvent;
+import jakarta.servlet.AsyncListener;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.http.HttpServletResponse;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicReference;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockAsyncContext;
+import org.springframework.mock.web.MockFilterChain;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+
+class ConcurrencyLimitFilterTest {
+
+    private MeterRegistry meterRegistry;
+
+    private AdaptiveConcurrencyLimit carsLimit;
+
+    private ConcurrencyLimitFilter filter;
+
+    @BeforeEach
+    void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+        carsLimit = new AdaptiveConcurrencyLimit(1, 1, 1);
+        filter = new ConcurrencyLimitFilter(
+            List.of(
+                new ConcurrencyLimitFilter.RouteGroup("cars", antMatcher("/api/cars/**"), carsLimit),
+                new ConcurrencyLimitFilter.RouteGroup("api", antMatcher("/api/**"), new AdaptiveConcurrencyLimit(1, 1, 1))
+            ),
+            antMatcher("/api/cars/bulk"),
+            Duration.ofSeconds(2),
+            meterRegistry
+        );
+    }
+
+    private static MockHttpServletRequest request(String path) {
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", path);
+        request.setServletPath(path);
+        return request;
+    }
+
+    /**
+     * Run a request of the cars group while another one is in progress.
+     */
+    private MockHttpServletResponse requestWhileAnotherIsInProgress(String path) throws Exception {
+        AtomicReference<MockHttpServletResponse> response = new AtomicReference<>();
+        FilterChain inProgress = (request, ignored) -> {
+            response.set(new MockHttpServletResponse());
+            filter.doFilter(request(path), response.get(), new MockFilterChain());
+        };
+        filter.doFilter(request("/api/cars/1"), new MockHttpServletResponse(), inProgress);
+        return response.get();
+    }
+
+    @Test
+    void requestsAboveTheLimitAreRejectedWithRetryAfter() throws Exception {
+        MockHttpServletResponse rejected = requestWhileAnotherIsInProgress("/api/cars");
+
+        assertThat(rejected.getStatus()).isEqualTo(503);
+        assertThat(rejected.getHeader("Retry-After")).isEqualTo("2");
+        assertThat(meterRegistry.counter("http.server.concurrency.rejected", "group", "cars").count()).isEqualTo(1);
+        assertThat(meterRegistry.get("http.server.concurrency.in-flight").tag("group", "cars").gauge().value()).isZero();
+        assertThat(meterRegistry.get("http.server.concurrency.limit").tag("group", "cars").gauge().value()).isEqualTo(1);
+    }
+
+    @Test
+    void groupsHaveTheirOwnLimit() throws Exception {
+        MockHttpServletResponse other = requestWhileAnotherIsInProgress("/api/account");
+
+        assertThat(other.getStatus()).isEqualTo(200);
+        assertThat(meterRegistry.counter("http.server.concurrency.rejected", "group", "cars").count()).isZero();
+    }
+
+    @Test
+    void requestsOfNoGroupAreNotLimited() throws Exception {
+        MockHttpServletResponse health = requestWhileAnotherIsInProgress("/management/health");
+
+        assertThat(health.getStatus()).isEqualTo(200);
+    }
+
+    @Test
+    void placeIsReleasedWhenTheRequestFails() throws Exception {
+        FilterChain failing = (request, response) -> {
+            throw new IllegalStateException("failure");
+        };
+        try {
+            filter.doFilter(request("/api/cars"), new MockHttpServletResponse(), failing);
+        } catch (IllegalStateException e) {
+            // Expected
+        }
+
+        assertThat(carsLimit.getInFlight()).isZero();
+    }
+
+    @Test
+    void asyncRequestsKeepTheirPlaceUntilCompleted() throws Exception {
+        MockHttpServletRequest request = request("/api/cars");
+        request.setAsyncSupported(true);
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        filter.doFilter(request, response, (req, res) -> req.startAsync());
+
+        assertThat(carsLimit.getInFlight()).isEqualTo(1);
+        assertThat(carsLimit.tryAcquire()).isZero();
+
+        ((MockAsyncContext) request.getAsyncContext()).complete();
+        assertThat(carsLimit.getInFlight()).isZero();
+    }
+
+    @Test
+    void asyncRequestsDoNotAdaptTheLimit() throws Exception {
+        AdaptiveConcurrencyLimit limit = new AdaptiveConcurrencyLimit(10, 1, 100);
+        ConcurrencyLimitFilter streamingFilter = filterOf(limit);
+        MockHttpServletRequest request = request("/api/cars");
+        request.setAsyncSupported(true);
+        streamingFilter.doFilter(request, new MockHttpServletResponse(), (req, res) -> req.startAsync());
+
+        MockAsyncContext asyncContext = (MockAsyncContext) request.getAsyncContext();
+        for (AsyncListener listener : asyncContext.getListeners()) {
+            listener.onTimeout(new AsyncEvent(asyncContext));
+        }
+
+        assertThat(limit.getInFlight()).isZero();
+        assertThat(limit.getLimit()).isEqualTo(10);
+    }
+
+    @Test
+    void unsampledRequestsDoNotAdaptTheLimit() throws Exception {
+        AdaptiveConcurrencyLimit limit = new AdaptiveConcurrencyLimit(10, 1, 100);
+        ConcurrencyLimitFilter bulkFilter = filterOf(limit);
+        FilterChain failing = (request, response) -> ((HttpServletResponse) response).setStatus(500);
+
+        bulkFilter.doFilter(request("/api/cars/bulk"), new MockHttpServletResponse(), failing);
+        assertThat(limit.getInFlight()).isZero();
+        assertThat(limit.getLimit()).isEqualTo(10);
+
+        bulkFilter.doFilter(request("/api/cars/1"), new MockHttpServletResponse(), failing);
+        assertThat(limit.getLimit()).isEqualTo(9);
+    }
+
+    private static ConcurrencyLimitFilter filterOf(AdaptiveConcurrencyLimit limit) {
+        return new ConcurrencyLimitFilter(
+            List.of(new ConcurrencyLimitFilter.RouteGroup("cars", antMatcher("/api/cars/**"), limit)),
+            antMatcher("/api/cars/bulk"),
+            Duration.ofSeconds(1),
+            new SimpleMeterRegistry()
+        );
+    }
+}
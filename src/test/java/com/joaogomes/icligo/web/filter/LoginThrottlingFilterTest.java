@@ -0,0 +1,140 @@
+package com.joaogomes.icligo.web.filter;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.security.web.util.matcher.AntPathRequestMatcher.antMatcher;
+
+import com.joaogomes.icligo.config.ApplicationProperties;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.http.HttpServletResponse;
+import java.time.Duration;
+import java.util.List;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpMethod;
+import org.springframework.mock.web.MockFilterChain;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+
+class LoginThrottlingFilterTest {
+
+    private MeterRegistry meterRegistry;
+
+    private LoginThrottlingFilter filter;
+
+    @BeforeEach
+    void setUp() {
+        ApplicationProperties.LoginThrottling properties = new ApplicationProperties.LoginThrottling();
+        properties.getPerLogin().setCapacity(2);
+        properties.getPerLogin().setRefillPeriod(Duration.ofMinutes(2));
+        properties.getPerIp().setCapacity(3);
+        properties.getPerIp().setRefillPeriod(Duration.ofMinutes(1));
+        properties.setMaxTrackedKeys(5);
+        properties.setTrustedProxies(List.of("192.168.0.0/16"));
+        meterRegistry = new SimpleMeterRegistry();
+        filter = new LoginThrottlingFilter(antMatcher(HttpMethod.POST, "/api/authentication"), "username", properties, meterRegistry);
+    }
+
+    private MockHttpServletResponse login(String username, String ip) throws Exception {
+        return login(username, ip, new MockFilterChain());
+    }
+
+    private MockHttpServletResponse failedLogin(String username, String ip) throws Exception {
+        return login(username, ip, (request, response) -> ((HttpServletResponse) response).setStatus(401));
+    }
+
+    private MockHttpServletResponse login(String username, String ip, FilterChain filterChain) throws Exception {
+        return login(username, ip, null, filterChain);
+    }
+
+    private MockHttpServletResponse login(String username, String ip, String forwardedFor, FilterChain filterChain)
+        throws Exception {
+        MockHttpServletRequest request = new MockHttpServletRequest("POST", "/api/authentication");
+        request.setServletPath("/api/authentication");
+        request.setRemoteAddr(ip);
+        if (forwardedFor != null) {
+            request.addHeader("X-Forwarded-For", forwardedFor);
+        }
+        request.addParameter("username", username);
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        filter.doFilter(request, response, filterChain);
+        return response;
+    }
+
+    @Test
+    void failedAttemptsAreThrottledPerLogin() throws Exception {
+        assertThat(failedLogin("user", "10.0.0.1").getStatus()).isEqualTo(401);
+        // Logins are not case sensitive
+        assertThat(failedLogin("USER", "10.0.0.2").getStatus()).isEqualTo(401);
+
+        MockHttpServletResponse throttled = login("user", "10.0.0.3");
+        assertThat(throttled.getStatus()).isEqualTo(429);
+        assertThat(throttled.getHeader("Retry-After")).isEqualTo("60");
+        assertThat(login("other", "10.0.0.3").getStatus()).isEqualTo(200);
+        assertThat(meterRegistry.counter("security.login.throttled", "bucket", "login").count()).isEqualTo(1);
+    }
+
+    @Test
+    void successfulAttemptsDoNotCountAgainstTheLogin() throws Exception {
+        for (int i = 0; i < 3; i++) {
+            assertThat(login("user", "10.0.0." + i).getStatus()).isEqualTo(200);
+        }
+
+        assertThat(failedLogin("user", "10.0.0.3").getStatus()).isEqualTo(401);
+        assertThat(login("user", "10.0.0.4").getStatus()).isEqualTo(200);
+        assertThat(meterRegistry.counter("security.login.throttled", "bucket", "login").count()).isZero();
+    }
+
+    @Test
+    void floodOfNewKeysDoesNotThrottleANewUser() throws Exception {
+        for (int i = 0; i < 50; i++) {
+            assertThat(failedLogin("random-" + i, "10.0.1." + i).getStatus()).isEqualTo(401);
+        }
+
+        assertThat(login("user", "10.0.0.1").getStatus()).isEqualTo(200);
+        assertThat(meterRegistry.counter("security.login.throttled", "bucket", "login").count()).isZero();
+        assertThat(meterRegistry.counter("security.login.throttled", "bucket", "ip").count()).isZero();
+    }
+
+    @Test
+    void attemptsAreThrottledPerIp() throws Exception {
+        for (int i = 0; i < 3; i++) {
+            assertThat(login("user-" + i, "10.0.0.1").getStatus()).isEqualTo(200);
+        }
+
+        MockHttpServletResponse throttled = login("user-3", "10.0.0.1");
+        assertThat(throttled.getStatus()).isEqualTo(429);
+        assertThat(throttled.getHeader("Retry-After")).isEqualTo("20");
+        assertThat(login("user-3", "10.0.0.2").getStatus()).isEqualTo(200);
+        assertThat(meterRegistry.counter("security.login.throttled", "bucket", "ip").count()).isEqualTo(1);
+    }
+
+    @Test
+    void clientIpIsForwardedByTheTrustedProxiesOnly() throws Exception {
+        // The client sends a new address each time, the trusted proxies append the one it connected from
+        for (int i = 0; i < 3; i++) {
+            assertThat(login("user-" + i, "192.168.0.1", "1.1.1." + i + ", 2.2.2.2, 192.168.0.2", new MockFilterChain()).getStatus())
+                .isEqualTo(200);
+        }
+        assertThat(login("user-3", "192.168.0.2", "2.2.2.2", new MockFilterChain()).getStatus()).isEqualTo(429);
+        assertThat(login("user-3", "192.168.0.1", "3.3.3.3", new MockFilterChain()).getStatus()).isEqualTo(200);
+
+        // Other peers are the client
+        for (int i = 0; i < 3; i++) {
+            assertThat(login("user-" + i, "10.0.0.1", "1.1.1." + i, new MockFilterChain()).getStatus()).isEqualTo(200);
+        }
+        assertThat(login("user-3", "10.0.0.1", "4.4.4.4", new MockFilterChain()).getStatus()).isEqualTo(429);
+    }
+
+    @Test
+    void otherRequestsAreNotThrottled() throws Exception {
+        for (int i = 0; i < 5; i++) {
+            MockHttpServletRequest request = new MockHttpServletRequest("GET", "/api/authentication");
+            request.setServletPath("/api/authentication");
+            MockHttpServletResponse response = new MockHttpServletResponse();
+            filter.doFilter(request, response, new MockFilterChain());
+            assertThat(response.getStatus()).isEqualTo(200);
+        }
+    }
+}
@@ -0,0 +1,86 @@
+package com.joaogomes.icligo.web.filter;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.security.test.web.servlet.request.SecurityMockMvcRequestPostProcessors.csrf;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+import com.joaogomes.icligo.IntegrationTest;
+import com.joaogomes.icligo.domain.Car;
+import com.joaogomes.icligo.repository.CarRepository;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.persistence.EntityManager;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.security.test.context.support.WithMockUser;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.transaction.annotation.Transactional;
+
+/**
+ * Integration tests for the {@link SqlStatisticsFilter}.
+ */
+@AutoConfigureMockMvc
+@WithMockUser
+@IntegrationTest
+class SqlStatisticsFilterIT {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private CarRepository carRepository;
+
+    @Autowired
+    private EntityManager em;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    private static SqlStatistics statistics(MvcResult result) {
+        return (SqlStatistics) result.getRequest().getAttribute(SqlStatisticsFilter.STATISTICS_ATTRIBUTE);
+    }
+
+    @Test
+    @Transactional
+    void testStatementsAndRowsReadAreRecordedPerEndpoint() throws Exception {
+        Car car = carRepository.saveAndFlush(new Car().model("model").brand("brand").cyear(2020).available(true));
+        em.clear();
+        DistributionSummary statements = meterRegistry
+            .summary("sql.request.statements", "method", "GET", "uri", "/api/cars");
+        long requestsBefore = statements.count();
+
+        MvcResult result = mockMvc.perform(get("/api/cars?id.equals={id}", car.getId())).andExpect(status().isOk()).andReturn();
+
+        SqlStatistics statistics = statistics(result);
+        assertThat(statistics.getStatements()).isPositive();
+        assertThat(statistics.getRows()).isPositive();
+        assertThat(statistics.getMostRepeatedStatement().getKey()).containsIgnoringCase("from car");
+        assertThat(statements.count()).isEqualTo(requestsBefore + 1);
+        assertThat(meterRegistry.summary("sql.request.rows", "method", "GET", "uri", "/api/cars").totalAmount()).isPositive();
+        assertThat(meterRegistry.timer("sql.request.time", "method", "GET", "uri", "/api/cars").count()).isPositive();
+    }
+
+    @Test
+    @Transactional
+    void testRowsUpdatedByBatchesAreRecorded() throws Exception {
+        String csv = "model;brand;cyear;available\n" + "a;a;2001;true\n" + "b;b;2002;false\n";
+
+        MvcResult result = mockMvc
+            .perform(post("/api/cars/bulk").with(csrf()).contentType("text/csv").content(csv))
+            .andExpect(status().isOk())
+            .andReturn();
+
+        assertThat(statistics(result).getRows()).isGreaterThanOrEqualTo(2);
+    }
+
+    @Test
+    void testStatementsOutsideOfRequestsAreNotRecorded() {
+        assertThat(SqlStatistics.current()).isNull();
+        carRepository.count();
+        assertThat(SqlStatistics.current()).isNull();
+    }
+}
@@ -0,0 +1,77 @@
+package com.joaogomes.icligo.web.filter;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+import org.junit.jupiter.api.Test;
+
+class TokenBucketTest {
+
+    private static final long SECOND = TimeUnit.SECONDS.toNanos(1);
+
+    @Test
+    void burstOfCapacityIsAllowed() {
+        TokenBucket bucket = new TokenBucket(3, Duration.ofSeconds(3), 0);
+
+        assertThat(bucket.tryConsume(0)).isZero();
+        assertThat(bucket.tryConsume(0)).isZero();
+        assertThat(bucket.tryConsume(0)).isZero();
+        assertThat(bucket.tryConsume(0)).isEqualTo(SECOND);
+        assertThat(bucket.tryConsume(SECOND / 2)).isEqualTo(SECOND / 2);
+    }
+
+    @Test
+    void tokensAreGivenBackOverTheRefillPeriod() {
+        TokenBucket bucket = new TokenBucket(3, Duration.ofSeconds(3), 0);
+        for (int i = 0; i < 3; i++) {
+            bucket.tryConsume(0);
+        }
+
+        assertThat(bucket.tryConsume(SECOND)).isZero();
+        assertThat(bucket.tryConsume(SECOND)).isPositive();
+
+        // Idle for longer than the refill period, the bucket does not hold more than its capacity
+        long later = 100 * SECOND;
+        for (int i = 0; i < 3; i++) {
+            assertThat(bucket.tryConsume(later)).isZero();
+        }
+        assertThat(bucket.tryConsume(later)).isPositive();
+    }
+
+    @Test
+    void invalidBucketsAreRefused() {
+        assertThatThrownBy(() -> new TokenBucket(0, Duration.ofSeconds(1), 0)).isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> new TokenBucket(1, Duration.ZERO, 0)).isInstanceOf(IllegalArgumentException.class);
+    }
+
+    @Test
+    void refundedTokensCanBeTakenAgain() {
+        TokenBucket bucket = new TokenBucket(2, Duration.ofSeconds(2), 0);
+        bucket.tryConsume(0);
+        bucket.tryConsume(0);
+        assertThat(bucket.tryConsume(0)).isPositive();
+
+        bucket.refund();
+
+        assertThat(bucket.tryConsume(0)).isZero();
+        assertThat(bucket.tryConsume(0)).isPositive();
+    }
+
+    @Test
+    void bucketIsFullOnceAllItsTokensAreBack() {
+        TokenBucket bucket = new TokenBucket(2, Duration.ofSeconds(2), 0);
+        assertThat(bucket.isFull(0)).isTrue();
+
+        bucket.tryConsume(0);
+        assertThat(bucket.isFull(0)).isFalse();
+        assertThat(bucket.isFull(SECOND)).isTrue();
+
+        bucket.tryConsume(0);
+        bucket.refund();
+        assertThat(bucket.isFull(0)).isFalse();
+        bucket.refund();
+        assertThat(bucket.isFull(0)).isTrue();
+    }
+}
@@ -1,5 +1,6 @@
 package com.joaogomes.icligo.web.rest;
 
+import static com.joaogomes.icligo.web.rest.SqlStatisticsMatchers.sqlStatementsAtMost;
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.hamcrest.Matchers.containsString;
 import static org.hamcrest.Matchers.hasItem;
@@ -707,6 +708,8 @@ class AccountResourceIT {
         restAccountMockMvc
             .perform(get("/api/account/sessions"))
             .andExpect(status().isOk())
+            .andExpect(sqlStatementsAtMost(1))
+            .andExpect(jsonPath("$.[*].tokenValue").doesNotExist())
             .andExpect(jsonPath("$.[*].series").value(hasItem(token.getSeries())))
             .andExpect(jsonPath("$.[*].ipAddress").value(hasItem(token.getIpAddress())))
             .andExpect(jsonPath("$.[*].userAgent").value(hasItem(token.getUserAgent())))
@@ -745,6 +748,34 @@ class AccountResourceIT {
         userService.deleteUser("invalidate-session");
     }
 
+    @Test
+    @Transactional
+    @WithMockUser("invalidate-session")
+    void testInvalidateSessionOfAnotherUser() throws Exception {
+        User user = new User();
+        user.setPassword(RandomStringUtils.insecure().nextAlphanumeric(60));
+        user.setLogin("other-session");
+        user.setEmail("other-session@example.com");
+        userRepository.saveAndFlush(user);
+
+        PersistentToken token = new PersistentToken();
+        token.setSeries("other-session");
+        token.setUser(user);
+        token.setTokenValue("other-data");
+        token.setTokenDate(LocalDate.of(2017, 3, 23));
+        persistentTokenRepository.saveAndFlush(token);
+
+        restAccountMockMvc
+            .perform(delete("/api/account/sessions/other-session").with(csrf()))
+            .andExpect(status().isOk())
+            .andExpect(sqlStatementsAtMost(1));
+
+        assertThat(persistentTokenRepository.findByUser(user)).hasSize(1);
+
+        persistentTokenRepository.delete(token);
+        userService.deleteUser("other-session");
+    }
+
     @Test
     @Transactional
     void testRequestPasswordReset() throws Exception {
@@ -1,9 +1,15 @@
 package com.joaogomes.icligo.web.rest;
 
 import static com.joaogomes.icligo.domain.CarAsserts.*;
+import static com.joaogomes.icligo.web.rest.SqlStatisticsMatchers.sqlStatementsAtMost;
+import static com.joaogomes.icligo.web.rest.SqlStatisticsMatchers.sqlStatementsRepeatedAtMost;
 import static com.joaogomes.icligo.web.rest.TestUtil.createUpdateProxyForBean;
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.containsString;
 import static org.hamcrest.Matchers.hasItem;
+import static org.hamcrest.Matchers.not;
+import static org.hamcrest.Matchers.startsWith;
 import static org.springframework.security.test.web.servlet.request.SecurityMockMvcRequestPostProcessors.csrf;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
@@ -12,6 +18,7 @@ import com.fasterxml.jackson.databind.ObjectMapper;
 import com.joaogomes.icligo.IntegrationTest;
 import com.joaogomes.icligo.domain.Car;
 import com.joaogomes.icligo.repository.CarRepository;
+import com.joaogomes.icligo.security.AuthoritiesConstants;
 import jakarta.persistence.EntityManager;
 import java.util.Random;
 import java.util.concurrent.atomic.AtomicLong;
@@ -20,9 +27,11 @@ import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.MediaType;
 import org.springframework.security.test.context.support.WithMockUser;
 import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
 import org.springframework.transaction.annotation.Transactional;
 
 /**
@@ -41,6 +50,7 @@ class CarResourceIT {
 
     private static final Integer DEFAULT_CYEAR = 1;
     private static final Integer UPDATED_CYEAR = 2;
+    private static final Integer SMALLER_CYEAR = 1 - 1;
 
     private static final Boolean DEFAULT_AVAILABLE = false;
     private static final Boolean UPDATED_AVAILABLE = true;
@@ -95,7 +105,8 @@ class CarResourceIT {
     @AfterEach
     public void cleanup() {
         if (insertedCar != null) {
-            carRepository.delete(insertedCar);
+            // By id, as the updates through the REST API leave insertedCar with an outdated version
+            carRepository.deleteById(insertedCar.getId());
             insertedCar = null;
         }
     }
@@ -139,6 +150,128 @@ class CarResourceIT {
         assertSameRepositoryCount(databaseSizeBeforeCreate);
     }
 
+    @Test
+    @Transactional
+    void importCarsCsv() throws Exception {
+        long databaseSizeBeforeCreate = getRepositoryCount();
+        String csv =
+            "id;model;brand;cyear;available\n" +
+            "1;AAAAAAAAAA;AAAAAAAAAA;1;false\n" +
+            ";\"model; with separator\";\"brand \"\"quoted\"\"\";2015;true\n" +
+            ";;;;\n";
+
+        restCarMockMvc
+            .perform(post(ENTITY_API_URL + "/bulk").with(csrf()).contentType("text/csv").content(csv))
+            .andExpect(status().isOk())
+            .andExpect(content().string("3"));
+
+        assertThat(getRepositoryCount()).isEqualTo(databaseSizeBeforeCreate + 3);
+        assertThat(carRepository.findAll()).anySatisfy(imported -> {
+            assertThat(imported.getModel()).isEqualTo("model; with separator");
+            assertThat(imported.getBrand()).isEqualTo("brand \"quoted\"");
+            assertThat(imported.getCyear()).isEqualTo(2015);
+            assertThat(imported.getAvailable()).isTrue();
+        });
+    }
+
+    @Test
+    @Transactional
+    void importCarsCsvWithInvalidRecord() throws Exception {
+        long databaseSizeBeforeCreate = getRepositoryCount();
+        String csv = "model;brand;cyear\nAAAAAAAAAA;AAAAAAAAAA;1\nAAAAAAAAAA;AAAAAAAAAA;not a year\n";
+
+        restCarMockMvc
+            .perform(post(ENTITY_API_URL + "/bulk").with(csrf()).contentType("text/csv").content(csv))
+            .andExpect(status().isBadRequest())
+            .andExpect(jsonPath("$.message").value("error.importinvalid"));
+
+        restCarMockMvc
+            .perform(post(ENTITY_API_URL + "/bulk").with(csrf()).contentType("text/csv").content("model;colour\n"))
+            .andExpect(status().isBadRequest());
+
+        assertSameRepositoryCount(databaseSizeBeforeCreate);
+    }
+
+    @Test
+    @Transactional
+    void importCarsNdjson() throws Exception {
+        long databaseSizeBeforeCreate = getRepositoryCount();
+        String ndjson = om.writeValueAsString(createEntity()) + "\n\n" + om.writeValueAsString(createUpdatedEntity().id(1L)) + "\n";
+
+        restCarMockMvc
+            .perform(post(ENTITY_API_URL + "/bulk").with(csrf()).contentType(MediaType.APPLICATION_NDJSON).content(ndjson))
+            .andExpect(status().isOk())
+            .andExpect(content().string("2"));
+
+        assertIncrementedRepositoryCount(databaseSizeBeforeCreate + 1);
+
+        restCarMockMvc
+            .perform(post(ENTITY_API_URL + "/bulk").with(csrf()).contentType(MediaType.APPLICATION_NDJSON).content("{\"model\":"))
+            .andExpect(status().isBadRequest());
+    }
+
+    @Test
+    void exportCarsCsv() throws Exception {
+        // Initialize the database, outside of a test transaction as the export runs in its own thread
+        insertedCar = carRepository.saveAndFlush(car);
+
+        MvcResult result = restCarMockMvc
+            .perform(get(ENTITY_API_URL + "/bulk").accept("text/csv"))
+            .andExpect(request().asyncStarted())
+            .andReturn();
+
+        restCarMockMvc
+            .perform(asyncDispatch(result))
+            .andExpect(status().isOk())
+            .andExpect(content().contentTypeCompatibleWith("text/csv"))
+            .andExpect(content().string(startsWith("id;model;brand;cyear;available\n")))
+            .andExpect(
+                content()
+                    .string(
+                        containsString(car.getId() + ";" + DEFAULT_MODEL + ";" + DEFAULT_BRAND + ";" + DEFAULT_CYEAR + ";" + DEFAULT_AVAILABLE + "\n")
+                    )
+            );
+    }
+
+    @Test
+    void exportCarsNdjson() throws Exception {
+        // Initialize the database, outside of a test transaction as the export runs in its own thread
+        insertedCar = carRepository.saveAndFlush(car);
+
+        MvcResult result = restCarMockMvc
+            .perform(get(ENTITY_API_URL + "/bulk").accept(MediaType.APPLICATION_NDJSON))
+            .andExpect(request().asyncStarted())
+            .andReturn();
+
+        restCarMockMvc
+            .perform(asyncDispatch(result))
+            .andExpect(status().isOk())
+            .andExpect(content().contentTypeCompatibleWith(MediaType.APPLICATION_NDJSON))
+            .andExpect(content().string(containsString(om.writeValueAsString(car) + "\n")));
+    }
+
+    @Test
+    void streamAllCarsByCriteria() throws Exception {
+        // Initialize the database, outside of a test transaction as the stream is written in its own thread
+        insertedCar = carRepository.saveAndFlush(car);
+
+        MvcResult result = restCarMockMvc
+            .perform(get(ENTITY_API_URL + "?id.equals={id}", car.getId()).accept(MediaType.APPLICATION_NDJSON))
+            .andExpect(request().asyncStarted())
+            .andReturn();
+        restCarMockMvc
+            .perform(asyncDispatch(result))
+            .andExpect(status().isOk())
+            .andExpect(content().contentTypeCompatibleWith(MediaType.APPLICATION_NDJSON))
+            .andExpect(content().string(om.writeValueAsString(car) + "\n"));
+
+        result = restCarMockMvc
+            .perform(get(ENTITY_API_URL + "?id.equals={id}", Long.MAX_VALUE).accept(MediaType.APPLICATION_NDJSON))
+            .andExpect(request().asyncStarted())
+            .andReturn();
+        restCarMockMvc.perform(asyncDispatch(result)).andExpect(status().isOk()).andExpect(content().string(""));
+    }
+
     @Test
     @Transactional
     void getAllCars() throws Exception {
@@ -157,6 +290,25 @@ class CarResourceIT {
             .andExpect(jsonPath("$.[*].available").value(hasItem(DEFAULT_AVAILABLE)));
     }
 
+    @Test
+    @Transactional
+    void getAllCarsRunsThreeStatementsPerPage() throws Exception {
+        // Initialize the database
+        for (int i = 0; i < 5; i++) {
+            carRepository.save(createEntity());
+        }
+        em.flush();
+        em.clear();
+
+        // One query for the ETag, one for the page and one for its count
+        restCarMockMvc
+            .perform(get(ENTITY_API_URL + "?sort=id,desc&size=3"))
+            .andExpect(status().isOk())
+            .andExpect(jsonPath("$.length()").value(3))
+            .andExpect(sqlStatementsAtMost(3))
+            .andExpect(sqlStatementsRepeatedAtMost(1));
+    }
+
     @Test
     @Transactional
     void getCar() throws Exception {
@@ -175,6 +327,203 @@ class CarResourceIT {
             .andExpect(jsonPath("$.available").value(DEFAULT_AVAILABLE));
     }
 
+    @Test
+    @Transactional
+    void getCarsByIdFiltering() throws Exception {
+        // Initialize the database
+        insertedCar = carRepository.saveAndFlush(car);
+
+        Long id = car.getId();
+
+        defaultCarFiltering("id.equals=" + id, "id.notEquals=" + id);
+
+        defaultCarFiltering("id.greaterThanOrEqual=" + id, "id.greaterThan=" + id);
+
+        defaultCarFiltering("id.lessThanOrEqual=" + id, "id.lessThan=" + id);
+    }
+
+    @Test
+    @Transactional
+    void getAllCarsByModelIsEqualToSomething() throws Exception {
+        // Initialize the database
+        insertedCar = carRepository.saveAndFlush(car);
+
+        // Get all the carList where model equals to
+        defaultCarFiltering("model.equals=" + DEFAULT_MODEL, "model.equals=" + UPDATED_MODEL);
+    }
+
+    @Test
+    @Transactional
+    void getAllCarsByModelStartsWithSomething() throws Exception {
+        // Initialize the database
+        insertedCar = carRepository.saveAndFlush(car);
+
+        // Get all the carList where model starts with
+        defaultCarFiltering("model.startsWith=" + DEFAULT_MODEL.substring(0, 3), "model.startsWith=" + UPDATED_MODEL.substring(0, 3));
+    }
+
+    @Test
+    @Transactional
+    void getAllCarsByModelStartsWithEscapesWildcards() throws Exception {
+        // Initialize the database
+        insertedCar = carRepository.saveAndFlush(car);
+
+        // Get all the carList where model starts with a literal wildcard
+        defaultCarShouldNotBeFound("model.startsWith=%25");
+        defaultCarShouldNotBeFound("model.startsWith=_");
+    }
+
+    @Test
+    @Transactional
+    void getAllCarsByBrandIsEqualToSomething() throws Exception {
+        // Initialize the database
+        insertedCar = carRepository.saveAndFlush(car);
+
+        // Get all the carList where brand equals to
+        defaultCarFiltering("brand.equals=" + DEFAULT_BRAND, "brand.equals=" + UPDATED_BRAND);
+    }
+
+    @Test
+    @Transactional
+    void getAllCarsByBrandIsInShouldWork() throws Exception {
+        // Initialize the database
+        insertedCar = carRepository.saveAndFlush(car);
+
+        // Get all the carList where brand in
+        defaultCarFiltering("brand.in=" + DEFAULT_BRAND + "," + UPDATED_BRAND, "brand.in=" + UPDATED_BRAND);
+    }
+
+    @Test
+    @Transactional
+    void getAllCarsByCyearIsGreaterThanOrEqualToSomething() throws Exception {
+        // Initialize the database
+        insertedCar = carRepository.saveAndFlush(car);
+
+        // Get all the carList where cyear is greater than or equal to
+        defaultCarFiltering("cyear.greaterThanOrEqual=" + DEFAULT_CYEAR, "cyear.greaterThanOrEqual=" + UPDATED_CYEAR);
+    }
+
+    @Test
+    @Transactional
+    void getAllCarsByCyearIsLessThanOrEqualToSomething() throws Exception {
+        // Initialize the database
+        insertedCar = carRepository.saveAndFlush(car);
+
+        // Get all the carList where cyear is less than or equal to
+        defaultCarFiltering("cyear.lessThanOrEqual=" + DEFAULT_CYEAR, "cyear.lessThanOrEqual=" + SMALLER_CYEAR);
+    }
+
+    @Test
+    @Transactional
+    void getAllCarsByAvailableIsEqualToSomething() throws Exception {
+        // Initialize the database
+        insertedCar = carRepository.saveAndFlush(car);
+
+        // Get all the carList where available equals to
+        defaultCarFiltering("available.equals=" + DEFAULT_AVAILABLE, "available.equals=" + UPDATED_AVAILABLE);
+    }
+
+    @Test
+    @Transactional
+    void getAllCarsByCombinedCriteria() throws Exception {
+        // Initialize the database
+        insertedCar = carRepository.saveAndFlush(car);
+
+        // Get all the carList matching every filter at once
+        defaultCarFiltering(
+            "available.equals=" + DEFAULT_AVAILABLE + "&brand.equals=" + DEFAULT_BRAND + "&cyear.lessThanOrEqual=" + DEFAULT_CYEAR,
+            "available.equals=" + DEFAULT_AVAILABLE + "&brand.equals=" + DEFAULT_BRAND + "&cyear.greaterThan=" + DEFAULT_CYEAR
+        );
+    }
+
+    private void defaultCarFiltering(String shouldBeFound, String shouldNotBeFound) throws Exception {
+        defaultCarShouldBeFound(shouldBeFound);
+        defaultCarShouldNotBeFound(shouldNotBeFound);
+    }
+
+    /**
+     * Executes the search, and checks that the default entity is returned.
+     */
+    private void defaultCarShouldBeFound(String filter) throws Exception {
+        restCarMockMvc
+            .perform(get(ENTITY_API_URL + "?sort=id,desc&" + filter))
+            .andExpect(status().isOk())
+            .andExpect(content().contentType(MediaType.APPLICATION_JSON_VALUE))
+            .andExpect(jsonPath("$.[*].id").value(hasItem(car.getId().intValue())))
+            .andExpect(jsonPath("$.[*].model").value(hasItem(DEFAULT_MODEL)))
+            .andExpect(jsonPath("$.[*].brand").value(hasItem(DEFAULT_BRAND)))
+            .andExpect(jsonPath("$.[*].cyear").value(hasItem(DEFAULT_CYEAR)))
+            .andExpect(jsonPath("$.[*].available").value(hasItem(DEFAULT_AVAILABLE)));
+
+        // Check, that the count call also returns 1
+        restCarMockMvc
+            .perform(get(ENTITY_API_URL + "/count?sort=id,desc&" + filter))
+            .andExpect(status().isOk())
+            .andExpect(content().contentType(MediaType.APPLICATION_JSON_VALUE))
+            .andExpect(content().string("1"));
+    }
+
+    /**
+     * Executes the search, and checks that the default entity is not returned.
+     */
+    private void defaultCarShouldNotBeFound(String filter) throws Exception {
+        restCarMockMvc
+            .perform(get(ENTITY_API_URL + "?sort=id,desc&" + filter))
+            .andExpect(status().isOk())
+            .andExpect(content().contentType(MediaType.APPLICATION_JSON_VALUE))
+            .andExpect(jsonPath("$").isArray())
+            .andExpect(jsonPath("$").isEmpty());
+
+        // Check, that the count call also returns 0
+        restCarMockMvc
+            .perform(get(ENTITY_API_URL + "/count?sort=id,desc&" + filter))
+            .andExpect(status().isOk())
+            .andExpect(content().contentType(MediaType.APPLICATION_JSON_VALUE))
+            .andExpect(content().string("0"));
+    }
+
+    @Test
+    @Transactional
+    void getAllCarsWithCursor() throws Exception {
+        // Initialize the database
+        Car first = carRepository.saveAndFlush(createEntity());
+        Car second = carRepository.saveAndFlush(createEntity());
+        Car third = carRepository.saveAndFlush(createEntity());
+        String filter = "id.in=" + first.getId() + "," + second.getId() + "," + third.getId();
+
+        // Get the first page in cursor mode, without count
+        String link = restCarMockMvc
+            .perform(get(ENTITY_API_URL + "?after=&size=2&" + filter))
+            .andExpect(status().isOk())
+            .andExpect(content().contentType(MediaType.APPLICATION_JSON_VALUE))
+            .andExpect(jsonPath("$.[*].id").value(contains(first.getId().intValue(), second.getId().intValue())))
+            .andExpect(header().string(HttpHeaders.LINK, containsString("rel=\"next\"")))
+            .andExpect(header().doesNotExist("X-Total-Count"))
+            .andReturn()
+            .getResponse()
+            .getHeader(HttpHeaders.LINK);
+
+        // Follow the next link to the last page
+        restCarMockMvc
+            .perform(get(link.substring(link.indexOf('<') + 1, link.indexOf('>'))))
+            .andExpect(status().isOk())
+            .andExpect(jsonPath("$.[*].id").value(contains(third.getId().intValue())))
+            .andExpect(header().doesNotExist(HttpHeaders.LINK));
+
+        // Seek backwards when sorted by descending id
+        restCarMockMvc
+            .perform(get(ENTITY_API_URL + "?after=&size=2&sort=id,desc&" + filter))
+            .andExpect(status().isOk())
+            .andExpect(jsonPath("$.[*].id").value(contains(third.getId().intValue(), second.getId().intValue())));
+    }
+
+    @Test
+    @Transactional
+    void getAllCarsWithInvalidCursor() throws Exception {
+        restCarMockMvc.perform(get(ENTITY_API_URL + "?after=not-a-cursor")).andExpect(status().isBadRequest());
+        restCarMockMvc.perform(get(ENTITY_API_URL + "?after=&sort=model,asc")).andExpect(status().isBadRequest());
+    }
+
     @Test
     @Transactional
     void getNonExistingCar() throws Exception {
@@ -182,6 +531,76 @@ class CarResourceIT {
         restCarMockMvc.perform(get(ENTITY_API_URL_ID, Long.MAX_VALUE)).andExpect(status().isNotFound());
     }
 
+    @Test
+    @Transactional
+    void getCarIsNotModifiedUntilItIsUpdated() throws Exception {
+        // Initialize the database
+        insertedCar = carRepository.saveAndFlush(car);
+        em.detach(car);
+
+        String eTag = restCarMockMvc
+            .perform(get(ENTITY_API_URL_ID, car.getId()))
+            .andExpect(status().isOk())
+            .andExpect(header().string(HttpHeaders.CACHE_CONTROL, containsString("no-cache")))
+            .andReturn()
+            .getResponse()
+            .getHeader(HttpHeaders.ETAG);
+        assertThat(eTag).isNotNull();
+
+        // Only the version is read
+        restCarMockMvc
+            .perform(get(ENTITY_API_URL_ID, car.getId()).header(HttpHeaders.IF_NONE_MATCH, eTag))
+            .andExpect(status().isNotModified())
+            .andExpect(header().string(HttpHeaders.ETAG, eTag))
+            .andExpect(content().string(""))
+            .andExpect(sqlStatementsAtMost(1));
+
+        carRepository.update(car.model(UPDATED_MODEL));
+        restCarMockMvc
+            .perform(get(ENTITY_API_URL_ID, car.getId()).header(HttpHeaders.IF_NONE_MATCH, eTag))
+            .andExpect(status().isOk())
+            .andExpect(header().string(HttpHeaders.ETAG, not(eTag)))
+            .andExpect(jsonPath("$.model").value(UPDATED_MODEL));
+    }
+
+    @Test
+    @Transactional
+    void getNonExistingCarWithETag() throws Exception {
+        restCarMockMvc
+            .perform(get(ENTITY_API_URL_ID, Long.MAX_VALUE).header(HttpHeaders.IF_NONE_MATCH, "W/\"0\""))
+            .andExpect(status().isNotFound());
+    }
+
+    @Test
+    @Transactional
+    void getAllCarsIsNotModifiedWithTheETagOfTheTable() throws Exception {
+        // Initialize the database
+        insertedCar = carRepository.saveAndFlush(car);
+
+        String eTag = restCarMockMvc
+            .perform(get(ENTITY_API_URL + "?sort=id,desc"))
+            .andExpect(status().isOk())
+            .andReturn()
+            .getResponse()
+            .getHeader(HttpHeaders.ETAG);
+        assertThat(eTag).isNotNull();
+
+        // Only the change counter of the table is read
+        restCarMockMvc
+            .perform(get(ENTITY_API_URL + "?sort=id,desc").header(HttpHeaders.IF_NONE_MATCH, "W/\"other\", " + eTag))
+            .andExpect(status().isNotModified())
+            .andExpect(content().string(""))
+            .andExpect(sqlStatementsAtMost(1));
+        restCarMockMvc
+            .perform(get(ENTITY_API_URL + "/count").header(HttpHeaders.IF_NONE_MATCH, eTag))
+            .andExpect(status().isNotModified())
+            .andExpect(sqlStatementsAtMost(1));
+        restCarMockMvc
+            .perform(get(ENTITY_API_URL + "?sort=id,desc").header(HttpHeaders.IF_NONE_MATCH, "W/\"other\""))
+            .andExpect(status().isOk())
+            .andExpect(header().string(HttpHeaders.ETAG, eTag));
+    }
+
     @Test
     @Transactional
     void putExistingCar() throws Exception {
@@ -210,18 +629,86 @@ class CarResourceIT {
         assertPersistedCarToMatchAllProperties(updatedCar);
     }
 
+    @Test
+    @Transactional
+    void putExistingCarRunsASingleStatement() throws Exception {
+        // Initialize the database
+        insertedCar = carRepository.saveAndFlush(car);
+        long version = car.getVersion();
+        Car updatedCar = createUpdatedEntity().id(car.getId()).version(version);
+        // Like in a real request, the car is not in the persistence context already
+        em.detach(car);
+
+        restCarMockMvc
+            .perform(
+                put(ENTITY_API_URL_ID, updatedCar.getId())
+                    .with(csrf())
+                    .contentType(MediaType.APPLICATION_JSON)
+                    .content(om.writeValueAsBytes(updatedCar))
+            )
+            .andExpect(status().isOk())
+            .andExpect(jsonPath("$.model").value(UPDATED_MODEL))
+            .andExpect(jsonPath("$.version").value(version + 1))
+            .andExpect(sqlStatementsAtMost(1));
+
+        assertPersistedCarToMatchAllProperties(updatedCar);
+        assertThat(getPersistedCar(car).getVersion()).isEqualTo(version + 1);
+    }
+
+    @Test
+    @Transactional
+    void putStaleCarIsRejected() throws Exception {
+        // Initialize the database, then update the car behind the back of the client
+        insertedCar = carRepository.saveAndFlush(car);
+        Car staleCar = createUpdatedEntity().id(car.getId()).version(car.getVersion());
+        carRepository.update(createEntity().id(car.getId()).cyear(UPDATED_CYEAR));
+
+        restCarMockMvc
+            .perform(
+                put(ENTITY_API_URL_ID, staleCar.getId()).with(csrf()).contentType(MediaType.APPLICATION_JSON).content(om.writeValueAsBytes(staleCar))
+            )
+            .andExpect(status().isConflict())
+            .andExpect(jsonPath("$.message").value("error.concurrencyFailure"));
+
+        // Validate the Car in the database
+        Car persistedCar = getPersistedCar(car);
+        assertThat(persistedCar.getModel()).isEqualTo(DEFAULT_MODEL);
+        assertThat(persistedCar.getCyear()).isEqualTo(UPDATED_CYEAR);
+    }
+
+    @Test
+    @Transactional
+    void patchStaleCarIsRejected() throws Exception {
+        // Initialize the database, then update the car behind the back of the client
+        insertedCar = carRepository.saveAndFlush(car);
+        Car staleCar = new Car().id(car.getId()).version(car.getVersion()).model(UPDATED_MODEL);
+        carRepository.partialUpdate(new Car().id(car.getId()).cyear(UPDATED_CYEAR));
+
+        restCarMockMvc
+            .perform(
+                patch(ENTITY_API_URL_ID, staleCar.getId())
+                    .with(csrf())
+                    .contentType("application/merge-patch+json")
+                    .content(om.writeValueAsBytes(staleCar))
+            )
+            .andExpect(status().isConflict());
+
+        // Validate the Car in the database
+        assertThat(getPersistedCar(car).getModel()).isEqualTo(DEFAULT_MODEL);
+    }
+
     @Test
     @Transactional
     void putNonExistingCar() throws Exception {
         long databaseSizeBeforeUpdate = getRepositoryCount();
         car.setId(longCount.incrementAndGet());
 
-        // If the entity doesn't have an ID, it will throw BadRequestAlertException
+        // No row is updated, so the car is not found
         restCarMockMvc
             .perform(
                 put(ENTITY_API_URL_ID, car.getId()).with(csrf()).contentType(MediaType.APPLICATION_JSON).content(om.writeValueAsBytes(car))
             )
-            .andExpect(status().isBadRequest());
+            .andExpect(status().isNotFound());
 
         // Validate the Car in the database
         assertSameRepositoryCount(databaseSizeBeforeUpdate);
@@ -326,7 +813,7 @@ class CarResourceIT {
         long databaseSizeBeforeUpdate = getRepositoryCount();
         car.setId(longCount.incrementAndGet());
 
-        // If the entity doesn't have an ID, it will throw BadRequestAlertException
+        // No row is updated, so the car is not found
         restCarMockMvc
             .perform(
                 patch(ENTITY_API_URL_ID, car.getId())
@@ -334,7 +821,7 @@ class CarResourceIT {
                     .contentType("application/merge-patch+json")
                     .content(om.writeValueAsBytes(car))
             )
-            .andExpect(status().isBadRequest());
+            .andExpect(status().isNotFound());
 
         // Validate the Car in the database
         assertSameRepositoryCount(databaseSizeBeforeUpdate);
@@ -392,6 +879,27 @@ class CarResourceIT {
         assertDecrementedRepositoryCount(databaseSizeBeforeDelete);
     }
 
+    @Test
+    @WithMockUser(authorities = AuthoritiesConstants.ADMIN)
+    void checkAvailabilityIndex() throws Exception {
+        restCarMockMvc
+            .perform(post(ENTITY_API_URL + "/availability-index/rebuild").with(csrf()))
+            .andExpect(status().isOk())
+            .andExpect(jsonPath("$").isNumber());
+
+        restCarMockMvc
+            .perform(get(ENTITY_API_URL + "/availability-index/check"))
+            .andExpect(status().isOk())
+            .andExpect(jsonPath("$.indexedCars").isNumber())
+            .andExpect(jsonPath("$.availableCars").isNumber())
+            .andExpect(jsonPath("$.mismatchedCars").isNumber());
+    }
+
+    @Test
+    void rebuildAvailabilityIndexIsForbiddenToUsers() throws Exception {
+        restCarMockMvc.perform(post(ENTITY_API_URL + "/availability-index/rebuild").with(csrf())).andExpect(status().isForbidden());
+    }
+
     protected long getRepositoryCount() {
         return carRepository.count();
     }
@@ -0,0 +1,61 @@
+package com.joaogomes.icligo.web.rest;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import com.joaogomes.icligo.web.filter.SqlStatistics;
+import com.joaogomes.icligo.web.filter.SqlStatisticsFilter;
+import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.test.web.servlet.ResultMatcher;
+
+/**
+ * {@link ResultMatcher}s on the SQL statements run by a request, to catch N+1 selects in the tests of the REST
+ * controllers. The failure messages list the statements run.
+ * <p>
+ * The statements are counted by the {@link SqlStatisticsFilter}, from the moment the request enters the filter chain.
+ * As the tests share the transaction of the request, entities already loaded by the test are not loaded again by the
+ * request: clear the {@code EntityManager} before performing the request to count them.
+ */
+public final class SqlStatisticsMatchers {
+
+    private SqlStatisticsMatchers() {}
+
+    /**
+     * Assert that the request ran at most the given number of SQL statements.
+     *
+     * @param maxStatements the maximum number of statements.
+     * @return the matcher.
+     */
+    public static ResultMatcher sqlStatementsAtMost(int maxStatements) {
+        return result -> {
+            SqlStatistics statistics = statistics(result);
+            assertThat(statistics.getStatements())
+                .as("SQL statements run by %s: %s", requestOf(result), statistics.getExecutions())
+                .isLessThanOrEqualTo(maxStatements);
+        };
+    }
+
+    /**
+     * Assert that the request ran each SQL statement at most the given number of times.
+     *
+     * @param maxExecutions the maximum number of executions of a statement.
+     * @return the matcher.
+     */
+    public static ResultMatcher sqlStatementsRepeatedAtMost(int maxExecutions) {
+        return result -> {
+            SqlStatistics statistics = statistics(result);
+            assertThat(statistics.getExecutions().values())
+                .as("SQL statements run by %s: %s", requestOf(result), statistics.getExecutions())
+                .allMatch(executions -> executions <= maxExecutions);
+        };
+    }
+
+    private static SqlStatistics statistics(MvcResult result) {
+        SqlStatistics statistics = (SqlStatistics) result.getRequest().getAttribute(SqlStatisticsFilter.STATISTICS_ATTRIBUTE);
+        assertThat(statistics).as("SQL statistics of the request, are they enabled?").isNotNull();
+        return statistics;
+    }
+
+    private static String requestOf(MvcResult result) {
+        return result.getRequest().getMethod() + " " + result.getRequest().getRequestURI();
+    }
+}
@@ -1,6 +1,9 @@
 package com.joaogomes.icligo.web.rest;
 
+import static com.joaogomes.icligo.web.rest.SqlStatisticsMatchers.sqlStatementsAtMost;
+import static com.joaogomes.icligo.web.rest.SqlStatisticsMatchers.sqlStatementsRepeatedAtMost;
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.hamcrest.Matchers.containsString;
 import static org.hamcrest.Matchers.hasItem;
 import static org.springframework.security.test.web.servlet.request.SecurityMockMvcRequestPostProcessors.csrf;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
@@ -8,13 +11,18 @@ import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.
 
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.joaogomes.icligo.IntegrationTest;
+import com.joaogomes.icligo.domain.Authority;
+import com.joaogomes.icligo.domain.PersistentToken;
 import com.joaogomes.icligo.domain.User;
+import com.joaogomes.icligo.repository.AuthorityRepository;
+import com.joaogomes.icligo.repository.PersistentTokenRepository;
 import com.joaogomes.icligo.repository.UserRepository;
 import com.joaogomes.icligo.security.AuthoritiesConstants;
 import com.joaogomes.icligo.service.UserService;
 import com.joaogomes.icligo.service.dto.AdminUserDTO;
 import com.joaogomes.icligo.service.mapper.UserMapper;
 import jakarta.persistence.EntityManager;
+import java.time.LocalDate;
 import java.util.*;
 import java.util.function.Consumer;
 import org.apache.commons.lang3.RandomStringUtils;
@@ -23,9 +31,11 @@ import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.MediaType;
 import org.springframework.security.test.context.support.WithMockUser;
 import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
 import org.springframework.transaction.annotation.Transactional;
 
 /**
@@ -62,6 +72,12 @@ class UserResourceIT {
     @Autowired
     private UserRepository userRepository;
 
+    @Autowired
+    private AuthorityRepository authorityRepository;
+
+    @Autowired
+    private PersistentTokenRepository persistentTokenRepository;
+
     @Autowired
     private UserService userService;
 
@@ -259,6 +275,66 @@ class UserResourceIT {
             .andExpect(jsonPath("$.[*].langKey").value(hasItem(DEFAULT_LANGKEY)));
     }
 
+    @Test
+    @Transactional
+    void getAllUsersDoesNotLoadTheAuthoritiesOfEachUser() throws Exception {
+        // Initialize the database with users having authorities, and clear them from the persistence context
+        Authority userAuthority = em.find(Authority.class, AuthoritiesConstants.USER);
+        List<User> otherUsers = new ArrayList<>();
+        for (int i = 0; i < 5; i++) {
+            User otherUser = createEntity();
+            otherUser.setAuthorities(new HashSet<>(Set.of(userAuthority)));
+            otherUsers.add(userRepository.save(otherUser));
+        }
+        em.flush();
+        em.clear();
+
+        // One query for the ETag, one for the page, one for its count and one for the authorities of its users
+        restUserMockMvc
+            .perform(get("/api/admin/users?sort=id,desc").accept(MediaType.APPLICATION_JSON))
+            .andExpect(status().isOk())
+            .andExpect(jsonPath("$.[0].authorities").value(hasItem(AuthoritiesConstants.USER)))
+            .andExpect(sqlStatementsAtMost(4))
+            .andExpect(sqlStatementsRepeatedAtMost(1));
+
+        otherUsers.forEach(otherUser -> userService.deleteUser(otherUser.getLogin()));
+    }
+
+    @Test
+    @Transactional
+    void getAllUsersWithCursor() throws Exception {
+        // Initialize the database
+        userRepository.saveAndFlush(user);
+
+        // Get the first page in cursor mode, without count
+        String link = restUserMockMvc
+            .perform(get("/api/admin/users?after=&size=1").accept(MediaType.APPLICATION_JSON))
+            .andExpect(status().isOk())
+            .andExpect(content().contentType(MediaType.APPLICATION_JSON_VALUE))
+            .andExpect(jsonPath("$.length()").value(1))
+            .andExpect(header().string(HttpHeaders.LINK, containsString("rel=\"next\"")))
+            .andExpect(header().doesNotExist("X-Total-Count"))
+            .andReturn()
+            .getResponse()
+            .getHeader(HttpHeaders.LINK);
+
+        // Follow the next link, which seeks past the first user
+        restUserMockMvc
+            .perform(get(link.substring(link.indexOf('<') + 1, link.indexOf('>'))).accept(MediaType.APPLICATION_JSON))
+            .andExpect(status().isOk())
+            .andExpect(jsonPath("$.length()").value(1));
+
+        // The newest user comes first when sorted by descending id
+        restUserMockMvc
+            .perform(get("/api/admin/users?after=&size=1&sort=id,desc").accept(MediaType.APPLICATION_JSON))
+            .andExpect(status().isOk())
+            .andExpect(jsonPath("$.[0].login").value(DEFAULT_LOGIN));
+
+        restUserMockMvc
+            .perform(get("/api/admin/users?after=&sort=login,asc").accept(MediaType.APPLICATION_JSON))
+            .andExpect(status().isBadRequest());
+    }
+
     @Test
     @Transactional
     void getUser() throws Exception {
@@ -278,6 +354,61 @@ class UserResourceIT {
             .andExpect(jsonPath("$.langKey").value(DEFAULT_LANGKEY));
     }
 
+    @Test
+    void streamAllUsers() throws Exception {
+        // Initialize the database, outside of a test transaction as the stream is written in its own thread
+        user.setAuthorities(new HashSet<>(Set.of(authorityRepository.findById(AuthoritiesConstants.USER).orElseThrow())));
+        userRepository.saveAndFlush(user);
+
+        MvcResult result = restUserMockMvc
+            .perform(get("/api/admin/users?sort=login,asc").accept(MediaType.APPLICATION_NDJSON))
+            .andExpect(request().asyncStarted())
+            .andReturn();
+        String body = restUserMockMvc
+            .perform(asyncDispatch(result))
+            .andExpect(status().isOk())
+            .andExpect(content().contentTypeCompatibleWith(MediaType.APPLICATION_NDJSON))
+            .andReturn()
+            .getResponse()
+            .getContentAsString();
+
+        List<AdminUserDTO> users = new ArrayList<>();
+        for (String line : body.split("\n")) {
+            users.add(om.readValue(line, AdminUserDTO.class));
+        }
+        assertThat(users).hasSize((int) userRepository.count()).isSortedAccordingTo(Comparator.comparing(AdminUserDTO::getId));
+        assertThat(users)
+            .filteredOn(userDTO -> userDTO.getLogin().equals(DEFAULT_LOGIN))
+            .singleElement()
+            .satisfies(userDTO -> assertThat(userDTO.getAuthorities()).containsExactly(AuthoritiesConstants.USER));
+    }
+
+    @Test
+    @Transactional
+    void getUserIsNotModifiedWithTheETagOfTheTable() throws Exception {
+        // Initialize the database
+        userRepository.saveAndFlush(user);
+
+        String eTag = restUserMockMvc
+            .perform(get("/api/admin/users/{login}", user.getLogin()))
+            .andExpect(status().isOk())
+            .andReturn()
+            .getResponse()
+            .getHeader(HttpHeaders.ETAG);
+        assertThat(eTag).isNotNull();
+
+        // Only the change counter of the table is read
+        restUserMockMvc
+            .perform(get("/api/admin/users/{login}", user.getLogin()).header(HttpHeaders.IF_NONE_MATCH, eTag))
+            .andExpect(status().isNotModified())
+            .andExpect(content().string(""))
+            .andExpect(sqlStatementsAtMost(1));
+        restUserMockMvc
+            .perform(get("/api/admin/users").header(HttpHeaders.IF_NONE_MATCH, eTag))
+            .andExpect(status().isNotModified())
+            .andExpect(sqlStatementsAtMost(1));
+    }
+
     @Test
     @Transactional
     void getNonExistingUser() throws Exception {
@@ -463,6 +594,29 @@ class UserResourceIT {
         assertPersistedUsers(users -> assertThat(users).hasSize(databaseSizeBeforeDelete - 1));
     }
 
+    @Test
+    @Transactional
+    void revokeSessions() throws Exception {
+        userRepository.saveAndFlush(user);
+        for (String series : List.of("revoke-sessions-1", "revoke-sessions-2")) {
+            PersistentToken token = new PersistentToken();
+            token.setSeries(series);
+            token.setUser(user);
+            token.setTokenValue("revoke-data");
+            token.setTokenDate(LocalDate.of(2017, 3, 23));
+            token.setUserAgent("Test agent");
+            persistentTokenRepository.saveAndFlush(token);
+        }
+
+        restUserMockMvc
+            .perform(delete("/api/admin/users/{login}/sessions", user.getLogin()).with(csrf()))
+            .andExpect(status().isNoContent())
+            .andExpect(header().string("X-projetoIcligoApp-params", "2"))
+            .andExpect(sqlStatementsAtMost(1));
+
+        assertThat(persistentTokenRepository.findByUser(user)).isEmpty();
+    }
+
     @Test
     void testUserEquals() throws Exception {
         TestUtil.equalsVerifier(User.class);
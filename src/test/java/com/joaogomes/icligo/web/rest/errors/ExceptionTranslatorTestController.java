@@ -1,5 +1,6 @@
 package com.joaogomes.icligo.web.rest.errors;
 
+import com.joaogomes.icligo.security.PasswordHashingRejectedException;
 import jakarta.validation.Valid;
 import jakarta.validation.constraints.NotNull;
 import org.springframework.dao.ConcurrencyFailureException;
@@ -37,6 +38,11 @@ public class ExceptionTranslatorTestController {
         throw new AccessDeniedException("test access denied!");
     }
 
+    @GetMapping("/password-hashing-rejected")
+    public void passwordHashingRejected() {
+        throw new PasswordHashingRejectedException("test password hashing rejected");
+    }
+
     @GetMapping("/unauthorized")
     public void unauthorized() {
         throw new BadCredentialsException("test authentication failed!");
@@ -0,0 +1,25 @@
+package com.joaogomes.icligo;
+
+import com.joaogomes.icligo.config.AsyncSyncConfiguration;
+import com.joaogomes.icligo.config.JacksonConfiguration;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+
+/**
+ * Starts the application the way the {@link IntegrationTest integration tests} do, on the in-memory H2 database of the
+ * {@code testdev} profile, for the benchmarks that need the real beans.
+ */
+public final class BenchmarkApplication {
+
+    private BenchmarkApplication() {}
+
+    public static ConfigurableApplicationContext start() {
+        return new SpringApplicationBuilder(ProjetoIcligoApp.class, JacksonConfiguration.class, AsyncSyncConfiguration.class)
+            .profiles("test", "testdev")
+            .web(WebApplicationType.SERVLET)
+            // Let the system pick a free port, MockMvc does not go through the embedded server anyway
+            .properties("server.port=0")
+            .run();
+    }
+}
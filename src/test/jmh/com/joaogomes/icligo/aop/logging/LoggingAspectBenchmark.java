@@ -0,0 +1,63 @@
+package com.joaogomes.icligo.aop.logging;
+
+import ch.qos.logback.classic.Level;
+import ch.qos.logback.classic.Logger;
+import com.joaogomes.icligo.config.ApplicationProperties;
+import com.joaogomes.icligo.domain.User;
+import com.joaogomes.icligo.service.dto.UserDTO;
+import com.joaogomes.icligo.service.mapper.UserMapper;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.*;
+import org.slf4j.LoggerFactory;
+import org.springframework.aop.aspectj.annotation.AspectJProxyFactory;
+import org.springframework.mock.env.MockEnvironment;
+
+/**
+ * Overhead of {@link LoggingAspect} on a cheap service call, {@link UserMapper#userToUserDTO}.
+ * <p>
+ * {@code none} calls the mapper directly, {@code disabled} through the aspect with timing switched off, {@code timed}
+ * with timing on, as in production, and {@code debug} with the mapper's logger at DEBUG level, the default sample rate
+ * and no appender.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class LoggingAspectBenchmark {
+
+    @Param({ "none", "disabled", "timed", "debug" })
+    public String mode;
+
+    private UserMapper userMapper;
+
+    private User user;
+
+    @Setup
+    public void setUp() {
+        user = new User();
+        user.setLogin("johndoe");
+        user.setEmail("johndoe@localhost");
+        Logger mapperLogger = (Logger) LoggerFactory.getLogger(UserMapper.class);
+        Logger timingLogger = (Logger) LoggerFactory.getLogger(LoggingAspect.TIMING_LOGGER_PREFIX + UserMapper.class.getName());
+        mapperLogger.detachAndStopAllAppenders();
+        mapperLogger.setAdditive(false);
+        mapperLogger.setLevel("debug".equals(mode) ? Level.DEBUG : Level.INFO);
+        timingLogger.setLevel("disabled".equals(mode) ? Level.WARN : Level.INFO);
+        if ("none".equals(mode)) {
+            userMapper = new UserMapper();
+        } else {
+            AspectJProxyFactory proxyFactory = new AspectJProxyFactory(new UserMapper());
+            proxyFactory.setProxyTargetClass(true);
+            proxyFactory.addAspect(new LoggingAspect(new MockEnvironment(), new SimpleMeterRegistry(), new ApplicationProperties()));
+            userMapper = proxyFactory.getProxy();
+        }
+    }
+
+    @Benchmark
+    public UserDTO userToUserDTO() {
+        return userMapper.userToUserDTO(user);
+    }
+}
@@ -0,0 +1,82 @@
+package com.joaogomes.icligo.config;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.joaogomes.icligo.BenchmarkApplication;
+import com.joaogomes.icligo.domain.Authority;
+import com.joaogomes.icligo.domain.Car;
+import com.joaogomes.icligo.domain.User;
+import com.joaogomes.icligo.security.AuthoritiesConstants;
+import com.joaogomes.icligo.service.dto.AdminUserDTO;
+import java.time.Instant;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.context.ConfigurableApplicationContext;
+
+/**
+ * Benchmark of the JSON serialisation of the REST payloads, with the {@link ObjectMapper} configured by the application.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class JacksonSerializationBenchmark {
+
+    private ObjectMapper objectMapper;
+
+    private Car car;
+
+    private AdminUserDTO adminUserDTO;
+
+    private byte[] carJson;
+
+    private byte[] adminUserDTOJson;
+
+    @Setup
+    public void setUp() throws Exception {
+        try (ConfigurableApplicationContext context = BenchmarkApplication.start()) {
+            objectMapper = context.getBean(ObjectMapper.class);
+        }
+        car = new Car().id(1L).model("Model S").brand("Tesla").cyear(2020).available(true);
+        Authority authority = new Authority();
+        authority.setName(AuthoritiesConstants.ADMIN);
+        User user = new User();
+        user.setId(1L);
+        user.setLogin("admin");
+        user.setFirstName("Administrator");
+        user.setLastName("Administrator");
+        user.setEmail("admin@localhost");
+        user.setActivated(true);
+        user.setLangKey("en");
+        user.setCreatedBy("system");
+        user.setCreatedDate(Instant.now());
+        user.setLastModifiedBy("system");
+        user.setLastModifiedDate(Instant.now());
+        user.setAuthorities(Set.of(authority));
+        adminUserDTO = new AdminUserDTO(user);
+        carJson = objectMapper.writeValueAsBytes(car);
+        adminUserDTOJson = objectMapper.writeValueAsBytes(adminUserDTO);
+    }
+
+    @Benchmark
+    public byte[] serializeCar() throws Exception {
+        return objectMapper.writeValueAsBytes(car);
+    }
+
+    @Benchmark
+    public Car deserializeCar() throws Exception {
+        return objectMapper.readValue(carJson, Car.class);
+    }
+
+    @Benchmark
+    public byte[] serializeAdminUserDTO() throws Exception {
+        return objectMapper.writeValueAsBytes(adminUserDTO);
+    }
+
+    @Benchmark
+    public AdminUserDTO deserializeAdminUserDTO() throws Exception {
+        return objectMapper.readValue(adminUserDTOJson, AdminUserDTO.class);
+    }
+}
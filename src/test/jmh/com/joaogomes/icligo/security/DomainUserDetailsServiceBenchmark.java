@@ -0,0 +1,73 @@
+package com.joaogomes.icligo.security;
+
+import com.joaogomes.icligo.BenchmarkApplication;
+import com.joaogomes.icligo.repository.UserRepository;
+import java.util.Objects;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.security.core.userdetails.UserDetails;
+import org.springframework.security.core.userdetails.UserDetailsService;
+
+/**
+ * Benchmark of {@link DomainUserDetailsService#loadUserByUsername}, on H2, for the default {@code user} account.
+ * <p>
+ * The {@code *Cached} benchmarks measure the path taken by logins once the user details are cached, the
+ * {@code *Uncached} ones evict the user details and user caches first, to measure the database lookup.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class DomainUserDetailsServiceBenchmark {
+
+    private static final String LOGIN = "user";
+
+    private static final String EMAIL = "user@localhost";
+
+    private ConfigurableApplicationContext context;
+
+    private UserDetailsService userDetailsService;
+
+    private Cache[] caches;
+
+    @Setup
+    public void setUp() {
+        context = BenchmarkApplication.start();
+        userDetailsService = context.getBean("userDetailsService", UserDetailsService.class);
+        CacheManager cacheManager = context.getBean(CacheManager.class);
+        caches = new Cache[] {
+            Objects.requireNonNull(cacheManager.getCache(DomainUserDetailsService.USER_DETAILS_BY_LOGIN_CACHE)),
+            Objects.requireNonNull(cacheManager.getCache(DomainUserDetailsService.USER_DETAILS_BY_EMAIL_CACHE)),
+            Objects.requireNonNull(cacheManager.getCache(UserRepository.USERS_BY_LOGIN_CACHE)),
+            Objects.requireNonNull(cacheManager.getCache(UserRepository.USERS_BY_EMAIL_CACHE)),
+        };
+    }
+
+    @TearDown
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    public UserDetails loginCached() {
+        return userDetailsService.loadUserByUsername(LOGIN);
+    }
+
+    @Benchmark
+    public UserDetails emailCached() {
+        return userDetailsService.loadUserByUsername(EMAIL);
+    }
+
+    @Benchmark
+    public UserDetails loginUncached() {
+        for (Cache cache : caches) {
+            cache.clear();
+        }
+        return userDetailsService.loadUserByUsername(LOGIN);
+    }
+}
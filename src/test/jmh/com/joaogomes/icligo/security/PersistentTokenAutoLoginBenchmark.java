@@ -0,0 +1,92 @@
+package com.joaogomes.icligo.security;
+
+import com.joaogomes.icligo.BenchmarkApplication;
+import com.joaogomes.icligo.domain.PersistentToken;
+import com.joaogomes.icligo.repository.PersistentTokenRepository;
+import com.joaogomes.icligo.repository.UserRepository;
+import jakarta.servlet.http.Cookie;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.util.Base64;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.security.core.userdetails.UserDetails;
+import tech.jhipster.security.RandomUtil;
+
+/**
+ * Benchmark of {@link PersistentTokenRememberMeServices#processAutoLoginCookie}, with the real repositories on H2.
+ * <p>
+ * Every benchmark thread owns a token of the default {@code user} account and presents the value returned by its
+ * previous call, so that every call rotates the token. See {@link PersistentTokenRememberMeServicesBenchmark} for the
+ * contention between threads.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class PersistentTokenAutoLoginBenchmark {
+
+    private ConfigurableApplicationContext context;
+
+    private PersistentTokenRememberMeServices rememberMeServices;
+
+    private PersistentTokenRepository persistentTokenRepository;
+
+    private UserRepository userRepository;
+
+    @Setup
+    public void setUp() {
+        context = BenchmarkApplication.start();
+        rememberMeServices = context.getBean(PersistentTokenRememberMeServices.class);
+        persistentTokenRepository = context.getBean(PersistentTokenRepository.class);
+        userRepository = context.getBean(UserRepository.class);
+    }
+
+    @TearDown
+    public void tearDown() {
+        context.close();
+    }
+
+    @State(Scope.Thread)
+    public static class Session {
+
+        private String[] cookieTokens;
+
+        @Setup
+        public void setUp(PersistentTokenAutoLoginBenchmark benchmark) {
+            PersistentToken token = new PersistentToken();
+            token.setSeries(RandomUtil.generateRandomAlphanumericString());
+            token.setTokenValue(RandomUtil.generateRandomAlphanumericString());
+            token.setTokenDate(LocalDate.now());
+            token.setIpAddress("127.0.0.1");
+            token.setUserAgent("benchmark");
+            token.setUser(benchmark.userRepository.findOneByLogin("user").orElseThrow());
+            benchmark.persistentTokenRepository.saveAndFlush(token);
+            cookieTokens = new String[] { token.getSeries(), token.getTokenValue() };
+        }
+    }
+
+    @Benchmark
+    public UserDetails autoLogin(Session session) {
+        MockHttpServletRequest request = new MockHttpServletRequest();
+        request.addHeader("User-Agent", "benchmark");
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        UserDetails userDetails = rememberMeServices.processAutoLoginCookie(session.cookieTokens, request, response);
+        session.cookieTokens = decodeCookie(response.getCookies()[0]);
+        return userDetails;
+    }
+
+    private static String[] decodeCookie(Cookie cookie) {
+        String[] tokens = new String(Base64.getDecoder().decode(cookie.getValue()), StandardCharsets.UTF_8).split(":");
+        for (int i = 0; i < tokens.length; i++) {
+            tokens[i] = URLDecoder.decode(tokens[i], StandardCharsets.UTF_8);
+        }
+        return tokens;
+    }
+}
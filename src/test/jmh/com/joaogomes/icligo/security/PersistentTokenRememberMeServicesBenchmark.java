@@ -0,0 +1,118 @@
+package com.joaogomes.icligo.security;
+
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.*;
+
+import com.github.benmanes.caffeine.jcache.spi.CaffeineCachingProvider;
+import com.joaogomes.icligo.domain.PersistentToken;
+import com.joaogomes.icligo.domain.User;
+import com.joaogomes.icligo.repository.PersistentTokenRepository;
+import com.joaogomes.icligo.repository.UserRepository;
+import java.time.LocalDate;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+import javax.cache.CacheManager;
+import javax.cache.Caching;
+import javax.cache.configuration.MutableConfiguration;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.security.core.userdetails.UserDetails;
+import tech.jhipster.config.JHipsterProperties;
+import tech.jhipster.security.RandomUtil;
+
+/**
+ * Contention benchmark for {@link PersistentTokenRememberMeServices#processAutoLoginCookie}.
+ * <p>
+ * Every benchmark thread refreshes its own series, against a token repository whose lookups and writes wait
+ * {@code dbLatencyMicros} to stand for the database round-trips. Behind a JVM-wide lock the throughput would stay at
+ * one refresh per two round-trips whatever the number of threads; compare {@code singleThread} with {@code allThreads}
+ * to check that it scales.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class PersistentTokenRememberMeServicesBenchmark {
+
+    @Param({ "200" })
+    public long dbLatencyMicros;
+
+    private final Map<String, PersistentToken> tokens = new ConcurrentHashMap<>();
+
+    private PersistentTokenRememberMeServices rememberMeServices;
+
+    @Setup
+    public void setUp() {
+        JHipsterProperties jHipsterProperties = new JHipsterProperties();
+        jHipsterProperties.getSecurity().getRememberMe().setKey("benchmark-remember-me-key");
+        PersistentTokenRepository persistentTokenRepository = mock(PersistentTokenRepository.class, withSettings().stubOnly());
+        when(persistentTokenRepository.findById(anyString())).thenAnswer(invocation -> {
+            databaseRoundTrip();
+            return Optional.ofNullable(tokens.get(invocation.<String>getArgument(0)));
+        });
+        when(persistentTokenRepository.updateTokenValue(anyString(), anyString(), anyString())).thenAnswer(invocation -> {
+            databaseRoundTrip();
+            return true;
+        });
+        CacheManager cacheManager = Caching.getCachingProvider(CaffeineCachingProvider.class.getName()).getCacheManager();
+        cacheManager.destroyCache(PersistentTokenRememberMeServices.UPGRADED_TOKENS_CACHE);
+        cacheManager.createCache(PersistentTokenRememberMeServices.UPGRADED_TOKENS_CACHE, new MutableConfiguration<>());
+        rememberMeServices = new PersistentTokenRememberMeServices(
+            jHipsterProperties,
+            login -> org.springframework.security.core.userdetails.User.withUsername(login).password("password").authorities("ROLE_USER").build(),
+            persistentTokenRepository,
+            mock(UserRepository.class, withSettings().stubOnly()),
+            mock(PersistentTokenActivityWriter.class, withSettings().stubOnly()),
+            cacheManager
+        );
+    }
+
+    @State(Scope.Thread)
+    public static class Session {
+
+        private String series;
+
+        @Setup
+        public void setUp(PersistentTokenRememberMeServicesBenchmark benchmark) {
+            series = RandomUtil.generateRandomAlphanumericString();
+            User user = new User();
+            user.setLogin("user-" + series);
+            PersistentToken token = new PersistentToken();
+            token.setSeries(series);
+            token.setTokenValue(RandomUtil.generateRandomAlphanumericString());
+            token.setTokenDate(LocalDate.now());
+            token.setUser(user);
+            benchmark.tokens.put(series, token);
+        }
+    }
+
+    @Benchmark
+    @Threads(1)
+    public UserDetails singleThread(Session session) {
+        return autoLogin(session);
+    }
+
+    @Benchmark
+    @Threads(Threads.MAX)
+    public UserDetails allThreads(Session session) {
+        return autoLogin(session);
+    }
+
+    private UserDetails autoLogin(Session session) {
+        // Present the current token value, so that every call refreshes the token instead of hitting the upgraded token cache
+        String[] cookieTokens = { session.series, tokens.get(session.series).getTokenValue() };
+        MockHttpServletRequest request = new MockHttpServletRequest();
+        request.addHeader("User-Agent", "benchmark");
+        return rememberMeServices.processAutoLoginCookie(cookieTokens, request, new MockHttpServletResponse());
+    }
+
+    private void databaseRoundTrip() {
+        LockSupport.parkNanos(TimeUnit.MICROSECONDS.toNanos(dbLatencyMicros));
+    }
+}
@@ -0,0 +1,105 @@
+package com.joaogomes.icligo.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.joaogomes.icligo.BenchmarkApplication;
+import com.joaogomes.icligo.domain.Car;
+import com.joaogomes.icligo.repository.CarRepository;
+import com.joaogomes.icligo.service.criteria.CarCriteria;
+import java.io.OutputStream;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Sort;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+/**
+ * Benchmark of the two ways {@code GET /api/cars} lists all the cars, on H2: the paged path, which loads a {@link
+ * org.springframework.data.domain.Page} of all the cars and serializes it as a JSON array, and the newline-delimited JSON
+ * path, which writes each car as it is read from a cursor.
+ * <p>
+ * The responses are written to a null output, to measure the memory of the listing only. Run with {@code -prof gc}: both
+ * paths allocate about as much per listing ({@code gc.alloc.rate.norm}), but the paged path keeps every car of the page,
+ * and its persistence context entry, until the response is written. Its cars survive the young collections, which shows
+ * in {@code gc.time} growing with the table, while the streamed cars are collected young.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class CarListingBenchmark {
+
+    private static final int INSERT_BATCH_SIZE = 1000;
+
+    @Param({ "10000", "100000" })
+    public int cars;
+
+    private ConfigurableApplicationContext context;
+
+    private CarQueryService carQueryService;
+
+    private CarBulkService carBulkService;
+
+    private ObjectMapper objectMapper;
+
+    private TransactionTemplate readOnlyTransactionTemplate;
+
+    @Setup
+    public void setUp() {
+        context = BenchmarkApplication.start();
+        carQueryService = context.getBean(CarQueryService.class);
+        carBulkService = context.getBean(CarBulkService.class);
+        objectMapper = context.getBean(ObjectMapper.class);
+        PlatformTransactionManager transactionManager = context.getBean(PlatformTransactionManager.class);
+        readOnlyTransactionTemplate = new TransactionTemplate(transactionManager);
+        readOnlyTransactionTemplate.setReadOnly(true);
+
+        CarRepository carRepository = context.getBean(CarRepository.class);
+        TransactionTemplate transactionTemplate = new TransactionTemplate(transactionManager);
+        for (int start = 0; start < cars; start += INSERT_BATCH_SIZE) {
+            List<Car> batch = new ArrayList<>(INSERT_BATCH_SIZE);
+            for (int i = start; i < Math.min(cars, start + INSERT_BATCH_SIZE); i++) {
+                batch.add(newCar(i));
+            }
+            transactionTemplate.executeWithoutResult(status -> carRepository.insertAll(batch));
+        }
+    }
+
+    @TearDown
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    public int paged() {
+        // Like CarResource, which serializes the page inside its transaction
+        return readOnlyTransactionTemplate.execute(status -> {
+            List<Car> page = carQueryService.findByCriteria(new CarCriteria(), PageRequest.of(0, cars, Sort.by("id"))).getContent();
+            try {
+                objectMapper.writeValue(OutputStream.nullOutputStream(), page);
+            } catch (Exception e) {
+                throw new IllegalStateException(e);
+            }
+            return page.size();
+        });
+    }
+
+    @Benchmark
+    public long ndjson() throws Exception {
+        return carBulkService.exportNdjson(new CarCriteria(), Writer.nullWriter());
+    }
+
+    private static Car newCar(int i) {
+        return new Car()
+            .model("Model " + (i % 50))
+            .brand("Brand " + (i % 10))
+            .cyear(1990 + (i % 35))
+            .available(i % 2 == 0);
+    }
+}
@@ -0,0 +1,91 @@
+package com.joaogomes.icligo.service;
+
+import com.joaogomes.icligo.BenchmarkApplication;
+import com.joaogomes.icligo.domain.User;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.context.MessageSource;
+import org.thymeleaf.context.Context;
+import org.thymeleaf.spring6.SpringTemplateEngine;
+
+/**
+ * Benchmark of the rendering of a page of activation emails, in English and Portuguese.
+ * <p>
+ * {@code thymeleaf} renders them the way {@link MailService} used to, through the template engine and the message
+ * source, {@code compiled} through {@link MailTemplateCache#renderAll}.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class MailTemplateCacheBenchmark {
+
+    private static final String TEMPLATE = "mail/activationEmail";
+
+    private static final String TITLE_KEY = "email.activation.title";
+
+    @Param({ "1000" })
+    public int users;
+
+    private ConfigurableApplicationContext context;
+
+    private SpringTemplateEngine templateEngine;
+
+    private MessageSource messageSource;
+
+    private MailTemplateCache mailTemplateCache;
+
+    private List<User> page;
+
+    @Setup
+    public void setUp() {
+        context = BenchmarkApplication.start();
+        templateEngine = context.getBean(SpringTemplateEngine.class);
+        messageSource = context.getBean(MessageSource.class);
+        mailTemplateCache = context.getBean(MailTemplateCache.class);
+        page = new ArrayList<>(users);
+        for (int i = 0; i < users; i++) {
+            User user = new User();
+            user.setLogin("user-" + i);
+            user.setEmail("user-" + i + "@localhost");
+            user.setActivationKey("activation-key-" + i);
+            user.setLangKey(i % 2 == 0 ? "en" : "pt-pt");
+            page.add(user);
+        }
+    }
+
+    @TearDown
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    public List<MailTemplateCache.RenderedEmail> thymeleaf() {
+        List<MailTemplateCache.RenderedEmail> emails = new ArrayList<>(page.size());
+        for (User user : page) {
+            Locale locale = Locale.forLanguageTag(user.getLangKey());
+            Context templateContext = new Context(locale);
+            templateContext.setVariable("user", user);
+            templateContext.setVariable("baseUrl", "http://127.0.0.1:8080");
+            emails.add(
+                new MailTemplateCache.RenderedEmail(
+                    user.getEmail(),
+                    messageSource.getMessage(TITLE_KEY, null, locale),
+                    templateEngine.process(TEMPLATE, templateContext)
+                )
+            );
+        }
+        return emails;
+    }
+
+    @Benchmark
+    public List<MailTemplateCache.RenderedEmail> compiled() {
+        return mailTemplateCache.renderAll(page, TEMPLATE, TITLE_KEY);
+    }
+}
@@ -0,0 +1,54 @@
+package com.joaogomes.icligo.service.mapper;
+
+import com.joaogomes.icligo.domain.Authority;
+import com.joaogomes.icligo.domain.User;
+import com.joaogomes.icligo.security.AuthoritiesConstants;
+import com.joaogomes.icligo.service.dto.UserDTO;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.*;
+
+/**
+ * Benchmark of {@link UserMapper#usersToUserDTOs}, for a page of users.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class UserMapperBenchmark {
+
+    @Param({ "20", "1000" })
+    public int users;
+
+    private final UserMapper userMapper = new UserMapper();
+
+    private List<User> page;
+
+    @Setup
+    public void setUp() {
+        Authority authority = new Authority();
+        authority.setName(AuthoritiesConstants.USER);
+        page = new ArrayList<>(users);
+        for (int i = 0; i < users; i++) {
+            User user = new User();
+            user.setId((long) i);
+            user.setLogin("user-" + i);
+            user.setFirstName("First " + i);
+            user.setLastName("Last " + i);
+            user.setEmail("user-" + i + "@localhost");
+            user.setActivated(true);
+            user.setLangKey("en");
+            user.setAuthorities(Set.of(authority));
+            page.add(user);
+        }
+    }
+
+    @Benchmark
+    public List<UserDTO> usersToUserDTOs() {
+        return userMapper.usersToUserDTOs(page);
+    }
+}
@@ -0,0 +1,128 @@
+package com.joaogomes.icligo.web.rest;
+
+import static org.springframework.security.test.web.servlet.request.SecurityMockMvcRequestPostProcessors.csrf;
+import static org.springframework.security.test.web.servlet.request.SecurityMockMvcRequestPostProcessors.user;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.joaogomes.icligo.BenchmarkApplication;
+import com.joaogomes.icligo.domain.Car;
+import com.joaogomes.icligo.repository.CarRepository;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.http.MediaType;
+import org.springframework.security.test.web.servlet.setup.SecurityMockMvcConfigurers;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.request.RequestPostProcessor;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.web.context.WebApplicationContext;
+
+/**
+ * Benchmark of the {@link CarResource} CRUD endpoints, through the whole filter chain with MockMvc, on H2.
+ * <p>
+ * The {@code createAndDelete} benchmark deletes the car it has created, so that the table keeps {@code cars} rows whatever the
+ * number of invocations.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class CarResourceBenchmark {
+
+    private static final String ENTITY_API_URL = "/api/cars";
+
+    private static final RequestPostProcessor USER = user("user").roles("USER");
+
+    @Param({ "1000" })
+    public int cars;
+
+    private ConfigurableApplicationContext context;
+
+    private MockMvc mockMvc;
+
+    private ObjectMapper objectMapper;
+
+    private final List<Long> ids = new ArrayList<>();
+
+    @Setup
+    public void setUp() {
+        context = BenchmarkApplication.start();
+        mockMvc = MockMvcBuilders.webAppContextSetup((WebApplicationContext) context)
+            .apply(SecurityMockMvcConfigurers.springSecurity())
+            .build();
+        objectMapper = context.getBean(ObjectMapper.class);
+        CarRepository carRepository = context.getBean(CarRepository.class);
+        List<Car> batch = new ArrayList<>();
+        for (int i = 0; i < cars; i++) {
+            batch.add(newCar(i));
+        }
+        new TransactionTemplate(context.getBean(PlatformTransactionManager.class)).executeWithoutResult(status ->
+            carRepository.insertAll(batch)
+        );
+        carRepository.findAll().forEach(car -> ids.add(car.getId()));
+    }
+
+    @TearDown
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    public int createAndDelete() throws Exception {
+        byte[] body = mockMvc
+            .perform(post(ENTITY_API_URL).with(USER).with(csrf()).contentType(MediaType.APPLICATION_JSON).content(newCarJson(null)))
+            .andReturn()
+            .getResponse()
+            .getContentAsByteArray();
+        Long id = objectMapper.readValue(body, Car.class).getId();
+        return mockMvc.perform(delete(ENTITY_API_URL + "/{id}", id).with(USER).with(csrf())).andReturn().getResponse().getStatus();
+    }
+
+    @Benchmark
+    public String getById() throws Exception {
+        return mockMvc.perform(get(ENTITY_API_URL + "/{id}", randomId()).with(USER)).andReturn().getResponse().getContentAsString();
+    }
+
+    @Benchmark
+    public String listAvailable() throws Exception {
+        return mockMvc
+            .perform(get(ENTITY_API_URL + "?sort=id,desc&size=20&available.equals=true").with(USER))
+            .andReturn()
+            .getResponse()
+            .getContentAsString();
+    }
+
+    @Benchmark
+    public String update() throws Exception {
+        Long id = randomId();
+        return mockMvc
+            .perform(put(ENTITY_API_URL + "/{id}", id).with(USER).with(csrf()).contentType(MediaType.APPLICATION_JSON).content(newCarJson(id)))
+            .andReturn()
+            .getResponse()
+            .getContentAsString();
+    }
+
+    private Long randomId() {
+        return ids.get(ThreadLocalRandom.current().nextInt(ids.size()));
+    }
+
+    private String newCarJson(Long id) throws Exception {
+        return objectMapper.writeValueAsString(newCar(ThreadLocalRandom.current().nextInt(cars)).id(id));
+    }
+
+    private static Car newCar(int i) {
+        return new Car()
+            .model("Model " + (i % 50))
+            .brand("Brand " + (i % 10))
+            .cyear(1990 + (i % 35))
+            .available(i % 2 == 0);
+    }
+}